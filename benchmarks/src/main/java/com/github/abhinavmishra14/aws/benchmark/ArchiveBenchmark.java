@@ -0,0 +1,150 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class ArchiveBenchmark.<br/>
+ * End to end throughput of {@link GlacierArchiveServiceImpl#archive(String, File, String)} against the
+ * in-process glacier stand-in, which verifies tree hashes of parts like glacier does. Each upload is
+ * deleted again, so that the stand-in does not fill the heap.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "benchmark";
+
+	/** The archive size. */
+	@Param({"67108864"})
+	public long archiveSize;
+
+	/** The part size. */
+	@Param({"1048576", "8388608"})
+	public long partSize;
+
+	/** The concurrency. */
+	@Param({"4", "16"})
+	public int concurrency;
+
+	/** The codec, "none", "gzip" or "aes-gcm". */
+	@Param({"none", "gzip", "aes-gcm"})
+	public String codec;
+
+	/** The glacier client. */
+	private AmazonGlacier glacierClient;
+
+	/** The archive service. */
+	private GlacierArchiveServiceImpl archiveService;
+
+	/** The file. */
+	private File file;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setPartSize(partSize);
+		transferConfig.setConcurrency(concurrency);
+		if ("gzip".equals(codec)) {
+			transferConfig.setCompression(1, (int) ONE_MB);
+		} else if ("aes-gcm".equals(codec)) {
+			transferConfig.setEncryption(new SecretKeySpec(new byte[32], "AES"), (int) ONE_MB);
+		}
+		glacierClient = new InMemoryGlacier().client();
+		archiveService = new GlacierArchiveServiceImpl(glacierClient);
+		archiveService.setTransferConfig(transferConfig);
+		file = File.createTempFile("archive", ".bin");
+		// Half random, half zeros, so compression has something to do without being trivial
+		final byte[] chunk = new byte[(int) ONE_MB];
+		final Random random = new Random(archiveSize);
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			for (long written = 0; written < archiveSize; written += chunk.length) {
+				random.nextBytes(chunk);
+				randomAccessFile.write(chunk, 0, chunk.length / 2);
+				randomAccessFile.write(new byte[chunk.length / 2]);
+			}
+			randomAccessFile.setLength(archiveSize);
+		}
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Archive the file.
+	 *
+	 * @return the archive id
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public String archive() throws IOException {
+		final UploadResult uploadResult = archiveService.archive(VAULT_NAME, file, "benchmark");
+		glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, uploadResult.getArchiveId()));
+		return uploadResult.getArchiveId();
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * The Class BenchmarkMain.<br/>
+ * Runs the benchmarks with the JMH command line, e.g. <code>java -jar benchmarks.jar TreeHash -f 1</code>.
+ * GC profiler is added unless a profiler is given, so allocation rates (gc.alloc.rate.norm, bytes per
+ * operation) are reported along with the scores.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class BenchmarkMain {
+
+	/** The Constant PROFILER_OPTION. */
+	private static final String PROFILER_OPTION = "-prof";
+
+	/**
+	 * The Constructor.
+	 */
+	private BenchmarkMain() {
+		super();
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the JMH command line arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (Arrays.asList(args).contains(PROFILER_OPTION)) {
+			org.openjdk.jmh.Main.main(args);
+		} else {
+			final String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+			withProfiler[args.length] = PROFILER_OPTION;
+			withProfiler[args.length + 1] = "gc";
+			org.openjdk.jmh.Main.main(withProfiler);
+		}
+	}
+}
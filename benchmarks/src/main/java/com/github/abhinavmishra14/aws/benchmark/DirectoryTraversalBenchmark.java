@@ -0,0 +1,127 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.abhinavmishra14.aws.util.DirectoryTraverser;
+import com.github.abhinavmishra14.aws.util.TraversalIterator;
+import com.github.abhinavmishra14.aws.util.TraversalOptions;
+
+/**
+ * The Class DirectoryTraversalBenchmark.<br/>
+ * Traversal of synthetic trees of empty files, 1000 files per directory. Trees are created under
+ * <code>java.io.tmpdir</code> on the first run and kept, since creating 10^7 files takes a while and
+ * needs as many free inodes. Compares {@link DirectoryTraverser#getFileUris(File)}, which collects every file
+ * and directory into a set, with the streaming {@link DirectoryTraverser#traverse(File, TraversalOptions)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class DirectoryTraversalBenchmark {
+
+	/** The Constant FILES_PER_DIRECTORY. */
+	private static final int FILES_PER_DIRECTORY = 1000;
+
+	/** The entries. */
+	@Param({"10000", "100000", "1000000", "10000000"})
+	public int entries;
+
+	/** The root of the tree. */
+	private File root;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final File baseDirectory = new File(System.getProperty("java.io.tmpdir"), "glacier-benchmark-tree-" + entries);
+		final File completeMarker = new File(baseDirectory, "complete");
+		root = new File(baseDirectory, "tree");
+		if (completeMarker.isFile()) {
+			return;
+		}
+		for (int index = 0; index < entries; index++) {
+			final int directoryIndex = index / FILES_PER_DIRECTORY;
+			final File directory = new File(root, "d" + directoryIndex / FILES_PER_DIRECTORY + File.separator
+					+ "d" + directoryIndex % FILES_PER_DIRECTORY);
+			if (index % FILES_PER_DIRECTORY == 0 && !directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create directory: " + directory);
+			}
+			final File file = new File(directory, "f" + index % FILES_PER_DIRECTORY);
+			if (!file.isFile() && !file.createNewFile()) {
+				throw new IOException("Could not create file: " + file);
+			}
+		}
+		if (!completeMarker.createNewFile()) {
+			throw new IOException("Could not create marker: " + completeMarker);
+		}
+	}
+
+	/**
+	 * Collect every file of the tree.
+	 *
+	 * @return the number of files
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public int getFileUris() throws IOException {
+		return DirectoryTraverser.getFileUris(root).size();
+	}
+
+	/**
+	 * Stream every file of the tree.
+	 *
+	 * @return the number of files
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public int traverse() throws IOException {
+		int count = 0;
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(root, new TraversalOptions())) {
+			while (traversal.hasNext()) {
+				traversal.next();
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.CreateVaultRequest;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+
+/**
+ * The Class ExecutorStrategyBenchmark.<br/>
+ * Platform and virtual threads describing vaults at high concurrency against the in-process glacier
+ * stand-in, every describe request blocks for the given latency. Stacks of platform threads live outside
+ * the heap, so they are not part of the allocation rates, count them as concurrency times the thread stack
+ * size (-Xss). Virtual threads require JDK 21 or later, run with <code>-p strategy=platform</code> on older
+ * JDKs.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorStrategyBenchmark {
+
+	/** The strategy, "platform" or "virtual". */
+	@Param({"platform", "virtual"})
+	public String strategy;
+
+	/** The vaults described in each operation. */
+	@Param({"20000"})
+	public int vaults;
+
+	/** The concurrency. */
+	@Param({"5000"})
+	public int concurrency;
+
+	/** The latency of every describe request in millis. */
+	@Param({"100"})
+	public long latencyMillis;
+
+	/** The vault service. */
+	private GlacierVaultServiceImpl vaultService;
+
+	/** The vault names. */
+	private List<String> vaultNames;
+
+	/**
+	 * Sets the up.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final AmazonGlacier glacierClient = glacier.client();
+		vaultNames = new ArrayList<String>(vaults);
+		for (int vault = 0; vault < vaults; vault++) {
+			vaultNames.add("vault-" + vault);
+			glacierClient.createVault(new CreateVaultRequest("vault-" + vault));
+		}
+		glacier.setVaultLatencyMillis(latencyMillis);
+		vaultService = new GlacierVaultServiceImpl(glacierClient);
+		vaultService.setExecutorStrategy("virtual".equals(strategy) ? ExecutorStrategies.virtual()
+				: ExecutorStrategies.platform());
+	}
+
+	/**
+	 * Describe every vault.
+	 *
+	 * @return the number of descriptions
+	 */
+	@Benchmark
+	public int describeVaults() {
+		return vaultService.getVaultDescriptions(vaultNames, concurrency).size();
+	}
+}
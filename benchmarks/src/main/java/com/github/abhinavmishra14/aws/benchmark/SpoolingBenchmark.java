@@ -0,0 +1,87 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class SpoolingBenchmark.<br/>
+ * Cost of spooling a stream to a temporary file with {@link AWSUtil#createTempFileFromStream(java.io.InputStream)},
+ * including deletion of the file, which the uploads did before they streamed their input.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SpoolingBenchmark {
+
+	/** The stream size. */
+	@Param({"1048576", "67108864"})
+	public int streamSize;
+
+	/** The content. */
+	private byte[] content;
+
+	/**
+	 * Sets the up.
+	 */
+	@Setup
+	public void setUp() {
+		content = new byte[streamSize];
+		new Random(streamSize).nextBytes(content);
+	}
+
+	/**
+	 * Spool the stream to a temporary file and delete it.
+	 *
+	 * @return the length of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public long spool() throws IOException {
+		final File tempFile = AWSUtil.createTempFileFromStream(new ByteArrayInputStream(content));
+		final long length = tempFile.length();
+		if (!tempFile.delete()) {
+			throw new IOException("Could not delete: " + tempFile);
+		}
+		return length;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class TreeHashBenchmark.<br/>
+ * Tree hash throughput. {@link #hash()} hashes a buffer on the calling thread only, so its score times
+ * the buffer size is the throughput of a single core, run it with <code>-t</code> in order to see how it
+ * scales with cores. {@link #compute(FileState)} hashes a file on the shared fork-join pool, using all cores.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TreeHashBenchmark {
+
+	/** The buffer size. */
+	@Param({"1048576", "8388608"})
+	public int bufferSize;
+
+	/** The buffer. */
+	private byte[] buffer;
+
+	/**
+	 * Sets the up.
+	 */
+	@Setup
+	public void setUp() {
+		buffer = new byte[bufferSize];
+		new Random(bufferSize).nextBytes(buffer);
+	}
+
+	/**
+	 * Hash a buffer on the calling thread.
+	 *
+	 * @return the tree hash
+	 */
+	@Benchmark
+	public byte[] hash() {
+		return TreeHash.hash(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Hash a file using all cores.
+	 *
+	 * @param fileState the file state
+	 * @return the result
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Benchmark
+	public TreeHash.Result compute(final FileState fileState) throws IOException {
+		return TreeHash.compute(fileState.file);
+	}
+
+	/**
+	 * The Class FileState.<br/>
+	 * A file of random content, it stays in the page cache between invocations.
+	 */
+	@State(Scope.Benchmark)
+	public static class FileState {
+
+		/** The file size. */
+		@Param({"268435456"})
+		public long fileSize;
+
+		/** The file. */
+		private File file;
+
+		/**
+		 * Sets the up.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			file = File.createTempFile("treehash", ".bin");
+			final byte[] chunk = new byte[1024 * 1024];
+			final Random random = new Random(fileSize);
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+				for (long written = 0; written < fileSize; written += chunk.length) {
+					random.nextBytes(chunk);
+					randomAccessFile.write(chunk, 0, (int) Math.min(chunk.length, fileSize - written));
+				}
+			}
+		}
+
+		/**
+		 * Tear down.
+		 */
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.async;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class AsyncArchiveService.<br/>
+ * Non blocking counterpart of a {@link GlacierArchiveService}. Every upload is run on the executor and
+ * returns a completable future of its result, so that uploads can be composed with other steps, e.g.
+ * <pre>
+ * asyncService.archive(vaultName, file, description)
+ *     .thenAccept(result -&gt; file.delete());
+ * </pre>
+ * Cancelling a returned future interrupts the upload. Multipart uploads are aborted when cancelled,
+ * journaled ones included. Uploads which are only interrupted, e.g. because the executor is shut down,
+ * keep their journal and can be resumed.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class AsyncArchiveService {
+
+	/** The archive service. */
+	private final GlacierArchiveService archiveService;
+
+	/** The executor. */
+	private final Executor executor;
+
+	/**
+	 * The Constructor.<br/>
+	 * Uploads are run on the executor shared by async services.
+	 *
+	 * @param archiveService the archive service
+	 */
+	public AsyncArchiveService(final GlacierArchiveService archiveService) {
+		this(archiveService, AsyncTask.sharedExecutor());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveService the archive service
+	 * @param executor the executor running the uploads
+	 */
+	public AsyncArchiveService(final GlacierArchiveService archiveService, final Executor executor) {
+		super();
+		AWSUtil.notNull(archiveService, "Archive service can not be null!");
+		AWSUtil.notNull(executor, "Executor can not be null!");
+		this.archiveService = archiveService;
+		this.executor = executor;
+	}
+
+	/**
+	 * Archives the stream.
+	 *
+	 * @param vaultName the vault name
+	 * @param inputStream the input stream
+	 * @param archiveDescription the archive description
+	 * @return the future of the upload result
+	 */
+	public CompletableFuture<UploadResult> archive(final String vaultName, final InputStream inputStream,
+			final String archiveDescription) {
+		return AsyncTask.submit(executor, () -> archiveService.archive(vaultName, inputStream, archiveDescription));
+	}
+
+	/**
+	 * Archives the file.
+	 *
+	 * @param vaultName the vault name
+	 * @param inputFile the input file
+	 * @param archiveDescription the archive description
+	 * @return the future of the upload result
+	 */
+	public CompletableFuture<UploadResult> archive(final String vaultName, final File inputFile,
+			final String archiveDescription) {
+		return AsyncTask.submit(executor, () -> archiveService.archive(vaultName, inputFile, archiveDescription));
+	}
+
+	/**
+	 * Archives the stream, resumable by its upload key.
+	 *
+	 * @param vaultName the vault name
+	 * @param inputStream the input stream
+	 * @param archiveDescription the archive description
+	 * @param uploadKey the upload key
+	 * @return the future of the upload result
+	 */
+	public CompletableFuture<UploadResult> archive(final String vaultName, final InputStream inputStream,
+			final String archiveDescription, final String uploadKey) {
+		return AsyncTask.submit(executor,
+				() -> archiveService.archive(vaultName, inputStream, archiveDescription, uploadKey));
+	}
+
+	/**
+	 * Archives the seekable source.
+	 *
+	 * @param vaultName the vault name
+	 * @param source the source
+	 * @param archiveDescription the archive description
+	 * @return the future of the upload result
+	 */
+	public CompletableFuture<UploadResult> archive(final String vaultName, final SeekableSource source,
+			final String archiveDescription) {
+		return AsyncTask.submit(executor, () -> archiveService.archive(vaultName, source, archiveDescription));
+	}
+
+	/**
+	 * Archives the directory, one archive per file.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @return the future of the directory archive result
+	 */
+	public CompletableFuture<DirectoryArchiveResult> archiveDirectory(final String vaultName,
+			final File directory) {
+		return AsyncTask.submit(executor, () -> archiveService.archiveDirectory(vaultName, directory));
+	}
+
+	/**
+	 * Archives the directory packed into container archives.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param indexDirectory the index directory
+	 * @return the future of the directory archive result
+	 */
+	public CompletableFuture<DirectoryArchiveResult> archivePacked(final String vaultName, final File directory,
+			final File indexDirectory) {
+		return AsyncTask.submit(executor, () -> archiveService.archivePacked(vaultName, directory, indexDirectory));
+	}
+
+	/**
+	 * Archives the new and modified files of the directory.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param snapshotFile the snapshot file
+	 * @return the future of the incremental archive result
+	 */
+	public CompletableFuture<IncrementalArchiveResult> archiveIncremental(final String vaultName,
+			final File directory, final File snapshotFile) {
+		return AsyncTask.submit(executor,
+				() -> archiveService.archiveIncremental(vaultName, directory, snapshotFile));
+	}
+}
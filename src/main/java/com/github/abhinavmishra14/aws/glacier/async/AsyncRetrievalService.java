@@ -0,0 +1,164 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.async;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService;
+import com.github.abhinavmishra14.aws.glacier.transfer.RetrievalJob;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class AsyncRetrievalService.<br/>
+ * Non blocking counterpart of a {@link GlacierRetrievalService}. Jobs are initiated on the executor,
+ * while waiting for a job to complete holds no thread, retrieval futures are completed by the job
+ * tracker. Cancelling a retrieval future stops tracking the job, the job itself keeps running on
+ * glacier side.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class AsyncRetrievalService {
+
+	/** The retrieval service. */
+	private final GlacierRetrievalService retrievalService;
+
+	/** The executor. */
+	private final Executor executor;
+
+	/**
+	 * The Constructor.<br/>
+	 * Jobs are initiated on the executor shared by async services.
+	 *
+	 * @param retrievalService the retrieval service
+	 */
+	public AsyncRetrievalService(final GlacierRetrievalService retrievalService) {
+		this(retrievalService, AsyncTask.sharedExecutor());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param retrievalService the retrieval service
+	 * @param executor the executor initiating the jobs
+	 */
+	public AsyncRetrievalService(final GlacierRetrievalService retrievalService, final Executor executor) {
+		super();
+		AWSUtil.notNull(retrievalService, "Retrieval service can not be null!");
+		AWSUtil.notNull(executor, "Executor can not be null!");
+		this.retrievalService = retrievalService;
+		this.executor = executor;
+	}
+
+	/**
+	 * Retrieves the archive.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param targetFile the target file
+	 * @return the future of the restored file
+	 */
+	public CompletableFuture<File> retrieveArchive(final String vaultName, final String archiveId,
+			final File targetFile) {
+		return retrieve(() -> retrievalService.retrieveArchive(vaultName, archiveId, targetFile));
+	}
+
+	/**
+	 * Retrieves a byte range of the archive.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param byteRange the byte range
+	 * @param targetFile the target file
+	 * @return the future of the restored file
+	 */
+	public CompletableFuture<File> retrieveArchive(final String vaultName, final String archiveId,
+			final String byteRange, final File targetFile) {
+		return retrieve(() -> retrievalService.retrieveArchive(vaultName, archiveId, byteRange, targetFile));
+	}
+
+	/**
+	 * Retrieves a plain text range of the encrypted archive.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param encryptedRange the plain text range
+	 * @param targetFile the target file
+	 * @return the future of the restored range
+	 */
+	public CompletableFuture<File> retrieveEncryptedRange(final String vaultName, final String archiveId,
+			final EncryptedRange encryptedRange, final File targetFile) {
+		return retrieve(() -> retrievalService.retrieveEncryptedRange(vaultName, archiveId, encryptedRange,
+				targetFile));
+	}
+
+	/**
+	 * Tracks an already initiated job.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param targetFile the target file, null if output is not downloaded
+	 * @return the future of the restored file, completed with null without target file
+	 */
+	public CompletableFuture<File> trackJob(final String vaultName, final String jobId, final File targetFile) {
+		return retrieve(() -> retrievalService.trackJob(vaultName, jobId, targetFile));
+	}
+
+	/**
+	 * Initiates the inventory job.
+	 *
+	 * @param vaultName the vault name
+	 * @return the future of the job id
+	 */
+	public CompletableFuture<String> initiateInventoryJob(final String vaultName) {
+		return AsyncTask.submit(executor, () -> retrievalService.initiateInventoryJob(vaultName));
+	}
+
+	/**
+	 * Opens the output of a completed inventory job.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @return the future of the inventory reader, to be closed by the caller
+	 */
+	public CompletableFuture<InventoryReader> readInventory(final String vaultName, final String jobId) {
+		return AsyncTask.submit(executor, () -> retrievalService.readInventory(vaultName, jobId));
+	}
+
+	/**
+	 * Initiates the job on the executor and completes with the job.
+	 *
+	 * @param initiation the initiation
+	 * @return the future of the restored file
+	 */
+	private CompletableFuture<File> retrieve(final Callable<RetrievalJob> initiation) {
+		final CompletableFuture<RetrievalJob> initiated = AsyncTask.submit(executor, initiation);
+		final CompletableFuture<File> retrieved = initiated.thenCompose(RetrievalJob::toCompletableFuture);
+		retrieved.whenComplete((file, failure) -> {
+			if (retrieved.isCancelled()) {
+				initiated.thenAccept(job -> job.cancel(false)); // Initiation is short, job is cancelled once known
+			}
+		});
+		return retrieved;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.async;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_ASYNC_THREADS;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.UploadCancellation;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+
+/**
+ * The Class AsyncTask.<br/>
+ * Completable future of an operation run on an executor. Unlike other completable futures, cancelling it
+ * with mayInterruptIfRunning cancels the {@link UploadCancellation} of the operation and interrupts the thread
+ * running it, so that in flight uploads are stopped and aborted.
+ * Futures derived from it using thenApply etc. do not pass cancellation back, cancel this one.
+ *
+ * @param <T> the result type
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class AsyncTask<T> extends CompletableFuture<T> implements Runnable {
+
+	/** The operation. */
+	private final Callable<T> operation;
+
+	/** The cancellation of the uploads run by the operation. */
+	private final UploadCancellation cancellation = new UploadCancellation();
+
+	/** The lock guarding the runner. */
+	private final Object lock = new Object();
+
+	/** The thread running the operation, guarded by lock. */
+	private Thread runner;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param operation the operation
+	 */
+	private AsyncTask(final Callable<T> operation) {
+		super();
+		this.operation = operation;
+	}
+
+	/**
+	 * Run the operation on the executor.
+	 *
+	 * @param <T> the result type
+	 * @param executor the executor
+	 * @param operation the operation
+	 * @return the completable future of the result
+	 */
+	static <T> CompletableFuture<T> submit(final Executor executor, final Callable<T> operation) {
+		final AsyncTask<T> task = new AsyncTask<T>(operation);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException rejectEx) {
+			task.completeExceptionally(rejectEx);
+		}
+		return task;
+	}
+
+	/**
+	 * Gets the executor shared by the async services created without an executor.
+	 *
+	 * @return the executor
+	 */
+	static Executor sharedExecutor() {
+		return SharedExecutorHolder.EXECUTOR;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		synchronized (lock) {
+			if (isDone()) {
+				return; // Cancelled before it started
+			}
+			runner = Thread.currentThread();
+		}
+		try {
+			complete(cancellation.call(operation));
+		} catch (Throwable ex) {
+			completeExceptionally(ex);
+		} finally {
+			synchronized (lock) {
+				runner = null;
+				Thread.interrupted(); // Cancelled late, executor thread is not left interrupted
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+	 */
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		final boolean isCancelled = super.cancel(mayInterruptIfRunning);
+		if (isCancelled && mayInterruptIfRunning) {
+			cancellation.cancel();
+			synchronized (lock) {
+				if (runner != null) {
+					runner.interrupt();
+				}
+			}
+		}
+		return isCancelled;
+	}
+
+	/**
+	 * The Class SharedExecutorHolder. Creates the shared executor on first use, using the default
+	 * {@link ExecutorStrategies executor strategy}.
+	 */
+	private static final class SharedExecutorHolder {
+
+		/** The Constant EXECUTOR. */
+		private static final ExecutorService EXECUTOR = ExecutorStrategies.getDefault().newExecutor("glacier-async",
+				DEFAULT_ASYNC_THREADS);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.async;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.amazonaws.services.glacier.model.CreateVaultResult;
+import com.amazonaws.services.glacier.model.DescribeVaultOutput;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class AsyncVaultService.<br/>
+ * Non blocking counterpart of a {@link GlacierVaultService}. Every operation is run on the executor and
+ * returns a completable future of its result, failures complete the future exceptionally. Cancelling a
+ * returned future interrupts the operation if it is running.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class AsyncVaultService {
+
+	/** The vault service. */
+	private final GlacierVaultService vaultService;
+
+	/** The executor. */
+	private final Executor executor;
+
+	/**
+	 * The Constructor.<br/>
+	 * Operations are run on the executor shared by async services.
+	 *
+	 * @param vaultService the vault service
+	 */
+	public AsyncVaultService(final GlacierVaultService vaultService) {
+		this(vaultService, AsyncTask.sharedExecutor());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param vaultService the vault service
+	 * @param executor the executor running the operations
+	 */
+	public AsyncVaultService(final GlacierVaultService vaultService, final Executor executor) {
+		super();
+		AWSUtil.notNull(vaultService, "Vault service can not be null!");
+		AWSUtil.notNull(executor, "Executor can not be null!");
+		this.vaultService = vaultService;
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates the vault.
+	 *
+	 * @param vaultName the vault name
+	 * @return the future of the create vault result
+	 */
+	public CompletableFuture<CreateVaultResult> createVault(final String vaultName) {
+		return AsyncTask.submit(executor, () -> vaultService.createVault(vaultName));
+	}
+
+	/**
+	 * Deletes the vault.
+	 *
+	 * @param vaultName the vault name
+	 * @return the future completed once the vault is deleted
+	 */
+	public CompletableFuture<Void> deleteVault(final String vaultName) {
+		return AsyncTask.submit(executor, () -> {
+			vaultService.deleteVault(vaultName);
+			return null;
+		});
+	}
+
+	/**
+	 * Lists all vaults.
+	 *
+	 * @return the future of the list of vaults
+	 */
+	public CompletableFuture<List<DescribeVaultOutput>> listAllVaults() {
+		return AsyncTask.submit(executor, () -> vaultService.listAllVaults());
+	}
+
+	/**
+	 * Gets the vault description.
+	 *
+	 * @param vaultName the vault name
+	 * @return the future of the vault description
+	 */
+	public CompletableFuture<DescribeVaultResult> getVaultDescription(final String vaultName) {
+		return AsyncTask.submit(executor, () -> vaultService.getVaultDescription(vaultName));
+	}
+
+	/**
+	 * Gets the vault descriptions.
+	 *
+	 * @param vaultNames the vault names
+	 * @param maxConcurrency the max number of describe requests in flight
+	 * @return the future of the vault descriptions, in the order of the names
+	 */
+	public CompletableFuture<List<DescribeVaultResult>> getVaultDescriptions(final List<String> vaultNames,
+			final int maxConcurrency) {
+		return AsyncTask.submit(executor, () -> vaultService.getVaultDescriptions(vaultNames, maxConcurrency));
+	}
+
+	/**
+	 * Deletes the archived object.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @return the future completed once the archive is deleted
+	 */
+	public CompletableFuture<Void> deleteArchivedObject(final String vaultName, final String archiveId) {
+		return AsyncTask.submit(executor, () -> {
+			vaultService.deleteArchivedObject(vaultName, archiveId);
+			return null;
+		});
+	}
+
+	/**
+	 * Deletes the archives expired by the retention policy.
+	 *
+	 * @param vaultName the vault name
+	 * @param archives the archives
+	 * @param policy the retention policy
+	 * @param options the purge options
+	 * @return the future of the purge progress
+	 */
+	public CompletableFuture<PurgeProgress> deleteArchives(final String vaultName, final ArchiveSource archives,
+			final RetentionPolicy policy, final PurgeOptions options) {
+		return AsyncTask.submit(executor, () -> vaultService.deleteArchives(vaultName, archives, policy, options));
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.catalog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogLog.Record;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogLog.RecordVisitor;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchiveUploadResult;
+
+/**
+ * The Class ArchiveCatalog.<br/>
+ * Embedded, persistent catalog of uploaded archives, so that what is in a vault can be known without
+ * waiting hours for an inventory job. A catalog directory holds:
+ * <ul>
+ * <li><code>catalog.log</code>, an append-only log of every upload and deletion,</li>
+ * <li><code>path.idx</code>, <code>hash.idx</code> and <code>archive.idx</code>, compacted indexes of the
+ * log by source path, tree hash and archive id.</li>
+ * </ul>
+ * Indexes are sorted files of fixed width entries, a lookup is a binary search over the file followed by
+ * a read of the matching log records, so the catalog holds tens of millions of entries without loading
+ * them on the heap. Records added since the last compaction are indexed in memory, indexes are compacted
+ * automatically once {@link #getCompactionThreshold()} records are pending, and on close.<br/>
+ * Catalog is safe for use by multiple threads, but a catalog directory must be opened by one instance
+ * at a time.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ArchiveCatalog implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveCatalog.class);
+
+	/** The Constant DEFAULT_COMPACTION_THRESHOLD. */
+	public static final int DEFAULT_COMPACTION_THRESHOLD = 100000;
+
+	/** The Constant FNV_OFFSET_BASIS. */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/** The Constant FNV_PRIME. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** The log. */
+	private final CatalogLog log;
+
+	/** The path index. */
+	private final SortedKeyIndex pathIndex;
+
+	/** The hash index. */
+	private final SortedKeyIndex hashIndex;
+
+	/** The archive index. */
+	private final SortedKeyIndex archiveIndex;
+
+	/** The lock, compaction and appends take the write lock. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** The compaction threshold. */
+	private volatile int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param directory the catalog directory, created if it does not exist
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveCatalog(final File directory) throws IOException {
+		super();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create catalog directory: " + directory);
+		}
+		this.log = new CatalogLog(new File(directory, "catalog.log"));
+		this.pathIndex = new SortedKeyIndex(new File(directory, "path.idx"));
+		this.hashIndex = new SortedKeyIndex(new File(directory, "hash.idx"));
+		this.archiveIndex = new SortedKeyIndex(new File(directory, "archive.idx"));
+		final long replayFrom = Math.min(pathIndex.getIndexedLength(), Math.min(hashIndex.getIndexedLength(),
+				archiveIndex.getIndexedLength()));
+		log.replay(replayFrom, new RecordVisitor() {
+			@Override
+			public void visit(final long offset, final Record record) {
+				index(offset, record);
+			}
+		});
+		LOGGER.info("Opened archive catalog: {}, {} records replayed", directory, archiveIndex.getRecentCount());
+	}
+
+	/**
+	 * Record an uploaded archive.
+	 *
+	 * @param entry the entry
+	 * @throws IOException the IO exception
+	 */
+	public void record(final CatalogEntry entry) throws IOException {
+		append(CatalogLog.ENTRY, entry);
+	}
+
+	/**
+	 * Record an uploaded archive.<br/>
+	 * A duplicate upload is recorded only if the archive is not yet cataloged for the source path, so that
+	 * the existing archive can be found by the path of every file having the same content. Check and append are
+	 * done under the write lock, so that the same duplicate recorded by concurrent uploads is appended once.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadResult the upload result
+	 * @param sourcePath the path of the file which was archived, null if archive was not uploaded from a file
+	 * @param description the archive description
+	 * @throws IOException the IO exception
+	 */
+	public void record(final String vaultName, final ArchiveUploadResult uploadResult, final String sourcePath,
+			final String description) throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (uploadResult.isDuplicate() && isCataloged(vaultName, uploadResult.getArchiveId(), sourcePath)) {
+				return;
+			}
+			record(new CatalogEntry(vaultName, uploadResult.getArchiveId(), sourcePath,
+					uploadResult.getArchiveSize(), uploadResult.getChecksum(), description,
+					System.currentTimeMillis()));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Record a deleted archive. It is not returned by lookups from then on.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @throws IOException the IO exception
+	 */
+	public void recordDeletion(final String vaultName, final String archiveId) throws IOException {
+		append(CatalogLog.DELETION, new CatalogEntry(vaultName, archiveId, null, 0, null, null,
+				System.currentTimeMillis()));
+	}
+
+	/**
+	 * Find an archive by its id.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @return the catalog entry, null if the archive is not known or was deleted
+	 * @throws IOException the IO exception
+	 */
+	public CatalogEntry findByArchiveId(final String vaultName, final String archiveId) throws IOException {
+		lock.readLock().lock();
+		try {
+			return findLive(vaultName, archiveId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the archives uploaded from a source path.
+	 *
+	 * @param vaultName the vault name
+	 * @param sourcePath the source path
+	 * @return the entries which are not deleted, oldest first
+	 * @throws IOException the IO exception
+	 */
+	public List<CatalogEntry> findBySourcePath(final String vaultName, final String sourcePath) throws IOException {
+		lock.readLock().lock();
+		try {
+			final List<CatalogEntry> entries = new ArrayList<CatalogEntry>();
+			for (final CatalogEntry entry : readEntries(pathIndex, vaultName, sourcePath)) {
+				if (sourcePath.equals(entry.getSourcePath()) && findLive(vaultName, entry.getArchiveId()) != null) {
+					entries.add(entry);
+				}
+			}
+			return entries;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the archives having a tree hash.
+	 *
+	 * @param vaultName the vault name
+	 * @param treeHash the tree hash, hex encoded
+	 * @return the entries which are not deleted, oldest first
+	 * @throws IOException the IO exception
+	 */
+	public List<CatalogEntry> findByTreeHash(final String vaultName, final String treeHash) throws IOException {
+		lock.readLock().lock();
+		try {
+			final List<CatalogEntry> entries = new ArrayList<CatalogEntry>();
+			for (final CatalogEntry entry : readEntries(hashIndex, vaultName, treeHash.toLowerCase())) {
+				if (treeHash.equalsIgnoreCase(entry.getTreeHash())
+						&& findLive(vaultName, entry.getArchiveId()) != null) {
+					entries.add(entry);
+				}
+			}
+			return entries;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find an archive having the same content.<br/>
+	 * Content is considered the same when both the tree hash and the size match.
+	 *
+	 * @param vaultName the vault name
+	 * @param treeHash the tree hash, hex encoded
+	 * @param size the size
+	 * @return the oldest entry which is not deleted, null if the content is not archived in the vault
+	 * @throws IOException the IO exception
+	 */
+	public CatalogEntry findDuplicate(final String vaultName, final String treeHash, final long size)
+			throws IOException {
+		for (final CatalogEntry entry : findByTreeHash(vaultName, treeHash)) {
+			if (entry.getSize() == size) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Open a cursor over the archives of a vault which are not deleted, in the order they were recorded.
+	 * The log is read sequentially, so the vault can hold any number of archives.
+	 *
+	 * @param vaultName the vault name
+	 * @return the entry cursor
+	 */
+	public EntryCursor openCursor(final String vaultName) {
+		return new EntryCursor(vaultName);
+	}
+
+	/**
+	 * Compact the indexes, merging the records added since the last compaction into the index files.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			log.sync();
+			final long logLength = log.getLength();
+			pathIndex.compact(logLength);
+			hashIndex.compact(logLength);
+			archiveIndex.compact(logLength);
+			LOGGER.info("Compacted archive catalog indexes up to log length: {}", logLength);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Force the log to the disk. Records are written to the log at once, but are only guaranteed to
+	 * survive a power loss once synced.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	public void sync() throws IOException {
+		lock.writeLock().lock();
+		try {
+			log.sync();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the compaction threshold.
+	 *
+	 * @return the compaction threshold
+	 */
+	public int getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 * Sets the compaction threshold.<br/>
+	 * It is the number of records indexed in memory which triggers a compaction of the indexes.
+	 *
+	 * @param compactionThreshold the compaction threshold
+	 */
+	public void setCompactionThreshold(final int compactionThreshold) {
+		if (compactionThreshold < 1) {
+			throw new IllegalArgumentException("Compaction threshold must be greater than zero!");
+		}
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (pathIndex.getRecentCount() > 0 || archiveIndex.getRecentCount() > 0) {
+				compact();
+			}
+		} finally {
+			try {
+				pathIndex.close();
+				hashIndex.close();
+				archiveIndex.close();
+				log.close();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Append a record and index it.
+	 *
+	 * @param type the type
+	 * @param entry the entry
+	 * @throws IOException the IO exception
+	 */
+	private void append(final byte type, final CatalogEntry entry) throws IOException {
+		lock.writeLock().lock();
+		try {
+			final long offset = log.append(type, entry);
+			index(offset, new Record(type, entry, log.getLength()));
+			if (archiveIndex.getRecentCount() >= compactionThreshold) {
+				compact();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Add a record to the indexes which do not cover it yet.
+	 *
+	 * @param offset the offset
+	 * @param record the record
+	 */
+	private void index(final long offset, final Record record) {
+		final CatalogEntry entry = record.entry;
+		if (offset >= archiveIndex.getIndexedLength()) {
+			archiveIndex.add(keyHash(entry.getVaultName(), entry.getArchiveId()), offset);
+		}
+		if (record.type != CatalogLog.ENTRY) {
+			return;
+		}
+		if (entry.getSourcePath() != null && offset >= pathIndex.getIndexedLength()) {
+			pathIndex.add(keyHash(entry.getVaultName(), entry.getSourcePath()), offset);
+		}
+		if (entry.getTreeHash() != null && offset >= hashIndex.getIndexedLength()) {
+			hashIndex.add(keyHash(entry.getVaultName(), entry.getTreeHash().toLowerCase()), offset);
+		}
+	}
+
+	/**
+	 * Find the archive unless it was deleted. Caller holds the lock.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @return the catalog entry, null if not known or deleted
+	 * @throws IOException the IO exception
+	 */
+	private CatalogEntry findLive(final String vaultName, final String archiveId) throws IOException {
+		final long offset = findLiveOffset(vaultName, archiveId);
+		return offset < 0 ? null : log.read(offset).entry;
+	}
+
+	/**
+	 * Find the offset of the latest entry of the archive unless it was deleted. Caller holds the lock.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @return the offset, -1 if not known or deleted
+	 * @throws IOException the IO exception
+	 */
+	private long findLiveOffset(final String vaultName, final String archiveId) throws IOException {
+		long liveOffset = -1;
+		for (final Long offset : archiveIndex.lookup(keyHash(vaultName, archiveId))) {
+			final Record record = log.read(offset);
+			if (vaultName.equals(record.entry.getVaultName()) && archiveId.equals(record.entry.getArchiveId())) {
+				if (record.type == CatalogLog.DELETION) {
+					return -1;
+				}
+				liveOffset = offset;
+			}
+		}
+		return liveOffset;
+	}
+
+	/**
+	 * Read the entries of a key from the log, entries of other keys having the same key hash are included
+	 * and must be filtered by the caller. Caller holds the lock.
+	 *
+	 * @param index the index
+	 * @param vaultName the vault name
+	 * @param value the value
+	 * @return the entries
+	 * @throws IOException the IO exception
+	 */
+	private List<CatalogEntry> readEntries(final SortedKeyIndex index, final String vaultName, final String value)
+			throws IOException {
+		final List<Long> offsets = index.lookup(keyHash(vaultName, value));
+		if (offsets.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final List<CatalogEntry> entries = new ArrayList<CatalogEntry>(offsets.size());
+		for (final Long offset : offsets) {
+			final CatalogEntry entry = log.read(offset).entry;
+			if (vaultName.equals(entry.getVaultName())) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Checks if the archive is cataloged for the source path. Caller holds the write lock.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param sourcePath the source path, may be null
+	 * @return true, if the archive is cataloged for the source path
+	 * @throws IOException the IO exception
+	 */
+	private boolean isCataloged(final String vaultName, final String archiveId, final String sourcePath)
+			throws IOException {
+		if (sourcePath == null) {
+			return findByArchiveId(vaultName, archiveId) != null;
+		}
+		for (final CatalogEntry entry : findBySourcePath(vaultName, sourcePath)) {
+			if (archiveId.equals(entry.getArchiveId())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The Class EntryCursor.<br/>
+	 * Cursor over the archives of a vault which are not deleted. An archive recorded more than once is
+	 * returned once, with its latest entry. Records appended while the cursor is open may be returned.
+	 */
+	public final class EntryCursor {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The offset of the next record. */
+		private long offset;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 */
+		private EntryCursor(final String vaultName) {
+			this.vaultName = vaultName;
+		}
+
+		/**
+		 * Read the next archive.
+		 *
+		 * @return the catalog entry, null once all archives are read
+		 * @throws IOException the IO exception
+		 */
+		public CatalogEntry next() throws IOException {
+			lock.readLock().lock();
+			try {
+				while (offset < log.getLength()) {
+					final long recordOffset = offset;
+					final Record record = log.read(recordOffset);
+					offset = record.nextOffset;
+					if (record.type == CatalogLog.ENTRY && vaultName.equals(record.entry.getVaultName())
+							&& findLiveOffset(vaultName, record.entry.getArchiveId()) == recordOffset) {
+						return record.entry;
+					}
+				}
+				return null;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of the vault name and the key value.
+	 *
+	 * @param vaultName the vault name
+	 * @param value the value
+	 * @return the key hash
+	 */
+	private static long keyHash(final String vaultName, final String value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (final byte keyByte : (vaultName + '\n' + value).getBytes(StandardCharsets.UTF_8)) {
+			hash ^= keyByte & 0xFF;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.catalog;
+
+/**
+ * The Class CatalogEntry.<br/>
+ * An archive recorded in the {@link ArchiveCatalog}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class CatalogEntry {
+
+	/** The vault name. */
+	private final String vaultName;
+
+	/** The archive id. */
+	private final String archiveId;
+
+	/** The source path. */
+	private final String sourcePath;
+
+	/** The size. */
+	private final long size;
+
+	/** The tree hash. */
+	private final String treeHash;
+
+	/** The description. */
+	private final String description;
+
+	/** The timestamp. */
+	private final long timestamp;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param sourcePath the path of the file which was archived, null if archive was not uploaded from a file
+	 * @param size the size of the archive
+	 * @param treeHash the tree hash of the archive, hex encoded
+	 * @param description the archive description
+	 * @param timestamp the time of the upload, in millis
+	 */
+	public CatalogEntry(final String vaultName, final String archiveId, final String sourcePath, final long size,
+			final String treeHash, final String description, final long timestamp) {
+		super();
+		this.vaultName = vaultName;
+		this.archiveId = archiveId;
+		this.sourcePath = sourcePath;
+		this.size = size;
+		this.treeHash = treeHash;
+		this.description = description;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Gets the vault name.
+	 *
+	 * @return the vault name
+	 */
+	public String getVaultName() {
+		return vaultName;
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Gets the source path.
+	 *
+	 * @return the source path, null if archive was not uploaded from a file
+	 */
+	public String getSourcePath() {
+		return sourcePath;
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the tree hash.
+	 *
+	 * @return the tree hash, hex encoded
+	 */
+	public String getTreeHash() {
+		return treeHash;
+	}
+
+	/**
+	 * Gets the description.
+	 *
+	 * @return the description
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gets the timestamp.
+	 *
+	 * @return the timestamp, in millis
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return vaultName + "/" + archiveId + " (" + sourcePath + ", " + size + " bytes)";
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class CatalogLog.<br/>
+ * Append-only log of catalog records. Each record is framed as
+ * <code>[payload length: 4 bytes][payload][CRC32 of payload: 4 bytes]</code> and is addressed by its
+ * offset in the log. A torn record at the end of the log, left by a crash while appending, is cut off
+ * when the log is replayed on open.
+ */
+final class CatalogLog implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogLog.class);
+
+	/** The Constant ENTRY. Record of an uploaded archive. */
+	static final byte ENTRY = 1;
+
+	/** The Constant DELETION. Record of a deleted archive. */
+	static final byte DELETION = 2;
+
+	/** The Constant FRAME_OVERHEAD. */
+	private static final int FRAME_OVERHEAD = 8;
+
+	/** The Constant MAX_PAYLOAD_LENGTH. Any longer length is a torn or corrupt frame. */
+	private static final int MAX_PAYLOAD_LENGTH = 1024 * 1024;
+
+	/** The random access file. */
+	private final RandomAccessFile randomAccessFile;
+
+	/** The channel. */
+	private final FileChannel channel;
+
+	/** The length of the valid part of the log. */
+	private long length;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param logFile the log file
+	 * @throws IOException the IO exception
+	 */
+	CatalogLog(final File logFile) throws IOException {
+		this.randomAccessFile = new RandomAccessFile(logFile, "rw");
+		this.channel = randomAccessFile.getChannel();
+		this.length = channel.size();
+	}
+
+	/**
+	 * Gets the length.
+	 *
+	 * @return the length of the log
+	 */
+	long getLength() {
+		return length;
+	}
+
+	/**
+	 * Append a record.
+	 *
+	 * @param type the record type
+	 * @param entry the entry
+	 * @return the offset of the record
+	 * @throws IOException the IO exception
+	 */
+	long append(final byte type, final CatalogEntry entry) throws IOException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+		final DataOutputStream dataStream = new DataOutputStream(payload);
+		dataStream.writeByte(type);
+		dataStream.writeUTF(entry.getVaultName());
+		dataStream.writeUTF(entry.getArchiveId());
+		dataStream.writeUTF(nullToEmpty(entry.getSourcePath()));
+		dataStream.writeLong(entry.getSize());
+		dataStream.writeUTF(nullToEmpty(entry.getTreeHash()));
+		dataStream.writeUTF(nullToEmpty(entry.getDescription()));
+		dataStream.writeLong(entry.getTimestamp());
+		dataStream.flush();
+		final CRC32 crc = new CRC32();
+		crc.update(payload.toByteArray());
+		final ByteBuffer frame = ByteBuffer.allocate(payload.size() + FRAME_OVERHEAD);
+		frame.putInt(payload.size()).put(payload.toByteArray()).putInt((int) crc.getValue()).flip();
+		final long offset = length;
+		while (frame.hasRemaining()) {
+			channel.write(frame, offset + frame.position());
+		}
+		length += frame.limit();
+		return offset;
+	}
+
+	/**
+	 * Read the record at the offset.
+	 *
+	 * @param offset the offset
+	 * @return the record
+	 * @throws IOException the IO exception
+	 */
+	Record read(final long offset) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(4);
+		readFully(header, offset);
+		final int payloadLength = header.getInt(0);
+		if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+			throw new IOException("Corrupt catalog record at offset: " + offset);
+		}
+		final ByteBuffer frame = ByteBuffer.allocate(payloadLength + 4);
+		readFully(frame, offset + 4);
+		final CRC32 crc = new CRC32();
+		crc.update(frame.array(), 0, payloadLength);
+		if ((int) crc.getValue() != frame.getInt(payloadLength)) {
+			throw new IOException("Checksum mismatch in catalog record at offset: " + offset);
+		}
+		final DataInputStream dataStream = new DataInputStream(new ByteArrayInputStream(frame.array(), 0,
+				payloadLength));
+		final byte type = dataStream.readByte();
+		final String vaultName = dataStream.readUTF();
+		final String archiveId = dataStream.readUTF();
+		final String sourcePath = emptyToNull(dataStream.readUTF());
+		final long size = dataStream.readLong();
+		final String treeHash = emptyToNull(dataStream.readUTF());
+		final String description = emptyToNull(dataStream.readUTF());
+		final long timestamp = dataStream.readLong();
+		return new Record(type, new CatalogEntry(vaultName, archiveId, sourcePath, size, treeHash, description,
+				timestamp), offset + FRAME_OVERHEAD + payloadLength);
+	}
+
+	/**
+	 * Replay the records starting at the offset. A record which can not be read ends the log, the log
+	 * is truncated before it.
+	 *
+	 * @param fromOffset the offset of the first record
+	 * @param visitor the visitor
+	 * @throws IOException the IO exception
+	 */
+	void replay(final long fromOffset, final RecordVisitor visitor) throws IOException {
+		long offset = fromOffset;
+		while (offset < length) {
+			final Record record;
+			try {
+				record = read(offset);
+			} catch (IOException readEx) {
+				LOGGER.warn("Truncating catalog log at offset: {}, {} bytes can not be read", offset,
+						length - offset, readEx);
+				channel.truncate(offset);
+				length = offset;
+				return;
+			}
+			visitor.visit(offset, record);
+			offset = record.nextOffset;
+		}
+	}
+
+	/**
+	 * Force the log to the disk.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		randomAccessFile.close();
+	}
+
+	/**
+	 * Read until the buffer is full.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the offset
+	 * @throws IOException the IO exception
+	 */
+	private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (offset + buffer.position() >= length
+					|| channel.read(buffer, offset + buffer.position()) == -1) {
+				throw new EOFException("Catalog record at offset: " + offset + " is incomplete");
+			}
+		}
+	}
+
+	/**
+	 * Null to empty.
+	 *
+	 * @param value the value
+	 * @return the string
+	 */
+	private static String nullToEmpty(final String value) {
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * Empty to null.
+	 *
+	 * @param value the value
+	 * @return the string
+	 */
+	private static String emptyToNull(final String value) {
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * The Class Record.
+	 */
+	static final class Record {
+
+		/** The type. */
+		final byte type;
+
+		/** The entry. */
+		final CatalogEntry entry;
+
+		/** The offset of the next record. */
+		final long nextOffset;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param type the type
+		 * @param entry the entry
+		 * @param nextOffset the next offset
+		 */
+		Record(final byte type, final CatalogEntry entry, final long nextOffset) {
+			this.type = type;
+			this.entry = entry;
+			this.nextOffset = nextOffset;
+		}
+	}
+
+	/**
+	 * The Interface RecordVisitor.
+	 */
+	interface RecordVisitor {
+
+		/**
+		 * Visit a record.
+		 *
+		 * @param offset the offset
+		 * @param record the record
+		 * @throws IOException the IO exception
+		 */
+		void visit(long offset, Record record) throws IOException;
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class SortedKeyIndex.<br/>
+ * Maps 64 bit key hashes to log offsets. Compacted entries are kept on disk as fixed width
+ * <code>[key hash][log offset]</code> pairs sorted by key hash, and are looked up using a binary search
+ * over positional reads, so nothing but the recent entries is held on the heap. Entries added since the
+ * last compaction are kept in memory until {@link #compact(long)} merges them into the file.<br/>
+ * The header records the log length covered by the file, records after it are replayed into memory on open.
+ * Not thread safe, {@link ArchiveCatalog} guards it.
+ */
+final class SortedKeyIndex implements Closeable {
+
+	/** The Constant MAGIC. */
+	private static final int MAGIC = 0x47434958; // "GCIX"
+
+	/** The Constant VERSION. */
+	private static final int VERSION = 1;
+
+	/** The Constant HEADER_LENGTH. */
+	private static final int HEADER_LENGTH = 24;
+
+	/** The Constant ENTRY_LENGTH. */
+	private static final int ENTRY_LENGTH = 16;
+
+	/** The index file. */
+	private final File indexFile;
+
+	/** The random access file, null until the first compaction. */
+	private RandomAccessFile randomAccessFile;
+
+	/** The entry count of the file. */
+	private long count;
+
+	/** The log length covered by the file. */
+	private long indexedLength;
+
+	/** The entries added since the last compaction. */
+	private final Map<Long, List<Long>> recentEntries = new HashMap<Long, List<Long>>();
+
+	/** The number of entries added since the last compaction. */
+	private int recentCount;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param indexFile the index file
+	 * @throws IOException the IO exception
+	 */
+	SortedKeyIndex(final File indexFile) throws IOException {
+		this.indexFile = indexFile;
+		if (indexFile.exists()) {
+			openFile();
+		}
+	}
+
+	/**
+	 * Gets the indexed length.
+	 *
+	 * @return the log length covered by the compacted file
+	 */
+	long getIndexedLength() {
+		return indexedLength;
+	}
+
+	/**
+	 * Gets the recent count.
+	 *
+	 * @return the number of entries held in memory
+	 */
+	int getRecentCount() {
+		return recentCount;
+	}
+
+	/**
+	 * Add an entry.
+	 *
+	 * @param keyHash the key hash
+	 * @param offset the log offset
+	 */
+	void add(final long keyHash, final long offset) {
+		List<Long> offsets = recentEntries.get(keyHash);
+		if (offsets == null) {
+			offsets = new ArrayList<Long>(1);
+			recentEntries.put(keyHash, offsets);
+		}
+		offsets.add(offset);
+		recentCount++;
+	}
+
+	/**
+	 * Lookup the log offsets of a key hash.
+	 *
+	 * @param keyHash the key hash
+	 * @return the log offsets, in log order
+	 * @throws IOException the IO exception
+	 */
+	List<Long> lookup(final long keyHash) throws IOException {
+		final List<Long> offsets = new ArrayList<Long>();
+		if (randomAccessFile != null) {
+			final ByteBuffer entry = ByteBuffer.allocate(ENTRY_LENGTH);
+			long low = 0;
+			long high = count;
+			while (low < high) {
+				final long middle = (low + high) >>> 1;
+				if (readEntry(middle, entry) < keyHash) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			for (long index = low; index < count && readEntry(index, entry) == keyHash; index++) {
+				offsets.add(entry.getLong(8));
+			}
+		}
+		final List<Long> recentOffsets = recentEntries.get(keyHash);
+		if (recentOffsets != null) {
+			offsets.addAll(recentOffsets);
+		}
+		return offsets;
+	}
+
+	/**
+	 * Merge the recent entries into the file.<br/>
+	 * The file and the sorted recent entries are merged in a single sequential pass into a new file,
+	 * which then replaces the old one.
+	 *
+	 * @param logLength the log length covered once merged
+	 * @throws IOException the IO exception
+	 */
+	void compact(final long logLength) throws IOException {
+		final long[] recent = sortedRecentEntries();
+		final File mergedFile = new File(indexFile.getPath() + ".tmp");
+		try (DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+				mergedFile), 1 << 16))) {
+			outStream.writeInt(MAGIC);
+			outStream.writeInt(VERSION);
+			outStream.writeLong(logLength);
+			outStream.writeLong(count + recent.length / 2);
+			int recentIndex = 0;
+			if (randomAccessFile != null) {
+				try (DataInputStream inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(
+						indexFile), 1 << 16))) {
+					inStream.skipBytes(HEADER_LENGTH);
+					for (long index = 0; index < count; index++) {
+						final long keyHash = inStream.readLong();
+						final long offset = inStream.readLong();
+						while (recentIndex < recent.length && recent[recentIndex] < keyHash) {
+							outStream.writeLong(recent[recentIndex++]);
+							outStream.writeLong(recent[recentIndex++]);
+						}
+						outStream.writeLong(keyHash);
+						outStream.writeLong(offset);
+					}
+				}
+			}
+			while (recentIndex < recent.length) {
+				outStream.writeLong(recent[recentIndex++]);
+			}
+		}
+		close();
+		Files.move(mergedFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		recentEntries.clear();
+		recentCount = 0;
+		openFile();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (randomAccessFile != null) {
+			randomAccessFile.close();
+			randomAccessFile = null;
+		}
+	}
+
+	/**
+	 * Open the file and read its header.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	private void openFile() throws IOException {
+		randomAccessFile = new RandomAccessFile(indexFile, "r");
+		if (randomAccessFile.length() < HEADER_LENGTH || randomAccessFile.readInt() != MAGIC
+				|| randomAccessFile.readInt() != VERSION) {
+			close();
+			throw new IOException("Not a catalog index: " + indexFile);
+		}
+		indexedLength = randomAccessFile.readLong();
+		count = randomAccessFile.readLong();
+		if (randomAccessFile.length() != HEADER_LENGTH + count * ENTRY_LENGTH) {
+			close();
+			throw new IOException("Catalog index is truncated: " + indexFile);
+		}
+	}
+
+	/**
+	 * Read the entry at the index.
+	 *
+	 * @param index the index
+	 * @param entry the buffer receiving the entry
+	 * @return the key hash of the entry
+	 * @throws IOException the IO exception
+	 */
+	private long readEntry(final long index, final ByteBuffer entry) throws IOException {
+		final FileChannel channel = randomAccessFile.getChannel();
+		entry.clear();
+		while (entry.hasRemaining()) {
+			if (channel.read(entry, HEADER_LENGTH + index * ENTRY_LENGTH + entry.position()) == -1) {
+				throw new IOException("Unexpected end of catalog index: " + indexFile);
+			}
+		}
+		return entry.getLong(0);
+	}
+
+	/**
+	 * Sorted recent entries.
+	 *
+	 * @return the recent entries as flat [key hash, offset] pairs sorted by key hash, then offset
+	 */
+	private long[] sortedRecentEntries() {
+		final Long[] keyHashes = recentEntries.keySet().toArray(new Long[recentEntries.size()]);
+		Arrays.sort(keyHashes);
+		final long[] sorted = new long[recentCount * 2];
+		int position = 0;
+		for (final Long keyHash : keyHashes) {
+			for (final Long offset : recentEntries.get(keyHash)) {
+				sorted[position++] = keyHash;
+				sorted[position++] = offset;
+			}
+		}
+		return sorted;
+	}
+}
@@ -0,0 +1,497 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.UploadArchiveRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.github.abhinavmishra14.aws.glacier.client.ThrottleSettings.RateLimit;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.RateLimiter;
+
+/**
+ * The Class AdaptiveThrottle.<br/>
+ * Wraps a glacier client so that every thread sharing it is paced by one controller, instead of each request
+ * backing off on its own:
+ * <ul>
+ * <li>requests of an operation are paced by its token bucket, if a rate limit is set for it,</li>
+ * <li>requests in flight of an operation are capped by a limit of its own, which grows by one per round of
+ * successful requests and is halved when the service throttles the operation (additive increase,
+ * multiplicative decrease). Until the first congestion signal the limit grows by one per request, so that it
+ * reaches the capacity of the service quickly. Throttled control calls, e.g. <code>deleteArchive</code>, do not
+ * reduce the requests in flight of data transfers and the other way round,</li>
+ * <li>rising latency of a control call is an early congestion signal if a latency tolerance is set, the limit is
+ * reduced by a tenth. Latency of data transfers, see {@link #DATA_TRANSFER_OPERATIONS}, grows with their size
+ * and the bandwidth shared by them, so they are reduced on throttling only,</li>
+ * <li>throttled requests are attempted again after a randomized, growing delay. Requests throttled together
+ * reduce the limit once.</li>
+ * </ul>
+ * Throttled requests are attempted again by the throttle only, client should use {@link #RETRY_POLICY} so that
+ * the SDK leaves them alone. Other failures are passed through as is. Requests attempted again are counted in
+ * {@link GlacierMetrics}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class AdaptiveThrottle implements InvocationHandler {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveThrottle.class);
+
+	/** The Constant RETRY_POLICY. SDK default retry policy, except for throttled requests. */
+	public static final RetryPolicy RETRY_POLICY = new RetryPolicy(MeteredGlacierClient.countRetries(
+			new RetryPolicy.RetryCondition() {
+		@Override
+		public boolean shouldRetry(final AmazonWebServiceRequest request, final AmazonClientException clientEx,
+				final int retriesAttempted) {
+			return !isThrottling(clientEx)
+					&& PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(request, clientEx, retriesAttempted);
+		}
+	}), PredefinedRetryPolicies.DEFAULT_BACKOFF_STRATEGY, PredefinedRetryPolicies.DEFAULT_MAX_ERROR_RETRY, true);
+
+	/** The Constant DATA_TRANSFER_OPERATIONS. Operations whose latency depends on the bytes transferred. */
+	public static final Set<String> DATA_TRANSFER_OPERATIONS = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("uploadMultipartPart", "uploadArchive", "getJobOutput")));
+
+	/** The Constant THROTTLE_DECREASE. Factor applied to the limit when a request is throttled. */
+	private static final double THROTTLE_DECREASE = 0.5;
+
+	/** The Constant LATENCY_DECREASE. Factor applied to the limit when latency rises. */
+	private static final double LATENCY_DECREASE = 0.9;
+
+	/** The Constant MIN_DECREASE_INTERVAL. Signals closer than this, or than the average latency, count once. */
+	private static final long MIN_DECREASE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(5);
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The settings. */
+	private final ThrottleSettings settings;
+
+	/** The rate limiters, keyed by operation. */
+	private final Map<String, RateLimiter> rateLimiters;
+
+	/** The concurrency limits, keyed by operation. */
+	private final ConcurrentMap<String, ConcurrencyLimit> concurrencyLimits =
+			new ConcurrentHashMap<String, ConcurrencyLimit>();
+
+	/** The number of throttled requests. */
+	private final AtomicLong throttledCount = new AtomicLong();
+
+	/** The number of requests attempted again. */
+	private final AtomicLong retryCount = new AtomicLong();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param settings the settings
+	 */
+	private AdaptiveThrottle(final AmazonGlacier glacierClient, final ThrottleSettings settings) {
+		this.glacierClient = glacierClient;
+		this.settings = settings;
+		final Map<String, RateLimiter> limiters = new HashMap<String, RateLimiter>();
+		for (final Map.Entry<String, RateLimit> rateLimit : settings.getRateLimits().entrySet()) {
+			limiters.put(rateLimit.getKey(), new RateLimiter(rateLimit.getValue().getPermitsPerSecond(),
+					rateLimit.getValue().getBurst()));
+		}
+		this.rateLimiters = Collections.unmodifiableMap(limiters);
+	}
+
+	/**
+	 * Throttle the requests of the given client.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param settings the settings
+	 * @return the throttled glacier client
+	 */
+	public static AmazonGlacier wrap(final AmazonGlacier glacierClient, final ThrottleSettings settings) {
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		AWSUtil.notNull(settings, "ThrottleSettings can not be null!");
+		return (AmazonGlacier) Proxy.newProxyInstance(AmazonGlacier.class.getClassLoader(),
+				new Class<?>[] {AmazonGlacier.class}, new AdaptiveThrottle(glacierClient, settings));
+	}
+
+	/**
+	 * Gets the throttle of a client.
+	 *
+	 * @param glacierClient the glacier client
+	 * @return the adaptive throttle, null if the client is not throttled
+	 */
+	public static AdaptiveThrottle of(final AmazonGlacier glacierClient) {
+		if (glacierClient != null && Proxy.isProxyClass(glacierClient.getClass())) {
+			final InvocationHandler handler = Proxy.getInvocationHandler(glacierClient);
+			if (handler instanceof AdaptiveThrottle) {
+				return (AdaptiveThrottle) handler;
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (args == null || args.length != 1 || !(args[0] instanceof AmazonWebServiceRequest)) {
+			try {
+				return method.invoke(glacierClient, args);
+			} catch (InvocationTargetException invocationEx) {
+				throw invocationEx.getCause();
+			}
+		}
+		final String operation = method.getName();
+		final RateLimiter rateLimiter = rateLimiters.get(operation);
+		final ConcurrencyLimit concurrencyLimit = limitOf(operation);
+		final InputStream body = getBody(args[0]);
+		final boolean replayable = body == null || body.markSupported();
+		if (body != null && replayable) {
+			body.mark(Integer.MAX_VALUE);
+		}
+		for (int attempt = 1;; attempt++) {
+			try {
+				if (rateLimiter != null) {
+					rateLimiter.acquire();
+				}
+				concurrencyLimit.acquire();
+			} catch (InterruptedException intEx) {
+				Thread.currentThread().interrupt();
+				throw new AmazonClientException("Interrupted while waiting for a request slot", intEx);
+			}
+			final long startNanos = System.nanoTime();
+			final Throwable failure;
+			try {
+				final Object result = method.invoke(glacierClient, args);
+				concurrencyLimit.succeeded(System.nanoTime() - startNanos);
+				return result;
+			} catch (InvocationTargetException invocationEx) {
+				failure = invocationEx.getCause();
+			} finally {
+				concurrencyLimit.release();
+			}
+			if (!isThrottling(failure)) {
+				throw failure;
+			}
+			throttledCount.incrementAndGet();
+			concurrencyLimit.throttled();
+			if (attempt >= settings.getMaxAttempts() || !replayable) {
+				throw failure;
+			}
+			retryCount.incrementAndGet();
+			GlacierMetrics.getInstance().countRetry(operation);
+			try {
+				Thread.sleep(AWSUtil.getRetryDelay(attempt, settings.getRetryBaseDelay(),
+						settings.getRetryMaxDelay()));
+				if (body != null) {
+					body.reset();
+				}
+			} catch (InterruptedException intEx) {
+				Thread.currentThread().interrupt();
+				throw new AmazonClientException("Interrupted while waiting to retry " + operation, intEx);
+			} catch (IOException ioex) {
+				LOGGER.debug("Request body of {} can not be replayed: {}", operation, ioex.getMessage());
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * Gets the limit of requests in flight of an operation.
+	 *
+	 * @param operation the operation, e.g. <code>uploadMultipartPart</code>
+	 * @return the concurrency limit
+	 */
+	public int getConcurrencyLimit(final String operation) {
+		return limitOf(operation).getLimit();
+	}
+
+	/**
+	 * Gets the requests in flight of all the operations.
+	 *
+	 * @return the in flight count
+	 */
+	public int getInFlightCount() {
+		int inFlight = 0;
+		for (final ConcurrencyLimit concurrencyLimit : concurrencyLimits.values()) {
+			inFlight += concurrencyLimit.getInFlight();
+		}
+		return inFlight;
+	}
+
+	/**
+	 * Gets the number of throttled requests.
+	 *
+	 * @return the throttled count
+	 */
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	/**
+	 * Gets the number of requests attempted again.
+	 *
+	 * @return the retry count
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * Gets the concurrency limit of an operation, created on first use.
+	 *
+	 * @param operation the operation
+	 * @return the concurrency limit
+	 */
+	private ConcurrencyLimit limitOf(final String operation) {
+		ConcurrencyLimit concurrencyLimit = concurrencyLimits.get(operation);
+		if (concurrencyLimit == null) {
+			final ConcurrencyLimit created = new ConcurrencyLimit(operation);
+			concurrencyLimit = concurrencyLimits.putIfAbsent(operation, created);
+			if (concurrencyLimit == null) {
+				concurrencyLimit = created;
+			}
+		}
+		return concurrencyLimit;
+	}
+
+	/**
+	 * Gets the body of an upload request.
+	 *
+	 * @param request the request
+	 * @return the body, null if the request has none
+	 */
+	private static InputStream getBody(final Object request) {
+		if (request instanceof UploadMultipartPartRequest) {
+			return ((UploadMultipartPartRequest) request).getBody();
+		} else if (request instanceof UploadArchiveRequest) {
+			return ((UploadArchiveRequest) request).getBody();
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if a failure is a throttling error.
+	 *
+	 * @param failure the failure
+	 * @return true, if the service throttled the request
+	 */
+	private static boolean isThrottling(final Throwable failure) {
+		return failure instanceof AmazonServiceException
+				&& RetryUtils.isThrottlingException((AmazonServiceException) failure);
+	}
+
+	/**
+	 * The Class ConcurrencyLimit.<br/>
+	 * Limit of requests in flight of one operation.
+	 */
+	private final class ConcurrencyLimit {
+
+		/** The operation. */
+		private final String operation;
+
+		/** The latency tolerance, 0 if latency is not a signal for the operation. */
+		private final double latencyTolerance;
+
+		/** The latency stats. */
+		private final LatencyStats latencyStats = new LatencyStats();
+
+		/** The limit of requests in flight, guarded by this. */
+		private double limit;
+
+		/** The requests in flight, guarded by this. */
+		private int inFlight;
+
+		/** Whether no congestion was signaled yet, guarded by this. */
+		private boolean slowStart = true;
+
+		/** The time of the last decrease in nanos, guarded by this. */
+		private long lastDecreaseNanos = System.nanoTime() - MIN_DECREASE_INTERVAL;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param operation the operation
+		 */
+		ConcurrencyLimit(final String operation) {
+			this.operation = operation;
+			this.latencyTolerance = DATA_TRANSFER_OPERATIONS.contains(operation) ? 0 : settings.getLatencyTolerance();
+			this.limit = settings.getInitialConcurrency();
+		}
+
+		/**
+		 * Gets the limit.
+		 *
+		 * @return the limit
+		 */
+		synchronized int getLimit() {
+			return (int) limit;
+		}
+
+		/**
+		 * Gets the requests in flight.
+		 *
+		 * @return the in flight
+		 */
+		synchronized int getInFlight() {
+			return inFlight;
+		}
+
+		/**
+		 * Wait until a request may be sent.
+		 *
+		 * @throws InterruptedException the interrupted exception
+		 */
+		synchronized void acquire() throws InterruptedException {
+			while (inFlight >= (int) limit) {
+				wait();
+			}
+			inFlight++;
+		}
+
+		/**
+		 * Request completed.
+		 */
+		synchronized void release() {
+			inFlight--;
+			notify();
+		}
+
+		/**
+		 * Request succeeded, the limit grows if it is in use and latency is normal.
+		 *
+		 * @param latencyNanos the latency in nanos
+		 */
+		void succeeded(final long latencyNanos) {
+			final boolean congested = latencyStats.record(latencyNanos, latencyTolerance);
+			synchronized (this) {
+				if (congested) {
+					decrease(LATENCY_DECREASE);
+				} else if (inFlight >= (int) limit) {
+					final int previous = (int) limit;
+					limit = Math.min(settings.getMaxConcurrency(), slowStart ? limit + 1 : limit + 1 / limit);
+					if ((int) limit > previous) {
+						notifyAll();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Request throttled, the limit is halved.
+		 */
+		synchronized void throttled() {
+			if (decrease(THROTTLE_DECREASE)) {
+				LOGGER.debug("{} throttled, requests in flight limited to {}", operation, (int) limit);
+			}
+		}
+
+		/**
+		 * Decrease the limit, unless it was decreased for the same congestion, i.e. within one round trip of the
+		 * operation. Caller holds the lock.
+		 *
+		 * @param factor the factor
+		 * @return true, if decreased
+		 */
+		private boolean decrease(final double factor) {
+			final long now = System.nanoTime();
+			slowStart = false;
+			if (now - lastDecreaseNanos < Math.max(MIN_DECREASE_INTERVAL, latencyStats.getAverage())) {
+				return false;
+			}
+			lastDecreaseNanos = now;
+			limit = Math.max(settings.getMinConcurrency(), limit * factor);
+			return true;
+		}
+	}
+
+	/**
+	 * The Class LatencyStats.<br/>
+	 * Moving average of the latency of an operation, along with the lowest average seen. Lowest average is
+	 * forgotten every {@link #BASELINE_SAMPLES} samples, so that a lasting change of conditions is learned.
+	 */
+	private static final class LatencyStats {
+
+		/** The Constant SMOOTHING. Weight of a new sample. */
+		private static final double SMOOTHING = 0.2;
+
+		/** The Constant MIN_SAMPLES. Samples needed before latency is a signal. */
+		private static final int MIN_SAMPLES = 10;
+
+		/** The Constant BASELINE_SAMPLES. */
+		private static final int BASELINE_SAMPLES = 1000;
+
+		/** The average latency in nanos. */
+		private double average;
+
+		/** The lowest average latency in nanos. */
+		private double lowest;
+
+		/** The samples. */
+		private long samples;
+
+		/**
+		 * Record a sample.
+		 *
+		 * @param latencyNanos the latency in nanos
+		 * @param tolerance the latency tolerance, 0 if latency is not a signal
+		 * @return true, if the average rose above the tolerance
+		 */
+		synchronized boolean record(final long latencyNanos, final double tolerance) {
+			average = samples == 0 ? latencyNanos : average + SMOOTHING * (latencyNanos - average);
+			lowest = samples % BASELINE_SAMPLES == 0 ? average : Math.min(lowest, average);
+			samples++;
+			return tolerance > 0 && samples >= MIN_SAMPLES && average > tolerance * lowest;
+		}
+
+		/**
+		 * Gets the average latency.
+		 *
+		 * @return the average latency in nanos
+		 */
+		synchronized long getAverage() {
+			return (long) average;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MAX_CONNECTIONS;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * The Class ClientSettings.<br/>
+ * Connection settings applied to the clients created by {@link GlacierClientFactory}.
+ * Socket buffer size hints of zero leave the buffer sizes to the operating system.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ClientSettings {
+
+	/** The max connections. */
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+	/** The tcp keep alive. */
+	private boolean tcpKeepAlive = true;
+
+	/** The socket send buffer size hint. */
+	private int socketSendBufferSizeHint;
+
+	/** The socket receive buffer size hint. */
+	private int socketReceiveBufferSizeHint;
+
+	/** The throttle settings. */
+	private ThrottleSettings throttleSettings = new ThrottleSettings();
+
+	/**
+	 * Gets the max connections.
+	 *
+	 * @return the max connections
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Sets the max connections.<br/>
+	 * It is the size of the connection pool shared by all the services using the same client.
+	 *
+	 * @param maxConnections the max connections
+	 */
+	public void setMaxConnections(final int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("Max connections must be greater than zero!");
+		}
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Checks if is tcp keep alive.
+	 *
+	 * @return true, if is tcp keep alive
+	 */
+	public boolean isTcpKeepAlive() {
+		return tcpKeepAlive;
+	}
+
+	/**
+	 * Sets the tcp keep alive.
+	 *
+	 * @param tcpKeepAlive the tcp keep alive
+	 */
+	public void setTcpKeepAlive(final boolean tcpKeepAlive) {
+		this.tcpKeepAlive = tcpKeepAlive;
+	}
+
+	/**
+	 * Gets the socket send buffer size hint.
+	 *
+	 * @return the socket send buffer size hint
+	 */
+	public int getSocketSendBufferSizeHint() {
+		return socketSendBufferSizeHint;
+	}
+
+	/**
+	 * Gets the socket receive buffer size hint.
+	 *
+	 * @return the socket receive buffer size hint
+	 */
+	public int getSocketReceiveBufferSizeHint() {
+		return socketReceiveBufferSizeHint;
+	}
+
+	/**
+	 * Sets the socket buffer size hints.
+	 *
+	 * @param socketSendBufferSizeHint the socket send buffer size hint
+	 * @param socketReceiveBufferSizeHint the socket receive buffer size hint
+	 */
+	public void setSocketBufferSizeHints(final int socketSendBufferSizeHint,
+			final int socketReceiveBufferSizeHint) {
+		this.socketSendBufferSizeHint = socketSendBufferSizeHint;
+		this.socketReceiveBufferSizeHint = socketReceiveBufferSizeHint;
+	}
+
+	/**
+	 * Gets the throttle settings.
+	 *
+	 * @return the throttle settings, null if clients are not throttled
+	 */
+	public ThrottleSettings getThrottleSettings() {
+		return throttleSettings;
+	}
+
+	/**
+	 * Sets the throttle settings.<br/>
+	 * Clients are wrapped by an {@link AdaptiveThrottle} shared by all the services using them. Pass null to leave
+	 * throttled requests to the retry policy of the SDK.
+	 *
+	 * @param throttleSettings the throttle settings
+	 */
+	public void setThrottleSettings(final ThrottleSettings throttleSettings) {
+		this.throttleSettings = throttleSettings;
+	}
+
+	/**
+	 * To client configuration.
+	 *
+	 * @return the client configuration
+	 */
+	public ClientConfiguration toClientConfiguration() {
+		final ClientConfiguration clientConfig = new ClientConfiguration().withMaxConnections(maxConnections)
+				.withTcpKeepAlive(tcpKeepAlive)
+				.withSocketBufferSizeHints(socketSendBufferSizeHint, socketReceiveBufferSizeHint);
+		if (throttleSettings != null) {
+			clientConfig.setRetryPolicy(AdaptiveThrottle.RETRY_POLICY);//Throttled requests are retried by throttle
+		} else {
+			clientConfig.setRetryPolicy(MeteredGlacierClient.RETRY_POLICY);
+		}
+		return clientConfig;
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DISABLE_CERT_PARAM;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_ACCESSKEY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_SECRETKEY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.TRUE;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class GlacierClientFactory.<br/>
+ * Registry of shared, thread safe clients keyed by credentials, endpoint and certificate check
+ * setting. Service instances obtain their clients from here, so creating many short lived service
+ * objects reuses the same connection pool instead of opening new connections every time.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class GlacierClientFactory {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlacierClientFactory.class);
+
+	/** The Constant INSTANCE. */
+	private static final GlacierClientFactory INSTANCE = new GlacierClientFactory();
+
+	/** The clients, keyed by credentials, endpoint and cert check setting. */
+	private final Map<ClientKey, GlacierClients> clients = new ConcurrentHashMap<ClientKey, GlacierClients>();
+
+	/** The client settings. */
+	private volatile ClientSettings clientSettings = new ClientSettings();
+
+	/**
+	 * Instantiates a new glacier client factory.
+	 */
+	private GlacierClientFactory() {
+		super();
+	}
+
+	/**
+	 * Gets the single instance of GlacierClientFactory.
+	 *
+	 * @return single instance of GlacierClientFactory
+	 */
+	public static GlacierClientFactory getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets the clients which use IAM role, or the default credentials chain.
+	 *
+	 * @param disableCertCheck the disable cert check
+	 * @param endpoint the endpoint, default endpoint is used if blank
+	 * @return the clients
+	 */
+	public GlacierClients getClients(final boolean disableCertCheck, final String endpoint) {
+		return getClients(new ClientKey(null, null, disableCertCheck, endpoint));
+	}
+
+	/**
+	 * Gets the clients which use the given keys.
+	 *
+	 * @param accessKey the access key
+	 * @param secretKey the secret key
+	 * @param disableCertCheck the disable cert check
+	 * @param endpoint the endpoint, default endpoint is used if blank
+	 * @return the clients
+	 */
+	public GlacierClients getClients(final String accessKey, final String secretKey,
+			final boolean disableCertCheck, final String endpoint) {
+		AWSUtil.notNull(accessKey, ERR_MSG_ACCESSKEY);
+		AWSUtil.notNull(secretKey, ERR_MSG_SECRETKEY);
+		return getClients(new ClientKey(accessKey, secretKey, disableCertCheck, endpoint));
+	}
+
+	/**
+	 * Gets the client settings.
+	 *
+	 * @return the client settings
+	 */
+	public ClientSettings getClientSettings() {
+		return clientSettings;
+	}
+
+	/**
+	 * Sets the client settings.<br/>
+	 * Settings are applied to the clients created after this call.
+	 *
+	 * @param clientSettings the client settings
+	 */
+	public void setClientSettings(final ClientSettings clientSettings) {
+		AWSUtil.notNull(clientSettings, "ClientSettings can not be null!");
+		this.clientSettings = clientSettings;
+	}
+
+	/**
+	 * Shutdown all the clients and clear the registry.
+	 */
+	public synchronized void shutdown() {
+		for (final GlacierClients glacierClients : clients.values()) {
+			glacierClients.shutdown();
+		}
+		clients.clear();
+	}
+
+	/**
+	 * Gets the clients for the given key, creating them on first call.
+	 *
+	 * @param clientKey the client key
+	 * @return the clients
+	 */
+	private GlacierClients getClients(final ClientKey clientKey) {
+		final GlacierClients existing = clients.get(clientKey);
+		if (existing != null) {
+			return existing;
+		}
+		synchronized (this) {
+			GlacierClients glacierClients = clients.get(clientKey);
+			if (glacierClients == null) {
+				glacierClients = createClients(clientKey);
+				clients.put(clientKey, glacierClients);
+			}
+			return glacierClients;
+		}
+	}
+
+	/**
+	 * Creates the clients.
+	 *
+	 * @param clientKey the client key
+	 * @return the glacier clients
+	 */
+	private GlacierClients createClients(final ClientKey clientKey) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Creating shared glacier client for endpoint: {}", clientKey.endpoint);
+		}
+		if (clientKey.disableCertCheck) {
+			System.setProperty(DISABLE_CERT_PARAM, TRUE);//Disable cert check
+		}
+		final AWSCredentialsProvider credentialsProvider = clientKey.accessKey == null
+				? new DefaultAWSCredentialsProviderChain() //IAM role, environment, profile etc.
+				: new StaticCredentialsProvider(new BasicAWSCredentials(clientKey.accessKey, clientKey.secretKey));
+		final ClientConfiguration clientConfig = clientSettings.toClientConfiguration();
+		final AmazonGlacier sdkClient = new AmazonGlacierClient(credentialsProvider, clientConfig);
+		if (StringUtils.isNotBlank(clientKey.endpoint)) {
+			sdkClient.setEndpoint(clientKey.endpoint);
+		}
+		final AmazonGlacier meteredClient = MeteredGlacierClient.wrap(sdkClient);
+		final ThrottleSettings throttleSettings = clientSettings.getThrottleSettings();
+		final AmazonGlacier glacierClient = throttleSettings == null ? meteredClient
+				: AdaptiveThrottle.wrap(meteredClient, throttleSettings);
+		return new GlacierClients(glacierClient, credentialsProvider, clientConfig);
+	}
+
+	/**
+	 * The Class ClientKey.
+	 */
+	private static final class ClientKey {
+
+		/** The access key. */
+		private final String accessKey;
+
+		/** The secret key. */
+		private final String secretKey;
+
+		/** The disable cert check. */
+		private final boolean disableCertCheck;
+
+		/** The endpoint. */
+		private final String endpoint;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param accessKey the access key
+		 * @param secretKey the secret key
+		 * @param disableCertCheck the disable cert check
+		 * @param endpoint the endpoint
+		 */
+		ClientKey(final String accessKey, final String secretKey, final boolean disableCertCheck,
+				final String endpoint) {
+			this.accessKey = accessKey;
+			this.secretKey = secretKey;
+			this.disableCertCheck = disableCertCheck;
+			this.endpoint = StringUtils.trimToNull(endpoint);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			int result = disableCertCheck ? 1 : 0;
+			result = 31 * result + (accessKey == null ? 0 : accessKey.hashCode());
+			result = 31 * result + (secretKey == null ? 0 : secretKey.hashCode());
+			return 31 * result + (endpoint == null ? 0 : endpoint.hashCode());
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ClientKey)) {
+				return false;
+			}
+			final ClientKey other = (ClientKey) obj;
+			return disableCertCheck == other.disableCertCheck && StringUtils.equals(accessKey, other.accessKey)
+					&& StringUtils.equals(secretKey, other.secretKey) && StringUtils.equals(endpoint, other.endpoint);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClient;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClient;
+
+/**
+ * The Class GlacierClients.<br/>
+ * Holds the shared glacier client and the auxiliary SQS and SNS clients for one set of
+ * credentials and endpoint. The auxiliary clients are only needed for job notifications,
+ * hence they are created on first use.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class GlacierClients {
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The credentials provider. */
+	private final AWSCredentialsProvider credentialsProvider;
+
+	/** The client configuration. */
+	private final ClientConfiguration clientConfig;
+
+	/** The sqs client. */
+	private AmazonSQS sqsClient;
+
+	/** The sns client. */
+	private AmazonSNS snsClient;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param credentialsProvider the credentials provider
+	 * @param clientConfig the client config
+	 */
+	GlacierClients(final AmazonGlacier glacierClient, final AWSCredentialsProvider credentialsProvider,
+			final ClientConfiguration clientConfig) {
+		super();
+		this.glacierClient = glacierClient;
+		this.credentialsProvider = credentialsProvider;
+		this.clientConfig = clientConfig;
+	}
+
+	/**
+	 * Gets the glacier client.
+	 *
+	 * @return the glacier client
+	 */
+	public AmazonGlacier getGlacierClient() {
+		return glacierClient;
+	}
+
+	/**
+	 * Gets the sqs client, creating it on first call.
+	 *
+	 * @return the sqs client
+	 */
+	public synchronized AmazonSQS getSqsClient() {
+		if (sqsClient == null) {
+			sqsClient = new AmazonSQSClient(credentialsProvider, clientConfig);
+		}
+		return sqsClient;
+	}
+
+	/**
+	 * Gets the sns client, creating it on first call.
+	 *
+	 * @return the sns client
+	 */
+	public synchronized AmazonSNS getSnsClient() {
+		if (snsClient == null) {
+			snsClient = new AmazonSNSClient(credentialsProvider, clientConfig);
+		}
+		return snsClient;
+	}
+
+	/**
+	 * Shutdown all the clients created so far.
+	 */
+	synchronized void shutdown() {
+		glacierClient.shutdown();
+		if (sqsClient != null) {
+			sqsClient.shutdown();
+		}
+		if (snsClient != null) {
+			snsClient.shutdown();
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import java.beans.Introspector;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.commons.io.input.ProxyInputStream;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.UploadArchiveRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class MeteredGlacierClient.<br/>
+ * Wraps a glacier client so that every request is recorded in {@link GlacierMetrics} under the name of its
+ * operation, e.g. uploadMultipartPart: latency, failures, requests in flight, throttling errors and bytes of
+ * uploaded parts, archives and downloaded job output. Clients of the {@link GlacierClientFactory} are metered
+ * below the {@link AdaptiveThrottle}, hence every attempt is recorded and time spent waiting for a request
+ * slot is not.<br/>
+ * Requests attempted again by the SDK are counted by {@link #RETRY_POLICY}, or by a retry condition wrapped
+ * using {@link #countRetries(RetryPolicy.RetryCondition)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class MeteredGlacierClient implements InvocationHandler {
+
+	/** The Constant RETRY_POLICY. SDK default retry policy, counting the requests attempted again. */
+	public static final RetryPolicy RETRY_POLICY = new RetryPolicy(
+			countRetries(PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION),
+			PredefinedRetryPolicies.DEFAULT_BACKOFF_STRATEGY, PredefinedRetryPolicies.DEFAULT_MAX_ERROR_RETRY, true);
+
+	/** The Constant REQUEST_SUFFIX. */
+	private static final String REQUEST_SUFFIX = "Request";
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The metrics. */
+	private final GlacierMetrics metrics = GlacierMetrics.getInstance();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 */
+	private MeteredGlacierClient(final AmazonGlacier glacierClient) {
+		this.glacierClient = glacierClient;
+	}
+
+	/**
+	 * Meter the requests of the given client.
+	 *
+	 * @param glacierClient the glacier client
+	 * @return the metered glacier client
+	 */
+	public static AmazonGlacier wrap(final AmazonGlacier glacierClient) {
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		return (AmazonGlacier) Proxy.newProxyInstance(AmazonGlacier.class.getClassLoader(),
+				new Class<?>[] {AmazonGlacier.class}, new MeteredGlacierClient(glacierClient));
+	}
+
+	/**
+	 * Wrap a retry condition, so that the requests it lets the SDK attempt again are counted.
+	 *
+	 * @param condition the condition
+	 * @return the counting retry condition
+	 */
+	public static RetryPolicy.RetryCondition countRetries(final RetryPolicy.RetryCondition condition) {
+		AWSUtil.notNull(condition, "RetryCondition can not be null!");
+		return new RetryPolicy.RetryCondition() {
+			@Override
+			public boolean shouldRetry(final AmazonWebServiceRequest request, final AmazonClientException clientEx,
+					final int retriesAttempted) {
+				final boolean retry = condition.shouldRetry(request, clientEx, retriesAttempted);
+				if (retry && request != null) {
+					GlacierMetrics.getInstance().countRetry(operationOf(request));
+				}
+				return retry;
+			}
+		};
+	}
+
+	/**
+	 * Operation of a request, the name of the client method which sends it.
+	 *
+	 * @param request the request
+	 * @return the operation, e.g. uploadMultipartPart
+	 */
+	public static String operationOf(final AmazonWebServiceRequest request) {
+		final String requestName = request.getClass().getSimpleName();
+		return Introspector.decapitalize(requestName.endsWith(REQUEST_SUFFIX)
+				? requestName.substring(0, requestName.length() - REQUEST_SUFFIX.length()) : requestName);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (args == null || args.length != 1 || !(args[0] instanceof AmazonWebServiceRequest)) {
+			try {
+				return method.invoke(glacierClient, args);
+			} catch (InvocationTargetException invocationEx) {
+				throw invocationEx.getCause();
+			}
+		}
+		final String operation = method.getName();
+		final long startNanos = metrics.start(operation);
+		Throwable failure = null;
+		try {
+			final Object result = method.invoke(glacierClient, args);
+			final long uploadedBytes = getUploadedBytes(args[0]);
+			if (uploadedBytes > 0) {
+				metrics.addBytes(operation, uploadedBytes);
+			}
+			if (result instanceof GetJobOutputResult && ((GetJobOutputResult) result).getBody() != null) {
+				final GetJobOutputResult outputResult = (GetJobOutputResult) result;
+				outputResult.setBody(new MeteredInputStream(outputResult.getBody(), operation));
+			}
+			return result;
+		} catch (InvocationTargetException invocationEx) {
+			failure = invocationEx.getCause();
+			if (failure instanceof AmazonServiceException
+					&& RetryUtils.isThrottlingException((AmazonServiceException) failure)) {
+				metrics.countThrottle(operation);
+			}
+			throw failure;
+		} finally {
+			metrics.complete(operation, startNanos, failure);
+		}
+	}
+
+	/**
+	 * Gets the bytes uploaded by a request.
+	 *
+	 * @param request the request
+	 * @return the uploaded bytes, 0 if the request uploads nothing
+	 */
+	private static long getUploadedBytes(final Object request) {
+		if (request instanceof UploadArchiveRequest) {
+			final Long contentLength = ((UploadArchiveRequest) request).getContentLength();
+			return contentLength == null ? 0 : contentLength;
+		}
+		if (request instanceof UploadMultipartPartRequest) {
+			final String range = ((UploadMultipartPartRequest) request).getRange();
+			if (range != null && range.matches("bytes \\d+-\\d+/.*")) {
+				final int separator = range.indexOf('-');
+				final long start = Long.parseLong(range.substring(range.indexOf(' ') + 1, separator));
+				final long end = Long.parseLong(range.substring(separator + 1, range.indexOf('/')));
+				return end - start + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * The Class MeteredInputStream.<br/>
+	 * Body of job output, counting the bytes as they are read.
+	 */
+	private final class MeteredInputStream extends ProxyInputStream {
+
+		/** The operation. */
+		private final String operation;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param body the body
+		 * @param operation the operation
+		 */
+		private MeteredInputStream(final InputStream body, final String operation) {
+			super(body);
+			this.operation = operation;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.apache.commons.io.input.ProxyInputStream#afterRead(int)
+		 */
+		@Override
+		protected void afterRead(final int bytesRead) {
+			if (bytesRead > 0) {
+				metrics.addBytes(operation, bytesRead);
+			}
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_INITIAL_CONCURRENCY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_LATENCY_TOLERANCE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MAX_CONNECTIONS;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_RETRY_BASE_DELAY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_RETRY_MAX_DELAY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_THROTTLE_MAX_ATTEMPTS;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class ThrottleSettings.<br/>
+ * Settings of the {@link AdaptiveThrottle} shared by the services using the same client. Operations are named
+ * after the methods of the glacier client, e.g. <code>uploadMultipartPart</code> or <code>describeVault</code>.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ThrottleSettings {
+
+	/** The initial concurrency. */
+	private int initialConcurrency = DEFAULT_INITIAL_CONCURRENCY;
+
+	/** The min concurrency. */
+	private int minConcurrency = 1;
+
+	/** The max concurrency. */
+	private int maxConcurrency = DEFAULT_MAX_CONNECTIONS;
+
+	/** The latency tolerance, 0 if latency is not a congestion signal. */
+	private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+
+	/** The max attempts. */
+	private int maxAttempts = DEFAULT_THROTTLE_MAX_ATTEMPTS;
+
+	/** The retry base delay. */
+	private long retryBaseDelay = DEFAULT_RETRY_BASE_DELAY;
+
+	/** The retry max delay. */
+	private long retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+
+	/** The rate limits, keyed by operation. */
+	private final Map<String, RateLimit> rateLimits = new HashMap<String, RateLimit>();
+
+	/**
+	 * Gets the initial concurrency.
+	 *
+	 * @return the requests in flight allowed at first
+	 */
+	public int getInitialConcurrency() {
+		return initialConcurrency;
+	}
+
+	/**
+	 * Gets the min concurrency.
+	 *
+	 * @return the min requests in flight allowed
+	 */
+	public int getMinConcurrency() {
+		return minConcurrency;
+	}
+
+	/**
+	 * Gets the max concurrency.
+	 *
+	 * @return the max requests in flight allowed
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Sets the concurrency bounds.<br/>
+	 * Each operation has a limit of its own. Requests in flight of an operation start at the initial concurrency,
+	 * the limit then grows while requests succeed and shrinks on throttling, staying within the min and max
+	 * concurrency.
+	 *
+	 * @param initialConcurrency the requests in flight allowed at first
+	 * @param minConcurrency the min requests in flight allowed
+	 * @param maxConcurrency the max requests in flight allowed
+	 */
+	public void setConcurrency(final int initialConcurrency, final int minConcurrency, final int maxConcurrency) {
+		if (minConcurrency < 1 || initialConcurrency < minConcurrency || maxConcurrency < initialConcurrency) {
+			throw new IllegalArgumentException("Concurrency bounds must be positive, with min <= initial <= max!");
+		}
+		this.initialConcurrency = initialConcurrency;
+		this.minConcurrency = minConcurrency;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Gets the latency tolerance.
+	 *
+	 * @return the latency tolerance, 0 if latency is not a congestion signal
+	 */
+	public double getLatencyTolerance() {
+		return latencyTolerance;
+	}
+
+	/**
+	 * Sets the latency tolerance.<br/>
+	 * Requests in flight are reduced when the average latency of an operation rises above this multiple of the
+	 * lowest average latency seen for it, before the service starts throttling. Latency is not a signal by default,
+	 * and never for data transfers, see {@link AdaptiveThrottle#DATA_TRANSFER_OPERATIONS}.
+	 *
+	 * @param latencyTolerance the latency tolerance, greater than 1, or 0 if latency is not a congestion signal
+	 */
+	public void setLatencyTolerance(final double latencyTolerance) {
+		if (latencyTolerance != 0 && latencyTolerance <= 1) {
+			throw new IllegalArgumentException("Latency tolerance must be greater than 1, or 0!");
+		}
+		this.latencyTolerance = latencyTolerance;
+	}
+
+	/**
+	 * Gets the max attempts.
+	 *
+	 * @return the max attempts of a throttled request
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Sets the max attempts.
+	 *
+	 * @param maxAttempts the max attempts of a throttled request
+	 */
+	public void setMaxAttempts(final int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Max attempts must be greater than zero!");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Gets the retry base delay.
+	 *
+	 * @return the delay before the first retry in millis
+	 */
+	public long getRetryBaseDelay() {
+		return retryBaseDelay;
+	}
+
+	/**
+	 * Gets the retry max delay.
+	 *
+	 * @return the longest delay between two retries in millis
+	 */
+	public long getRetryMaxDelay() {
+		return retryMaxDelay;
+	}
+
+	/**
+	 * Sets the retry delays.
+	 *
+	 * @param retryBaseDelay the delay before the first retry in millis
+	 * @param retryMaxDelay the longest delay between two retries in millis
+	 * @see com.github.abhinavmishra14.aws.util.AWSUtil#getRetryDelay(int, long, long)
+	 */
+	public void setRetryDelays(final long retryBaseDelay, final long retryMaxDelay) {
+		if (retryBaseDelay < 1 || retryMaxDelay < retryBaseDelay) {
+			throw new IllegalArgumentException("Retry delays must be positive, max delay not below base delay!");
+		}
+		this.retryBaseDelay = retryBaseDelay;
+		this.retryMaxDelay = retryMaxDelay;
+	}
+
+	/**
+	 * Sets the rate limit of an operation.
+	 *
+	 * @param operation the operation, e.g. <code>uploadMultipartPart</code>
+	 * @param permitsPerSecond the requests per second
+	 * @param burst the max number of requests started at once after a pause
+	 */
+	public void setRateLimit(final String operation, final double permitsPerSecond, final int burst) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst must be positive!");
+		}
+		rateLimits.put(operation, new RateLimit(permitsPerSecond, burst));
+	}
+
+	/**
+	 * Gets the rate limits.
+	 *
+	 * @return the rate limits, keyed by operation
+	 */
+	public Map<String, RateLimit> getRateLimits() {
+		return Collections.unmodifiableMap(rateLimits);
+	}
+
+	/**
+	 * The Class RateLimit.<br/>
+	 * Rate limit of an operation.
+	 */
+	public static final class RateLimit {
+
+		/** The permits per second. */
+		private final double permitsPerSecond;
+
+		/** The burst. */
+		private final int burst;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param permitsPerSecond the permits per second
+		 * @param burst the burst
+		 */
+		private RateLimit(final double permitsPerSecond, final int burst) {
+			this.permitsPerSecond = permitsPerSecond;
+			this.burst = burst;
+		}
+
+		/**
+		 * Gets the permits per second.
+		 *
+		 * @return the requests per second
+		 */
+		public double getPermitsPerSecond() {
+			return permitsPerSecond;
+		}
+
+		/**
+		 * Gets the burst.
+		 *
+		 * @return the max number of requests started at once after a pause
+		 */
+		public int getBurst() {
+			return burst;
+		}
+	}
+}
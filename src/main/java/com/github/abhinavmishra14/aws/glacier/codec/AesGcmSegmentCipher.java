@@ -0,0 +1,142 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * The Class AesGcmSegmentCipher.<br/>
+ * Encrypts or decrypts the segments of an archive using AES-GCM. Nonce of a segment is the nonce prefix
+ * of the archive, followed by the segment index and a flag set for the last segment only, so segments
+ * can not be reordered, and truncated archives fail to decrypt. Header of the archive is authenticated
+ * along with every segment.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class AesGcmSegmentCipher implements BlockTransform {
+
+	/** The Constant TAG_LENGTH. */
+	static final int TAG_LENGTH = 16;
+
+	/** The Constant MAX_SEGMENTS. */
+	private static final long MAX_SEGMENTS = 0xffffffffL;
+
+	/** The Constant TRANSFORMATION. */
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+	/** The cipher mode. */
+	private final int cipherMode;
+
+	/** The header. */
+	private final EncryptionHeader header;
+
+	/** The header bytes, authenticated along with every segment. */
+	private final byte[] headerBytes;
+
+	/** The data key. */
+	private final SecretKey dataKey;
+
+	/** The index of the first segment of the stream. */
+	private final long firstSegment;
+
+	/** Whether the last block of the stream is the last segment of the archive. */
+	private final boolean wholeArchive;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param cipherMode the cipher mode, {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+	 * @param header the header
+	 * @param dataKey the data key
+	 * @param firstSegment the index of the first segment of the stream
+	 * @param wholeArchive false if the stream holds a range of the segments
+	 */
+	AesGcmSegmentCipher(final int cipherMode, final EncryptionHeader header, final SecretKey dataKey,
+			final long firstSegment, final boolean wholeArchive) {
+		this.cipherMode = cipherMode;
+		this.header = header;
+		this.headerBytes = header.toBytes();
+		this.dataKey = dataKey;
+		this.firstSegment = firstSegment;
+		this.wholeArchive = wholeArchive;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.codec.BlockTransform#transform(long, byte[], int, boolean)
+	 */
+	@Override
+	public byte[] transform(final long blockIndex, final byte[] block, final int length,
+			final boolean lastBlock) throws IOException {
+		final long segmentIndex = firstSegment + blockIndex;
+		if (segmentIndex > MAX_SEGMENTS) {
+			throw new IOException("Archive has more than " + MAX_SEGMENTS + " segments, use larger segments");
+		}
+		try {
+			if (cipherMode == Cipher.ENCRYPT_MODE || wholeArchive || !lastBlock) {
+				return crypt(segmentIndex, lastBlock, block, length);
+			}
+			// Last whole segment of a range may or may not be the last segment of the archive
+			if (length < header.getSegmentSize() + TAG_LENGTH) {
+				return crypt(segmentIndex, true, block, length);
+			}
+			try {
+				return crypt(segmentIndex, false, block, length);
+			} catch (AEADBadTagException tagEx) {
+				return crypt(segmentIndex, true, block, length);
+			}
+		} catch (AEADBadTagException tagEx) {
+			throw new IOException("Segment " + segmentIndex + " failed authentication, archive was modified or"
+					+ " truncated", tagEx);
+		} catch (GeneralSecurityException secEx) {
+			throw new IOException("Could not process segment " + segmentIndex + ": " + secEx.getMessage(), secEx);
+		}
+	}
+
+	/**
+	 * Encrypt or decrypt a segment.
+	 *
+	 * @param segmentIndex the segment index
+	 * @param lastSegment whether it is the last segment
+	 * @param block the block
+	 * @param length the length
+	 * @return the result
+	 * @throws GeneralSecurityException the general security exception
+	 */
+	private byte[] crypt(final long segmentIndex, final boolean lastSegment, final byte[] block,
+			final int length) throws GeneralSecurityException {
+		final byte[] nonce = new byte[EncryptionHeader.NONCE_PREFIX_LENGTH + 5];
+		System.arraycopy(header.getNoncePrefix(), 0, nonce, 0, EncryptionHeader.NONCE_PREFIX_LENGTH);
+		nonce[7] = (byte) (segmentIndex >>> 24);
+		nonce[8] = (byte) (segmentIndex >>> 16);
+		nonce[9] = (byte) (segmentIndex >>> 8);
+		nonce[10] = (byte) segmentIndex;
+		nonce[11] = (byte) (lastSegment ? 1 : 0);
+		// Cipher instances are not shared between threads, HotSpot uses AES-NI and CLMUL for them where present
+		final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+		cipher.init(cipherMode, dataKey, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+		cipher.updateAAD(headerBytes);
+		return cipher.doFinal(block, 0, length);
+	}
+}
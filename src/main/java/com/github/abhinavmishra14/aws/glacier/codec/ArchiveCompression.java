@@ -0,0 +1,191 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_ARCHIVE_DESCRIPTION_LENGTH;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class ArchiveCompression.<br/>
+ * Compresses archives before they are uploaded and decompresses the output of retrieval jobs. Archive
+ * description of a compressed archive ends with the codec and block size, e.g.
+ * "reports [codec=gzip;block=1048576]", so archives can be told apart in an inventory as well.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ArchiveCompression {
+
+	/** The Constant CODEC. */
+	public static final String CODEC = "gzip";
+
+	/** The Constant DESCRIPTION_TAG. */
+	private static final Pattern DESCRIPTION_TAG = Pattern.compile("\\[codec=([a-z0-9-]+);block=(\\d+)\\]");
+
+	/**
+	 * The Constructor.
+	 */
+	private ArchiveCompression() {
+		super();
+	}
+
+	/**
+	 * Checks if the config enables compression.
+	 *
+	 * @param transferConfig the transfer config
+	 * @return true, if uploads are compressed
+	 */
+	public static boolean isEnabled(final TransferConfig transferConfig) {
+		return transferConfig.getCompressionLevel() > 0;
+	}
+
+	/**
+	 * Compress a stream, blocks are compressed at the same time while the returned stream is read.
+	 *
+	 * @param source the source
+	 * @param transferConfig the transfer config
+	 * @return the compressed stream, it must be closed in order to release its threads
+	 */
+	public static InputStream compress(final InputStream source, final TransferConfig transferConfig) {
+		return new ParallelTransformInputStream(source, transferConfig.getCompressionBlockSize(),
+				new GzipBlockCompressor(transferConfig.getCompressionLevel()), transferConfig.getExecutorStrategy(),
+				transferConfig.getCodecThreads());
+	}
+
+	/**
+	 * Append the codec and block size to an archive description.
+	 *
+	 * @param archiveDescription the archive description, may be null
+	 * @param blockSize the block size
+	 * @return the archive description of the compressed archive
+	 * @throws IllegalArgumentException if the description is too long for Glacier once the codec is appended
+	 */
+	public static String describe(final String archiveDescription, final int blockSize) {
+		final String tag = "[codec=" + CODEC + ";block=" + blockSize + "]";
+		final String description = archiveDescription == null || archiveDescription.isEmpty() ? tag
+				: archiveDescription + " " + tag;
+		if (description.length() > MAX_ARCHIVE_DESCRIPTION_LENGTH) {
+			throw new IllegalArgumentException("Archive description can not be longer than "
+					+ MAX_ARCHIVE_DESCRIPTION_LENGTH + " characters, it is " + description.length()
+					+ " characters with the codec appended!");
+		}
+		return description;
+	}
+
+	/**
+	 * Gets the codec of an archive from its description.
+	 *
+	 * @param archiveDescription the archive description
+	 * @return the codec, null if the archive is not compressed
+	 */
+	public static String getCodec(final String archiveDescription) {
+		if (archiveDescription == null) {
+			return null;
+		}
+		final Matcher matcher = DESCRIPTION_TAG.matcher(archiveDescription);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	/**
+	 * Gets the block size an archive was compressed with, from its description.
+	 *
+	 * @param archiveDescription the archive description
+	 * @return the block size, 0 if the archive is not compressed
+	 */
+	public static int getBlockSize(final String archiveDescription) {
+		if (archiveDescription == null) {
+			return 0;
+		}
+		final Matcher matcher = DESCRIPTION_TAG.matcher(archiveDescription);
+		return matcher.find() ? Integer.parseInt(matcher.group(2)) : 0;
+	}
+
+	/**
+	 * Checks if a file is an archive compressed by {@link GzipBlockCompressor}.
+	 *
+	 * @param file the file
+	 * @return true, if the file is compressed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static boolean isCompressed(final File file) throws IOException {
+		try (InputStream inStream = new BufferedInputStream(new FileInputStream(file))) {
+			return isCompressed(inStream);
+		}
+	}
+
+	/**
+	 * Checks if a stream is an archive compressed by {@link GzipBlockCompressor}, by its first member header.
+	 * The stream is reset to where it was.
+	 *
+	 * @param inputStream the input stream, it must support mark
+	 * @return true, if the stream is compressed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static boolean isCompressed(final InputStream inputStream) throws IOException {
+		final byte[] header = new byte[GzipBlockCompressor.HEADER_SIZE];
+		inputStream.mark(header.length);
+		try {
+			if (IOUtils.read(inputStream, header) < header.length) {
+				return false;
+			}
+		} finally {
+			inputStream.reset();
+		}
+		return GzipBlockCompressor.isMemberHeader(header);
+	}
+
+	/**
+	 * Decompress an archive, members are inflated at the same time while the returned stream is read.
+	 *
+	 * @param source the compressed archive
+	 * @param archiveDescription the archive description, it tells the codec and block size
+	 * @param transferConfig the transfer config, it tells the threads inflating the members
+	 * @return the decompressed stream, it must be closed in order to release its threads
+	 * @throws IOException if the archive is not compressed by a known codec
+	 */
+	public static InputStream decompress(final InputStream source, final String archiveDescription,
+			final TransferConfig transferConfig) throws IOException {
+		final String codec = getCodec(archiveDescription);
+		if (!CODEC.equals(codec)) {
+			throw new IOException("Unsupported codec: " + codec + " of archive: " + archiveDescription);
+		}
+		final GzipBlockDecompressor decompressor = new GzipBlockDecompressor(getBlockSize(archiveDescription));
+		return new ParallelTransformInputStream(source, decompressor.getMaxMemberSize(), decompressor,
+				transferConfig.getExecutorStrategy(), transferConfig.getCodecThreads()) {
+
+			/* (non-Javadoc)
+			 * @see com.github.abhinavmishra14.aws.glacier.codec.ParallelTransformInputStream#readBlock(java.io.InputStream, byte[])
+			 */
+			@Override
+			protected int readBlock(final InputStream blockSource, final byte[] block) throws IOException {
+				return GzipBlockDecompressor.readMember(blockSource, block);
+			}
+		};
+	}
+}
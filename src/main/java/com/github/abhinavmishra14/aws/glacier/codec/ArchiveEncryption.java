@@ -0,0 +1,170 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_ARCHIVE_DESCRIPTION_LENGTH;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class ArchiveEncryption.<br/>
+ * Encrypts archives before they are uploaded and decrypts the output of retrieval jobs. An encrypted
+ * archive is an {@link EncryptionHeader} followed by segments of AES-GCM cipher text, each of them
+ * {@link #TAG_LENGTH} bytes longer than its plain text. Archive description of an encrypted archive ends
+ * with the header as well, e.g. "reports [enc=aes-gcm;hdr=R0xFMQAQ...]", so that a byte range of the
+ * archive can be decrypted without retrieving its beginning, see {@link EncryptedRange}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ArchiveEncryption {
+
+	/** The Constant CIPHER. */
+	public static final String CIPHER = "aes-gcm";
+
+	/** The Constant TAG_LENGTH. */
+	public static final int TAG_LENGTH = AesGcmSegmentCipher.TAG_LENGTH;
+
+	/** The Constant DESCRIPTION_TAG. */
+	private static final Pattern DESCRIPTION_TAG = Pattern.compile("\\[enc=" + CIPHER + ";hdr=([A-Za-z0-9+/=]+)\\]");
+
+	/**
+	 * The Constructor.
+	 */
+	private ArchiveEncryption() {
+		super();
+	}
+
+	/**
+	 * Checks if the config enables encryption.
+	 *
+	 * @param transferConfig the transfer config
+	 * @return true, if uploads are encrypted
+	 */
+	public static boolean isEnabled(final TransferConfig transferConfig) {
+		return transferConfig.getEncryptionKey() != null;
+	}
+
+	/**
+	 * Encrypt a stream, segments are encrypted at the same time while the returned stream is read.
+	 *
+	 * @param source the source
+	 * @param header the header, see {@link EncryptionHeader#generate(SecretKey, int)}
+	 * @param masterKey the master key the data key of the header is wrapped with
+	 * @param transferConfig the transfer config, it tells the threads encrypting the segments
+	 * @return the encrypted stream, it starts with the header and it must be closed in order to release its
+	 *         threads
+	 * @throws IOException if the data key could not be unwrapped
+	 */
+	public static InputStream encrypt(final InputStream source, final EncryptionHeader header,
+			final SecretKey masterKey, final TransferConfig transferConfig) throws IOException {
+		final BlockTransform cipher = new AesGcmSegmentCipher(Cipher.ENCRYPT_MODE, header,
+				header.unwrapKey(masterKey), 0, true);
+		return new SequenceInputStream(new ByteArrayInputStream(header.toBytes()),
+				new ParallelTransformInputStream(source, header.getSegmentSize(), cipher,
+						transferConfig.getExecutorStrategy(), transferConfig.getCodecThreads()));
+	}
+
+	/**
+	 * Decrypt a whole archive, segments are decrypted at the same time while the returned stream is read.
+	 * Read fails if the archive was modified or truncated.
+	 *
+	 * @param source the encrypted archive, starting with its header
+	 * @param masterKey the master key
+	 * @param transferConfig the transfer config, it tells the threads decrypting the segments
+	 * @return the decrypted stream, it must be closed in order to release its threads
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static InputStream decrypt(final InputStream source, final SecretKey masterKey,
+			final TransferConfig transferConfig) throws IOException {
+		final EncryptionHeader header = EncryptionHeader.read(source);
+		final BlockTransform cipher = new AesGcmSegmentCipher(Cipher.DECRYPT_MODE, header,
+				header.unwrapKey(masterKey), 0, true);
+		return new ParallelTransformInputStream(source, header.getSegmentSize() + TAG_LENGTH, cipher,
+				transferConfig.getExecutorStrategy(), transferConfig.getCodecThreads());
+	}
+
+	/**
+	 * Checks if a file starts with an encryption header.
+	 *
+	 * @param file the file
+	 * @return true, if the file is encrypted
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static boolean isEncrypted(final File file) throws IOException {
+		try (InputStream inStream = new BufferedInputStream(new FileInputStream(file))) {
+			return EncryptionHeader.isEncrypted(inStream);
+		}
+	}
+
+	/**
+	 * Append the header to an archive description.
+	 *
+	 * @param archiveDescription the archive description, may be null
+	 * @param header the header
+	 * @return the archive description of the encrypted archive
+	 * @throws IllegalArgumentException if the description is too long for Glacier once the header is appended
+	 */
+	public static String describe(final String archiveDescription, final EncryptionHeader header) {
+		final String tag = "[enc=" + CIPHER + ";hdr=" + Base64.getEncoder().encodeToString(header.toBytes()) + "]";
+		final String description = archiveDescription == null || archiveDescription.isEmpty() ? tag
+				: archiveDescription + " " + tag;
+		if (description.length() > MAX_ARCHIVE_DESCRIPTION_LENGTH) {
+			throw new IllegalArgumentException("Archive description can not be longer than "
+					+ MAX_ARCHIVE_DESCRIPTION_LENGTH + " characters, it is " + description.length()
+					+ " characters with the encryption header appended!");
+		}
+		return description;
+	}
+
+	/**
+	 * Gets the header of an archive from its description.
+	 *
+	 * @param archiveDescription the archive description
+	 * @return the header, null if the archive is not encrypted
+	 * @throws IOException if the header in the description is not valid
+	 */
+	public static EncryptionHeader getHeader(final String archiveDescription) throws IOException {
+		if (archiveDescription == null) {
+			return null;
+		}
+		final Matcher matcher = DESCRIPTION_TAG.matcher(archiveDescription);
+		if (!matcher.find()) {
+			return null;
+		}
+		try {
+			return EncryptionHeader.read(new ByteArrayInputStream(Base64.getDecoder().decode(matcher.group(1))));
+		} catch (IllegalArgumentException argEx) {
+			throw new IOException("Invalid encryption header in description: " + archiveDescription, argEx);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.io.IOException;
+
+/**
+ * The Interface BlockTransform.<br/>
+ * Transforms one block of a stream independently of the other blocks, e.g. compresses it. Implementations
+ * are called by several threads at the same time, see {@link ParallelTransformInputStream}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface BlockTransform {
+
+	/**
+	 * Transform a block.
+	 *
+	 * @param blockIndex the index of the block in the stream, starting at 0
+	 * @param block the block, owned by the transform
+	 * @param length the length of the block, shorter than the block size for the last block only
+	 * @param lastBlock whether it is the last block of the stream
+	 * @return the transformed block
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	byte[] transform(final long blockIndex, final byte[] block, final int length, final boolean lastBlock)
+			throws IOException;
+
+	/**
+	 * Release the resources held by the transform, called once the stream is closed. A block still being
+	 * transformed at that time may fail, its result is not read anymore.
+	 */
+	default void release() {
+		// Nothing held by default
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class EncryptedRange.<br/>
+ * A byte range of the plain text of an encrypted archive. Segments holding the range are retrieved with a
+ * ranged retrieval and decrypted on their own, e.g. a single file of an encrypted container. Retrieval job
+ * started for a range carries it in its job description, so the output can be decrypted by whoever downloads
+ * it, see {@link #fromJobDescription(EncryptionHeader, String, long)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class EncryptedRange {
+
+	/** The Constant JOB_DESCRIPTION_TAG. */
+	private static final Pattern JOB_DESCRIPTION_TAG = Pattern.compile("\\[range=(\\d+)\\+(\\d+)\\]");
+
+	/** The header. */
+	private final EncryptionHeader header;
+
+	/** The offset. */
+	private final long offset;
+
+	/** The length. */
+	private final long length;
+
+	/** The archive size. */
+	private final long archiveSize;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param header the header, see {@link ArchiveEncryption#getHeader(String)}
+	 * @param offset the offset of the range in the plain text
+	 * @param length the length of the range
+	 * @param archiveSize the size of the encrypted archive
+	 */
+	public EncryptedRange(final EncryptionHeader header, final long offset, final long length,
+			final long archiveSize) {
+		super();
+		if (offset < 0 || length < 1) {
+			throw new IllegalArgumentException("Invalid range: " + offset + "+" + length);
+		}
+		this.header = header;
+		this.offset = offset;
+		this.length = length;
+		this.archiveSize = archiveSize;
+	}
+
+	/**
+	 * Gets the retrieval byte range.<br/>
+	 * Glacier requires ranged retrievals to start at a megabyte boundary and end at a megabyte
+	 * boundary or at the end of the archive. Returned range is the smallest such range which covers
+	 * the segments holding the plain text range.
+	 *
+	 * @return the retrieval byte range, in the "start-end" form of a retrieval job request
+	 */
+	public String getRetrievalByteRange() {
+		final long rangeStart = getRangeStart();
+		final long alignedEnd = (getCipherTextEnd() + ONE_MB - 1) / ONE_MB * ONE_MB;
+		final long rangeEnd = Math.max(Math.min(alignedEnd, archiveSize), rangeStart + 1) - 1;
+		return rangeStart + "-" + rangeEnd;
+	}
+
+	/**
+	 * Gets the job description of a retrieval job started for the range.
+	 *
+	 * @return the job description, e.g. "[range=1048576+4096]"
+	 */
+	public String getJobDescription() {
+		return "[range=" + offset + "+" + length + "]";
+	}
+
+	/**
+	 * Gets the range a retrieval job was started for, from its job description.
+	 *
+	 * @param header the header of the archive, see {@link ArchiveEncryption#getHeader(String)}
+	 * @param jobDescription the job description
+	 * @param archiveSize the size of the encrypted archive
+	 * @return the encrypted range, null if the job was not started for one
+	 */
+	public static EncryptedRange fromJobDescription(final EncryptionHeader header, final String jobDescription,
+			final long archiveSize) {
+		if (jobDescription == null) {
+			return null;
+		}
+		final Matcher matcher = JOB_DESCRIPTION_TAG.matcher(jobDescription);
+		return matcher.find() ? new EncryptedRange(header, Long.parseLong(matcher.group(1)),
+				Long.parseLong(matcher.group(2)), archiveSize) : null;
+	}
+
+	/**
+	 * Decrypt the output of a retrieval job for {@link #getRetrievalByteRange()}.
+	 *
+	 * @param output the output of the retrieval job
+	 * @param masterKey the master key
+	 * @param transferConfig the transfer config, it tells the threads decrypting the segments
+	 * @return the plain text of the range, it must be closed in order to release its threads
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public InputStream decrypt(final InputStream output, final SecretKey masterKey,
+			final TransferConfig transferConfig) throws IOException {
+		final long cipherTextStart = getCipherTextStart();
+		IOUtils.skipFully(output, cipherTextStart - getRangeStart());
+		final BlockTransform cipher = new AesGcmSegmentCipher(Cipher.DECRYPT_MODE, header,
+				header.unwrapKey(masterKey), getFirstSegment(), false);
+		final InputStream plainText = new ParallelTransformInputStream(new BoundedInputStream(output,
+				getCipherTextEnd() - cipherTextStart), header.getSegmentSize() + ArchiveEncryption.TAG_LENGTH,
+				cipher, transferConfig.getExecutorStrategy(), transferConfig.getCodecThreads());
+		try {
+			IOUtils.skipFully(plainText, offset - getFirstSegment() * header.getSegmentSize());
+		} catch (IOException ioEx) {
+			plainText.close();
+			throw ioEx;
+		}
+		return new BoundedInputStream(plainText, length);
+	}
+
+	/**
+	 * Gets the first segment.
+	 *
+	 * @return the index of the segment holding the first byte of the range
+	 */
+	private long getFirstSegment() {
+		return offset / header.getSegmentSize();
+	}
+
+	/**
+	 * Gets the cipher text start.
+	 *
+	 * @return the offset of the first segment in the archive
+	 */
+	private long getCipherTextStart() {
+		return header.getLength() + getFirstSegment() * (header.getSegmentSize() + ArchiveEncryption.TAG_LENGTH);
+	}
+
+	/**
+	 * Gets the cipher text end.
+	 *
+	 * @return the offset after the last segment in the archive
+	 */
+	private long getCipherTextEnd() {
+		final long lastSegment = (offset + length - 1) / header.getSegmentSize();
+		return Math.min(header.getLength() + (lastSegment + 1)
+				* (header.getSegmentSize() + ArchiveEncryption.TAG_LENGTH), archiveSize);
+	}
+
+	/**
+	 * Gets the range start.
+	 *
+	 * @return the offset of the retrieved range in the archive
+	 */
+	private long getRangeStart() {
+		return getCipherTextStart() / ONE_MB * ONE_MB;
+	}
+}
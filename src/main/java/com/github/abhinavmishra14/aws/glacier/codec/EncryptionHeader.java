@@ -0,0 +1,213 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The Class EncryptionHeader.<br/>
+ * Header written in front of an encrypted archive. It holds the segment size, the prefix of the segment
+ * nonces and the data key of the archive, wrapped with the key given by the caller (RFC 3394). Layout is
+ * the magic "GLE1", segment size (4 bytes), nonce prefix (7 bytes), length of the wrapped key (1 byte) and
+ * the wrapped key, 56 bytes in total for an AES-256 key.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class EncryptionHeader {
+
+	/** The Constant MAGIC. */
+	private static final byte[] MAGIC = {'G', 'L', 'E', '1'};
+
+	/** The Constant NONCE_PREFIX_LENGTH. */
+	static final int NONCE_PREFIX_LENGTH = 7;
+
+	/** The Constant KEY_ALGORITHM. */
+	private static final String KEY_ALGORITHM = "AES";
+
+	/** The Constant KEY_WRAP_TRANSFORMATION. */
+	private static final String KEY_WRAP_TRANSFORMATION = "AESWrap";
+
+	/** The Constant RANDOM. */
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/** The segment size. */
+	private final int segmentSize;
+
+	/** The nonce prefix. */
+	private final byte[] noncePrefix;
+
+	/** The wrapped key. */
+	private final byte[] wrappedKey;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param segmentSize the segment size
+	 * @param noncePrefix the nonce prefix
+	 * @param wrappedKey the wrapped key
+	 */
+	private EncryptionHeader(final int segmentSize, final byte[] noncePrefix, final byte[] wrappedKey) {
+		super();
+		this.segmentSize = segmentSize;
+		this.noncePrefix = noncePrefix;
+		this.wrappedKey = wrappedKey;
+	}
+
+	/**
+	 * Generate the header of a new archive, along with a new data key of the same size as the master key.
+	 *
+	 * @param masterKey the master key
+	 * @param segmentSize the segment size
+	 * @return the encryption header
+	 */
+	public static EncryptionHeader generate(final SecretKey masterKey, final int segmentSize) {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size must be positive!");
+		}
+		try {
+			final KeyGenerator keyGenerator = KeyGenerator.getInstance(KEY_ALGORITHM);
+			keyGenerator.init(masterKey.getEncoded().length * 8, RANDOM);
+			final Cipher wrapCipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+			wrapCipher.init(Cipher.WRAP_MODE, masterKey, RANDOM);
+			final byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+			RANDOM.nextBytes(noncePrefix);
+			return new EncryptionHeader(segmentSize, noncePrefix, wrapCipher.wrap(keyGenerator.generateKey()));
+		} catch (GeneralSecurityException secEx) {
+			throw new IllegalArgumentException("Could not generate data key: " + secEx.getMessage(), secEx);
+		}
+	}
+
+	/**
+	 * Read the header from the beginning of an encrypted archive.
+	 *
+	 * @param inputStream the input stream, positioned after the header once it is read
+	 * @return the encryption header
+	 * @throws IOException if the stream does not start with a header
+	 */
+	public static EncryptionHeader read(final InputStream inputStream) throws IOException {
+		final DataInputStream dataStream = new DataInputStream(inputStream);
+		final byte[] magic = new byte[MAGIC.length];
+		dataStream.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new IOException("Archive is not encrypted or its header is not supported");
+		}
+		final int segmentSize = dataStream.readInt();
+		final byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+		dataStream.readFully(noncePrefix);
+		final byte[] wrappedKey = new byte[dataStream.readUnsignedByte()];
+		dataStream.readFully(wrappedKey);
+		if (segmentSize < 1) {
+			throw new IOException("Invalid segment size in encryption header: " + segmentSize);
+		}
+		return new EncryptionHeader(segmentSize, noncePrefix, wrappedKey);
+	}
+
+	/**
+	 * Checks if the stream starts with an encryption header, the stream is reset to where it was.
+	 *
+	 * @param inputStream the input stream, it must support mark
+	 * @return true, if the stream is encrypted
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static boolean isEncrypted(final InputStream inputStream) throws IOException {
+		final byte[] magic = new byte[MAGIC.length];
+		inputStream.mark(magic.length);
+		try {
+			return IOUtils.read(inputStream, magic) == magic.length && Arrays.equals(MAGIC, magic);
+		} finally {
+			inputStream.reset();
+		}
+	}
+
+	/**
+	 * Unwrap the data key.
+	 *
+	 * @param masterKey the master key
+	 * @return the data key
+	 * @throws IOException if the master key is not the one the data key was wrapped with
+	 */
+	public SecretKey unwrapKey(final SecretKey masterKey) throws IOException {
+		try {
+			final Cipher unwrapCipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+			unwrapCipher.init(Cipher.UNWRAP_MODE, masterKey);
+			return (SecretKey) unwrapCipher.unwrap(wrappedKey, KEY_ALGORITHM, Cipher.SECRET_KEY);
+		} catch (GeneralSecurityException secEx) {
+			throw new IOException("Could not unwrap data key of the archive, encryption key is wrong", secEx);
+		}
+	}
+
+	/**
+	 * Gets the header as it is written in front of the archive.
+	 *
+	 * @return the bytes
+	 */
+	public byte[] toBytes() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(getLength());
+		try (DataOutputStream dataStream = new DataOutputStream(bytes)) {
+			dataStream.write(MAGIC);
+			dataStream.writeInt(segmentSize);
+			dataStream.write(noncePrefix);
+			dataStream.writeByte(wrappedKey.length);
+			dataStream.write(wrappedKey);
+		} catch (IOException ioEx) {
+			throw new IllegalStateException(ioEx);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Gets the length of the header in the archive.
+	 *
+	 * @return the length
+	 */
+	public int getLength() {
+		return MAGIC.length + 4 + NONCE_PREFIX_LENGTH + 1 + wrappedKey.length;
+	}
+
+	/**
+	 * Gets the segment size.
+	 *
+	 * @return the size of the plain text of a segment
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Gets the nonce prefix.
+	 *
+	 * @return the nonce prefix
+	 */
+	byte[] getNoncePrefix() {
+		return noncePrefix;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The Class GzipBlockCompressor.<br/>
+ * Compresses every block into a gzip member of its own, in the style of pigz. Concatenated members form a
+ * regular gzip stream, which any gzip tool decompresses. Each member carries an extra field with subfield id
+ * {@value #SUBFIELD_ID}, holding the size of the member, which marks the stream as written by this class and
+ * lets the members be split without inflating them.<br/>
+ * Every worker thread keeps its own deflater and output buffer, reset between blocks, so compressing a block
+ * allocates nothing but the member it returns.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class GzipBlockCompressor implements BlockTransform {
+
+	/** The Constant SUBFIELD_ID. */
+	public static final String SUBFIELD_ID = "GU";
+
+	/** The Constant HEADER_SIZE. Fixed header, extra length and the subfield. */
+	static final int HEADER_SIZE = 20;
+
+	/** The Constant TRAILER_SIZE. CRC-32 and input size. */
+	private static final int TRAILER_SIZE = 8;
+
+	/** The Constant FLAG_EXTRA. */
+	private static final int FLAG_EXTRA = 4;
+
+	/** The Constant OS_UNKNOWN. */
+	private static final int OS_UNKNOWN = 255;
+
+	/** The level. */
+	private final int level;
+
+	/** The state of each worker thread. */
+	private final ThreadLocal<WorkerState> workerStates = ThreadLocal.withInitial(this::newWorkerState);
+
+	/** Every worker state created, their deflaters are ended on release. */
+	private final Queue<WorkerState> allWorkerStates = new ConcurrentLinkedQueue<WorkerState>();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param level the compression level, 1 (fastest) to 9 (smallest)
+	 */
+	public GzipBlockCompressor(final int level) {
+		super();
+		if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Compression level must be between 1 and 9!");
+		}
+		this.level = level;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.codec.BlockTransform#transform(long, byte[], int, boolean)
+	 */
+	@Override
+	public byte[] transform(final long blockIndex, final byte[] block, final int length,
+			final boolean lastBlock) {
+		final WorkerState workerState = workerStates.get();
+		final Deflater deflater = workerState.deflater;
+		deflater.reset();
+		deflater.setInput(block, 0, length);
+		deflater.finish();
+		if (workerState.output.length < maxMemberSize(length)) {
+			workerState.output = new byte[maxMemberSize(length)];
+		}
+		int size = HEADER_SIZE;
+		while (!deflater.finished()) {
+			if (size == workerState.output.length - TRAILER_SIZE) {
+				workerState.output = Arrays.copyOf(workerState.output, workerState.output.length * 2);
+			}
+			size += deflater.deflate(workerState.output, size, workerState.output.length - TRAILER_SIZE - size);
+		}
+		final byte[] member = workerState.output;
+		final CRC32 crc = workerState.crc;
+		crc.reset();
+		crc.update(block, 0, length);
+		size = writeInt(member, size, (int) crc.getValue());
+		size = writeInt(member, size, length);
+		writeHeader(member, size);
+		return Arrays.copyOf(member, size);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.codec.BlockTransform#release()
+	 */
+	@Override
+	public void release() {
+		for (WorkerState workerState = allWorkerStates.poll(); workerState != null;
+				workerState = allWorkerStates.poll()) {
+			workerState.deflater.end();
+		}
+	}
+
+	/**
+	 * Max member size.
+	 *
+	 * @param blockSize the block size
+	 * @return the size of the member of a block which does not compress, header and trailer included
+	 */
+	static int maxMemberSize(final int blockSize) {
+		return HEADER_SIZE + blockSize + (blockSize >> 12) + (blockSize >> 14) + 64 + TRAILER_SIZE;
+	}
+
+	/**
+	 * Checks if the bytes are the header of a member written by this class.
+	 *
+	 * @param header the header, at least {@link #HEADER_SIZE} bytes
+	 * @return true, if it is a member header
+	 */
+	static boolean isMemberHeader(final byte[] header) {
+		return (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && (header[3] & FLAG_EXTRA) != 0
+				&& header[12] == SUBFIELD_ID.charAt(0) && header[13] == SUBFIELD_ID.charAt(1);
+	}
+
+	/**
+	 * Create the state of a worker thread.
+	 *
+	 * @return the worker state
+	 */
+	private WorkerState newWorkerState() {
+		final WorkerState workerState = new WorkerState(new Deflater(level, true));
+		allWorkerStates.add(workerState);
+		return workerState;
+	}
+
+	/**
+	 * Write the member header.
+	 *
+	 * @param member the member
+	 * @param memberSize the member size
+	 */
+	private void writeHeader(final byte[] member, final int memberSize) {
+		member[0] = (byte) 0x1f;
+		member[1] = (byte) 0x8b;
+		member[2] = Deflater.DEFLATED;
+		member[3] = FLAG_EXTRA;
+		// Modification time stays 0, so the output depends on the input only
+		member[8] = (byte) (level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0);
+		member[9] = (byte) OS_UNKNOWN;
+		member[10] = 8; // Extra length
+		member[12] = (byte) SUBFIELD_ID.charAt(0);
+		member[13] = (byte) SUBFIELD_ID.charAt(1);
+		member[14] = 4; // Subfield length
+		writeInt(member, 16, memberSize);
+	}
+
+	/**
+	 * Write a little endian int.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the offset
+	 * @param value the value
+	 * @return the offset after the int
+	 */
+	private static int writeInt(final byte[] buffer, final int offset, final int value) {
+		buffer[offset] = (byte) value;
+		buffer[offset + 1] = (byte) (value >>> 8);
+		buffer[offset + 2] = (byte) (value >>> 16);
+		buffer[offset + 3] = (byte) (value >>> 24);
+		return offset + 4;
+	}
+
+	/**
+	 * The Class WorkerState.<br/>
+	 * Deflater, output buffer and checksum used by one worker thread.
+	 */
+	private static final class WorkerState {
+
+		/** The deflater. */
+		private final Deflater deflater;
+
+		/** The CRC. */
+		private final CRC32 crc = new CRC32();
+
+		/** The output buffer, it grows to the largest member compressed by the thread. */
+		private byte[] output = new byte[0];
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param deflater the deflater
+		 */
+		WorkerState(final Deflater deflater) {
+			this.deflater = deflater;
+		}
+	}
+}
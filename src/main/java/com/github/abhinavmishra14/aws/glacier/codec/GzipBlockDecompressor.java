@@ -0,0 +1,207 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The Class GzipBlockDecompressor.<br/>
+ * Inflates the gzip members written by {@link GzipBlockCompressor}, each one on its own. Members are cut out
+ * of the stream by the size in their extra field, see {@link #readMember(InputStream, byte[])}, so they are
+ * inflated at the same time by {@link ParallelTransformInputStream}. Every worker thread keeps its own
+ * inflater, reset between members.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class GzipBlockDecompressor implements BlockTransform {
+
+	/** The Constant TRAILER_SIZE. CRC-32 and input size. */
+	private static final int TRAILER_SIZE = 8;
+
+	/** The block size the archive was compressed with. */
+	private final int blockSize;
+
+	/** The state of each worker thread. */
+	private final ThreadLocal<WorkerState> workerStates = ThreadLocal.withInitial(this::newWorkerState);
+
+	/** Every worker state created, their inflaters are ended on release. */
+	private final Queue<WorkerState> allWorkerStates = new ConcurrentLinkedQueue<WorkerState>();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param blockSize the block size the archive was compressed with
+	 */
+	public GzipBlockDecompressor(final int blockSize) {
+		super();
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive!");
+		}
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Gets the max member size.
+	 *
+	 * @return the size of the largest member of the archive, see
+	 *         {@link ParallelTransformInputStream#readBlock(InputStream, byte[])}
+	 */
+	public int getMaxMemberSize() {
+		return GzipBlockCompressor.maxMemberSize(blockSize);
+	}
+
+	/**
+	 * Read the next member of the stream.
+	 *
+	 * @param source the source
+	 * @param member the buffer, at least of {@link #getMaxMemberSize()}
+	 * @return the size of the member, 0 at end of source
+	 * @throws IOException if the stream is not block compressed or it is truncated
+	 */
+	public static int readMember(final InputStream source, final byte[] member) throws IOException {
+		final int headerLength = IOUtils.read(source, member, 0, GzipBlockCompressor.HEADER_SIZE);
+		if (headerLength == 0) {
+			return 0;
+		}
+		if (headerLength < GzipBlockCompressor.HEADER_SIZE || !GzipBlockCompressor.isMemberHeader(member)) {
+			throw new IOException("Not a member of a block compressed archive");
+		}
+		final int memberSize = readInt(member, 16);
+		if (memberSize < GzipBlockCompressor.HEADER_SIZE + TRAILER_SIZE || memberSize > member.length) {
+			throw new IOException("Invalid member size: " + memberSize);
+		}
+		IOUtils.readFully(source, member, GzipBlockCompressor.HEADER_SIZE,
+				memberSize - GzipBlockCompressor.HEADER_SIZE);
+		return memberSize;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.codec.BlockTransform#transform(long, byte[], int, boolean)
+	 */
+	@Override
+	public byte[] transform(final long blockIndex, final byte[] block, final int length,
+			final boolean lastBlock) throws IOException {
+		if (length == 0) {
+			return new byte[0]; // Stream without members
+		}
+		final int inflatedSize = readInt(block, length - 4);
+		if (inflatedSize < 0 || inflatedSize > blockSize) {
+			throw new IOException("Invalid size of member: " + blockIndex);
+		}
+		final WorkerState workerState = workerStates.get();
+		final Inflater inflater = workerState.inflater;
+		inflater.reset();
+		inflater.setInput(block, GzipBlockCompressor.HEADER_SIZE, length - GzipBlockCompressor.HEADER_SIZE
+				- TRAILER_SIZE);
+		final byte[] inflated = new byte[inflatedSize];
+		int count = 0;
+		try {
+			while (!inflater.finished()) {
+				final int inflatedNow = count < inflatedSize ? inflater.inflate(inflated, count, inflatedSize - count)
+						: inflater.inflate(workerState.overflow);
+				if (count == inflatedSize && inflatedNow > 0) {
+					throw new IOException("Member: " + blockIndex + " is longer than its size");
+				}
+				if (inflatedNow == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Member: " + blockIndex + " is truncated");
+				}
+				count += inflatedNow;
+			}
+		} catch (DataFormatException formatEx) {
+			throw new IOException("Member: " + blockIndex + " is corrupt", formatEx);
+		}
+		if (count != inflatedSize) {
+			throw new IOException("Member: " + blockIndex + " is shorter than its size");
+		}
+		final CRC32 crc = workerState.crc;
+		crc.reset();
+		crc.update(inflated, 0, inflatedSize);
+		if ((int) crc.getValue() != readInt(block, length - TRAILER_SIZE)) {
+			throw new IOException("Member: " + blockIndex + " does not match its CRC");
+		}
+		return inflated;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.codec.BlockTransform#release()
+	 */
+	@Override
+	public void release() {
+		for (WorkerState workerState = allWorkerStates.poll(); workerState != null;
+				workerState = allWorkerStates.poll()) {
+			workerState.inflater.end();
+		}
+	}
+
+	/**
+	 * Create the state of a worker thread.
+	 *
+	 * @return the worker state
+	 */
+	private WorkerState newWorkerState() {
+		final WorkerState workerState = new WorkerState(new Inflater(true));
+		allWorkerStates.add(workerState);
+		return workerState;
+	}
+
+	/**
+	 * Read a little endian int.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the offset
+	 * @return the int
+	 */
+	private static int readInt(final byte[] buffer, final int offset) {
+		return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8 | (buffer[offset + 2] & 0xff) << 16
+				| (buffer[offset + 3] & 0xff) << 24;
+	}
+
+	/**
+	 * The Class WorkerState.<br/>
+	 * Inflater and checksum used by one worker thread.
+	 */
+	private static final class WorkerState {
+
+		/** The inflater. */
+		private final Inflater inflater;
+
+		/** The CRC. */
+		private final CRC32 crc = new CRC32();
+
+		/** The overflow, room for a byte past the size of a member, which must stay empty. */
+		private final byte[] overflow = new byte[1];
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param inflater the inflater
+		 */
+		WorkerState(final Inflater inflater) {
+			this.inflater = inflater;
+		}
+	}
+}
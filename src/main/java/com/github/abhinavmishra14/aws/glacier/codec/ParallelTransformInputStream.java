@@ -0,0 +1,229 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
+
+/**
+ * The Class ParallelTransformInputStream.<br/>
+ * Reads the source in blocks of fixed size and transforms the blocks on a pool of threads, while the
+ * transformed blocks are returned in source order. Source is read by the reading thread, ahead of the
+ * reader by up to two blocks per thread, so memory is capped at about twice the block size per thread.
+ * Every stream has at least one block, an empty source gives a single empty last block.
+ * Failure of a transform is thrown by the read which reaches its block.<br/>
+ * Subclasses can cut the source into blocks of their own framing, see {@link #readBlock(InputStream, byte[])}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ParallelTransformInputStream extends InputStream {
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-transform";
+
+	/** The source. */
+	private final InputStream source;
+
+	/** The block size. */
+	private final int blockSize;
+
+	/** The transform. */
+	private final BlockTransform transform;
+
+	/** The workers. */
+	private final ExecutorService workers;
+
+	/** The max blocks in flight. */
+	private final int maxBlocksInFlight;
+
+	/** The transformed blocks, in source order. */
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+
+	/** The next block index. */
+	private long nextBlockIndex;
+
+	/** The block read last, it is submitted once it is known whether it is the last block. */
+	private byte[] heldBlock;
+
+	/** The length of the held block. */
+	private int heldLength;
+
+	/** Whether the source has ended. */
+	private boolean sourceEnded;
+
+	/** The current block. */
+	private byte[] currentBlock;
+
+	/** The position in the current block. */
+	private int position;
+
+	/** The closed. */
+	private boolean closed;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param source the source
+	 * @param blockSize the block size, the largest block for a framing of a subclass
+	 * @param transform the transform
+	 * @param executorStrategy the executor strategy creating the pool of the stream
+	 * @param threads the threads transforming the blocks
+	 */
+	public ParallelTransformInputStream(final InputStream source, final int blockSize,
+			final BlockTransform transform, final ExecutorStrategy executorStrategy, final int threads) {
+		super();
+		AWSUtil.notNull(source, "Source can not be null!");
+		AWSUtil.notNull(transform, "Transform can not be null!");
+		AWSUtil.notNull(executorStrategy, "Executor strategy can not be null!");
+		if (blockSize < 1 || threads < 1) {
+			throw new IllegalArgumentException("Block size and threads must be positive!");
+		}
+		this.source = source;
+		this.blockSize = blockSize;
+		this.transform = transform;
+		this.maxBlocksInFlight = threads * 2;
+		this.workers = executorStrategy.newExecutor(THREAD_NAME_PREFIX, threads);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		final byte[] single = new byte[1];
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (length == 0) {
+			return 0;
+		}
+		while (currentBlock == null || position == currentBlock.length) {
+			if (!nextBlock()) {
+				return -1;
+			}
+		}
+		final int count = Math.min(length, currentBlock.length - position);
+		System.arraycopy(currentBlock, position, buffer, offset, count);
+		position += count;
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			workers.shutdownNow();
+			transform.release();
+			pendingBlocks.clear();
+			currentBlock = null;
+			source.close();
+		}
+	}
+
+	/**
+	 * Submit a block to the workers.
+	 *
+	 * @param block the block
+	 * @param length the length
+	 * @param lastBlock whether it is the last block
+	 */
+	private void submit(final byte[] block, final int length, final boolean lastBlock) {
+		final long blockIndex = nextBlockIndex++;
+		pendingBlocks.add(workers.submit(() -> transform.transform(blockIndex, block, length, lastBlock)));
+	}
+
+	/**
+	 * Read the next block of the source. By default blocks are of the block size, only the last one is shorter.
+	 *
+	 * @param blockSource the source
+	 * @param block the block to fill
+	 * @return the length of the block, 0 at end of source
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected int readBlock(final InputStream blockSource, final byte[] block) throws IOException {
+		return IOUtils.read(blockSource, block);
+	}
+
+	/**
+	 * Move to the next transformed block, reading and submitting blocks ahead.
+	 *
+	 * @return true, if there is a next block
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean nextBlock() throws IOException {
+		while (!sourceEnded && pendingBlocks.size() < maxBlocksInFlight) {
+			final byte[] block = new byte[blockSize];
+			final int length = readBlock(source, block);
+			if (length == 0 && (heldBlock != null || nextBlockIndex > 0)) {
+				sourceEnded = true;
+			} else {
+				if (heldBlock != null) {
+					submit(heldBlock, heldLength, false);
+				}
+				heldBlock = block;
+				heldLength = length;
+				sourceEnded = length == 0;
+			}
+			if (sourceEnded) {
+				submit(heldBlock, heldLength, true);
+				heldBlock = null;
+			}
+		}
+		final Future<byte[]> pendingBlock = pendingBlocks.poll();
+		if (pendingBlock == null) {
+			return false;
+		}
+		try {
+			currentBlock = pendingBlock.get();
+			position = 0;
+			return true;
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while transforming block");
+		} catch (ExecutionException execEx) {
+			final Throwable cause = execEx.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Failed to transform block: " + cause.getMessage(), cause);
+		}
+	}
+}
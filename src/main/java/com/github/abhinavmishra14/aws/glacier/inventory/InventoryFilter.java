@@ -0,0 +1,37 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.inventory;
+
+/**
+ * The Interface InventoryFilter.<br/>
+ * Selects the records returned by an {@link InventoryReader}, records which are not accepted are skipped as
+ * they are parsed.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface InventoryFilter {
+
+	/**
+	 * Checks if a record is accepted.
+	 *
+	 * @param record the record
+	 * @return true, if the record is to be returned
+	 */
+	boolean accept(final InventoryRecord record);
+}
@@ -0,0 +1,301 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.util.DateUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class InventoryReader.<br/>
+ * Reads the JSON output of a vault inventory job incrementally, straight from the stream it is downloaded
+ * from. Records of the archive list are parsed and returned one at a time, so an inventory of any size is
+ * read using constant memory. Output looks like:
+ *
+ * <pre>
+ * {"VaultARN":"arn:aws:glacier:us-east-1:012345678901:vaults/examplevault",
+ *  "InventoryDate":"2017-06-01T01:30:00Z",
+ *  "ArchiveList":[{"ArchiveId":"...","ArchiveDescription":"...","CreationDate":"2017-05-20T17:03:43Z",
+ *                  "Size":2140123,"SHA256TreeHash":"6b9d..."}, ...]}
+ * </pre>
+ *
+ * Vault ARN and inventory date are available once the records which precede them are read, glacier lists
+ * them before the archives. Unknown fields are skipped.<br/>
+ * Reader is not safe for use by multiple threads.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class InventoryReader implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(InventoryReader.class);
+
+	/** The Constant JSON_FACTORY. Factory is thread safe and expensive to create. */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** The parser. */
+	private final JsonParser parser;
+
+	/** The filter, null if every record is returned. */
+	private InventoryFilter filter;
+
+	/** The vault ARN. */
+	private String vaultARN;
+
+	/** The inventory date. */
+	private Date inventoryDate;
+
+	/** The number of records parsed. */
+	private long recordCount;
+
+	/** Whether the parser is inside the archive list. */
+	private boolean inArchiveList;
+
+	/** Whether the whole output was read. */
+	private boolean finished;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param inStream the input stream, it is closed along with the reader
+	 * @throws IOException Signals that the output is not a JSON object.
+	 */
+	public InventoryReader(final InputStream inStream) throws IOException {
+		super();
+		AWSUtil.notNull(inStream, "Input stream can not be null!");
+		this.parser = JSON_FACTORY.createParser(inStream);
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			parser.close();
+			throw new IOException("Inventory output is not a JSON object");
+		}
+	}
+
+	/**
+	 * Read the next record accepted by the filter.
+	 *
+	 * @return the inventory record, null once the whole output is read
+	 * @throws IOException Signals that the output is truncated or is not an inventory.
+	 */
+	public InventoryRecord next() throws IOException {
+		while (!finished) {
+			if (!inArchiveList) {
+				readHeaderField();
+				continue;
+			}
+			final JsonToken token = nextToken();
+			if (token == JsonToken.END_ARRAY) {
+				inArchiveList = false;
+			} else if (token == JsonToken.START_OBJECT) {
+				final InventoryRecord record = readRecord();
+				recordCount++;
+				if (filter == null || filter.accept(record)) {
+					return record;
+				}
+			} else {
+				throw corrupt("Unexpected " + token + " in archive list");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Load the records accepted by the filter into a catalog. Archives which are already cataloged are
+	 * skipped, so that a catalog can be completed by the inventory of its vault.
+	 *
+	 * @param catalog the catalog
+	 * @param vaultName the vault name
+	 * @return the number of archives added to the catalog
+	 * @throws IOException the IO exception
+	 */
+	public long loadInto(final ArchiveCatalog catalog, final String vaultName) throws IOException {
+		AWSUtil.notNull(catalog, "Catalog can not be null!");
+		long loaded = 0;
+		InventoryRecord record;
+		while ((record = next()) != null) {
+			if (catalog.findByArchiveId(vaultName, record.getArchiveId()) == null) {
+				final Date creationDate = record.getCreationDate();
+				catalog.record(new CatalogEntry(vaultName, record.getArchiveId(), null, record.getSize(),
+						record.getTreeHash(), record.getDescription(),
+						creationDate == null ? System.currentTimeMillis() : creationDate.getTime()));
+				loaded++;
+			}
+		}
+		LOGGER.info("Loaded {} of {} inventory records of vault: {} into the catalog", loaded, recordCount,
+				vaultName);
+		return loaded;
+	}
+
+	/**
+	 * Sets the filter.
+	 *
+	 * @param filter the filter, null in order to return every record
+	 */
+	public void setFilter(final InventoryFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Gets the vault ARN.
+	 *
+	 * @return the vault ARN, null if not read yet
+	 */
+	public String getVaultARN() {
+		return vaultARN;
+	}
+
+	/**
+	 * Gets the inventory date.
+	 *
+	 * @return the inventory date, null if not read yet
+	 */
+	public Date getInventoryDate() {
+		return inventoryDate == null ? null : new Date(inventoryDate.getTime());
+	}
+
+	/**
+	 * Gets the record count.
+	 *
+	 * @return the number of records parsed so far, including those not accepted by the filter
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		parser.close();
+	}
+
+	/**
+	 * Read a field of the inventory object, stopping at the start of the archive list.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	private void readHeaderField() throws IOException {
+		final JsonToken token = nextToken();
+		if (token == JsonToken.END_OBJECT) {
+			finished = true;
+			return;
+		}
+		final String fieldName = parser.getCurrentName();
+		final JsonToken valueToken = nextToken();
+		if ("ArchiveList".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+			inArchiveList = true;
+		} else if ("VaultARN".equals(fieldName)) {
+			vaultARN = parser.getValueAsString();
+		} else if ("InventoryDate".equals(fieldName)) {
+			inventoryDate = parseDate(parser.getValueAsString());
+		} else {
+			parser.skipChildren();
+		}
+	}
+
+	/**
+	 * Read a record of the archive list, the parser is at its start.
+	 *
+	 * @return the inventory record
+	 * @throws IOException the IO exception
+	 */
+	private InventoryRecord readRecord() throws IOException {
+		String archiveId = null;
+		String description = null;
+		Date creationDate = null;
+		long size = 0;
+		String treeHash = null;
+		while (nextToken() != JsonToken.END_OBJECT) {
+			final String fieldName = parser.getCurrentName();
+			nextToken();
+			if ("ArchiveId".equals(fieldName)) {
+				archiveId = parser.getValueAsString();
+			} else if ("ArchiveDescription".equals(fieldName)) {
+				description = parser.getValueAsString();
+			} else if ("CreationDate".equals(fieldName)) {
+				creationDate = parseDate(parser.getValueAsString());
+			} else if ("Size".equals(fieldName)) {
+				size = parser.getValueAsLong();
+			} else if ("SHA256TreeHash".equals(fieldName)) {
+				treeHash = parser.getValueAsString();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		if (archiveId == null) {
+			throw corrupt("Inventory record without archive id");
+		}
+		return new InventoryRecord(archiveId, description, creationDate, size, treeHash);
+	}
+
+	/**
+	 * Next token, the end of the stream before the end of the inventory is an error.
+	 *
+	 * @return the JSON token
+	 * @throws IOException the IO exception
+	 */
+	private JsonToken nextToken() throws IOException {
+		final JsonToken token = parser.nextToken();
+		if (token == null) {
+			throw corrupt("Inventory output is truncated");
+		}
+		return token;
+	}
+
+	/**
+	 * Parses an ISO 8601 date.
+	 *
+	 * @param value the value
+	 * @return the date, null if the value is null
+	 * @throws IOException Signals that the date can not be parsed.
+	 */
+	private Date parseDate(final String value) throws IOException {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return DateUtils.parseISO8601Date(value);
+		} catch (IllegalArgumentException argEx) {
+			throw corrupt("Invalid date: " + value);
+		}
+	}
+
+	/**
+	 * Exception for malformed output, along with the location in the stream.
+	 *
+	 * @param message the message
+	 * @return the IO exception
+	 */
+	private IOException corrupt(final String message) {
+		return new IOException(message + " at " + parser.getCurrentLocation());
+	}
+}
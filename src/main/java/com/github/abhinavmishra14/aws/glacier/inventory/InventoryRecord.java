@@ -0,0 +1,118 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.inventory;
+
+import java.util.Date;
+
+/**
+ * The Class InventoryRecord.<br/>
+ * An archive listed in the output of a vault inventory job.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class InventoryRecord {
+
+	/** The archive id. */
+	private final String archiveId;
+
+	/** The archive description. */
+	private final String description;
+
+	/** The creation date. */
+	private final Date creationDate;
+
+	/** The size. */
+	private final long size;
+
+	/** The tree hash. */
+	private final String treeHash;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveId the archive id
+	 * @param description the description, may be null
+	 * @param creationDate the creation date, may be null
+	 * @param size the size
+	 * @param treeHash the tree hash, hex encoded, may be null
+	 */
+	public InventoryRecord(final String archiveId, final String description, final Date creationDate,
+			final long size, final String treeHash) {
+		super();
+		this.archiveId = archiveId;
+		this.description = description;
+		this.creationDate = creationDate == null ? null : new Date(creationDate.getTime());
+		this.size = size;
+		this.treeHash = treeHash;
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Gets the description.
+	 *
+	 * @return the description, null if the archive has none
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gets the creation date.
+	 *
+	 * @return the creation date, null if not listed
+	 */
+	public Date getCreationDate() {
+		return creationDate == null ? null : new Date(creationDate.getTime());
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the tree hash.
+	 *
+	 * @return the tree hash, hex encoded
+	 */
+	public String getTreeHash() {
+		return treeHash;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "InventoryRecord [archiveId=" + archiveId + ", description=" + description + ", creationDate="
+				+ creationDate + ", size=" + size + ", treeHash=" + treeHash + "]";
+	}
+}
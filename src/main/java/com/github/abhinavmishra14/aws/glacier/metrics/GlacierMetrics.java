@@ -0,0 +1,256 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class GlacierMetrics.<br/>
+ * Registry of the metrics of every operation: calls to glacier, which are recorded by the clients of
+ * {@link com.github.abhinavmishra14.aws.glacier.client.GlacierClientFactory}, and local stages of transfers
+ * such as hashing and reading parts. Metrics of an operation are created on its first event and registered as
+ * an MXBean with the platform MBean server, events are passed on to the registered {@link MetricsListener}s.
+ * <br/>
+ * Recording an event takes a map lookup and a few atomic updates, nothing is allocated.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class GlacierMetrics {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlacierMetrics.class);
+
+	/** The Constant JMX_DOMAIN. */
+	public static final String JMX_DOMAIN = "com.github.abhinavmishra14.aws.glacier";
+
+	/** The Constant HASH_FILE. Stage computing the tree hash of a file before it is uploaded. */
+	public static final String HASH_FILE = "hashFile";
+
+	/** The Constant READ_PART. Stage reading a part of a stream into memory. */
+	public static final String READ_PART = "readPart";
+
+	/** The Constant HASH_PART. Stage computing the tree hash of a part by the worker uploading it. */
+	public static final String HASH_PART = "hashPart";
+
+	/** The Constant DOWNLOAD_RANGE. Stage downloading a range of job output, checking and writing it. */
+	public static final String DOWNLOAD_RANGE = "downloadRange";
+
+	/** The Constant INSTANCE. */
+	private static final GlacierMetrics INSTANCE = new GlacierMetrics();
+
+	/** The operations, keyed by name. */
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>(
+			16);
+
+	/** The listeners, copied on write. */
+	private volatile MetricsListener[] listeners = new MetricsListener[0];
+
+	/**
+	 * Instantiates a new glacier metrics.
+	 */
+	private GlacierMetrics() {
+		super();
+	}
+
+	/**
+	 * Gets the single instance of GlacierMetrics.
+	 *
+	 * @return single instance of GlacierMetrics
+	 */
+	public static GlacierMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Adds the listener.
+	 *
+	 * @param listener the listener
+	 */
+	public synchronized void addListener(final MetricsListener listener) {
+		AWSUtil.notNull(listener, "MetricsListener can not be null!");
+		final MetricsListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+		added[listeners.length] = listener;
+		listeners = added;
+	}
+
+	/**
+	 * Removes the listener.
+	 *
+	 * @param listener the listener
+	 */
+	public synchronized void removeListener(final MetricsListener listener) {
+		for (int index = 0; index < listeners.length; index++) {
+			if (listeners[index] == listener) {
+				final MetricsListener[] removed = new MetricsListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, removed, 0, index);
+				System.arraycopy(listeners, index + 1, removed, index, removed.length - index);
+				listeners = removed;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gets the metrics of an operation, creating and registering them on first call.
+	 *
+	 * @param operation the operation
+	 * @return the operation metrics
+	 */
+	public OperationMetrics getOperation(final String operation) {
+		final OperationMetrics existing = operations.get(operation);
+		if (existing != null) {
+			return existing;
+		}
+		final OperationMetrics created = new OperationMetrics(operation);
+		final OperationMetrics raced = operations.putIfAbsent(operation, created);
+		if (raced != null) {
+			return raced;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(created,
+					new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + operation));
+		} catch (JMException jmxEx) {
+			LOGGER.warn("Metrics of operation: {} are not exposed through JMX: {}", operation, jmxEx.toString());
+		}
+		return created;
+	}
+
+	/**
+	 * Gets the metrics of all the operations seen so far.
+	 *
+	 * @return the operations, keyed by name
+	 */
+	public Map<String, OperationMetrics> getOperations() {
+		return Collections.unmodifiableMap(operations);
+	}
+
+	/**
+	 * Start a call, which is counted in flight until it is completed.
+	 *
+	 * @param operation the operation
+	 * @return the start time in nanos, to be passed to {@link #complete(String, long, Throwable)}
+	 */
+	public long start(final String operation) {
+		getOperation(operation).started();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Complete a started call.
+	 *
+	 * @param operation the operation
+	 * @param startNanos the start time in nanos
+	 * @param failure the failure, null if the call succeeded
+	 */
+	public void complete(final String operation, final long startNanos, final Throwable failure) {
+		final long latencyNanos = System.nanoTime() - startNanos;
+		final OperationMetrics metrics = getOperation(operation);
+		metrics.finished();
+		metrics.record(latencyNanos, failure != null);
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.completed(operation, latencyNanos, failure);
+			} catch (RuntimeException listenerEx) {
+				LOGGER.warn("Metrics listener failed", listenerEx);
+			}
+		}
+	}
+
+	/**
+	 * Record a completed stage, which was not counted in flight.
+	 *
+	 * @param stage the stage
+	 * @param startNanos the start time in nanos, of {@link System#nanoTime()}
+	 * @param bytes the bytes processed by the stage
+	 */
+	public void record(final String stage, final long startNanos, final long bytes) {
+		final long latencyNanos = System.nanoTime() - startNanos;
+		getOperation(stage).record(latencyNanos, false);
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.completed(stage, latencyNanos, null);
+			} catch (RuntimeException listenerEx) {
+				LOGGER.warn("Metrics listener failed", listenerEx);
+			}
+		}
+		addBytes(stage, bytes);
+	}
+
+	/**
+	 * Add bytes transferred by an operation.
+	 *
+	 * @param operation the operation
+	 * @param bytes the bytes
+	 */
+	public void addBytes(final String operation, final long bytes) {
+		getOperation(operation).transferred(bytes);
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.transferred(operation, bytes);
+			} catch (RuntimeException listenerEx) {
+				LOGGER.warn("Metrics listener failed", listenerEx);
+			}
+		}
+	}
+
+	/**
+	 * Count an operation throttled by the service.
+	 *
+	 * @param operation the operation
+	 */
+	public void countThrottle(final String operation) {
+		getOperation(operation).throttled();
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.throttled(operation);
+			} catch (RuntimeException listenerEx) {
+				LOGGER.warn("Metrics listener failed", listenerEx);
+			}
+		}
+	}
+
+	/**
+	 * Count an operation attempted again.
+	 *
+	 * @param operation the operation
+	 */
+	public void countRetry(final String operation) {
+		getOperation(operation).retried();
+		for (final MetricsListener listener : listeners) {
+			try {
+				listener.retried(operation);
+			} catch (RuntimeException listenerEx) {
+				LOGGER.warn("Metrics listener failed", listenerEx);
+			}
+		}
+	}
+}
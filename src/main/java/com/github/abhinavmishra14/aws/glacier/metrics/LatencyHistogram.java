@@ -0,0 +1,155 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class LatencyHistogram.<br/>
+ * Lock free histogram of latencies in nanos, with log-linear buckets like HDR histograms: every power of two is
+ * split into {@value #SUB_BUCKET_COUNT} buckets, so any value from zero to the max long is recorded within about
+ * 3% of its size in a fixed array of counters. Recording a value allocates nothing and takes a few atomic
+ * increments, reads are not atomic with respect to concurrent records.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class LatencyHistogram {
+
+	/** The Constant SUB_BUCKET_BITS. */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/** The Constant SUB_BUCKET_COUNT. Buckets per power of two. */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/** The Constant BUCKET_COUNT. Values below the sub bucket count have a bucket each. */
+	private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	/** The counts, per bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	/** The count. */
+	private final AtomicLong count = new AtomicLong();
+
+	/** The sum. */
+	private final AtomicLong sum = new AtomicLong();
+
+	/** The max. */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a value, negative values are recorded as zero.
+	 *
+	 * @param value the value in nanos
+	 */
+	public void record(final long value) {
+		final long recorded = Math.max(0, value);
+		counts.incrementAndGet(bucketOf(recorded));
+		count.incrementAndGet();
+		sum.addAndGet(recorded);
+		long currentMax;
+		while (recorded > (currentMax = max.get()) && !max.compareAndSet(currentMax, recorded)) {
+			continue;
+		}
+	}
+
+	/**
+	 * Gets the count.
+	 *
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Gets the mean.
+	 *
+	 * @return the mean, 0 if nothing is recorded
+	 */
+	public double getMean() {
+		final long recordedCount = count.get();
+		return recordedCount == 0 ? 0 : (double) sum.get() / recordedCount;
+	}
+
+	/**
+	 * Gets the max.
+	 *
+	 * @return the max, 0 if nothing is recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the value at a percentile, the highest value of the bucket holding it.
+	 *
+	 * @param percentile the percentile, 0 to 100
+	 * @return the value at the percentile, 0 if nothing is recorded
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+		}
+		final long recordedCount = count.get();
+		if (recordedCount == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recordedCount));
+		final long recordedMax = max.get();
+		long cumulative = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			cumulative += counts.get(bucket);
+			if (cumulative >= rank) {
+				return Math.min(highestValueOf(bucket), recordedMax);
+			}
+		}
+		return recordedMax;
+	}
+
+	/**
+	 * Bucket of a value.
+	 *
+	 * @param value the value, not negative
+	 * @return the bucket
+	 */
+	private static int bucketOf(final long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Highest value of a bucket.
+	 *
+	 * @param bucket the bucket
+	 * @return the highest value recorded into the bucket
+	 */
+	private static long highestValueOf(final int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKET_COUNT - 1;
+		final long lowest = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
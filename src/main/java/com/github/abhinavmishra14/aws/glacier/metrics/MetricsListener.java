@@ -0,0 +1,69 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics;
+
+/**
+ * The Interface MetricsListener.<br/>
+ * Receives every event recorded by {@link GlacierMetrics}, so that metrics can be exported to any monitoring
+ * system. Listeners are called on the thread doing the work, hence they should return quickly and must be
+ * thread safe. Exceptions thrown by a listener are logged and otherwise ignored.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface MetricsListener {
+
+	/**
+	 * Operation completed.
+	 *
+	 * @param operation the operation
+	 * @param latencyNanos the latency nanos
+	 * @param failure the failure, null if the operation succeeded
+	 */
+	default void completed(final String operation, final long latencyNanos, final Throwable failure) {
+		// Not interested
+	}
+
+	/**
+	 * Bytes transferred by an operation.
+	 *
+	 * @param operation the operation
+	 * @param bytes the bytes
+	 */
+	default void transferred(final String operation, final long bytes) {
+		// Not interested
+	}
+
+	/**
+	 * Operation throttled by the service.
+	 *
+	 * @param operation the operation
+	 */
+	default void throttled(final String operation) {
+		// Not interested
+	}
+
+	/**
+	 * Operation attempted again, after it was throttled or failed.
+	 *
+	 * @param operation the operation
+	 */
+	default void retried(final String operation) {
+		// Not interested
+	}
+}
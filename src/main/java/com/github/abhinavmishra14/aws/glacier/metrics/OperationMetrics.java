@@ -0,0 +1,277 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class OperationMetrics.<br/>
+ * Counters, in flight gauge, latency histogram and throughput of one operation, which is either a call to
+ * glacier or a local stage of a transfer such as hashing or reading a part. Bytes per second are counted in one
+ * slot per second over a sliding window, so that recording allocates nothing.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+	/** The Constant THROUGHPUT_WINDOW. Seconds over which bytes per second are averaged. */
+	private static final int THROUGHPUT_WINDOW = 60;
+
+	/** The Constant NANOS_PER_MILLI. */
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/** The operation. */
+	private final String operation;
+
+	/** The latency. */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/** The failure count. */
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/** The throttled count. */
+	private final AtomicLong throttledCount = new AtomicLong();
+
+	/** The retry count. */
+	private final AtomicLong retryCount = new AtomicLong();
+
+	/** The bytes. */
+	private final AtomicLong bytes = new AtomicLong();
+
+	/** The in flight count. */
+	private final AtomicInteger inFlightCount = new AtomicInteger();
+
+	/** The bytes of each second of the window, plus the current one. */
+	private final AtomicLongArray windowBytes = new AtomicLongArray(THROUGHPUT_WINDOW + 1);
+
+	/** The second counted by each slot of the window. */
+	private final AtomicLongArray windowSeconds = new AtomicLongArray(THROUGHPUT_WINDOW + 1);
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param operation the operation
+	 */
+	OperationMetrics(final String operation) {
+		super();
+		this.operation = operation;
+		for (int slot = 0; slot <= THROUGHPUT_WINDOW; slot++) {
+			windowSeconds.set(slot, Long.MIN_VALUE);
+		}
+	}
+
+	/**
+	 * Call started.
+	 */
+	void started() {
+		inFlightCount.incrementAndGet();
+	}
+
+	/**
+	 * Call finished, successfully or not.
+	 */
+	void finished() {
+		inFlightCount.decrementAndGet();
+	}
+
+	/**
+	 * Record the latency of a call.
+	 *
+	 * @param latencyNanos the latency nanos
+	 * @param failed whether the call failed
+	 */
+	void record(final long latencyNanos, final boolean failed) {
+		latency.record(latencyNanos);
+		if (failed) {
+			failureCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Count a throttled call.
+	 */
+	void throttled() {
+		throttledCount.incrementAndGet();
+	}
+
+	/**
+	 * Count a call attempted again.
+	 */
+	void retried() {
+		retryCount.incrementAndGet();
+	}
+
+	/**
+	 * Count transferred bytes. Counts of the slot being reused may be lost while another thread resets it,
+	 * which is accepted for a monitoring gauge.
+	 *
+	 * @param transferred the transferred bytes
+	 */
+	void transferred(final long transferred) {
+		bytes.addAndGet(transferred);
+		final long second = currentSecond();
+		final int slot = (int) Math.floorMod(second, (long) windowBytes.length());
+		final long slotSecond = windowSeconds.get(slot);
+		if (slotSecond != second && windowSeconds.compareAndSet(slot, slotSecond, second)) {
+			windowBytes.set(slot, 0);
+		}
+		windowBytes.addAndGet(slot, transferred);
+	}
+
+	/**
+	 * Gets the latency histogram.
+	 *
+	 * @return the latency in nanos
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getOperation()
+	 */
+	@Override
+	public String getOperation() {
+		return operation;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getCount()
+	 */
+	@Override
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getFailureCount()
+	 */
+	@Override
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getThrottledCount()
+	 */
+	@Override
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getRetryCount()
+	 */
+	@Override
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getInFlightCount()
+	 */
+	@Override
+	public int getInFlightCount() {
+		return inFlightCount.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getBytes()
+	 */
+	@Override
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getBytesPerSecond()
+	 */
+	@Override
+	public double getBytesPerSecond() {
+		final long second = currentSecond();
+		long windowTotal = 0;
+		for (int slot = 0; slot < windowBytes.length(); slot++) {
+			final long slotSecond = windowSeconds.get(slot);
+			if (slotSecond < second && slotSecond >= second - THROUGHPUT_WINDOW) {
+				windowTotal += windowBytes.get(slot);
+			}
+		}
+		return (double) windowTotal / THROUGHPUT_WINDOW;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getMeanLatencyMillis()
+	 */
+	@Override
+	public double getMeanLatencyMillis() {
+		return latency.getMean() / NANOS_PER_MILLI;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#getMaxLatencyMillis()
+	 */
+	@Override
+	public double getMaxLatencyMillis() {
+		return latency.getMax() / NANOS_PER_MILLI;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#get50thPercentileMillis()
+	 */
+	@Override
+	public double get50thPercentileMillis() {
+		return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#get90thPercentileMillis()
+	 */
+	@Override
+	public double get90thPercentileMillis() {
+		return latency.getValueAtPercentile(90) / NANOS_PER_MILLI;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#get99thPercentileMillis()
+	 */
+	@Override
+	public double get99thPercentileMillis() {
+		return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.metrics.OperationMetricsMXBean#get999thPercentileMillis()
+	 */
+	@Override
+	public double get999thPercentileMillis() {
+		return latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Current second of the monotonic clock.
+	 *
+	 * @return the second
+	 */
+	private static long currentSecond() {
+		return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics;
+
+/**
+ * The Interface OperationMetricsMXBean.<br/>
+ * Metrics of one operation as they are exposed through JMX, under the object name
+ * <code>com.github.abhinavmishra14.aws.glacier:type=Operation,name=&lt;operation&gt;</code>.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface OperationMetricsMXBean {
+
+	/**
+	 * Gets the operation.
+	 *
+	 * @return the operation
+	 */
+	String getOperation();
+
+	/**
+	 * Gets the count.
+	 *
+	 * @return the number of completed calls
+	 */
+	long getCount();
+
+	/**
+	 * Gets the failure count.
+	 *
+	 * @return the number of failed calls
+	 */
+	long getFailureCount();
+
+	/**
+	 * Gets the throttled count.
+	 *
+	 * @return the number of calls throttled by the service
+	 */
+	long getThrottledCount();
+
+	/**
+	 * Gets the retry count.
+	 *
+	 * @return the number of calls attempted again
+	 */
+	long getRetryCount();
+
+	/**
+	 * Gets the in flight count.
+	 *
+	 * @return the number of calls in progress
+	 */
+	int getInFlightCount();
+
+	/**
+	 * Gets the bytes.
+	 *
+	 * @return the number of bytes transferred
+	 */
+	long getBytes();
+
+	/**
+	 * Gets the bytes per second.
+	 *
+	 * @return the bytes transferred per second over the last minute
+	 */
+	double getBytesPerSecond();
+
+	/**
+	 * Gets the mean latency millis.
+	 *
+	 * @return the mean latency millis
+	 */
+	double getMeanLatencyMillis();
+
+	/**
+	 * Gets the max latency millis.
+	 *
+	 * @return the max latency millis
+	 */
+	double getMaxLatencyMillis();
+
+	/**
+	 * Gets the 50th percentile latency millis.
+	 *
+	 * @return the median latency millis
+	 */
+	double get50thPercentileMillis();
+
+	/**
+	 * Gets the 90th percentile latency millis.
+	 *
+	 * @return the 90th percentile latency millis
+	 */
+	double get90thPercentileMillis();
+
+	/**
+	 * Gets the 99th percentile latency millis.
+	 *
+	 * @return the 99th percentile latency millis
+	 */
+	double get99thPercentileMillis();
+
+	/**
+	 * Gets the 99.9th percentile latency millis.
+	 *
+	 * @return the 99.9th percentile latency millis
+	 */
+	double get999thPercentileMillis();
+}
@@ -0,0 +1,74 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.util.Date;
+
+/**
+ * The Class ArchiveCandidate.<br/>
+ * An archive which may be deleted, along with its creation date if known.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ArchiveCandidate {
+
+	/** The archive id. */
+	private final String archiveId;
+
+	/** The creation date, null if not known. */
+	private final Date creationDate;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveId the archive id
+	 * @param creationDate the creation date, may be null
+	 */
+	public ArchiveCandidate(final String archiveId, final Date creationDate) {
+		super();
+		this.archiveId = archiveId;
+		this.creationDate = creationDate == null ? null : new Date(creationDate.getTime());
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Gets the creation date.
+	 *
+	 * @return the creation date, null if not known
+	 */
+	public Date getCreationDate() {
+		return creationDate == null ? null : new Date(creationDate.getTime());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ArchiveCandidate [archiveId=" + archiveId + ", creationDate=" + creationDate + "]";
+	}
+}
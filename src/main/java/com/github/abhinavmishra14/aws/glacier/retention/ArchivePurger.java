@@ -0,0 +1,368 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+import com.github.abhinavmishra14.aws.util.RateLimiter;
+
+/**
+ * The Class ArchivePurger.<br/>
+ * Deletes archives of a vault in bulk. Archives are read from an {@link ArchiveSource} on the calling thread,
+ * those expired by the {@link RetentionPolicy} are deleted by a pool of workers while the source is still being
+ * read. Reading pauses whenever twice the concurrency of deletions are pending.
+ * <ul>
+ * <li>Requests are paced by {@link PurgeOptions#getMaxRequestsPerSecond()} across all the workers.</li>
+ * <li>Throttled requests and server errors are attempted again after a growing, randomized delay.</li>
+ * <li>An archive which is not found in the vault is considered deleted.</li>
+ * <li>Progress is logged and saved to the checkpoint file at {@link PurgeOptions#getProgressInterval()}.</li>
+ * </ul>
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ArchivePurger {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchivePurger.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-purge";
+
+	/** The Constant SHUTDOWN_WAIT_SECONDS. */
+	private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The options. */
+	private final PurgeOptions options;
+
+	/** The rate limiter, null if requests are not paced. */
+	private final RateLimiter rateLimiter;
+
+	/** The progress of the current or last purge. */
+	private volatile PurgeProgress progress;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param options the options
+	 */
+	public ArchivePurger(final AmazonGlacier glacierClient, final PurgeOptions options) {
+		super();
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		AWSUtil.notNull(options, "PurgeOptions can not be null!");
+		this.glacierClient = glacierClient;
+		this.options = options;
+		this.rateLimiter = options.getMaxRequestsPerSecond() > 0
+				? new RateLimiter(options.getMaxRequestsPerSecond()) : null;
+	}
+
+	/**
+	 * Delete the expired archives of a source. Source is read till the end but it is not closed. If a checkpoint
+	 * file is set and exists, archives of the source which were done by the earlier run are skipped.
+	 *
+	 * @param vaultName the vault name
+	 * @param source the source
+	 * @param policy the policy, null in order to delete every archive of the source
+	 * @return the progress
+	 * @throws IOException Signals that the source or the checkpoint could not be read.
+	 * @throws InterruptedException the interrupted exception
+	 */
+	public PurgeProgress purge(final String vaultName, final ArchiveSource source, final RetentionPolicy policy)
+			throws IOException, InterruptedException {
+		AWSUtil.notNull(source, "ArchiveSource can not be null!");
+		final PurgeProgress runProgress = new PurgeProgress();
+		progress = runProgress;
+		final PurgeCheckpoint checkpoint = options.getCheckpointFile() == null ? null
+				: new PurgeCheckpoint(options.getCheckpointFile(), vaultName);
+		final long resumePosition = checkpoint == null ? 0 : checkpoint.getResumePosition();
+		LOGGER.info("Purging vault: {} using {}, {} archives at a time", vaultName, policy,
+				options.getConcurrency());
+		if (resumePosition > 0) {
+			LOGGER.info("Resuming purge of vault: {}, skipping {} archives done by the earlier run", vaultName,
+					resumePosition);
+		}
+		final int maxPending = options.getConcurrency() * 2;
+		final Semaphore pending = new Semaphore(maxPending);
+		final ExecutorService workers = options.getExecutorStrategy().newExecutor(THREAD_NAME_PREFIX,
+				options.getConcurrency());
+		final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+				new NamedThreadFactory(THREAD_NAME_PREFIX + "-progress"));
+		reporter.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				report(vaultName, runProgress, checkpoint);
+			}
+		}, options.getProgressInterval(), options.getProgressInterval(), TimeUnit.MILLISECONDS);
+		boolean complete = false;
+		try {
+			long position = 0;
+			ArchiveCandidate candidate;
+			while ((candidate = source.next()) != null) {
+				if (position >= resumePosition) {
+					runProgress.scanned();
+					if (policy == null || policy.isExpired(candidate.getCreationDate())) {
+						pending.acquire();
+						workers.execute(new DeleteTask(vaultName, candidate, position, runProgress, checkpoint,
+								pending));
+					} else {
+						runProgress.retained();
+						completed(checkpoint, position);
+					}
+				}
+				position++;
+			}
+			pending.acquire(maxPending);
+			pending.release(maxPending);
+			complete = true;
+		} finally {
+			reporter.shutdownNow();
+			if (complete) {
+				workers.shutdown();
+			} else {
+				workers.shutdownNow();
+				workers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+			}
+			runProgress.complete();
+			if (checkpoint != null) {
+				try {
+					if (complete) {
+						checkpoint.delete();
+					} else {
+						checkpoint.save();
+					}
+				} finally {
+					checkpoint.close();
+				}
+			}
+			LOGGER.info("Purge of vault: {} {}: {}", vaultName, complete ? "completed" : "stopped", runProgress);
+		}
+		return runProgress;
+	}
+
+	/**
+	 * Gets the progress of the current or last purge.
+	 *
+	 * @return the progress, null if no purge was started
+	 */
+	public PurgeProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Delete an archive, attempting again while requests are throttled.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param runProgress the run progress
+	 * @return true, if the archive was deleted, false if it was not found
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private boolean delete(final String vaultName, final String archiveId, final PurgeProgress runProgress)
+			throws InterruptedException {
+		for (int attempt = 1;; attempt++) {
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+			try {
+				glacierClient.deleteArchive(new DeleteArchiveRequest(vaultName, archiveId));
+				return true;
+			} catch (ResourceNotFoundException notFoundEx) {
+				return false;
+			} catch (AmazonClientException clientEx) {
+				if (attempt >= options.getMaxAttempts() || !isRetryable(clientEx)) {
+					throw clientEx;
+				}
+				runProgress.retried();
+				final long delay = AWSUtil.getRetryDelay(attempt, options.getRetryBaseDelay(),
+						options.getRetryMaxDelay());
+				LOGGER.debug("Deleting archive: {} failed, attempt {} in {} ms: {}", archiveId, attempt + 1, delay,
+						clientEx.getMessage());
+				Thread.sleep(delay);
+			}
+		}
+	}
+
+	/**
+	 * Log the progress and save the checkpoint.
+	 *
+	 * @param vaultName the vault name
+	 * @param runProgress the run progress
+	 * @param checkpoint the checkpoint, may be null
+	 */
+	private static void report(final String vaultName, final PurgeProgress runProgress,
+			final PurgeCheckpoint checkpoint) {
+		LOGGER.info("Purging vault: {}, {}", vaultName, runProgress);
+		if (checkpoint != null) {
+			try {
+				checkpoint.save();
+			} catch (IOException ioex) {
+				LOGGER.warn("Could not save purge checkpoint: {}", ioex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Mark a position of the source as done.
+	 *
+	 * @param checkpoint the checkpoint, may be null
+	 * @param position the position
+	 */
+	private static void completed(final PurgeCheckpoint checkpoint, final long position) {
+		if (checkpoint != null) {
+			checkpoint.completed(position);
+		}
+	}
+
+	/**
+	 * Checks if a failed request may succeed when attempted again.
+	 *
+	 * @param clientEx the client exception
+	 * @return true, if the request was throttled or failed on the server or the network
+	 */
+	private static boolean isRetryable(final AmazonClientException clientEx) {
+		if (clientEx instanceof AmazonServiceException) {
+			final AmazonServiceException serviceEx = (AmazonServiceException) clientEx;
+			return RetryUtils.isThrottlingException(serviceEx) || serviceEx.getStatusCode() >= 500;
+		}
+		return clientEx.isRetryable();
+	}
+
+	/**
+	 * The Class DeleteTask.<br/>
+	 * Deletes an archive, records the outcome and releases the pending permit.
+	 */
+	private final class DeleteTask implements Runnable {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The candidate. */
+		private final ArchiveCandidate candidate;
+
+		/** The position in the source. */
+		private final long position;
+
+		/** The run progress. */
+		private final PurgeProgress runProgress;
+
+		/** The checkpoint, may be null. */
+		private final PurgeCheckpoint checkpoint;
+
+		/** The pending deletions. */
+		private final Semaphore pending;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param candidate the candidate
+		 * @param position the position
+		 * @param runProgress the run progress
+		 * @param checkpoint the checkpoint
+		 * @param pending the pending
+		 */
+		private DeleteTask(final String vaultName, final ArchiveCandidate candidate, final long position,
+				final PurgeProgress runProgress, final PurgeCheckpoint checkpoint, final Semaphore pending) {
+			this.vaultName = vaultName;
+			this.candidate = candidate;
+			this.position = position;
+			this.runProgress = runProgress;
+			this.checkpoint = checkpoint;
+			this.pending = pending;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				if (delete(vaultName, candidate.getArchiveId(), runProgress)) {
+					runProgress.deleted();
+				} else {
+					runProgress.notFound();
+				}
+				recordDeletion();
+				completed(checkpoint, position);
+			} catch (InterruptedException intEx) {
+				// Purge is stopping, the archive is attempted again on resume
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException runtimeEx) {
+				LOGGER.warn("Could not delete archive: {} from vault: {}: {}", candidate.getArchiveId(), vaultName,
+						runtimeEx.getMessage());
+				runProgress.failed();
+				recordFailure();
+			} finally {
+				pending.release();
+			}
+		}
+
+		/**
+		 * Record the deletion in the catalog.
+		 */
+		private void recordDeletion() {
+			final ArchiveCatalog catalog = options.getCatalog();
+			if (catalog == null) {
+				return;
+			}
+			try {
+				catalog.recordDeletion(vaultName, candidate.getArchiveId());
+			} catch (IOException ioex) {
+				LOGGER.warn("Could not catalog deletion of archive: {}: {}", candidate.getArchiveId(),
+						ioex.getMessage());
+			}
+		}
+
+		/**
+		 * Record the failure in the checkpoint, the archive is listed in the failed file and is not attempted
+		 * again on resume.
+		 */
+		private void recordFailure() {
+			if (checkpoint == null) {
+				return;
+			}
+			try {
+				checkpoint.failed(candidate);
+				checkpoint.completed(position);
+			} catch (IOException ioex) {
+				LOGGER.warn("Could not record failed archive: {}: {}", candidate.getArchiveId(), ioex.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.TimeZone;
+
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryRecord;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class ArchiveSources.<br/>
+ * Factory of archive sources.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ArchiveSources {
+
+	/** The Constant ISO_8601_PATTERNS. Creation dates as found in vault inventories. */
+	private static final String[] ISO_8601_PATTERNS = { "yyyy-MM-dd'T'HH:mm:ssX", "yyyy-MM-dd'T'HH:mm:ss.SSSX" };
+
+	/**
+	 * The Constructor.
+	 */
+	private ArchiveSources() {
+		super();
+	}
+
+	/**
+	 * Archives listed in a text file, one per line as <code>archiveId[,creationDate]</code>. Creation date is
+	 * either ISO 8601, e.g. <code>2017-06-01T10:15:30Z</code>, or milliseconds since the epoch. Blank lines and
+	 * lines starting with <code>#</code> are skipped. File is read line by line, so it can list any number of
+	 * archives.
+	 *
+	 * @param file the file
+	 * @return the archive source
+	 * @throws IOException the IO exception
+	 */
+	public static ArchiveSource fromFile(final File file) throws IOException {
+		AWSUtil.notNull(file, "File can not be null!");
+		final BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+		return new ArchiveSource() {
+
+			/** The line number. */
+			private int lineNumber;
+
+			@Override
+			public ArchiveCandidate next() throws IOException {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lineNumber++;
+					line = line.trim();
+					if (line.isEmpty() || line.charAt(0) == '#') {
+						continue;
+					}
+					final int separator = line.indexOf(',');
+					if (separator < 0) {
+						return new ArchiveCandidate(line, null);
+					}
+					final String creationDate = line.substring(separator + 1).trim();
+					return new ArchiveCandidate(line.substring(0, separator).trim(),
+							creationDate.isEmpty() ? null : parseDate(creationDate, file, lineNumber));
+				}
+				return null;
+			}
+
+			@Override
+			public void close() throws IOException {
+				reader.close();
+			}
+		};
+	}
+
+	/**
+	 * Archives of a vault recorded in a catalog, in the order they were recorded. Creation date of an archive
+	 * is the time it was recorded.
+	 *
+	 * @param catalog the catalog
+	 * @param vaultName the vault name
+	 * @return the archive source
+	 */
+	public static ArchiveSource fromCatalog(final ArchiveCatalog catalog, final String vaultName) {
+		AWSUtil.notNull(catalog, "Catalog can not be null!");
+		final ArchiveCatalog.EntryCursor cursor = catalog.openCursor(vaultName);
+		return new ArchiveSource() {
+
+			@Override
+			public ArchiveCandidate next() throws IOException {
+				final CatalogEntry entry = cursor.next();
+				return entry == null ? null : new ArchiveCandidate(entry.getArchiveId(),
+						new Date(entry.getTimestamp()));
+			}
+
+			@Override
+			public void close() {
+				// Catalog is owned by the caller
+			}
+		};
+	}
+
+	/**
+	 * Archives listed by a vault inventory, as they are read from the inventory output. Filter of the reader
+	 * applies. Closing the source closes the reader.
+	 *
+	 * @param reader the inventory reader
+	 * @return the archive source
+	 */
+	public static ArchiveSource fromInventory(final InventoryReader reader) {
+		AWSUtil.notNull(reader, "InventoryReader can not be null!");
+		return new ArchiveSource() {
+
+			@Override
+			public ArchiveCandidate next() throws IOException {
+				final InventoryRecord record = reader.next();
+				return record == null ? null : new ArchiveCandidate(record.getArchiveId(), record.getCreationDate());
+			}
+
+			@Override
+			public void close() throws IOException {
+				reader.close();
+			}
+		};
+	}
+
+	/**
+	 * Archives of an iterable.
+	 *
+	 * @param candidates the candidates
+	 * @return the archive source
+	 */
+	public static ArchiveSource of(final Iterable<ArchiveCandidate> candidates) {
+		AWSUtil.notNull(candidates, "Candidates can not be null!");
+		final Iterator<ArchiveCandidate> iterator = candidates.iterator();
+		return new ArchiveSource() {
+
+			@Override
+			public ArchiveCandidate next() {
+				return iterator.hasNext() ? iterator.next() : null;
+			}
+
+			@Override
+			public void close() {
+				// Nothing to close
+			}
+		};
+	}
+
+	/**
+	 * Parses the creation date.
+	 *
+	 * @param value the value
+	 * @param file the file
+	 * @param lineNumber the line number
+	 * @return the date
+	 * @throws IOException Signals that the date can not be parsed.
+	 */
+	private static Date parseDate(final String value, final File file, final int lineNumber) throws IOException {
+		if (value.matches("\\d+")) {
+			return new Date(Long.parseLong(value));
+		}
+		for (final String pattern : ISO_8601_PATTERNS) {
+			final SimpleDateFormat format = new SimpleDateFormat(pattern);
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			format.setLenient(false);
+			try {
+				return format.parse(value);
+			} catch (ParseException parseEx) {
+				// Try the next pattern
+			}
+		}
+		throw new IOException("Invalid creation date: " + value + " at line " + lineNumber + " of "
+				+ file.getAbsolutePath());
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The Class PurgeCheckpoint.<br/>
+ * Progress of a purge, as the position in the archive source below which every archive is done. Archives
+ * are deleted out of order, positions completed above the low watermark are held in memory until the gap
+ * below them is filled, so a resumed purge never skips an archive which was not done.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class PurgeCheckpoint implements Closeable {
+
+	/** The Constant POSITION. */
+	private static final String POSITION = "position";
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "vaultName";
+
+	/** The Constant FAILED_SUFFIX. */
+	static final String FAILED_SUFFIX = ".failed";
+
+	/** The checkpoint file. */
+	private final File checkpointFile;
+
+	/** The vault name. */
+	private final String vaultName;
+
+	/** The resume position. */
+	private final long resumePosition;
+
+	/** The positions completed above the low watermark. */
+	private final TreeSet<Long> completedAbove = new TreeSet<Long>();
+
+	/** The low watermark, every position below it is done. */
+	private long lowWatermark;
+
+	/** The last saved low watermark. */
+	private long savedWatermark = -1;
+
+	/** The writer of failed archives, opened on first failure. */
+	private BufferedWriter failedWriter;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param checkpointFile the checkpoint file
+	 * @param vaultName the vault name
+	 * @throws IOException the IO exception
+	 */
+	PurgeCheckpoint(final File checkpointFile, final String vaultName) throws IOException {
+		this.checkpointFile = checkpointFile;
+		this.vaultName = vaultName;
+		this.resumePosition = load();
+		this.lowWatermark = resumePosition;
+	}
+
+	/**
+	 * Gets the resume position.
+	 *
+	 * @return the number of archives of the source which were done by an earlier run
+	 */
+	long getResumePosition() {
+		return resumePosition;
+	}
+
+	/**
+	 * Mark the archive at a position as done.
+	 *
+	 * @param position the position
+	 */
+	synchronized void completed(final long position) {
+		if (position != lowWatermark) {
+			completedAbove.add(position);
+			return;
+		}
+		lowWatermark++;
+		while (!completedAbove.isEmpty() && completedAbove.first() == lowWatermark) {
+			completedAbove.pollFirst();
+			lowWatermark++;
+		}
+	}
+
+	/**
+	 * Record an archive which could not be deleted.
+	 *
+	 * @param candidate the candidate
+	 * @throws IOException the IO exception
+	 */
+	synchronized void failed(final ArchiveCandidate candidate) throws IOException {
+		if (failedWriter == null) {
+			failedWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+					new File(checkpointFile.getPath() + FAILED_SUFFIX), true), StandardCharsets.UTF_8));
+		}
+		failedWriter.write(candidate.getArchiveId());
+		if (candidate.getCreationDate() != null) {
+			failedWriter.write(',');
+			failedWriter.write(Long.toString(candidate.getCreationDate().getTime()));
+		}
+		failedWriter.newLine();
+	}
+
+	/**
+	 * Save the low watermark, unless it has not moved since the last save. Checkpoint file is replaced
+	 * atomically.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	void save() throws IOException {
+		final long position;
+		synchronized (this) {
+			if (failedWriter != null) {
+				failedWriter.flush();
+			}
+			if (lowWatermark == savedWatermark) {
+				return;
+			}
+			position = lowWatermark;
+		}
+		final Properties properties = new Properties();
+		properties.setProperty(VAULT_NAME, vaultName);
+		properties.setProperty(POSITION, Long.toString(position));
+		final File tempFile = new File(checkpointFile.getPath() + ".tmp");
+		try (OutputStream outStream = new FileOutputStream(tempFile)) {
+			properties.store(outStream, "Glacier purge checkpoint");
+		}
+		Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		synchronized (this) {
+			savedWatermark = Math.max(savedWatermark, position);
+		}
+	}
+
+	/**
+	 * Delete the checkpoint, the list of failed archives is kept.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	void delete() throws IOException {
+		Files.deleteIfExists(checkpointFile.toPath());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (failedWriter != null) {
+			failedWriter.close();
+			failedWriter = null;
+		}
+	}
+
+	/**
+	 * Load the position from the checkpoint file.
+	 *
+	 * @return the position, 0 if there is no checkpoint
+	 * @throws IOException the IO exception
+	 */
+	private long load() throws IOException {
+		if (!checkpointFile.isFile()) {
+			return 0;
+		}
+		final Properties properties = new Properties();
+		try (InputStream inStream = new FileInputStream(checkpointFile)) {
+			properties.load(inStream);
+		}
+		if (!vaultName.equals(properties.getProperty(VAULT_NAME))) {
+			throw new IOException("Checkpoint " + checkpointFile.getAbsolutePath() + " belongs to vault: "
+					+ properties.getProperty(VAULT_NAME));
+		}
+		try {
+			return Long.parseLong(properties.getProperty(POSITION));
+		} catch (NumberFormatException numEx) {
+			throw new IOException("Corrupt checkpoint: " + checkpointFile.getAbsolutePath(), numEx);
+		}
+	}
+}
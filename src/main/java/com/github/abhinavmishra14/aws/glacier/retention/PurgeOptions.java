@@ -0,0 +1,249 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_PROGRESS_INTERVAL;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_PURGE_CONCURRENCY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_PURGE_MAX_ATTEMPTS;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_RETRY_BASE_DELAY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_RETRY_MAX_DELAY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_CONCURRENCY;
+
+import java.io.File;
+
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
+
+/**
+ * The Class PurgeOptions.<br/>
+ * Holds the tuning parameters of a bulk archive deletion.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class PurgeOptions {
+
+	/** The concurrency. */
+	private int concurrency = DEFAULT_PURGE_CONCURRENCY;
+
+	/** The max requests per second, 0 if not limited. */
+	private double maxRequestsPerSecond;
+
+	/** The max attempts. */
+	private int maxAttempts = DEFAULT_PURGE_MAX_ATTEMPTS;
+
+	/** The retry base delay. */
+	private long retryBaseDelay = DEFAULT_RETRY_BASE_DELAY;
+
+	/** The retry max delay. */
+	private long retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+
+	/** The progress interval. */
+	private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+	/** The checkpoint file. */
+	private File checkpointFile;
+
+	/** The catalog. */
+	private ArchiveCatalog catalog;
+
+	/** The executor strategy. */
+	private ExecutorStrategy executorStrategy = ExecutorStrategies.getDefault();
+
+	/**
+	 * Gets the concurrency.
+	 *
+	 * @return the number of archives deleted at the same time
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Sets the concurrency.
+	 *
+	 * @param concurrency the number of archives deleted at the same time
+	 */
+	public void setConcurrency(final int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Gets the max requests per second.
+	 *
+	 * @return the max requests per second, 0 if not limited
+	 */
+	public double getMaxRequestsPerSecond() {
+		return maxRequestsPerSecond;
+	}
+
+	/**
+	 * Sets the max requests per second.<br/>
+	 * Retries of throttled requests are counted as well.
+	 *
+	 * @param maxRequestsPerSecond the max requests per second, 0 if not limited
+	 */
+	public void setMaxRequestsPerSecond(final double maxRequestsPerSecond) {
+		if (maxRequestsPerSecond < 0) {
+			throw new IllegalArgumentException("Max requests per second can not be negative!");
+		}
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+	}
+
+	/**
+	 * Gets the max attempts.
+	 *
+	 * @return the max attempts to delete an archive
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Sets the max attempts.<br/>
+	 * Only throttled requests and server errors are attempted again.
+	 *
+	 * @param maxAttempts the max attempts to delete an archive
+	 */
+	public void setMaxAttempts(final int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Max attempts must be greater than zero!");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Gets the retry base delay.
+	 *
+	 * @return the delay before the first retry in millis
+	 */
+	public long getRetryBaseDelay() {
+		return retryBaseDelay;
+	}
+
+	/**
+	 * Gets the retry max delay.
+	 *
+	 * @return the longest delay between two retries in millis
+	 */
+	public long getRetryMaxDelay() {
+		return retryMaxDelay;
+	}
+
+	/**
+	 * Sets the retry delays.<br/>
+	 * Delay doubles with every attempt up to the max delay, a random delay up to it is used so that throttled
+	 * requests are not retried all at once.
+	 *
+	 * @param retryBaseDelay the delay before the first retry in millis
+	 * @param retryMaxDelay the longest delay between two retries in millis
+	 */
+	public void setRetryDelays(final long retryBaseDelay, final long retryMaxDelay) {
+		if (retryBaseDelay < 1 || retryMaxDelay < retryBaseDelay) {
+			throw new IllegalArgumentException("Retry delays must be positive, max delay not below base delay!");
+		}
+		this.retryBaseDelay = retryBaseDelay;
+		this.retryMaxDelay = retryMaxDelay;
+	}
+
+	/**
+	 * Gets the progress interval.
+	 *
+	 * @return the time between two progress reports in millis
+	 */
+	public long getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * Sets the progress interval.<br/>
+	 * Progress is logged and the checkpoint is saved at this interval.
+	 *
+	 * @param progressInterval the time between two progress reports in millis
+	 */
+	public void setProgressInterval(final long progressInterval) {
+		if (progressInterval < 1) {
+			throw new IllegalArgumentException("Progress interval must be greater than zero!");
+		}
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * Gets the checkpoint file.
+	 *
+	 * @return the checkpoint file, null if progress is not saved
+	 */
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Sets the checkpoint file.<br/>
+	 * Progress is saved to the checkpoint file, an interrupted purge of the same source is resumed from it.
+	 * Archives which could not be deleted are listed in a <code>.failed</code> file next to it, in the format
+	 * read by {@link ArchiveSources#fromFile(File)}. Checkpoint is removed once the purge completes.
+	 *
+	 * @param checkpointFile the checkpoint file, null if progress is not saved
+	 */
+	public void setCheckpointFile(final File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * Gets the catalog.
+	 *
+	 * @return the catalog, null if deletions are not cataloged
+	 */
+	public ArchiveCatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Sets the catalog.<br/>
+	 * Deleted archives are recorded in the catalog.
+	 *
+	 * @param catalog the catalog, null if deletions are not cataloged
+	 */
+	public void setCatalog(final ArchiveCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	/**
+	 * Gets the executor strategy.
+	 *
+	 * @return the executor strategy
+	 */
+	public ExecutorStrategy getExecutorStrategy() {
+		return executorStrategy;
+	}
+
+	/**
+	 * Sets the executor strategy, it creates the workers deleting the archives.
+	 *
+	 * @param executorStrategy the executor strategy, e.g. {@link ExecutorStrategies#virtual()}
+	 */
+	public void setExecutorStrategy(final ExecutorStrategy executorStrategy) {
+		AWSUtil.notNull(executorStrategy, "Executor strategy can not be null!");
+		this.executorStrategy = executorStrategy;
+	}
+}
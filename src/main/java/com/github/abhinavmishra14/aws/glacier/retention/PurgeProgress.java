@@ -0,0 +1,199 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class PurgeProgress.<br/>
+ * Counters of a bulk archive deletion, updated while the purge runs. Archives skipped on resume from a
+ * checkpoint are not counted.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class PurgeProgress {
+
+	/** The start time in nanos. */
+	private final long startNanos = System.nanoTime();
+
+	/** The end time in nanos, 0 while running. */
+	private volatile long endNanos;
+
+	/** The number of archives read from the source. */
+	private final AtomicLong scanned = new AtomicLong();
+
+	/** The number of archives retained by the policy. */
+	private final AtomicLong retained = new AtomicLong();
+
+	/** The number of archives deleted. */
+	private final AtomicLong deleted = new AtomicLong();
+
+	/** The number of archives which were not found in the vault. */
+	private final AtomicLong notFound = new AtomicLong();
+
+	/** The number of archives which could not be deleted. */
+	private final AtomicLong failed = new AtomicLong();
+
+	/** The number of requests which were throttled and attempted again. */
+	private final AtomicLong retries = new AtomicLong();
+
+	/**
+	 * Gets the number of archives read from the source.
+	 *
+	 * @return the scanned count
+	 */
+	public long getScannedCount() {
+		return scanned.get();
+	}
+
+	/**
+	 * Gets the number of archives retained by the policy.
+	 *
+	 * @return the retained count
+	 */
+	public long getRetainedCount() {
+		return retained.get();
+	}
+
+	/**
+	 * Gets the number of archives deleted.
+	 *
+	 * @return the deleted count
+	 */
+	public long getDeletedCount() {
+		return deleted.get();
+	}
+
+	/**
+	 * Gets the number of archives which were not found in the vault, they are considered deleted.
+	 *
+	 * @return the not found count
+	 */
+	public long getNotFoundCount() {
+		return notFound.get();
+	}
+
+	/**
+	 * Gets the number of archives which could not be deleted.
+	 *
+	 * @return the failed count
+	 */
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Gets the number of requests which were attempted again.
+	 *
+	 * @return the retry count
+	 */
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	/**
+	 * Checks if the purge is complete.
+	 *
+	 * @return true, if complete
+	 */
+	public boolean isComplete() {
+		return endNanos != 0;
+	}
+
+	/**
+	 * Gets the elapsed time.
+	 *
+	 * @return the elapsed time in millis, till the end of the purge once complete
+	 */
+	public long getElapsedMillis() {
+		final long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+	}
+
+	/**
+	 * Gets the throughput.
+	 *
+	 * @return the archives deleted per second
+	 */
+	public double getDeletesPerSecond() {
+		final long elapsedMillis = getElapsedMillis();
+		return elapsedMillis == 0 ? 0 : (deleted.get() + notFound.get()) * 1000.0 / elapsedMillis;
+	}
+
+	/**
+	 * Archive read from the source.
+	 */
+	void scanned() {
+		scanned.incrementAndGet();
+	}
+
+	/**
+	 * Archive retained by the policy.
+	 */
+	void retained() {
+		retained.incrementAndGet();
+	}
+
+	/**
+	 * Archive deleted.
+	 */
+	void deleted() {
+		deleted.incrementAndGet();
+	}
+
+	/**
+	 * Archive not found in the vault.
+	 */
+	void notFound() {
+		notFound.incrementAndGet();
+	}
+
+	/**
+	 * Archive could not be deleted.
+	 */
+	void failed() {
+		failed.incrementAndGet();
+	}
+
+	/**
+	 * Request attempted again.
+	 */
+	void retried() {
+		retries.incrementAndGet();
+	}
+
+	/**
+	 * Purge completed.
+	 */
+	void complete() {
+		endNanos = System.nanoTime();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("PurgeProgress [scanned=%d, retained=%d, deleted=%d, notFound=%d, failed=%d, "
+				+ "retries=%d, deletesPerSecond=%.1f, elapsedMillis=%d]", getScannedCount(), getRetainedCount(),
+				getDeletedCount(), getNotFoundCount(), getFailedCount(), getRetryCount(), getDeletesPerSecond(),
+				getElapsedMillis());
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class RetentionPolicy.<br/>
+ * Archives are retained for a period, e.g. 90 days using <code>new RetentionPolicy(Calendar.DATE, 90)</code>.
+ * Cutoff date is computed once when the policy is created, an archive created before it is expired. An archive
+ * whose creation date is not known is never expired.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class RetentionPolicy {
+
+	/** The cutoff date. */
+	private final Date cutoffDate;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param retainBy the retain by, Calendar.DATE, Calendar.MONTH, Calendar.YEAR etc.
+	 * @param retainByValue the retain by value
+	 * @see Calendar
+	 */
+	public RetentionPolicy(final int retainBy, final int retainByValue) {
+		super();
+		if (retainByValue < 0) {
+			throw new IllegalArgumentException("Retention period can not be negative!");
+		}
+		this.cutoffDate = AWSUtil.getExpiryDate(retainBy, -retainByValue);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param cutoffDate the cutoff date, archives created before it are expired
+	 */
+	public RetentionPolicy(final Date cutoffDate) {
+		super();
+		AWSUtil.notNull(cutoffDate, "Cutoff date can not be null!");
+		this.cutoffDate = new Date(cutoffDate.getTime());
+	}
+
+	/**
+	 * Checks if an archive is expired.
+	 *
+	 * @param creationDate the creation date, may be null
+	 * @return true, if the archive was created before the cutoff date
+	 */
+	public boolean isExpired(final Date creationDate) {
+		return creationDate != null && creationDate.before(cutoffDate);
+	}
+
+	/**
+	 * Gets the cutoff date.
+	 *
+	 * @return the cutoff date
+	 */
+	public Date getCutoffDate() {
+		return new Date(cutoffDate.getTime());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "RetentionPolicy [cutoffDate=" + cutoffDate + "]";
+	}
+}
@@ -24,6 +24,9 @@ import java.io.InputStream;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource;
 
 /**
  * The Interface GlacierArchiveService.
@@ -62,4 +65,88 @@ public interface GlacierArchiveService {
 	UploadResult archive(final String vaultName, final File inputFile,
 			final String archiveDescription) throws AmazonServiceException,
 			AmazonClientException, IOException;
+
+	/**
+	 * Archive.<br/>
+	 * Upload is resumable when journal directory is configured, uploading the stream again with
+	 * the same upload key uploads only the parts which are missing.
+	 *
+	 * @param vaultName the vault name
+	 * @param inputStream the input stream
+	 * @param archiveDescription the archive description
+	 * @param uploadKey the upload key, a name which stays the same when the upload is restarted
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	UploadResult archive(final String vaultName, final InputStream inputStream,
+			final String archiveDescription, final String uploadKey) throws AmazonServiceException,
+			AmazonClientException, IOException;
+
+	/**
+	 * Archive.<br/>
+	 * Upload is resumable when journal directory is configured, parts which were uploaded before
+	 * are not read again.
+	 *
+	 * @param vaultName the vault name
+	 * @param source the seekable source
+	 * @param archiveDescription the archive description
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	UploadResult archive(final String vaultName, final SeekableSource source,
+			final String archiveDescription) throws AmazonServiceException,
+			AmazonClientException, IOException;
+
+	/**
+	 * Archive directory.<br/>
+	 * Every file of the directory tree is archived as a separate archive, files are uploaded at the
+	 * same time while the tree is still being traversed.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @return the directory archive result, holding archive id or failure of each file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	DirectoryArchiveResult archiveDirectory(final String vaultName, final File directory)
+			throws AmazonServiceException, AmazonClientException, IOException;
+
+	/**
+	 * Archive directory packed.<br/>
+	 * Small files of the directory tree are packed into large container archives, larger files are
+	 * archived one by one. An index of each container is written to the index directory, it allows
+	 * restoring a single packed file with a ranged retrieval.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param indexDirectory the index directory
+	 * @return the directory archive result, holding the archive id (of the container for packed files) or failure of each file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	DirectoryArchiveResult archivePacked(final String vaultName, final File directory, final File indexDirectory)
+			throws AmazonServiceException, AmazonClientException, IOException;
+
+	/**
+	 * Archive directory incrementally.<br/>
+	 * Only the files added or modified since the previous run are archived, one archive per file. State of
+	 * the directory tree is kept in the snapshot file, which is created by the first run and replaced by
+	 * every run. Files deleted since the previous run are reported in the result.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param snapshotFile the snapshot file, one per directory and vault
+	 * @return the incremental archive result, holding archive id or failure of each archived file and the deleted files
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	IncrementalArchiveResult archiveIncremental(final String vaultName, final File directory, final File snapshotFile)
+			throws AmazonServiceException, AmazonClientException, IOException;
 }
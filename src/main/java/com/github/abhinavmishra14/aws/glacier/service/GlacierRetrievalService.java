@@ -17,6 +17,15 @@
  */
 package com.github.abhinavmishra14.aws.glacier.service;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange;
+import com.github.abhinavmishra14.aws.glacier.transfer.RetrievalJob;
+
 /**
  * The Interface GlacierRetrievalService.
  * 
@@ -25,4 +34,100 @@ package com.github.abhinavmishra14.aws.glacier.service;
  */
 public interface GlacierRetrievalService {
 
+	/**
+	 * Retrieve archive.<br/>
+	 * Starts an archive retrieval job and returns at once. Job is tracked in background along with the
+	 * other outstanding jobs, and its output is downloaded to the target file once the job completes.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param targetFile the target file, null if output should not be downloaded
+	 * @return the retrieval job, a future which completes with the target file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	RetrievalJob retrieveArchive(final String vaultName, final String archiveId, final File targetFile)
+			throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * Retrieve archive.<br/>
+	 * Same as {@link #retrieveArchive(String, String, File)}, but retrieves only the given byte range,
+	 * which must start and end at megabyte boundaries (or at the end of the archive).
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param byteRange the byte range in "start-end" form, null for the whole archive
+	 * @param targetFile the target file, null if output should not be downloaded
+	 * @return the retrieval job, a future which completes with the target file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	RetrievalJob retrieveArchive(final String vaultName, final String archiveId, final String byteRange,
+			final File targetFile) throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * Retrieve encrypted range.<br/>
+	 * Same as {@link #retrieveArchive(String, String, File)}, but retrieves only a plain text range of an
+	 * encrypted archive. Output is decrypted while it is downloaded and only the range is written to the
+	 * target file.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param encryptedRange the plain text range
+	 * @param targetFile the target file, null if output should not be downloaded
+	 * @return the retrieval job, a future which completes with the target file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	RetrievalJob retrieveEncryptedRange(final String vaultName, final String archiveId,
+			final EncryptedRange encryptedRange, final File targetFile) throws AmazonServiceException,
+			AmazonClientException;
+
+	/**
+	 * Track job.<br/>
+	 * Tracks a retrieval job which was started before, for example by a process which was restarted.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param targetFile the target file, null if output should not be downloaded
+	 * @return the retrieval job, a future which completes with the target file
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	RetrievalJob trackJob(final String vaultName, final String jobId, final File targetFile)
+			throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * Initiate inventory job.<br/>
+	 * Starts a job which lists the archives of the vault in JSON format and returns at once. Completion of the
+	 * job can be awaited using {@link #trackJob(String, String, File)} without a target file.
+	 *
+	 * @param vaultName the vault name
+	 * @return the job id
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	String initiateInventoryJob(final String vaultName) throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * Read inventory.<br/>
+	 * Reads the output of a completed inventory job record by record while it is being downloaded, see
+	 * {@link InventoryReader}. Reader must be closed.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @return the inventory reader
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException Signals that the output is not an inventory.
+	 */
+	InventoryReader readInventory(final String vaultName, final String jobId)
+			throws AmazonServiceException, AmazonClientException, IOException;
+
+	/**
+	 * Shutdown.<br/>
+	 * Stops tracking the outstanding jobs and stops the background threads. Jobs keep running on glacier
+	 * side and can be tracked again later.
+	 */
+	void shutdown();
 }
@@ -17,6 +17,7 @@
  */
 package com.github.abhinavmishra14.aws.glacier.service;
 
+import java.io.IOException;
 import java.util.List;
 
 import com.amazonaws.AmazonClientException;
@@ -24,6 +25,11 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.glacier.model.CreateVaultResult;
 import com.amazonaws.services.glacier.model.DescribeVaultOutput;
 import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy;
+import com.github.abhinavmishra14.aws.glacier.vault.VaultListing;
 
 /**
  * The Interface GlacierVaultService.
@@ -55,7 +61,9 @@ public interface GlacierVaultService {
 			AmazonClientException;
 
 	/**
-	 * List all vaults.
+	 * List all vaults.<br/>
+	 * Every page of the listing is read, see {@link #listVaults(int)} in order to process the vaults while
+	 * they are being listed.
 	 *
 	 * @return the list< describe vault output>
 	 * @throws AmazonServiceException the amazon service exception
@@ -75,6 +83,32 @@ public interface GlacierVaultService {
 	DescribeVaultResult getVaultDescription(final String vaultName)
 			throws AmazonServiceException, AmazonClientException;
 
+	/**
+	 * Gets the vault descriptions.<br/>
+	 * Vaults are described at the same time, using up to the given number of requests in flight.
+	 *
+	 * @param vaultNames the vault names
+	 * @param maxConcurrency the max number of describe requests in flight
+	 * @return the vault descriptions, in the order of vault names
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	List<DescribeVaultResult> getVaultDescriptions(final List<String> vaultNames, final int maxConcurrency)
+			throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * List vaults lazily.<br/>
+	 * Vaults are listed page by page while they are being consumed, next page is requested in the background.
+	 * Listing should be closed if it is not consumed till the end.
+	 *
+	 * @param describeConcurrency the max number of describe requests in flight if every vault is to be
+	 *            described again, 0 in order to return the vaults as they are listed
+	 * @return the vault listing
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	VaultListing listVaults(final int describeConcurrency) throws AmazonServiceException, AmazonClientException;
+
 	/**
 	 * Delete archived object.
 	 *
@@ -85,4 +119,21 @@ public interface GlacierVaultService {
 	 */
 	void deleteArchivedObject(final String vaultName, final String archiveId)
 			throws AmazonServiceException, AmazonClientException;
+
+	/**
+	 * Delete archives in bulk.<br/>
+	 * Archives of the source which are expired by the policy are deleted at the same time, see
+	 * {@link com.github.abhinavmishra14.aws.glacier.retention.ArchivePurger}. Source is not closed.
+	 *
+	 * @param vaultName the vault name
+	 * @param archives the archives to be considered for deletion
+	 * @param policy the retention policy, null in order to delete every archive of the source
+	 * @param options the purge options
+	 * @return the progress of the completed purge
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException Signals that the source or the checkpoint could not be read.
+	 */
+	PurgeProgress deleteArchives(final String vaultName, final ArchiveSource archives, final RetentionPolicy policy,
+			final PurgeOptions options) throws AmazonServiceException, AmazonClientException, IOException;
 }
@@ -17,32 +17,34 @@
  */
 package com.github.abhinavmishra14.aws.glacier.service.impl;
 
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DISABLE_CERT_PARAM;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_ACCESSKEY;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_SECRETKEY;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.TRUE;
-
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import org.apache.commons.lang.StringUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.internal.StaticCredentialsProvider;
-import com.amazonaws.services.glacier.AmazonGlacierClient;
-import com.amazonaws.services.glacier.transfer.ArchiveTransferManager;
+import com.amazonaws.services.glacier.AmazonGlacier;
 import com.amazonaws.services.glacier.transfer.UploadResult;
-import com.amazonaws.services.sns.AmazonSNSClient;
-import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.client.GlacierClientFactory;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveCompression;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveEncryption;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptionHeader;
 import com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchivePacker;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchiveUploadResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiver;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiver;
+import com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader;
+import com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
 import com.github.abhinavmishra14.aws.util.AWSUtil;
 
 /**
@@ -57,13 +59,13 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GlacierArchiveServiceImpl.class);
 
 	/** The glacier client. */
-	private final AmazonGlacierClient glacierClient;
+	private final AmazonGlacier glacierClient;
 
-	/** The sqs client. */
-	private final AmazonSQSClient sqsClient;
-	
-	/** The sns client. */
-	private final AmazonSNSClient snsClient;
+	/** The transfer config. */
+	private TransferConfig transferConfig = new TransferConfig();
+
+	/** The catalog, null if uploads are not cataloged. */
+	private ArchiveCatalog catalog;
 
 	/**
 	 * The Constructor.<b/>
@@ -81,15 +83,8 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("GlacierArchiveServiceImpl is initializing using IAM Role..");
 		}
-		glacierClient = new AmazonGlacierClient(); //Get IAM Based glacier client
-		sqsClient = new AmazonSQSClient();
-		snsClient = new AmazonSNSClient();
-		if(disableCertCheck) {
-			System.setProperty(DISABLE_CERT_PARAM, TRUE);//Disable cert check
-		}
-		if(StringUtils.isNotBlank(endpoint)) {
-			glacierClient.setEndpoint(endpoint);
-		}
+		//Get IAM Based glacier client, shared with other services using the same endpoint
+		glacierClient = GlacierClientFactory.getInstance().getClients(disableCertCheck, endpoint).getGlacierClient();
 	}
 	
 	/**
@@ -142,22 +137,11 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 			final String secretKey, final boolean disableCertCheck,
 			final String endpoint) {
 		super();
-		AWSUtil.notNull(accessKey, ERR_MSG_ACCESSKEY);
-		AWSUtil.notNull(secretKey, ERR_MSG_SECRETKEY);
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("GlacierArchiveServiceImpl is initializing using keys..");
 		}
-		final AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-		final AWSCredentialsProvider credentialsProvider = new StaticCredentialsProvider(credentials);
-		glacierClient = new AmazonGlacierClient(credentialsProvider);
-		sqsClient = new AmazonSQSClient(credentialsProvider);
-		snsClient = new AmazonSNSClient(credentialsProvider);
-		if(disableCertCheck) {
-			System.setProperty(DISABLE_CERT_PARAM, TRUE);//Disable cert check
-		}
-		if(StringUtils.isNotBlank(endpoint)) {
-			glacierClient.setEndpoint(endpoint);
-		}
+		glacierClient = GlacierClientFactory.getInstance()
+				.getClients(accessKey, secretKey, disableCertCheck, endpoint).getGlacierClient();
 	}
 	
 	/**
@@ -202,6 +186,19 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 			final String secretKey) {
 		this(accessKey, secretKey, true, null);
 	}
+
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will use the given glacier client, it can be used to share a client
+	 * which is configured by the caller, or to point the service at a local stand-in.
+	 *
+	 * @param glacierClient the glacier client
+	 */
+	public GlacierArchiveServiceImpl(final AmazonGlacier glacierClient) {
+		super();
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		this.glacierClient = glacierClient;
+	}
 	
 	/* (non-Javadoc)
 	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#upload(java.lang.String, java.io.InputStream, java.lang.String)
@@ -211,17 +208,12 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 			final String archiveDescription) throws AmazonServiceException,
 			AmazonClientException, IOException {
 		LOGGER.info("Uploading archive to vault: {} with archiveDescription: {}", vaultName, archiveDescription);
-		File tempFile = null;
-		UploadResult uploadResult = null;
-        try {
-			// Create temporary file from stream to avoid 'out of memory' exception
-			tempFile = AWSUtil.createTempFileFromStream(inputStream);
-	        final ArchiveTransferManager archiveTrMgr = new ArchiveTransferManager(glacierClient, sqsClient, snsClient);
-			uploadResult = archiveTrMgr.upload(vaultName, archiveDescription, tempFile);
-		} finally {
-			AWSUtil.deleteTempFile(tempFile); // Delete the temporary file once uploaded
+		if (isEncoded(inputStream)) {
+			return archiveEncoded(vaultName, inputStream, archiveDescription, null, null);
 		}
-		return uploadResult;
+		// Stream is uploaded part by part while it is being read, no temporary file is created
+		return catalog(vaultName, new ParallelMultipartUploader(glacierClient, transferConfig).upload(vaultName,
+				archiveDescription, inputStream), null, archiveDescription);
 	}
 
 	/* (non-Javadoc)
@@ -230,10 +222,211 @@ public class GlacierArchiveServiceImpl implements GlacierArchiveService {
 	@Override
 	public UploadResult archive(final String vaultName, final File inputFile,
 			final String archiveDescription) throws AmazonServiceException,
-			AmazonClientException, FileNotFoundException {
+			AmazonClientException, IOException {
 		LOGGER.info("Uploading archive file: {} to vault: {} with archiveDescription: {}", inputFile.getAbsolutePath(),
 				vaultName, archiveDescription);
-		final ArchiveTransferManager archiveTrMgr = new ArchiveTransferManager(glacierClient, sqsClient, snsClient);
-		return archiveTrMgr.upload(vaultName, archiveDescription, inputFile);
+		if (isEncoded(null)) {
+			// Compressed output is the same for the same file, so the canonical path keys a resumable upload
+			try (InputStream inStream = new FileInputStream(inputFile)) {
+				return archiveEncoded(vaultName, inStream, archiveDescription, inputFile.getCanonicalPath(),
+						inputFile.getAbsolutePath());
+			}
+		}
+		final ParallelMultipartUploader uploader = new ParallelMultipartUploader(glacierClient, transferConfig);
+		final ArchiveUploadResult uploadResult = transferConfig.isDeduplicate() && catalog != null
+				? uploader.upload(vaultName, archiveDescription, inputFile, catalog)
+				: uploader.upload(vaultName, archiveDescription, inputFile);
+		return catalog(vaultName, uploadResult, inputFile.getAbsolutePath(), archiveDescription);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#archive(java.lang.String, java.io.InputStream, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public UploadResult archive(final String vaultName, final InputStream inputStream,
+			final String archiveDescription, final String uploadKey) throws AmazonServiceException,
+			AmazonClientException, IOException {
+		LOGGER.info("Uploading archive with uploadKey: {} to vault: {} with archiveDescription: {}", uploadKey,
+				vaultName, archiveDescription);
+		if (isEncoded(inputStream)) {
+			return archiveEncoded(vaultName, inputStream, archiveDescription, uploadKey, null);
+		}
+		return catalog(vaultName, new ParallelMultipartUploader(glacierClient, transferConfig).upload(vaultName,
+				archiveDescription, inputStream, uploadKey), null, archiveDescription);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#archive(java.lang.String, com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource, java.lang.String)
+	 */
+	@Override
+	public UploadResult archive(final String vaultName, final SeekableSource source,
+			final String archiveDescription) throws AmazonServiceException,
+			AmazonClientException, IOException {
+		LOGGER.info("Uploading archive source: {} to vault: {} with archiveDescription: {}", source.getKey(),
+				vaultName, archiveDescription);
+		return catalog(vaultName, new ParallelMultipartUploader(glacierClient, transferConfig).upload(vaultName,
+				archiveDescription, source), source.getKey(), archiveDescription);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#archiveDirectory(java.lang.String, java.io.File)
+	 */
+	@Override
+	public DirectoryArchiveResult archiveDirectory(final String vaultName, final File directory)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		LOGGER.info("Uploading directory: {} to vault: {}", directory.getAbsolutePath(), vaultName);
+		final DirectoryArchiver directoryArchiver = new DirectoryArchiver(glacierClient, transferConfig);
+		directoryArchiver.setCatalog(catalog);
+		return directoryArchiver.archive(vaultName, directory);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#archivePacked(java.lang.String, java.io.File, java.io.File)
+	 */
+	@Override
+	public DirectoryArchiveResult archivePacked(final String vaultName, final File directory,
+			final File indexDirectory) throws AmazonServiceException, AmazonClientException, IOException {
+		LOGGER.info("Uploading packed directory: {} to vault: {}, container indexes are kept in: {}",
+				directory.getAbsolutePath(), vaultName, indexDirectory.getAbsolutePath());
+		final DirectoryArchiveResult archiveResult = new DirectoryArchiveResult();
+		new ArchivePacker(this, transferConfig).pack(vaultName, directory, indexDirectory, archiveResult);
+		return archiveResult;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#archiveIncremental(java.lang.String, java.io.File, java.io.File)
+	 */
+	@Override
+	public IncrementalArchiveResult archiveIncremental(final String vaultName, final File directory,
+			final File snapshotFile) throws AmazonServiceException, AmazonClientException, IOException {
+		LOGGER.info("Uploading changes of directory: {} to vault: {}, snapshot is kept in: {}",
+				directory.getAbsolutePath(), vaultName, snapshotFile.getAbsolutePath());
+		return new IncrementalArchiver(this, transferConfig).archive(vaultName, directory, snapshotFile);
+	}
+
+	/**
+	 * Gets the transfer config.
+	 *
+	 * @return the transfer config
+	 */
+	public TransferConfig getTransferConfig() {
+		return transferConfig;
+	}
+
+	/**
+	 * Sets the transfer config.<br/>
+	 * Part size and number of parallel part uploads can be tuned using transfer config.
+	 *
+	 * @param transferConfig the transfer config
+	 */
+	public void setTransferConfig(final TransferConfig transferConfig) {
+		AWSUtil.notNull(transferConfig, "TransferConfig can not be null!");
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Gets the catalog.
+	 *
+	 * @return the catalog, null if uploads are not cataloged
+	 */
+	public ArchiveCatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Sets the catalog.<br/>
+	 * When set, every archive uploaded through this service is recorded in the catalog, along with its
+	 * source path, size, tree hash and description. Catalog is also used in order to skip uploads of
+	 * files already archived, if deduplication is enabled on the transfer config.
+	 *
+	 * @param catalog the catalog, null in order to stop cataloging
+	 */
+	public void setCatalog(final ArchiveCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	/**
+	 * Checks if the input is compressed or encrypted before it is uploaded.
+	 *
+	 * @param inputStream the input stream, null for a file
+	 * @return true, if the input is encoded
+	 */
+	private boolean isEncoded(final InputStream inputStream) {
+		return isCompressed(inputStream) || ArchiveEncryption.isEnabled(transferConfig);
+	}
+
+	/**
+	 * Checks if the input is compressed before it is uploaded.
+	 *
+	 * @param inputStream the input stream, null for a file
+	 * @return true, if compression is enabled and the input is not a container of packed files
+	 */
+	private boolean isCompressed(final InputStream inputStream) {
+		return ArchiveCompression.isEnabled(transferConfig) && !ArchivePacker.isContainer(inputStream);
+	}
+
+	/**
+	 * Compress and encrypt the stream, as configured, and upload it while it is being encoded. Codec and
+	 * encryption header are appended to the archive description, see
+	 * {@link ArchiveCompression#describe(String, int)} and {@link ArchiveEncryption#describe(String,
+	 * EncryptionHeader)}. Encrypted uploads are not resumed, since every upload gets a new data key.
+	 *
+	 * @param vaultName the vault name
+	 * @param inputStream the input stream, it is left open
+	 * @param archiveDescription the archive description
+	 * @param uploadKey the upload key, may be null
+	 * @param sourcePath the source path, may be null
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private UploadResult archiveEncoded(final String vaultName, final InputStream inputStream,
+			final String archiveDescription, final String uploadKey, final String sourcePath)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		String encodedDescription = archiveDescription;
+		String encodedUploadKey = uploadKey;
+		InputStream encoded = new CloseShieldInputStream(inputStream);
+		try {
+			if (isCompressed(inputStream)) {
+				encoded = ArchiveCompression.compress(encoded, transferConfig);
+				encodedDescription = ArchiveCompression.describe(encodedDescription,
+						transferConfig.getCompressionBlockSize());
+			}
+			if (ArchiveEncryption.isEnabled(transferConfig)) {
+				final EncryptionHeader header = EncryptionHeader.generate(transferConfig.getEncryptionKey(),
+						transferConfig.getEncryptionSegmentSize());
+				encoded = ArchiveEncryption.encrypt(encoded, header, transferConfig.getEncryptionKey(), transferConfig);
+				encodedDescription = ArchiveEncryption.describe(encodedDescription, header);
+				encodedUploadKey = null;
+			}
+			return catalog(vaultName, new ParallelMultipartUploader(glacierClient, transferConfig).upload(vaultName,
+					encodedDescription, encoded, encodedUploadKey), sourcePath, encodedDescription);
+		} finally {
+			encoded.close();
+		}
+	}
+
+	/**
+	 * Record the upload in the catalog, if any. A failure to record is logged, it does not fail the
+	 * upload since the archive exists in the vault.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadResult the upload result
+	 * @param sourcePath the source path
+	 * @param archiveDescription the archive description
+	 * @return the upload result
+	 */
+	private UploadResult catalog(final String vaultName, final ArchiveUploadResult uploadResult,
+			final String sourcePath, final String archiveDescription) {
+		if (catalog != null) {
+			try {
+				catalog.record(vaultName, uploadResult, sourcePath, archiveDescription);
+			} catch (IOException ioEx) {
+				LOGGER.error("Archive: " + uploadResult.getArchiveId() + " was uploaded to vault: " + vaultName
+						+ " but could not be recorded in the catalog", ioEx);
+			}
+		}
+		return uploadResult;
 	}
 }
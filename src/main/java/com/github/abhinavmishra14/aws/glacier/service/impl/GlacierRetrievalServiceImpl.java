@@ -17,7 +17,29 @@
  */
 package com.github.abhinavmishra14.aws.glacier.service.impl;
 
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ACCOUNT_ID_SELF;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.JobParameters;
+import com.github.abhinavmishra14.aws.glacier.client.GlacierClientFactory;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
 import com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService;
+import com.github.abhinavmishra14.aws.glacier.transfer.RetrievalJob;
+import com.github.abhinavmishra14.aws.glacier.transfer.RetrievalJobTracker;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
 
 /**
  * The Class GlacierRetrievalServiceImpl.
@@ -27,4 +49,263 @@ import com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService;
  */
 public class GlacierRetrievalServiceImpl implements GlacierRetrievalService {
 
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlacierRetrievalServiceImpl.class);
+
+	/** The Constant INVENTORY_RETRIEVAL. */
+	private static final String INVENTORY_RETRIEVAL = "inventory-retrieval";
+
+	/** The Constant INVENTORY_FORMAT. */
+	private static final String INVENTORY_FORMAT = "JSON";
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig = new TransferConfig();
+
+	/** The job tracker, created on first retrieval. */
+	private RetrievalJobTracker jobTracker;
+
+	/**
+	 * The Constructor.<b/>
+	 * This Constructor will return glacier client if IAM role is enabled.<br/>
+	 * Additionally it will set the given endPoint for performing retrieval operation over vault.<br/>
+	 * Default endpoint will be always: "https://glacier.us-east-1.amazonaws.com/"
+	 * SSL Certificate checking will be disabled based on provided flag.
+	 *
+	 * @param disableCertCheck the disable cert check
+	 * @param endpoint the endpoint
+	 */
+	public GlacierRetrievalServiceImpl(final boolean disableCertCheck,
+			final String endpoint) {
+		super();
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("GlacierRetrievalServiceImpl is initializing using IAM Role..");
+		}
+		//Get IAM Based glacier client, shared with other services using the same endpoint
+		glacierClient = GlacierClientFactory.getInstance().getClients(disableCertCheck, endpoint).getGlacierClient();
+	}
+	
+	/**
+	 * The Constructor.<b/>
+	 * This Constructor will return glacier client if IAM role is enabled.<br/>
+	 * SSL Certificate checking will be disabled based on provided flag.
+	 *
+	 * @param disableCertCheck the disable cert check
+	 */
+	public GlacierRetrievalServiceImpl(final boolean disableCertCheck) {
+		this(disableCertCheck, null);
+	}
+	
+
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client if IAM role is enabled.<br/>
+	 * Additionally it will set the given endPoint for performing retrieval operation over vault.<br/>
+	 * Default endpoint will be always: "https://glacier.us-east-1.amazonaws.com/"
+	 * SSL Certificate checking is by default disabled. 
+	 *
+	 * @param endpoint the end point
+	 */
+	public GlacierRetrievalServiceImpl(final String endpoint) {
+		this(true, endpoint);
+	}
+	
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client if IAM role is enabled.<br/>
+	 * SSL Certificate checking is by default disabled. 
+	 */
+	public GlacierRetrievalServiceImpl() {
+		this(true, null);
+	}
+	
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client using accessKey and secretKey.<br/>
+	 * Additionally it will set the given endPoint for performing retrieval operation over vault.<br/>
+	 * Default endpoint will be always: "https://glacier.us-east-1.amazonaws.com/"
+	 * SSL Certificate checking will be disabled based on provided flag.
+	 *
+	 * @param accessKey the access key
+	 * @param secretKey the secret key
+	 * @param disableCertCheck the disable cert check
+	 * @param endpoint the endpoint
+	 */
+	public GlacierRetrievalServiceImpl(final String accessKey,
+			final String secretKey, final boolean disableCertCheck,
+			final String endpoint) {
+		super();
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("GlacierRetrievalServiceImpl is initializing using keys..");
+		}
+		glacierClient = GlacierClientFactory.getInstance()
+				.getClients(accessKey, secretKey, disableCertCheck, endpoint).getGlacierClient();
+	}
+	
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client using accessKey and secretKey.<br/>
+	 * SSL Certificate checking will be disabled based on provided flag.
+	 *
+	 * @param accessKey the access key
+	 * @param secretKey the secret key
+	 * @param disableCertCheck the disable cert check
+	 */
+	public GlacierRetrievalServiceImpl(final String accessKey,
+			final String secretKey, final boolean disableCertCheck) {
+		this(accessKey, secretKey, disableCertCheck, null);
+	}
+		
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client using accessKey and secretKey.<br/>
+	 * Additionally it will set the given endPoint for performing retrieval operation over vault.<br/>
+	 * Default endpoint will be always: "https://glacier.us-east-1.amazonaws.com/"<br/>
+	 * SSL Certificate checking is by default disabled.
+	 *
+	 * @param accessKey the access key
+	 * @param secretKey the secret key
+	 * @param endpoint the endpoint
+	 */
+	public GlacierRetrievalServiceImpl(final String accessKey,
+			final String secretKey, final String endpoint) {
+		this(accessKey, secretKey, true, endpoint);
+	}
+	
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will return glacier client using accessKey and secretKey.<br/>
+	 * SSL Certificate checking is by default disabled.
+	 *
+	 * @param accessKey the access key
+	 * @param secretKey the secret key
+	 */
+	public GlacierRetrievalServiceImpl(final String accessKey,
+			final String secretKey) {
+		this(accessKey, secretKey, true, null);
+	}
+
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will use the given glacier client, it can be used to share a client
+	 * which is configured by the caller, or to point the service at a local stand-in.
+	 *
+	 * @param glacierClient the glacier client
+	 */
+	public GlacierRetrievalServiceImpl(final AmazonGlacier glacierClient) {
+		super();
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		this.glacierClient = glacierClient;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#retrieveArchive(java.lang.String, java.lang.String, java.io.File)
+	 */
+	@Override
+	public RetrievalJob retrieveArchive(final String vaultName, final String archiveId, final File targetFile)
+			throws AmazonServiceException, AmazonClientException {
+		return retrieveArchive(vaultName, archiveId, null, targetFile);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#retrieveArchive(java.lang.String, java.lang.String, java.lang.String, java.io.File)
+	 */
+	@Override
+	public RetrievalJob retrieveArchive(final String vaultName, final String archiveId, final String byteRange,
+			final File targetFile) throws AmazonServiceException, AmazonClientException {
+		LOGGER.info("Retrieving archive: {} from vault: {}, byte range: {}", archiveId, vaultName, byteRange);
+		return getJobTracker().retrieve(vaultName, archiveId, byteRange, targetFile);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#retrieveEncryptedRange(java.lang.String, java.lang.String, com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange, java.io.File)
+	 */
+	@Override
+	public RetrievalJob retrieveEncryptedRange(final String vaultName, final String archiveId,
+			final EncryptedRange encryptedRange, final File targetFile) throws AmazonServiceException,
+			AmazonClientException {
+		LOGGER.info("Retrieving archive: {} from vault: {}, encrypted range: {}", archiveId, vaultName,
+				encryptedRange.getJobDescription());
+		return getJobTracker().retrieve(vaultName, archiveId, encryptedRange, targetFile);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#trackJob(java.lang.String, java.lang.String, java.io.File)
+	 */
+	@Override
+	public RetrievalJob trackJob(final String vaultName, final String jobId, final File targetFile)
+			throws AmazonServiceException, AmazonClientException {
+		LOGGER.info("Tracking retrieval job: {} of vault: {}", jobId, vaultName);
+		return getJobTracker().track(vaultName, jobId, targetFile);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#initiateInventoryJob(java.lang.String)
+	 */
+	@Override
+	public String initiateInventoryJob(final String vaultName) throws AmazonServiceException, AmazonClientException {
+		LOGGER.info("Initiating inventory job of vault: {}", vaultName);
+		final JobParameters jobParameters = new JobParameters().withType(INVENTORY_RETRIEVAL)
+				.withFormat(INVENTORY_FORMAT);
+		return glacierClient.initiateJob(new InitiateJobRequest().withAccountId(ACCOUNT_ID_SELF)
+				.withVaultName(vaultName).withJobParameters(jobParameters)).getJobId();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#readInventory(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public InventoryReader readInventory(final String vaultName, final String jobId)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		LOGGER.info("Reading inventory of vault: {} from job: {}", vaultName, jobId);
+		final InputStream body = glacierClient.getJobOutput(new GetJobOutputRequest().withAccountId(ACCOUNT_ID_SELF)
+				.withVaultName(vaultName).withJobId(jobId)).getBody();
+		return new InventoryReader(body);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService#shutdown()
+	 */
+	@Override
+	public synchronized void shutdown() {
+		if (jobTracker != null) {
+			jobTracker.shutdown();
+			jobTracker = null;
+		}
+	}
+
+	/**
+	 * Gets the transfer config.
+	 *
+	 * @return the transfer config
+	 */
+	public TransferConfig getTransferConfig() {
+		return transferConfig;
+	}
+
+	/**
+	 * Sets the transfer config.<br/>
+	 * Poll intervals and number of parallel downloads can be tuned using transfer config, it must be
+	 * set before the first retrieval.
+	 *
+	 * @param transferConfig the transfer config
+	 */
+	public void setTransferConfig(final TransferConfig transferConfig) {
+		AWSUtil.notNull(transferConfig, "TransferConfig can not be null!");
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Gets the job tracker, creating it on first use.
+	 *
+	 * @return the job tracker
+	 */
+	private synchronized RetrievalJobTracker getJobTracker() {
+		if (jobTracker == null) {
+			jobTracker = new RetrievalJobTracker(glacierClient, transferConfig);
+		}
+		return jobTracker;
+	}
 }
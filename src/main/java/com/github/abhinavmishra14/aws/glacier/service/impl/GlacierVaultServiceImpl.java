@@ -17,24 +17,20 @@
  */
 package com.github.abhinavmishra14.aws.glacier.service.impl;
 
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DISABLE_CERT_PARAM;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_ACCESSKEY;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_SECRETKEY;
-import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.TRUE;
-
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.internal.StaticCredentialsProvider;
-import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.amazonaws.services.glacier.AmazonGlacier;
 import com.amazonaws.services.glacier.model.CreateVaultRequest;
 import com.amazonaws.services.glacier.model.CreateVaultResult;
 import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
@@ -42,10 +38,17 @@ import com.amazonaws.services.glacier.model.DeleteVaultRequest;
 import com.amazonaws.services.glacier.model.DescribeVaultOutput;
 import com.amazonaws.services.glacier.model.DescribeVaultRequest;
 import com.amazonaws.services.glacier.model.DescribeVaultResult;
-import com.amazonaws.services.glacier.model.ListVaultsRequest;
-import com.amazonaws.services.glacier.model.ListVaultsResult;
+import com.github.abhinavmishra14.aws.glacier.client.GlacierClientFactory;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchivePurger;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy;
 import com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService;
+import com.github.abhinavmishra14.aws.glacier.vault.VaultListing;
 import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
 
 /**
  * The Class GlacierVaultServiceImpl.
@@ -58,8 +61,14 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 	/** The Constant LOGGER. */
 	private static final Logger LOGGER = LoggerFactory.getLogger(GlacierVaultServiceImpl.class);
 
+	/** The Constant DESCRIBE_THREAD_NAME_PREFIX. */
+	private static final String DESCRIBE_THREAD_NAME_PREFIX = "glacier-vault-describe";
+
 	/** The glacier client. */
-	private final AmazonGlacierClient glacierClient;
+	private final AmazonGlacier glacierClient;
+
+	/** The executor strategy. */
+	private ExecutorStrategy executorStrategy = ExecutorStrategies.getDefault();
 
 	/**
 	 * The Constructor.<b/>
@@ -77,13 +86,8 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("GlacierVaultServiceImpl is initializing using IAM Role..");
 		}
-		glacierClient = new AmazonGlacierClient(); //Get IAM Based glacier client
-		if(disableCertCheck) {
-			System.setProperty(DISABLE_CERT_PARAM, TRUE);//Disable cert check
-		}
-		if(StringUtils.isNotBlank(endpoint)) {
-			glacierClient.setEndpoint(endpoint);
-		}
+		//Get IAM Based glacier client, shared with other services using the same endpoint
+		glacierClient = GlacierClientFactory.getInstance().getClients(disableCertCheck, endpoint).getGlacierClient();
 	}
 	
 	/**
@@ -135,20 +139,11 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 			final String secretKey, final boolean disableCertCheck,
 			final String endpoint) {
 		super();
-		AWSUtil.notNull(accessKey, ERR_MSG_ACCESSKEY);
-		AWSUtil.notNull(secretKey, ERR_MSG_SECRETKEY);
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("GlacierVaultServiceImpl is initializing using keys..");
 		}
-		final AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-		final AWSCredentialsProvider credentialsProvider = new StaticCredentialsProvider(credentials);
-		glacierClient = new AmazonGlacierClient(credentialsProvider);
-		if(disableCertCheck) {
-			System.setProperty(DISABLE_CERT_PARAM, TRUE);//Disable cert check
-		}
-		if(StringUtils.isNotBlank(endpoint)) {
-			glacierClient.setEndpoint(endpoint);
-		}
+		glacierClient = GlacierClientFactory.getInstance()
+				.getClients(accessKey, secretKey, disableCertCheck, endpoint).getGlacierClient();
 	}
 	
 	/**
@@ -194,6 +189,19 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 		this(accessKey, secretKey, true, null);
 	}
 
+	/**
+	 * The Constructor.<br/>
+	 * This Constructor will use the given glacier client, it can be used to share a client
+	 * which is configured by the caller, or to point the service at a local stand-in.
+	 *
+	 * @param glacierClient the glacier client
+	 */
+	public GlacierVaultServiceImpl(final AmazonGlacier glacierClient) {
+		super();
+		AWSUtil.notNull(glacierClient, "Glacier client can not be null!");
+		this.glacierClient = glacierClient;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService#createArchiveVault(java.lang.String)
 	 */
@@ -223,9 +231,24 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 	public List<DescribeVaultOutput> listAllVaults()
 			throws AmazonServiceException, AmazonClientException {
 		LOGGER.info("Getting all available vaults in the current region..");
-		final ListVaultsRequest listVaultsRequest = new ListVaultsRequest();
-		final ListVaultsResult listVaultsResult = glacierClient.listVaults(listVaultsRequest);
-		return listVaultsResult.getVaultList();
+		final List<DescribeVaultOutput> vaults = new ArrayList<DescribeVaultOutput>();
+		try (VaultListing vaultListing = new VaultListing(glacierClient)) {
+			while (vaultListing.hasNext()) {
+				vaults.add(vaultListing.next());
+			}
+			LOGGER.info("Found {} vaults in {} pages", vaults.size(), vaultListing.getPageCount());
+		}
+		return vaults;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#listVaults(int)
+	 */
+	@Override
+	public VaultListing listVaults(final int describeConcurrency)
+			throws AmazonServiceException, AmazonClientException {
+		LOGGER.info("Listing vaults in the current region, describe concurrency: {}", describeConcurrency);
+		return new VaultListing(glacierClient, describeConcurrency, executorStrategy);
 	}
 
 	/* (non-Javadoc)
@@ -239,6 +262,51 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 		return glacierClient.describeVault(describeVaultRequest);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#getVaultDescriptions(java.util.List, int)
+	 */
+	@Override
+	public List<DescribeVaultResult> getVaultDescriptions(final List<String> vaultNames, final int maxConcurrency)
+			throws AmazonServiceException, AmazonClientException {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Max concurrency must be positive!");
+		}
+		LOGGER.info("Getting description of {} vaults, {} at a time", vaultNames.size(), maxConcurrency);
+		final List<DescribeVaultResult> descriptions = new ArrayList<DescribeVaultResult>(vaultNames.size());
+		if (vaultNames.isEmpty()) {
+			return descriptions;
+		}
+		final ExecutorService describers = executorStrategy.newExecutor(DESCRIBE_THREAD_NAME_PREFIX,
+				Math.min(maxConcurrency, vaultNames.size()));
+		try {
+			final List<Future<DescribeVaultResult>> futures = new ArrayList<Future<DescribeVaultResult>>(
+					vaultNames.size());
+			for (final String vaultName : vaultNames) {
+				futures.add(describers.submit(new Callable<DescribeVaultResult>() {
+					@Override
+					public DescribeVaultResult call() {
+						return glacierClient.describeVault(new DescribeVaultRequest(vaultName));
+					}
+				}));
+			}
+			for (final Future<DescribeVaultResult> future : futures) {
+				descriptions.add(future.get());
+			}
+			return descriptions;
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Interrupted while describing vaults", intEx);
+		} catch (ExecutionException execEx) {
+			if (execEx.getCause() instanceof AmazonClientException) {
+				throw (AmazonClientException) execEx.getCause();
+			}
+			throw new AmazonClientException("Failed to describe vaults: " + execEx.getCause().getMessage(),
+					execEx.getCause());
+		} finally {
+			describers.shutdownNow();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#deleteArchivedObject(java.lang.String, java.lang.String)
 	 */
@@ -249,4 +317,41 @@ public class GlacierVaultServiceImpl implements GlacierVaultService {
 		final DeleteArchiveRequest deleteArchiveRequest = new DeleteArchiveRequest(vaultName, archiveId);
 		glacierClient.deleteArchive(deleteArchiveRequest);
 	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#deleteArchives(java.lang.String, com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource, com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy, com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions)
+	 */
+	@Override
+	public PurgeProgress deleteArchives(final String vaultName, final ArchiveSource archives,
+			final RetentionPolicy policy, final PurgeOptions options)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		LOGGER.info("Deleting archives from vault: {}", vaultName);
+		try {
+			return new ArchivePurger(glacierClient, options).purge(vaultName, archives, policy);
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Interrupted while deleting archives", intEx);
+		}
+	}
+
+	/**
+	 * Gets the executor strategy.
+	 *
+	 * @return the executor strategy
+	 */
+	public ExecutorStrategy getExecutorStrategy() {
+		return executorStrategy;
+	}
+
+	/**
+	 * Sets the executor strategy.<br/>
+	 * It creates the workers describing vaults, see {@link #getVaultDescriptions(List, int)} and
+	 * {@link #listVaults(int)}.
+	 *
+	 * @param executorStrategy the executor strategy
+	 */
+	public void setExecutorStrategy(final ExecutorStrategy executorStrategy) {
+		AWSUtil.notNull(executorStrategy, "Executor strategy can not be null!");
+		this.executorStrategy = executorStrategy;
+	}
 }
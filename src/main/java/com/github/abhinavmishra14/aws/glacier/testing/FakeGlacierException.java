@@ -0,0 +1,114 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.testing;
+
+/**
+ * The Class FakeGlacierException.<br/>
+ * Error of a {@link FakeGlacierStore} operation, carrying the status, error code and error type glacier would
+ * return for it, so that every front end of the store reports it the way glacier does.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class FakeGlacierException extends RuntimeException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The status code. */
+	private final int statusCode;
+
+	/** The error code. */
+	private final String errorCode;
+
+	/** The error type, Client or Server. */
+	private final String errorType;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param statusCode the status code
+	 * @param errorCode the error code
+	 * @param errorType the error type, Client or Server
+	 * @param message the message
+	 */
+	public FakeGlacierException(final int statusCode, final String errorCode, final String errorType,
+			final String message) {
+		super(message);
+		this.statusCode = statusCode;
+		this.errorCode = errorCode;
+		this.errorType = errorType;
+	}
+
+	/**
+	 * Gets the status code.
+	 *
+	 * @return the status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Gets the error code.
+	 *
+	 * @return the error code
+	 */
+	public String getErrorCode() {
+		return errorCode;
+	}
+
+	/**
+	 * Gets the error type.
+	 *
+	 * @return the error type, Client or Server
+	 */
+	public String getErrorType() {
+		return errorType;
+	}
+
+	/**
+	 * Invalid parameter error.
+	 *
+	 * @param message the message
+	 * @return the fake glacier exception
+	 */
+	static FakeGlacierException invalid(final String message) {
+		return new FakeGlacierException(400, "InvalidParameterValueException", "Client", message);
+	}
+
+	/**
+	 * Resource not found error.
+	 *
+	 * @param message the message
+	 * @return the fake glacier exception
+	 */
+	static FakeGlacierException notFound(final String message) {
+		return new FakeGlacierException(404, "ResourceNotFoundException", "Client", message);
+	}
+
+	/**
+	 * Service unavailable error.
+	 *
+	 * @param message the message
+	 * @return the fake glacier exception
+	 */
+	static FakeGlacierException unavailable(final String message) {
+		return new FakeGlacierException(500, "ServiceUnavailableException", "Server", message);
+	}
+}
@@ -0,0 +1,1191 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.testing;
+
+import static com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierException.invalid;
+import static com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierException.unavailable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Archive;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Job;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.JobOutput;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Page;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Part;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Upload;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Vault;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+import com.github.abhinavmishra14.aws.util.RateLimiter;
+
+/**
+ * The Class FakeGlacierServer.<br/>
+ * In-process HTTP stand-in of glacier, serving the REST operations used by this library: vaults, single and
+ * multipart archive uploads, archive deletes and retrieval jobs, which complete after a configurable delay.
+ * Requests are translated into the operations of a {@link FakeGlacierStore}, which checks tree hashes, and its
+ * errors are returned in the JSON format of glacier, so the services run unchanged against it using their
+ * endpoint constructor argument.<br/>
+ * Latency, bandwidth caps, throttling and part failures can be injected using {@link FakeGlacierSettings}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class FakeGlacierServer implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(FakeGlacierServer.class);
+
+	/** The Constant JSON_FACTORY. */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** The Constant CHUNK_SIZE, bytes transferred per bandwidth permit. */
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	/** The Constant BANDWIDTH_BURST, chunks transferred at once after a pause. */
+	private static final int BANDWIDTH_BURST = 4;
+
+	/** The Constant CONNECTION_BACKLOG. */
+	private static final int CONNECTION_BACKLOG = 128;
+
+	/** The Constant MAX_LINE_LENGTH, of the request line and the headers. */
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	/** The Constant VAULT_LIST_LIMIT, page size of glacier when no limit is given. */
+	private static final int VAULT_LIST_LIMIT = 10;
+
+	/** The Constant JOB_LIST_LIMIT, page size of glacier when no limit is given. */
+	private static final int JOB_LIST_LIMIT = 50;
+
+	/** The Constant PART_LIST_LIMIT, page size of glacier when no limit is given. */
+	private static final int PART_LIST_LIMIT = 50;
+
+	/** The settings. */
+	private final FakeGlacierSettings settings;
+
+	/** The port. */
+	private final int port;
+
+	/** The store. */
+	private final FakeGlacierStore store;
+
+	/** The request count. */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/** The throttled count. */
+	private final AtomicLong throttledCount = new AtomicLong();
+
+	/** The failed part count. */
+	private final AtomicLong failedPartCount = new AtomicLong();
+
+	/** The bytes received. */
+	private final AtomicLong bytesReceived = new AtomicLong();
+
+	/** The bytes sent. */
+	private final AtomicLong bytesSent = new AtomicLong();
+
+	/** The random. */
+	private Random random;
+
+	/** The upload limiter, null if bandwidth is not capped. */
+	private RateLimiter uploadLimiter;
+
+	/** The download limiter, null if bandwidth is not capped. */
+	private RateLimiter downloadLimiter;
+
+	/** The open connections. */
+	private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+	/** The server socket. */
+	private ServerSocket serverSocket;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/**
+	 * The Constructor.
+	 */
+	public FakeGlacierServer() {
+		this(new FakeGlacierSettings(), 0);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param settings the settings
+	 */
+	public FakeGlacierServer(final FakeGlacierSettings settings) {
+		this(settings, 0);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param settings the settings
+	 * @param port the port, 0 for any free port
+	 */
+	public FakeGlacierServer(final FakeGlacierSettings settings, final int port) {
+		this(settings, port, new FakeGlacierStore());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param settings the settings
+	 * @param port the port, 0 for any free port
+	 * @param store the store, which may be shared with in-process clients of the fake glacier
+	 */
+	public FakeGlacierServer(final FakeGlacierSettings settings, final int port, final FakeGlacierStore store) {
+		super();
+		if (settings == null || store == null) {
+			throw new IllegalArgumentException("Settings and store can not be null!");
+		}
+		this.settings = settings;
+		this.port = port;
+		this.store = store;
+	}
+
+	/**
+	 * Start the server on the loopback address.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null) {
+			throw new IllegalStateException("Server is already started!");
+		}
+		final Long randomSeed = settings.getRandomSeed();
+		random = randomSeed == null ? new Random() : new Random(randomSeed);
+		final long bandwidth = settings.getBandwidth();
+		uploadLimiter = bandwidth > 0 ? new RateLimiter((double) bandwidth / CHUNK_SIZE, BANDWIDTH_BURST) : null;
+		downloadLimiter = bandwidth > 0 ? new RateLimiter((double) bandwidth / CHUNK_SIZE, BANDWIDTH_BURST) : null;
+		serverSocket = new ServerSocket(port, CONNECTION_BACKLOG, InetAddress.getLoopbackAddress());
+		executor = Executors.newCachedThreadPool(new NamedThreadFactory("glacier-fake"));
+		final ServerSocket acceptingSocket = serverSocket;
+		executor.execute(() -> accept(acceptingSocket));
+		LOGGER.info("Fake glacier started at: {}", getEndpoint());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() {
+		if (serverSocket != null) {
+			IOUtils.closeQuietly(serverSocket);
+			for (final Socket connection : connections) {
+				IOUtils.closeQuietly(connection);
+			}
+			executor.shutdownNow();
+			serverSocket = null;
+			LOGGER.info("Fake glacier stopped");
+		}
+	}
+
+	/**
+	 * Gets the endpoint, to be passed to the endpoint constructor argument of the services.
+	 *
+	 * @return the endpoint
+	 */
+	public synchronized String getEndpoint() {
+		if (serverSocket == null) {
+			throw new IllegalStateException("Server is not started!");
+		}
+		return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Gets the settings.
+	 *
+	 * @return the settings
+	 */
+	public FakeGlacierSettings getSettings() {
+		return settings;
+	}
+
+	/**
+	 * Gets the request count.
+	 *
+	 * @return the request count
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Gets the throttled count.
+	 *
+	 * @return the throttled count
+	 */
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+
+	/**
+	 * Gets the failed part count.
+	 *
+	 * @return the failed part count
+	 */
+	public long getFailedPartCount() {
+		return failedPartCount.get();
+	}
+
+	/**
+	 * Gets the bytes received in request bodies.
+	 *
+	 * @return the bytes received
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * Gets the bytes sent in response bodies.
+	 *
+	 * @return the bytes sent
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Gets the store.
+	 *
+	 * @return the store
+	 */
+	public FakeGlacierStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Gets the archive count of a vault.
+	 *
+	 * @param vaultName the vault name
+	 * @return the archive count, 0 if the vault does not exist
+	 */
+	public int getArchiveCount(final String vaultName) {
+		return store.getArchiveCount(vaultName);
+	}
+
+	/**
+	 * Accept connections until the server socket is closed, each one is served by a thread of its own.
+	 *
+	 * @param acceptingSocket the accepting socket
+	 */
+	private void accept(final ServerSocket acceptingSocket) {
+		while (!acceptingSocket.isClosed()) {
+			try {
+				final Socket connection = acceptingSocket.accept();
+				connections.add(connection);
+				executor.execute(() -> serve(connection));
+			} catch (IOException | RejectedExecutionException acceptEx) {
+				LOGGER.debug("Stopped accepting connections: {}", acceptEx.getMessage());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Serve the requests of a connection, one after another, until it is closed.
+	 *
+	 * @param connection the connection
+	 */
+	private void serve(final Socket connection) {
+		try (Socket socket = connection) {
+			socket.setTcpNoDelay(true);
+			final InputStream input = new BufferedInputStream(socket.getInputStream());
+			final OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+			Exchange exchange;
+			while ((exchange = Exchange.read(input, output)) != null) {
+				handle(exchange);
+				output.flush();
+				if (!exchange.isKeepAlive()) {
+					break;
+				}
+			}
+		} catch (IOException ioEx) {
+			LOGGER.debug("Connection closed: {}", ioEx.getMessage());
+		} finally {
+			connections.remove(connection);
+		}
+	}
+
+	/**
+	 * Handle a request, after the injected latency, unless it is throttled.
+	 *
+	 * @param exchange the exchange
+	 * @throws IOException the IO exception
+	 */
+	private void handle(final Exchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		exchange.setResponseHeader("x-amzn-RequestId", UUID.randomUUID().toString());
+		try {
+			delay();
+			if (random.nextDouble() < settings.getThrottlingRate()) {
+				throttledCount.incrementAndGet();
+				throw new FakeGlacierException(400, "ThrottlingException", "Client", "Rate exceeded");
+			}
+			route(exchange);
+		} catch (FakeGlacierException error) {
+			LOGGER.debug("{} {} failed with: {}", exchange.getMethod(), exchange.getPath(), error.getErrorCode());
+			sendError(exchange, error);
+		} catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+			sendError(exchange, unavailable("Shutting down"));
+		} catch (RuntimeException runtimeEx) {
+			LOGGER.error("Failed to handle: {} {}", exchange.getMethod(), exchange.getPath(), runtimeEx);
+			sendError(exchange, unavailable(String.valueOf(runtimeEx.getMessage())));
+		}
+		IOUtils.skip(exchange.getRequestBody(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Route the request to its operation, by method and path: /account/vaults/vault/collection/id/output.
+	 *
+	 * @param exchange the exchange
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void route(final Exchange exchange) throws IOException, InterruptedException {
+		final String method = exchange.getMethod();
+		final String[] segments = exchange.getPath().substring(1).split("/");
+		if (segments.length < 2 || !"vaults".equals(segments[1])) {
+			throw unsupported(exchange);
+		}
+		if (segments.length == 2 && "GET".equals(method)) {
+			listVaults(exchange);
+			return;
+		}
+		final String vaultName = segments[2];
+		if (segments.length == 3) {
+			if ("PUT".equals(method)) {
+				store.createVault(vaultName);
+				exchange.setResponseHeader("Location", "/" + FakeGlacierStore.ACCOUNT_ID + "/vaults/" + vaultName);
+				send(exchange, 201, null);
+			} else if ("GET".equals(method)) {
+				final Vault vault = store.getVault(vaultName);
+				sendJson(exchange, 200, generator -> writeVault(generator, vault));
+			} else if ("DELETE".equals(method)) {
+				store.deleteVault(vaultName);
+				send(exchange, 204, null);
+			} else {
+				throw unsupported(exchange);
+			}
+			return;
+		}
+		final String operation = method + " " + segments[3] + "/" + (segments.length - 4);
+		if ("POST archives/0".equals(operation)) {
+			final String treeHash = requiredHeader(exchange, "x-amz-sha256-tree-hash");
+			sendArchive(exchange, vaultName, store.uploadArchive(vaultName,
+					exchange.getRequestHeader("x-amz-archive-description"), readBody(exchange), treeHash));
+		} else if ("DELETE archives/1".equals(operation)) {
+			store.deleteArchive(vaultName, segments[4]);
+			send(exchange, 204, null);
+		} else if ("POST multipart-uploads/0".equals(operation)) {
+			initiateMultipartUpload(exchange, vaultName);
+		} else if ("PUT multipart-uploads/1".equals(operation)) {
+			uploadMultipartPart(exchange, vaultName, segments[4]);
+		} else if ("POST multipart-uploads/1".equals(operation)) {
+			final long archiveSize = Long.parseLong(requiredHeader(exchange, "x-amz-archive-size"));
+			sendArchive(exchange, vaultName, store.completeMultipartUpload(vaultName, segments[4], archiveSize,
+					requiredHeader(exchange, "x-amz-sha256-tree-hash")));
+		} else if ("DELETE multipart-uploads/1".equals(operation)) {
+			store.abortMultipartUpload(vaultName, segments[4]);
+			send(exchange, 204, null);
+		} else if ("GET multipart-uploads/1".equals(operation)) {
+			listParts(exchange, vaultName, segments[4]);
+		} else if ("POST jobs/0".equals(operation)) {
+			initiateJob(exchange, vaultName);
+		} else if ("GET jobs/0".equals(operation)) {
+			listJobs(exchange, vaultName);
+		} else if ("GET jobs/1".equals(operation)) {
+			final Vault vault = store.getVault(vaultName);
+			final Job job = store.getJob(vaultName, segments[4]);
+			sendJson(exchange, 200, generator -> writeJob(generator, vault, job));
+		} else if ("GET jobs/2".equals(operation) && "output".equals(segments[5])) {
+			getJobOutput(exchange, vaultName, segments[4]);
+		} else {
+			throw unsupported(exchange);
+		}
+	}
+
+	/**
+	 * List vaults, a page at a time.
+	 *
+	 * @param exchange the exchange
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void listVaults(final Exchange exchange) throws IOException, InterruptedException {
+		final Map<String, String> query = exchange.getQuery();
+		final Page<Vault> page = store.listVaults(query.get("marker"), limit(query, VAULT_LIST_LIMIT));
+		sendJson(exchange, 200, generator -> {
+			generator.writeArrayFieldStart("VaultList");
+			for (final Vault vault : page.getItems()) {
+				generator.writeStartObject();
+				writeVault(generator, vault);
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeStringField("Marker", page.getMarker());
+		});
+	}
+
+	/**
+	 * Initiate multipart upload.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void initiateMultipartUpload(final Exchange exchange, final String vaultName)
+			throws IOException, InterruptedException {
+		final long partSize = Long.parseLong(requiredHeader(exchange, "x-amz-part-size"));
+		final Upload upload = store.initiateMultipartUpload(vaultName, partSize,
+				exchange.getRequestHeader("x-amz-archive-description"));
+		exchange.setResponseHeader("Location", "/" + FakeGlacierStore.ACCOUNT_ID + "/vaults/" + vaultName
+				+ "/multipart-uploads/" + upload.getUploadId());
+		exchange.setResponseHeader("x-amz-multipart-upload-id", upload.getUploadId());
+		send(exchange, 201, null);
+	}
+
+	/**
+	 * Upload multipart part, which fails at the part failure rate.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void uploadMultipartPart(final Exchange exchange, final String vaultName, final String uploadId)
+			throws IOException, InterruptedException {
+		store.getUpload(vaultName, uploadId);
+		if (random.nextDouble() < settings.getPartFailureRate()) {
+			failedPartCount.incrementAndGet();
+			throw unavailable("Injected part failure");
+		}
+		final String treeHash = requiredHeader(exchange, "x-amz-sha256-tree-hash");
+		final String contentRange = requiredHeader(exchange, "Content-Range");
+		final Part part = store.uploadMultipartPart(vaultName, uploadId, contentRange, readBody(exchange), treeHash);
+		exchange.setResponseHeader("x-amz-sha256-tree-hash", part.getTreeHash());
+		send(exchange, 204, null);
+	}
+
+	/**
+	 * List parts of a multipart upload, a page at a time.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void listParts(final Exchange exchange, final String vaultName, final String uploadId)
+			throws IOException, InterruptedException {
+		final Map<String, String> query = exchange.getQuery();
+		final Vault vault = store.getVault(vaultName);
+		final Upload upload = store.getUpload(vaultName, uploadId);
+		final Page<Part> page = store.listParts(vaultName, uploadId, query.get("marker"),
+				limit(query, PART_LIST_LIMIT));
+		sendJson(exchange, 200, generator -> {
+			generator.writeStringField("MultipartUploadId", upload.getUploadId());
+			generator.writeStringField("VaultARN", vault.getVaultArn());
+			generator.writeStringField("ArchiveDescription", upload.getDescription());
+			generator.writeNumberField("PartSizeInBytes", upload.getPartSize());
+			generator.writeStringField("CreationDate", upload.getCreationDate());
+			generator.writeArrayFieldStart("Parts");
+			for (final Part part : page.getItems()) {
+				generator.writeStartObject();
+				generator.writeStringField("RangeInBytes", part.getRangeInBytes());
+				generator.writeStringField("SHA256TreeHash", part.getTreeHash());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeStringField("Marker", page.getMarker());
+		});
+	}
+
+	/**
+	 * Initiate an archive or inventory retrieval job.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void initiateJob(final Exchange exchange, final String vaultName)
+			throws IOException, InterruptedException {
+		final Map<String, String> parameters = new HashMap<String, String>();
+		try (JsonParser parser = JSON_FACTORY.createParser(readBody(exchange))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw invalid("Job parameters must be a JSON object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = parser.getCurrentName();
+				if (parser.nextToken().isScalarValue()) {
+					parameters.put(field, parser.getText());
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		final Job job;
+		if ("archive-retrieval".equals(parameters.get("Type"))) {
+			job = store.initiateArchiveJob(vaultName, parameters.get("ArchiveId"),
+					parameters.get("RetrievalByteRange"), parameters.get("Description"),
+					settings.getJobCompletionMillis());
+		} else if ("inventory-retrieval".equals(parameters.get("Type"))) {
+			job = store.initiateInventoryJob(vaultName, parameters.get("Description"),
+					settings.getJobCompletionMillis());
+		} else {
+			throw invalid("Invalid job type: " + parameters.get("Type"));
+		}
+		exchange.setResponseHeader("Location",
+				"/" + FakeGlacierStore.ACCOUNT_ID + "/vaults/" + vaultName + "/jobs/" + job.getJobId());
+		exchange.setResponseHeader("x-amz-job-id", job.getJobId());
+		send(exchange, 202, null);
+	}
+
+	/**
+	 * List jobs, a page at a time, optionally only the completed or the in progress ones.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void listJobs(final Exchange exchange, final String vaultName) throws IOException, InterruptedException {
+		final Map<String, String> query = exchange.getQuery();
+		final String completed = query.get("completed");
+		final Vault vault = store.getVault(vaultName);
+		final Page<Job> page = store.listJobs(vaultName, completed == null ? null : Boolean.valueOf(completed),
+				query.get("marker"), limit(query, JOB_LIST_LIMIT));
+		sendJson(exchange, 200, generator -> {
+			generator.writeArrayFieldStart("JobList");
+			for (final Job job : page.getItems()) {
+				generator.writeStartObject();
+				writeJob(generator, vault, job);
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeStringField("Marker", page.getMarker());
+		});
+	}
+
+	/**
+	 * Get the output of a completed job, the whole output or the requested range of it.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void getJobOutput(final Exchange exchange, final String vaultName, final String jobId)
+			throws IOException, InterruptedException {
+		final JobOutput output = store.getJobOutput(vaultName, jobId, exchange.getRequestHeader("Range"));
+		final Archive archive = output.getJob().getArchive();
+		if (output.getContentRange() != null) {
+			exchange.setResponseHeader("Content-Range", output.getContentRange());
+		}
+		if (output.getTreeHash() != null) {
+			exchange.setResponseHeader("x-amz-sha256-tree-hash", output.getTreeHash());
+		}
+		if (archive != null && archive.getDescription() != null) {
+			exchange.setResponseHeader("x-amz-archive-description", archive.getDescription());
+		}
+		exchange.setResponseHeader("Accept-Ranges", "bytes");
+		exchange.setResponseHeader("Content-Type", archive == null ? "application/json" : "application/octet-stream");
+		sendBody(exchange, output.getContentRange() == null ? 200 : 206, output.getOutput(), output.getOffset(),
+				output.getLength());
+	}
+
+	/**
+	 * Send the id of a stored archive.
+	 *
+	 * @param exchange the exchange
+	 * @param vaultName the vault name
+	 * @param archive the archive
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void sendArchive(final Exchange exchange, final String vaultName, final Archive archive)
+			throws IOException, InterruptedException {
+		exchange.setResponseHeader("Location",
+				"/" + FakeGlacierStore.ACCOUNT_ID + "/vaults/" + vaultName + "/archives/" + archive.getArchiveId());
+		exchange.setResponseHeader("x-amz-archive-id", archive.getArchiveId());
+		exchange.setResponseHeader("x-amz-sha256-tree-hash", archive.getTreeHash());
+		send(exchange, 201, null);
+	}
+
+	/**
+	 * Write the fields of a vault.
+	 *
+	 * @param generator the generator
+	 * @param vault the vault
+	 * @throws IOException the IO exception
+	 */
+	private static void writeVault(final JsonGenerator generator, final Vault vault) throws IOException {
+		generator.writeStringField("VaultName", vault.getVaultName());
+		generator.writeStringField("VaultARN", vault.getVaultArn());
+		generator.writeStringField("CreationDate", vault.getCreationDate());
+		generator.writeNumberField("NumberOfArchives", vault.getNumberOfArchives());
+		generator.writeNumberField("SizeInBytes", vault.getSizeInBytes());
+	}
+
+	/**
+	 * Write the fields of a job.
+	 *
+	 * @param generator the generator
+	 * @param vault the vault
+	 * @param job the job
+	 * @throws IOException the IO exception
+	 */
+	private static void writeJob(final JsonGenerator generator, final Vault vault, final Job job)
+			throws IOException {
+		final boolean completed = job.isCompleted();
+		final Archive archive = job.getArchive();
+		generator.writeStringField("JobId", job.getJobId());
+		generator.writeStringField("JobDescription", job.getDescription());
+		generator.writeStringField("VaultARN", vault.getVaultArn());
+		generator.writeStringField("CreationDate", job.getCreationDate());
+		generator.writeBooleanField("Completed", completed);
+		generator.writeStringField("StatusCode", completed ? "Succeeded" : "InProgress");
+		if (completed) {
+			generator.writeStringField("StatusMessage", "Succeeded");
+			generator.writeStringField("CompletionDate", job.getCompletionDate());
+		}
+		if (archive == null) {
+			generator.writeStringField("Action", "InventoryRetrieval");
+			generator.writeNumberField("InventorySizeInBytes", job.getOutputSize());
+		} else {
+			generator.writeStringField("Action", "ArchiveRetrieval");
+			generator.writeStringField("ArchiveId", archive.getArchiveId());
+			generator.writeNumberField("ArchiveSizeInBytes", archive.getContent().length);
+			generator.writeStringField("ArchiveSHA256TreeHash", archive.getTreeHash());
+			generator.writeStringField("SHA256TreeHash", job.getTreeHash());
+			generator.writeStringField("RetrievalByteRange", job.getByteRange());
+		}
+	}
+
+	/**
+	 * Wait for the injected latency.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void delay() throws InterruptedException {
+		final long jitterMillis = settings.getLatencyJitterMillis();
+		final long delayMillis = settings.getLatencyMillis()
+				+ (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+		if (delayMillis > 0) {
+			TimeUnit.MILLISECONDS.sleep(delayMillis);
+		}
+	}
+
+	/**
+	 * Read the request body, a chunk at a time within the bandwidth cap.
+	 *
+	 * @param exchange the exchange
+	 * @return the body
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private byte[] readBody(final Exchange exchange) throws IOException, InterruptedException {
+		final String contentLength = exchange.getRequestHeader("Content-Length");
+		final ByteArrayOutputStream body = new ByteArrayOutputStream(
+				contentLength == null ? CHUNK_SIZE : Integer.parseInt(contentLength));
+		final InputStream requestBody = exchange.getRequestBody();
+		final byte[] chunk = new byte[CHUNK_SIZE];
+		int bytesRead;
+		while ((bytesRead = IOUtils.read(requestBody, chunk)) > 0) {
+			if (uploadLimiter != null) {
+				uploadLimiter.acquire();
+			}
+			body.write(chunk, 0, bytesRead);
+			bytesReceived.addAndGet(bytesRead);
+		}
+		return body.toByteArray();
+	}
+
+	/**
+	 * Send a JSON object response.
+	 *
+	 * @param exchange the exchange
+	 * @param status the status
+	 * @param fields writer of the fields of the object
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void sendJson(final Exchange exchange, final int status, final JsonFields fields)
+			throws IOException, InterruptedException {
+		final ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+			generator.writeStartObject();
+			fields.write(generator);
+			generator.writeEndObject();
+		}
+		exchange.setResponseHeader("Content-Type", "application/json");
+		send(exchange, status, json.toByteArray());
+	}
+
+	/**
+	 * Send the response.
+	 *
+	 * @param exchange the exchange
+	 * @param status the status
+	 * @param body the body, null if none
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void send(final Exchange exchange, final int status, final byte[] body)
+			throws IOException, InterruptedException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, 0);
+		} else {
+			sendBody(exchange, status, body, 0, body.length);
+		}
+	}
+
+	/**
+	 * Send the response body, a chunk at a time within the bandwidth cap.
+	 *
+	 * @param exchange the exchange
+	 * @param status the status
+	 * @param body the body
+	 * @param offset the offset
+	 * @param length the length
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void sendBody(final Exchange exchange, final int status, final byte[] body, final int offset,
+			final int length) throws IOException, InterruptedException {
+		exchange.sendResponseHeaders(status, length);
+		final OutputStream responseBody = exchange.getResponseBody();
+		for (int position = offset; position < offset + length; position += CHUNK_SIZE) {
+			if (downloadLimiter != null) {
+				downloadLimiter.acquire();
+			}
+			final int chunkLength = Math.min(CHUNK_SIZE, offset + length - position);
+			responseBody.write(body, position, chunkLength);
+			bytesSent.addAndGet(chunkLength);
+		}
+		responseBody.flush();
+	}
+
+	/**
+	 * Send an error in the JSON format of glacier.
+	 *
+	 * @param exchange the exchange
+	 * @param error the error
+	 * @throws IOException the IO exception
+	 */
+	private void sendError(final Exchange exchange, final FakeGlacierException error) throws IOException {
+		if (exchange.isResponded()) {
+			throw new IOException("Failed after the response was started: " + error.getMessage());
+		}
+		IOUtils.skip(exchange.getRequestBody(), Long.MAX_VALUE);
+		try {
+			sendJson(exchange, error.getStatusCode(), generator -> {
+				generator.writeStringField("code", error.getErrorCode());
+				generator.writeStringField("message", error.getMessage());
+				generator.writeStringField("type", error.getErrorType());
+			});
+		} catch (InterruptedException interruptedEx) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets a required request header.
+	 *
+	 * @param exchange the exchange
+	 * @param name the name
+	 * @return the header value
+	 */
+	private static String requiredHeader(final Exchange exchange, final String name) {
+		final String value = exchange.getRequestHeader(name);
+		if (value == null) {
+			throw new FakeGlacierException(400, "MissingParameterValueException", "Client", "Required header: " + name);
+		}
+		return value;
+	}
+
+	/**
+	 * Page size of a listing.
+	 *
+	 * @param query the query
+	 * @param defaultLimit the default limit
+	 * @return the page size
+	 */
+	private static int limit(final Map<String, String> query, final int defaultLimit) {
+		try {
+			return query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : defaultLimit;
+		} catch (NumberFormatException formatEx) {
+			throw invalid("Invalid limit: " + query.get("limit"));
+		}
+	}
+
+	/**
+	 * Unsupported operation error.
+	 *
+	 * @param exchange the exchange
+	 * @return the fake glacier exception
+	 */
+	private static FakeGlacierException unsupported(final Exchange exchange) {
+		return invalid("Unsupported operation: " + exchange.getMethod() + " "
+				+ exchange.getPath());
+	}
+
+	/**
+	 * Writer of the fields of a JSON object.
+	 */
+	private interface JsonFields {
+
+		/**
+		 * Write the fields.
+		 *
+		 * @param generator the generator
+		 * @throws IOException the IO exception
+		 */
+		void write(JsonGenerator generator) throws IOException;
+	}
+
+	/**
+	 * A request and its response, on a persistent HTTP/1.1 connection. Response header names are sent exactly
+	 * as they are given, since the SDK looks them up case sensitively.
+	 */
+	private static final class Exchange {
+
+		/** The method. */
+		private final String method;
+
+		/** The raw path. */
+		private final String path;
+
+		/** The query parameters. */
+		private final Map<String, String> query = new HashMap<String, String>();
+
+		/** The request headers. */
+		private final Map<String, String> requestHeaders = new TreeMap<String, String>(
+				String.CASE_INSENSITIVE_ORDER);
+
+		/** The response headers. */
+		private final Map<String, String> responseHeaders = new LinkedHashMap<String, String>();
+
+		/** The request body. */
+		private final InputStream requestBody;
+
+		/** The response body. */
+		private final OutputStream responseBody;
+
+		/** The keep alive. */
+		private boolean keepAlive;
+
+		/** The responded. */
+		private boolean responded;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param input the input of the connection
+		 * @param output the output of the connection
+		 * @param requestLine the request line
+		 * @throws IOException the IO exception
+		 */
+		private Exchange(final InputStream input, final OutputStream output, final String requestLine)
+				throws IOException {
+			final String[] parts = requestLine.split(" ");
+			if (parts.length != 3) {
+				throw new IOException("Malformed request line: " + requestLine);
+			}
+			this.method = parts[0];
+			final int querySeparator = parts[1].indexOf('?');
+			this.path = querySeparator < 0 ? parts[1] : parts[1].substring(0, querySeparator);
+			if (querySeparator >= 0) {
+				for (final String parameter : parts[1].substring(querySeparator + 1).split("&")) {
+					final int separator = parameter.indexOf('=');
+					if (separator > 0) {
+						query.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+					}
+				}
+			}
+			String headerLine;
+			while (!(headerLine = readLine(input)).isEmpty()) {
+				final int separator = headerLine.indexOf(':');
+				if (separator <= 0) {
+					throw new IOException("Malformed header: " + headerLine);
+				}
+				requestHeaders.put(headerLine.substring(0, separator).trim(),
+						headerLine.substring(separator + 1).trim());
+			}
+			this.responseBody = output;
+			this.keepAlive = "HTTP/1.1".equals(parts[2])
+					&& !"close".equalsIgnoreCase(requestHeaders.get("Connection"));
+			if ("100-continue".equalsIgnoreCase(requestHeaders.get("Expect"))) {
+				output.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				output.flush();
+			}
+			if ("chunked".equalsIgnoreCase(requestHeaders.get("Transfer-Encoding"))) {
+				this.requestBody = new ByteArrayInputStream(readChunks(input));
+			} else {
+				final String contentLength = requestHeaders.get("Content-Length");
+				final BoundedInputStream boundedBody = new BoundedInputStream(input,
+						contentLength == null ? 0 : Long.parseLong(contentLength));
+				boundedBody.setPropagateClose(false);
+				this.requestBody = boundedBody;
+			}
+		}
+
+		/**
+		 * Read the next request of the connection.
+		 *
+		 * @param input the input of the connection
+		 * @param output the output of the connection
+		 * @return the exchange, null if the connection is closed
+		 * @throws IOException the IO exception
+		 */
+		private static Exchange read(final InputStream input, final OutputStream output) throws IOException {
+			final String requestLine;
+			try {
+				requestLine = readLine(input);
+			} catch (EOFException eofEx) {
+				return null;
+			}
+			return new Exchange(input, output, requestLine);
+		}
+
+		/**
+		 * Read a chunked request body.
+		 *
+		 * @param input the input
+		 * @return the body
+		 * @throws IOException the IO exception
+		 */
+		private static byte[] readChunks(final InputStream input) throws IOException {
+			final ByteArrayOutputStream body = new ByteArrayOutputStream();
+			int chunkSize;
+			do {
+				final String sizeLine = readLine(input);
+				final int extension = sizeLine.indexOf(';');
+				chunkSize = Integer.parseInt((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+				final byte[] chunk = new byte[chunkSize];
+				IOUtils.readFully(input, chunk);
+				body.write(chunk);
+				if (chunkSize > 0) {
+					readLine(input);
+				}
+			} while (chunkSize > 0);
+			String trailer;
+			do {
+				trailer = readLine(input);
+			} while (!trailer.isEmpty());
+			return body.toByteArray();
+		}
+
+		/**
+		 * Read a line, terminated by CRLF.
+		 *
+		 * @param input the input
+		 * @return the line
+		 * @throws IOException the IO exception
+		 */
+		private static String readLine(final InputStream input) throws IOException {
+			final StringBuilder line = new StringBuilder();
+			int character;
+			while ((character = input.read()) != '\n') {
+				if (character == -1) {
+					throw new EOFException("Connection closed");
+				}
+				if (line.length() == MAX_LINE_LENGTH) {
+					throw new IOException("Line is too long");
+				}
+				line.append((char) character);
+			}
+			final int length = line.length();
+			return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+		}
+
+		/**
+		 * Gets the method.
+		 *
+		 * @return the method
+		 */
+		private String getMethod() {
+			return method;
+		}
+
+		/**
+		 * Gets the raw path.
+		 *
+		 * @return the path
+		 */
+		private String getPath() {
+			return path;
+		}
+
+		/**
+		 * Gets the query parameters.
+		 *
+		 * @return the query
+		 */
+		private Map<String, String> getQuery() {
+			return query;
+		}
+
+		/**
+		 * Gets a request header.
+		 *
+		 * @param name the name, case insensitive
+		 * @return the value, null if it is not sent
+		 */
+		private String getRequestHeader(final String name) {
+			return requestHeaders.get(name);
+		}
+
+		/**
+		 * Gets the request body.
+		 *
+		 * @return the request body
+		 */
+		private InputStream getRequestBody() {
+			return requestBody;
+		}
+
+		/**
+		 * Sets a response header.
+		 *
+		 * @param name the name
+		 * @param value the value
+		 */
+		private void setResponseHeader(final String name, final String value) {
+			responseHeaders.put(name, value);
+		}
+
+		/**
+		 * Send the status line and the response headers.
+		 *
+		 * @param status the status
+		 * @param contentLength the content length
+		 * @throws IOException the IO exception
+		 */
+		private void sendResponseHeaders(final int status, final long contentLength) throws IOException {
+			final StringBuilder head = new StringBuilder("HTTP/1.1 ").append(status).append(' ')
+					.append(reason(status)).append("\r\n");
+			for (final Map.Entry<String, String> header : responseHeaders.entrySet()) {
+				head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+			}
+			if (status != 204) {
+				head.append("Content-Length: ").append(contentLength).append("\r\n");
+			}
+			if (!keepAlive) {
+				head.append("Connection: close\r\n");
+			}
+			responseBody.write(head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+			responded = true;
+		}
+
+		/**
+		 * Gets the response body.
+		 *
+		 * @return the response body
+		 */
+		private OutputStream getResponseBody() {
+			return responseBody;
+		}
+
+		/**
+		 * Checks if the response is started.
+		 *
+		 * @return true, if the response headers are sent
+		 */
+		private boolean isResponded() {
+			return responded;
+		}
+
+		/**
+		 * Checks if the connection is kept alive.
+		 *
+		 * @return true, if further requests are read from the connection
+		 */
+		private boolean isKeepAlive() {
+			return keepAlive;
+		}
+
+		/**
+		 * Reason phrase of a status.
+		 *
+		 * @param status the status
+		 * @return the reason
+		 */
+		private static String reason(final int status) {
+			switch (status) {
+			case 200:
+				return "OK";
+			case 201:
+				return "Created";
+			case 202:
+				return "Accepted";
+			case 204:
+				return "No Content";
+			case 206:
+				return "Partial Content";
+			case 400:
+				return "Bad Request";
+			case 404:
+				return "Not Found";
+			default:
+				return "Internal Server Error";
+			}
+		}
+	}
+}
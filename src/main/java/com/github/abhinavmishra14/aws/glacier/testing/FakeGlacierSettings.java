@@ -0,0 +1,199 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.testing;
+
+/**
+ * The Class FakeGlacierSettings.<br/>
+ * Adverse conditions simulated by a {@link FakeGlacierServer}. Settings can be changed while the server is
+ * running, e.g. in order to raise the throttling rate in the middle of a load test.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class FakeGlacierSettings {
+
+	/** The latency millis. */
+	private volatile long latencyMillis;
+
+	/** The latency jitter millis. */
+	private volatile long latencyJitterMillis;
+
+	/** The bandwidth in bytes per second, 0 if not capped. */
+	private volatile long bandwidth;
+
+	/** The throttling rate. */
+	private volatile double throttlingRate;
+
+	/** The part failure rate. */
+	private volatile double partFailureRate;
+
+	/** The job completion millis. */
+	private volatile long jobCompletionMillis;
+
+	/** The random seed, null for a random one. */
+	private volatile Long randomSeed;
+
+	/**
+	 * Gets the latency millis.
+	 *
+	 * @return the latency millis
+	 */
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	/**
+	 * Gets the latency jitter millis.
+	 *
+	 * @return the latency jitter millis
+	 */
+	public long getLatencyJitterMillis() {
+		return latencyJitterMillis;
+	}
+
+	/**
+	 * Sets the latency.<br/>
+	 * Every request is delayed by the latency plus a random part of the jitter, before it is handled.
+	 *
+	 * @param latencyMillis the latency millis
+	 * @param latencyJitterMillis the latency jitter millis
+	 */
+	public void setLatency(final long latencyMillis, final long latencyJitterMillis) {
+		if (latencyMillis < 0 || latencyJitterMillis < 0) {
+			throw new IllegalArgumentException("Latency can not be negative!");
+		}
+		this.latencyMillis = latencyMillis;
+		this.latencyJitterMillis = latencyJitterMillis;
+	}
+
+	/**
+	 * Gets the bandwidth.
+	 *
+	 * @return the bandwidth in bytes per second, 0 if not capped
+	 */
+	public long getBandwidth() {
+		return bandwidth;
+	}
+
+	/**
+	 * Sets the bandwidth.<br/>
+	 * Caps the bytes per second of all the request bodies together, and of all the response bodies
+	 * together, like a full duplex link shared by all the connections. It applies to servers started
+	 * after it is set.
+	 *
+	 * @param bandwidth the bandwidth in bytes per second, 0 in order to remove the cap
+	 */
+	public void setBandwidth(final long bandwidth) {
+		if (bandwidth < 0) {
+			throw new IllegalArgumentException("Bandwidth can not be negative!");
+		}
+		this.bandwidth = bandwidth;
+	}
+
+	/**
+	 * Gets the throttling rate.
+	 *
+	 * @return the throttling rate
+	 */
+	public double getThrottlingRate() {
+		return throttlingRate;
+	}
+
+	/**
+	 * Sets the throttling rate.<br/>
+	 * Share of the requests which fail with a ThrottlingException (status code 400).
+	 *
+	 * @param throttlingRate the throttling rate, 0 to 1
+	 */
+	public void setThrottlingRate(final double throttlingRate) {
+		this.throttlingRate = checkRate(throttlingRate);
+	}
+
+	/**
+	 * Gets the part failure rate.
+	 *
+	 * @return the part failure rate
+	 */
+	public double getPartFailureRate() {
+		return partFailureRate;
+	}
+
+	/**
+	 * Sets the part failure rate.<br/>
+	 * Share of the part uploads which fail with a ServiceUnavailableException (status code 500).
+	 *
+	 * @param partFailureRate the part failure rate, 0 to 1
+	 */
+	public void setPartFailureRate(final double partFailureRate) {
+		this.partFailureRate = checkRate(partFailureRate);
+	}
+
+	/**
+	 * Gets the job completion millis.
+	 *
+	 * @return the job completion millis
+	 */
+	public long getJobCompletionMillis() {
+		return jobCompletionMillis;
+	}
+
+	/**
+	 * Sets the job completion millis.<br/>
+	 * Time from the initiation of a job until it is completed, 4 hours for a real archive retrieval.
+	 *
+	 * @param jobCompletionMillis the job completion millis
+	 */
+	public void setJobCompletionMillis(final long jobCompletionMillis) {
+		if (jobCompletionMillis < 0) {
+			throw new IllegalArgumentException("Job completion time can not be negative!");
+		}
+		this.jobCompletionMillis = jobCompletionMillis;
+	}
+
+	/**
+	 * Gets the random seed.
+	 *
+	 * @return the random seed, null for a random one
+	 */
+	public Long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * Sets the random seed.<br/>
+	 * Makes the injected failures and latencies repeatable. It applies to servers started after it is set.
+	 *
+	 * @param randomSeed the random seed, null for a random one
+	 */
+	public void setRandomSeed(final Long randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+
+	/**
+	 * Check rate.
+	 *
+	 * @param rate the rate
+	 * @return the rate
+	 */
+	private static double checkRate(final double rate) {
+		if (rate < 0 || rate > 1) {
+			throw new IllegalArgumentException("Rate must be between 0 and 1!");
+		}
+		return rate;
+	}
+}
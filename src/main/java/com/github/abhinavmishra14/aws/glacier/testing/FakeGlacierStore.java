@@ -0,0 +1,1121 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.testing;
+
+import static com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierException.invalid;
+import static com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierException.notFound;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.amazonaws.util.DateUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.abhinavmishra14.aws.util.AWSUtilConstants;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class FakeGlacierStore.<br/>
+ * In-memory storage model of glacier: vaults, archives, multipart uploads and retrieval jobs, along with the
+ * validation glacier does on them, e.g. tree hashes, part sizes and megabyte aligned retrieval ranges.<br/>
+ * It is shared by the front ends of the fake glacier, {@link FakeGlacierServer} over HTTP and in-process clients,
+ * which only translate their requests into its operations. Failed operations throw {@link FakeGlacierException}.
+ * Archives are kept in memory, hence they are limited to 2 GB each.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class FakeGlacierStore {
+
+	/** The Constant ACCOUNT_ID. */
+	public static final String ACCOUNT_ID = "012345678901";
+
+	/** The Constant VAULT_ARN_PREFIX. */
+	private static final String VAULT_ARN_PREFIX = "arn:aws:glacier:local:" + ACCOUNT_ID + ":vaults/";
+
+	/** The Constant JSON_FACTORY. */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** The vaults, keyed by name. */
+	private final NavigableMap<String, Vault> vaults = new ConcurrentSkipListMap<String, Vault>();
+
+	/**
+	 * Create vault, the existing one is returned if it already exists.
+	 *
+	 * @param vaultName the vault name
+	 * @return the vault
+	 */
+	public Vault createVault(final String vaultName) {
+		if (vaultName == null || !vaultName.matches("[a-zA-Z0-9_.-]{1,255}")) {
+			throw invalid("Invalid vault name: " + vaultName);
+		}
+		final Vault vault = new Vault(vaultName);
+		final Vault existing = vaults.putIfAbsent(vaultName, vault);
+		return existing == null ? vault : existing;
+	}
+
+	/**
+	 * Gets the vault.
+	 *
+	 * @param vaultName the vault name
+	 * @return the vault
+	 */
+	public Vault getVault(final String vaultName) {
+		final Vault vault = vaultName == null ? null : vaults.get(vaultName);
+		if (vault == null) {
+			throw notFound("Vault not found for ARN: " + VAULT_ARN_PREFIX + vaultName);
+		}
+		return vault;
+	}
+
+	/**
+	 * Delete vault, which has to be empty.
+	 *
+	 * @param vaultName the vault name
+	 */
+	public void deleteVault(final String vaultName) {
+		final Vault vault = getVault(vaultName);
+		if (!vault.archives.isEmpty()) {
+			throw invalid("Vault not empty or recently written to: " + vault.vaultArn);
+		}
+		vaults.remove(vaultName);
+	}
+
+	/**
+	 * List vaults, a page at a time.
+	 *
+	 * @param marker the name of the first vault of the page, null for the first page
+	 * @param limit the page size
+	 * @return the page
+	 */
+	public Page<Vault> listVaults(final String marker, final int limit) {
+		return page(vaults, marker, limit);
+	}
+
+	/**
+	 * Upload archive in a single request.
+	 *
+	 * @param vaultName the vault name
+	 * @param description the description
+	 * @param content the content
+	 * @param treeHash the tree hash sent by the client
+	 * @return the archive
+	 */
+	public Archive uploadArchive(final String vaultName, final String description, final byte[] content,
+			final String treeHash) {
+		final Vault vault = getVault(vaultName);
+		checkTreeHash(content, treeHash);
+		return store(vault, description, content);
+	}
+
+	/**
+	 * Store an archive directly, without checking its tree hash.
+	 *
+	 * @param vaultName the vault name
+	 * @param description the description
+	 * @param content the content
+	 * @return the archive
+	 */
+	public Archive putArchive(final String vaultName, final String description, final byte[] content) {
+		return store(getVault(vaultName), description, content);
+	}
+
+	/**
+	 * Delete archive.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 */
+	public void deleteArchive(final String vaultName, final String archiveId) {
+		if (archiveId == null || getVault(vaultName).archives.remove(archiveId) == null) {
+			throw notFound("Archive not found for ID: " + archiveId);
+		}
+	}
+
+	/**
+	 * Find an archive in any of the vaults.
+	 *
+	 * @param archiveId the archive id
+	 * @return the archive, null if there is none
+	 */
+	public Archive findArchive(final String archiveId) {
+		for (final Vault vault : vaults.values()) {
+			final Archive archive = vault.archives.get(archiveId);
+			if (archive != null) {
+				return archive;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the archive count of every vault.
+	 *
+	 * @return the archive count
+	 */
+	public int getArchiveCount() {
+		int archiveCount = 0;
+		for (final Vault vault : vaults.values()) {
+			archiveCount += vault.archives.size();
+		}
+		return archiveCount;
+	}
+
+	/**
+	 * Gets the archive count of a vault.
+	 *
+	 * @param vaultName the vault name
+	 * @return the archive count, 0 if the vault does not exist
+	 */
+	public int getArchiveCount(final String vaultName) {
+		final Vault vault = vaults.get(vaultName);
+		return vault == null ? 0 : vault.archives.size();
+	}
+
+	/**
+	 * Initiate multipart upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param partSize the part size
+	 * @param description the description
+	 * @return the upload
+	 */
+	public Upload initiateMultipartUpload(final String vaultName, final long partSize, final String description) {
+		final Vault vault = getVault(vaultName);
+		if (partSize < AWSUtilConstants.ONE_MB || partSize > AWSUtilConstants.MAX_PART_SIZE
+				|| Long.bitCount(partSize / AWSUtilConstants.ONE_MB) != 1
+				|| partSize % AWSUtilConstants.ONE_MB != 0) {
+			throw invalid("Invalid part size: " + partSize);
+		}
+		final Upload upload = new Upload(partSize, description);
+		vault.uploads.put(upload.uploadId, upload);
+		return upload;
+	}
+
+	/**
+	 * Gets the multipart upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @return the upload
+	 */
+	public Upload getUpload(final String vaultName, final String uploadId) {
+		final Upload upload = uploadId == null ? null : getVault(vaultName).uploads.get(uploadId);
+		if (upload == null) {
+			throw notFound("Multipart upload not found for ID: " + uploadId);
+		}
+		return upload;
+	}
+
+	/**
+	 * Upload multipart part, a part uploaded again replaces the previous one.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param contentRange the content range, as bytes start-end/*
+	 * @param content the content
+	 * @param treeHash the tree hash sent by the client
+	 * @return the part
+	 */
+	public Part uploadMultipartPart(final String vaultName, final String uploadId, final String contentRange,
+			final byte[] content, final String treeHash) {
+		final Upload upload = getUpload(vaultName, uploadId);
+		if (contentRange == null || !contentRange.matches("bytes \\d+-\\d+/\\*")) {
+			throw invalid("Invalid Content-Range: " + contentRange);
+		}
+		final int separator = contentRange.indexOf('-');
+		final long start = Long.parseLong(contentRange.substring(6, separator));
+		final long end = Long.parseLong(contentRange.substring(separator + 1, contentRange.indexOf('/')));
+		if (start % upload.partSize != 0 || end - start + 1 != content.length || content.length > upload.partSize) {
+			throw invalid("Content-Range: " + contentRange + " does not match part size: " + upload.partSize
+					+ " and content length: " + content.length);
+		}
+		checkTreeHash(content, treeHash);
+		final Part part = new Part(start, content, treeHash);
+		upload.parts.put(start, part);
+		return part;
+	}
+
+	/**
+	 * Complete multipart upload, parts have to cover the archive size without gaps.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param archiveSize the archive size
+	 * @param treeHash the tree hash sent by the client
+	 * @return the archive
+	 */
+	public Archive completeMultipartUpload(final String vaultName, final String uploadId, final long archiveSize,
+			final String treeHash) {
+		final Vault vault = getVault(vaultName);
+		final Upload upload = getUpload(vaultName, uploadId);
+		if (archiveSize > Integer.MAX_VALUE) {
+			throw invalid("Archive size: " + archiveSize + " is not supported by the fake glacier");
+		}
+		final byte[] content = new byte[(int) archiveSize];
+		int position = 0;
+		for (final Part part : upload.parts.values()) {
+			if (part.start != position || position + part.content.length > content.length) {
+				throw invalid("Part at: " + part.start + " does not fit into archive size: " + archiveSize);
+			}
+			System.arraycopy(part.content, 0, content, position, part.content.length);
+			position += part.content.length;
+		}
+		if (position != archiveSize) {
+			throw invalid("Parts cover: " + position + " bytes of archive size: " + archiveSize);
+		}
+		checkTreeHash(content, treeHash);
+		vault.uploads.remove(upload.uploadId);
+		return store(vault, upload.description, content);
+	}
+
+	/**
+	 * Abort multipart upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 */
+	public void abortMultipartUpload(final String vaultName, final String uploadId) {
+		getVault(vaultName).uploads.remove(getUpload(vaultName, uploadId).uploadId);
+	}
+
+	/**
+	 * List parts of a multipart upload, a page at a time.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param marker the start of the first part of the page, null for the first page
+	 * @param limit the page size
+	 * @return the page
+	 */
+	public Page<Part> listParts(final String vaultName, final String uploadId, final String marker,
+			final int limit) {
+		return page(getUpload(vaultName, uploadId).parts, marker == null ? null : Long.valueOf(marker), limit);
+	}
+
+	/**
+	 * Gets the count of multipart uploads in progress, in every vault.
+	 *
+	 * @return the upload count
+	 */
+	public int getUploadCount() {
+		int uploadCount = 0;
+		for (final Vault vault : vaults.values()) {
+			uploadCount += vault.uploads.size();
+		}
+		return uploadCount;
+	}
+
+	/**
+	 * Initiate an archive retrieval job, its output is taken when it is initiated.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param byteRange the retrieval byte range, null for the whole archive
+	 * @param description the description
+	 * @param completionMillis the time the job takes to complete
+	 * @return the job
+	 */
+	public Job initiateArchiveJob(final String vaultName, final String archiveId, final String byteRange,
+			final String description, final long completionMillis) {
+		final Vault vault = getVault(vaultName);
+		final Archive archive = archiveId == null ? null : vault.archives.get(archiveId);
+		if (archive == null) {
+			throw notFound("Archive not found for ID: " + archiveId);
+		}
+		final Job job = new Job(archive, retrievalRange(archive, byteRange), description, completionMillis);
+		vault.jobs.put(job.jobId, job);
+		return job;
+	}
+
+	/**
+	 * Initiate an inventory retrieval job, its output is taken when it is initiated.
+	 *
+	 * @param vaultName the vault name
+	 * @param description the description
+	 * @param completionMillis the time the job takes to complete
+	 * @return the job
+	 * @throws IOException the IO exception
+	 */
+	public Job initiateInventoryJob(final String vaultName, final String description, final long completionMillis)
+			throws IOException {
+		final Vault vault = getVault(vaultName);
+		final Job job = new Job(inventory(vault), description, completionMillis);
+		vault.jobs.put(job.jobId, job);
+		return job;
+	}
+
+	/**
+	 * Gets the job.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @return the job
+	 */
+	public Job getJob(final String vaultName, final String jobId) {
+		final Job job = jobId == null ? null : getVault(vaultName).jobs.get(jobId);
+		if (job == null) {
+			throw notFound("Job not found for ID: " + jobId);
+		}
+		return job;
+	}
+
+	/**
+	 * List jobs, a page at a time, optionally only the completed or the in progress ones.
+	 *
+	 * @param vaultName the vault name
+	 * @param completed true for the completed jobs, false for the in progress ones, null for every job
+	 * @param marker the id of the first job of the page, null for the first page
+	 * @param limit the page size
+	 * @return the page
+	 */
+	public Page<Job> listJobs(final String vaultName, final Boolean completed, final String marker,
+			final int limit) {
+		final NavigableMap<String, Job> jobs = new ConcurrentSkipListMap<String, Job>();
+		for (final Job job : getVault(vaultName).jobs.values()) {
+			if (completed == null || completed.booleanValue() == job.isCompleted()) {
+				jobs.put(job.jobId, job);
+			}
+		}
+		return page(jobs, marker, limit);
+	}
+
+	/**
+	 * Get the output of a completed job, the whole output or the requested range of it. Tree hash of the range
+	 * is given if it is aligned to megabytes, like glacier does for tree hash aligned ranges.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param range the range, as bytes=start-end, null for the whole output
+	 * @return the job output
+	 */
+	public JobOutput getJobOutput(final String vaultName, final String jobId, final String range) {
+		final Job job = getJob(vaultName, jobId);
+		if (!job.isCompleted()) {
+			throw invalid("The job is not currently available for download: " + job.jobId);
+		}
+		final int outputLength = job.output.length;
+		int start = 0;
+		int end = outputLength - 1;
+		if (range != null) {
+			if (!range.matches("bytes=\\d+-\\d*")) {
+				throw invalid("Invalid range: " + range);
+			}
+			final int separator = range.indexOf('-');
+			start = Integer.parseInt(range.substring(6, separator));
+			if (separator < range.length() - 1) {
+				end = (int) Math.min(end, Long.parseLong(range.substring(separator + 1)));
+			}
+			if (start > end) {
+				throw invalid("Range: " + range + " is not satisfiable for output of: " + outputLength + " bytes");
+			}
+		}
+		String treeHash = null;
+		if (job.archive != null && start % AWSUtilConstants.ONE_MB == 0
+				&& ((end + 1) % AWSUtilConstants.ONE_MB == 0 || end == outputLength - 1)) {
+			treeHash = start == 0 && end == outputLength - 1 ? job.treeHash
+					: TreeHash.toHex(TreeHash.hash(job.output, start, end - start + 1));
+		}
+		return new JobOutput(job, start, end - start + 1,
+				range == null ? null : "bytes " + start + "-" + end + "/" + outputLength, treeHash);
+	}
+
+	/**
+	 * Store an archive.
+	 *
+	 * @param vault the vault
+	 * @param description the description
+	 * @param content the content
+	 * @return the archive
+	 */
+	private static Archive store(final Vault vault, final String description, final byte[] content) {
+		final Archive archive = new Archive(description, content);
+		vault.archives.put(archive.archiveId, archive);
+		return archive;
+	}
+
+	/**
+	 * Retrieval range of an archive job, the whole archive if none is given. Range has to start at a megabyte
+	 * and end at a megabyte or at the end of the archive.
+	 *
+	 * @param archive the archive
+	 * @param byteRange the byte range
+	 * @return the retrieval range as start and end, both inclusive
+	 */
+	private static long[] retrievalRange(final Archive archive, final String byteRange) {
+		final long size = archive.content.length;
+		if (byteRange == null) {
+			return new long[] { 0, size - 1 };
+		}
+		final int separator = byteRange.indexOf('-');
+		final long start;
+		final long end;
+		try {
+			start = Long.parseLong(byteRange.substring(0, separator));
+			end = Long.parseLong(byteRange.substring(separator + 1));
+		} catch (NumberFormatException | StringIndexOutOfBoundsException formatEx) {
+			throw invalid("Invalid retrieval byte range: " + byteRange);
+		}
+		if (start % AWSUtilConstants.ONE_MB != 0 || start > end || end >= size
+				|| (end + 1) % AWSUtilConstants.ONE_MB != 0 && end != size - 1) {
+			throw invalid("Retrieval byte range: " + byteRange + " is not megabyte aligned within: " + size);
+		}
+		return new long[] { start, end };
+	}
+
+	/**
+	 * Inventory of the vault, in the JSON format of glacier.
+	 *
+	 * @param vault the vault
+	 * @return the inventory output
+	 * @throws IOException the IO exception
+	 */
+	private static byte[] inventory(final Vault vault) throws IOException {
+		final ByteArrayOutputStream inventory = new ByteArrayOutputStream();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(inventory)) {
+			generator.writeStartObject();
+			generator.writeStringField("VaultARN", vault.vaultArn);
+			generator.writeStringField("InventoryDate", DateUtils.formatISO8601Date(new Date()));
+			generator.writeArrayFieldStart("ArchiveList");
+			for (final Archive archive : vault.archives.values()) {
+				generator.writeStartObject();
+				generator.writeStringField("ArchiveId", archive.archiveId);
+				generator.writeStringField("ArchiveDescription",
+						archive.description == null ? "" : archive.description);
+				generator.writeStringField("CreationDate", archive.creationDate);
+				generator.writeNumberField("Size", archive.content.length);
+				generator.writeStringField("SHA256TreeHash", archive.treeHash);
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		return inventory.toByteArray();
+	}
+
+	/**
+	 * Check the tree hash of the content against the one sent by the client.
+	 *
+	 * @param content the content
+	 * @param treeHash the tree hash
+	 */
+	private static void checkTreeHash(final byte[] content, final String treeHash) {
+		final String actual = TreeHash.toHex(TreeHash.hash(content, 0, content.length));
+		if (!actual.equalsIgnoreCase(treeHash)) {
+			throw invalid("Checksum mismatch: expected " + treeHash + " but got " + actual);
+		}
+	}
+
+	/**
+	 * Page of a listing, starting at the marker.
+	 *
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 * @param entries the entries
+	 * @param marker the key of the first entry of the page, null for the first page
+	 * @param limit the page size
+	 * @return the page
+	 */
+	private static <K, V> Page<V> page(final NavigableMap<K, V> entries, final K marker, final int limit) {
+		final List<V> items = new ArrayList<V>();
+		K nextMarker = null;
+		for (final Map.Entry<K, V> entry : (marker == null ? entries : entries.tailMap(marker, true)).entrySet()) {
+			if (items.size() == limit) {
+				nextMarker = entry.getKey();
+				break;
+			}
+			items.add(entry.getValue());
+		}
+		return new Page<V>(items, nextMarker == null ? null : String.valueOf(nextMarker));
+	}
+
+	/**
+	 * New random id, of url safe characters.
+	 *
+	 * @return the id
+	 */
+	private static String newId() {
+		return (UUID.randomUUID().toString() + UUID.randomUUID().toString()).replace("-", "");
+	}
+
+	/**
+	 * A page of a listing.
+	 *
+	 * @param <T> the item type
+	 */
+	public static final class Page<T> {
+
+		/** The items. */
+		private final List<T> items;
+
+		/** The marker of the next page. */
+		private final String marker;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param items the items
+		 * @param marker the marker of the next page, null if this page is the last one
+		 */
+		private Page(final List<T> items, final String marker) {
+			this.items = Collections.unmodifiableList(items);
+			this.marker = marker;
+		}
+
+		/**
+		 * Gets the items.
+		 *
+		 * @return the items
+		 */
+		public List<T> getItems() {
+			return items;
+		}
+
+		/**
+		 * Gets the marker of the next page.
+		 *
+		 * @return the marker, null if this page is the last one
+		 */
+		public String getMarker() {
+			return marker;
+		}
+	}
+
+	/**
+	 * A vault.
+	 */
+	public static final class Vault {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The vault arn. */
+		private final String vaultArn;
+
+		/** The creation date. */
+		private final String creationDate = DateUtils.formatISO8601Date(new Date());
+
+		/** The archives, keyed by id. */
+		private final NavigableMap<String, Archive> archives = new ConcurrentSkipListMap<String, Archive>();
+
+		/** The multipart uploads, keyed by id. */
+		private final Map<String, Upload> uploads = new ConcurrentSkipListMap<String, Upload>();
+
+		/** The jobs, keyed by id. */
+		private final Map<String, Job> jobs = new ConcurrentSkipListMap<String, Job>();
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 */
+		private Vault(final String vaultName) {
+			this.vaultName = vaultName;
+			this.vaultArn = VAULT_ARN_PREFIX + vaultName;
+		}
+
+		/**
+		 * Gets the vault name.
+		 *
+		 * @return the vault name
+		 */
+		public String getVaultName() {
+			return vaultName;
+		}
+
+		/**
+		 * Gets the vault arn.
+		 *
+		 * @return the vault arn
+		 */
+		public String getVaultArn() {
+			return vaultArn;
+		}
+
+		/**
+		 * Gets the creation date.
+		 *
+		 * @return the creation date, in ISO 8601 format
+		 */
+		public String getCreationDate() {
+			return creationDate;
+		}
+
+		/**
+		 * Gets the number of archives.
+		 *
+		 * @return the number of archives
+		 */
+		public int getNumberOfArchives() {
+			return archives.size();
+		}
+
+		/**
+		 * Gets the size in bytes of the archives.
+		 *
+		 * @return the size in bytes
+		 */
+		public long getSizeInBytes() {
+			long sizeInBytes = 0;
+			for (final Archive archive : archives.values()) {
+				sizeInBytes += archive.content.length;
+			}
+			return sizeInBytes;
+		}
+	}
+
+	/**
+	 * A stored archive.
+	 */
+	public static final class Archive {
+
+		/** The archive id. */
+		private final String archiveId = newId();
+
+		/** The creation date. */
+		private final String creationDate = DateUtils.formatISO8601Date(new Date());
+
+		/** The description. */
+		private final String description;
+
+		/** The content. */
+		private final byte[] content;
+
+		/** The tree hash. */
+		private final String treeHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param description the description
+		 * @param content the content
+		 */
+		private Archive(final String description, final byte[] content) {
+			this.description = description;
+			this.content = content;
+			this.treeHash = TreeHash.toHex(TreeHash.hash(content, 0, content.length));
+		}
+
+		/**
+		 * Gets the archive id.
+		 *
+		 * @return the archive id
+		 */
+		public String getArchiveId() {
+			return archiveId;
+		}
+
+		/**
+		 * Gets the creation date.
+		 *
+		 * @return the creation date, in ISO 8601 format
+		 */
+		public String getCreationDate() {
+			return creationDate;
+		}
+
+		/**
+		 * Gets the description.
+		 *
+		 * @return the description, null if the archive has none
+		 */
+		public String getDescription() {
+			return description;
+		}
+
+		/**
+		 * Gets the content, which is not to be modified.
+		 *
+		 * @return the content
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * Gets the tree hash.
+		 *
+		 * @return the tree hash
+		 */
+		public String getTreeHash() {
+			return treeHash;
+		}
+	}
+
+	/**
+	 * A multipart upload in progress.
+	 */
+	public static final class Upload {
+
+		/** The upload id. */
+		private final String uploadId = newId();
+
+		/** The creation date. */
+		private final String creationDate = DateUtils.formatISO8601Date(new Date());
+
+		/** The part size. */
+		private final long partSize;
+
+		/** The description. */
+		private final String description;
+
+		/** The uploaded parts, keyed by start offset. */
+		private final NavigableMap<Long, Part> parts = new ConcurrentSkipListMap<Long, Part>();
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param partSize the part size
+		 * @param description the description
+		 */
+		private Upload(final long partSize, final String description) {
+			this.partSize = partSize;
+			this.description = description;
+		}
+
+		/**
+		 * Gets the upload id.
+		 *
+		 * @return the upload id
+		 */
+		public String getUploadId() {
+			return uploadId;
+		}
+
+		/**
+		 * Gets the creation date.
+		 *
+		 * @return the creation date, in ISO 8601 format
+		 */
+		public String getCreationDate() {
+			return creationDate;
+		}
+
+		/**
+		 * Gets the part size.
+		 *
+		 * @return the part size
+		 */
+		public long getPartSize() {
+			return partSize;
+		}
+
+		/**
+		 * Gets the description.
+		 *
+		 * @return the description, null if the archive has none
+		 */
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/**
+	 * An uploaded part.
+	 */
+	public static final class Part {
+
+		/** The start offset. */
+		private final long start;
+
+		/** The content. */
+		private final byte[] content;
+
+		/** The tree hash. */
+		private final String treeHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param start the start offset
+		 * @param content the content
+		 * @param treeHash the tree hash
+		 */
+		private Part(final long start, final byte[] content, final String treeHash) {
+			this.start = start;
+			this.content = content;
+			this.treeHash = treeHash;
+		}
+
+		/**
+		 * Gets the range in bytes of the part.
+		 *
+		 * @return the range, as start-end
+		 */
+		public String getRangeInBytes() {
+			return start + "-" + (start + content.length - 1);
+		}
+
+		/**
+		 * Gets the tree hash.
+		 *
+		 * @return the tree hash
+		 */
+		public String getTreeHash() {
+			return treeHash;
+		}
+	}
+
+	/**
+	 * A retrieval job, which completes after its completion time.
+	 */
+	public static final class Job {
+
+		/** The job id. */
+		private final String jobId = newId();
+
+		/** The creation millis. */
+		private final long creationMillis = System.currentTimeMillis();
+
+		/** The completion millis. */
+		private final long completionMillis;
+
+		/** The description. */
+		private final String description;
+
+		/** The archive, null for an inventory job. */
+		private final Archive archive;
+
+		/** The retrieval byte range, null for an inventory job. */
+		private final String byteRange;
+
+		/** The output. */
+		private final byte[] output;
+
+		/** The tree hash of the output, null for an inventory job. */
+		private final String treeHash;
+
+		/**
+		 * The Constructor of an archive retrieval job.
+		 *
+		 * @param archive the archive
+		 * @param range the range as start and end, both inclusive
+		 * @param description the description
+		 * @param completionMillis the completion millis
+		 */
+		private Job(final Archive archive, final long[] range, final String description,
+				final long completionMillis) {
+			this.completionMillis = completionMillis;
+			this.description = description;
+			this.archive = archive;
+			this.byteRange = archive.content.length == 0 ? null : range[0] + "-" + range[1];
+			this.output = range[0] == 0 && range[1] == archive.content.length - 1 ? archive.content
+					: Arrays.copyOfRange(archive.content, (int) range[0], (int) range[1] + 1);
+			this.treeHash = TreeHash.toHex(TreeHash.hash(output, 0, output.length));
+		}
+
+		/**
+		 * The Constructor of an inventory retrieval job.
+		 *
+		 * @param inventory the inventory
+		 * @param description the description
+		 * @param completionMillis the completion millis
+		 */
+		private Job(final byte[] inventory, final String description, final long completionMillis) {
+			this.completionMillis = completionMillis;
+			this.description = description;
+			this.archive = null;
+			this.byteRange = null;
+			this.output = inventory;
+			this.treeHash = null;
+		}
+
+		/**
+		 * Gets the job id.
+		 *
+		 * @return the job id
+		 */
+		public String getJobId() {
+			return jobId;
+		}
+
+		/**
+		 * Gets the creation date.
+		 *
+		 * @return the creation date, in ISO 8601 format
+		 */
+		public String getCreationDate() {
+			return DateUtils.formatISO8601Date(new Date(creationMillis));
+		}
+
+		/**
+		 * Gets the completion date.
+		 *
+		 * @return the completion date, in ISO 8601 format
+		 */
+		public String getCompletionDate() {
+			return DateUtils.formatISO8601Date(new Date(creationMillis + completionMillis));
+		}
+
+		/**
+		 * Gets the description.
+		 *
+		 * @return the description
+		 */
+		public String getDescription() {
+			return description;
+		}
+
+		/**
+		 * Gets the archive.
+		 *
+		 * @return the archive, null for an inventory job
+		 */
+		public Archive getArchive() {
+			return archive;
+		}
+
+		/**
+		 * Gets the retrieval byte range.
+		 *
+		 * @return the retrieval byte range, null for an inventory job
+		 */
+		public String getByteRange() {
+			return byteRange;
+		}
+
+		/**
+		 * Gets the output size.
+		 *
+		 * @return the output size
+		 */
+		public int getOutputSize() {
+			return output.length;
+		}
+
+		/**
+		 * Gets the tree hash of the output.
+		 *
+		 * @return the tree hash, null for an inventory job
+		 */
+		public String getTreeHash() {
+			return treeHash;
+		}
+
+		/**
+		 * Checks if is completed.
+		 *
+		 * @return true, if is completed
+		 */
+		public boolean isCompleted() {
+			return System.currentTimeMillis() - creationMillis >= completionMillis;
+		}
+	}
+
+	/**
+	 * The output of a completed job, or the requested range of it.
+	 */
+	public static final class JobOutput {
+
+		/** The job. */
+		private final Job job;
+
+		/** The offset of the range in the output. */
+		private final int offset;
+
+		/** The length of the range. */
+		private final int length;
+
+		/** The content range, null if the whole output was requested. */
+		private final String contentRange;
+
+		/** The tree hash of the range, null if the range is not tree hash aligned. */
+		private final String treeHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param job the job
+		 * @param offset the offset
+		 * @param length the length
+		 * @param contentRange the content range
+		 * @param treeHash the tree hash
+		 */
+		private JobOutput(final Job job, final int offset, final int length, final String contentRange,
+				final String treeHash) {
+			this.job = job;
+			this.offset = offset;
+			this.length = length;
+			this.contentRange = contentRange;
+			this.treeHash = treeHash;
+		}
+
+		/**
+		 * Gets the job.
+		 *
+		 * @return the job
+		 */
+		public Job getJob() {
+			return job;
+		}
+
+		/**
+		 * Gets the output of the job, of which the range is sent. It is not to be modified.
+		 *
+		 * @return the output
+		 */
+		public byte[] getOutput() {
+			return job.output;
+		}
+
+		/**
+		 * Gets the offset of the range in the output.
+		 *
+		 * @return the offset
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Gets the length of the range.
+		 *
+		 * @return the length
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Gets the content range.
+		 *
+		 * @return the content range, as bytes start-end/size, null if the whole output was requested
+		 */
+		public String getContentRange() {
+			return contentRange;
+		}
+
+		/**
+		 * Gets the tree hash of the range.
+		 *
+		 * @return the tree hash, null if the range is not tree hash aligned
+		 */
+		public String getTreeHash() {
+			return treeHash;
+		}
+	}
+}
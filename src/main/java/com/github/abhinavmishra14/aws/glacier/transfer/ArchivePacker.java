@@ -0,0 +1,357 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService;
+import com.github.abhinavmishra14.aws.glacier.transfer.PackingInputStream.PackedSource;
+import com.github.abhinavmishra14.aws.util.AWSUtilConstants;
+import com.github.abhinavmishra14.aws.util.DirectoryTraverser;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+import com.github.abhinavmishra14.aws.util.TraversalErrorHandler;
+import com.github.abhinavmishra14.aws.util.TraversalIterator;
+import com.github.abhinavmishra14.aws.util.TraversedFile;
+
+/**
+ * The Class ArchivePacker.<br/>
+ * Archives a directory tree holding a lot of small files. Files smaller than
+ * {@link TransferConfig#getPackThreshold()} are streamed one after another into container archives
+ * of about {@link TransferConfig#getContainerSize()} bytes, so a million small files cost a few
+ * hundred requests instead of a million. Larger files are archived one by one, at the same time
+ * as the containers are being uploaded.<br/>
+ * Every container gets a {@link ContainerIndex}, which is written to the index directory as
+ * <code>&lt;container description&gt;.index</code> and is also appended to the container itself. A
+ * single packed file can later be restored with a ranged retrieval, see
+ * {@link ContainerIndex.PackedFile#getRetrievalByteRange(long)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ArchivePacker {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchivePacker.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-pack";
+
+	/** The Constant INDEX_FILE_SUFFIX. */
+	public static final String INDEX_FILE_SUFFIX = ".index";
+
+	/** The archive service. */
+	private final GlacierArchiveService archiveService;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveService the archive service used to upload containers and large files
+	 * @param transferConfig the transfer config
+	 */
+	public ArchivePacker(final GlacierArchiveService archiveService, final TransferConfig transferConfig) {
+		super();
+		this.archiveService = archiveService;
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Checks if the stream is a container being uploaded by a packer. Containers have to be archived as
+	 * they are, e.g. not compressed, since their indexes address the bytes of the container.
+	 *
+	 * @param inputStream the input stream
+	 * @return true, if the stream is a container
+	 */
+	public static boolean isContainer(final InputStream inputStream) {
+		return inputStream instanceof PackingInputStream;
+	}
+
+	/**
+	 * Pack and archive every file of the directory tree.<br/>
+	 * Result sink receives, for each file, the archive id of its container (or of its own archive,
+	 * for large files). Files which fail are reported to the result sink and do not stop the others.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param indexDirectory the directory where container indexes are written
+	 * @param resultSink the result sink
+	 * @return the index files of the uploaded containers
+	 * @throws IOException the IO exception
+	 */
+	public List<File> pack(final String vaultName, final File directory, final File indexDirectory,
+			final ArchiveResultSink resultSink) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new FileNotFoundException("Directory does not exist: " + directory);
+		}
+		if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+			throw new IOException("Could not create index directory: " + indexDirectory);
+		}
+		final List<File> indexFiles = new ArrayList<File>();
+		final int workerCount = transferConfig.getFileConcurrency();
+		// Large files are uploaded by the workers, the packing thread uploads them itself while the queue is full
+		final ThreadPoolExecutor largeFileWorkers = new ThreadPoolExecutor(workerCount, workerCount, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(transferConfig.getTraversalQueueSize()),
+				new NamedThreadFactory(THREAD_NAME_PREFIX), new ThreadPoolExecutor.CallerRunsPolicy());
+		final String containerPrefix = "pack-" + System.currentTimeMillis() + "-";
+		LOGGER.info("Packing directory: {} to vault: {}", directory, vaultName);
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(directory,
+				transferConfig.getTraversalOptions(), errorHandler(resultSink))) {
+			final SmallFileIterator smallFiles = new SmallFileIterator(vaultName, directory.toPath(), traversal,
+					largeFileWorkers, resultSink);
+			int containerCount = 0;
+			while (smallFiles.hasNext()) {
+				final String description = containerPrefix + String.format("%05d", ++containerCount);
+				final File indexFile = uploadContainer(vaultName, description, smallFiles, indexDirectory, resultSink);
+				if (indexFile != null) {
+					indexFiles.add(indexFile);
+				}
+			}
+			largeFileWorkers.shutdown();
+			largeFileWorkers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			LOGGER.info("Packed directory: {} to vault: {} into {} containers", directory, vaultName,
+					indexFiles.size());
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Directory packing interrupted: " + directory);
+		} finally {
+			largeFileWorkers.shutdownNow();
+		}
+		return indexFiles;
+	}
+
+	/**
+	 * Upload a single container, filled from the small files.
+	 *
+	 * @param vaultName the vault name
+	 * @param description the container description
+	 * @param smallFiles the small files
+	 * @param indexDirectory the index directory
+	 * @param resultSink the result sink
+	 * @return the index file, null if the container could not be uploaded
+	 * @throws IOException if the index could not be written
+	 */
+	private File uploadContainer(final String vaultName, final String description,
+			final Iterator<PackedSource> smallFiles, final File indexDirectory, final ArchiveResultSink resultSink)
+			throws IOException {
+		final PackingInputStream container = new PackingInputStream(smallFiles, transferConfig.getContainerSize(),
+				description, resultSink);
+		final UploadResult uploadResult;
+		try {
+			uploadResult = archiveService.archive(vaultName, container, description);
+		} catch (IOException | AmazonClientException uploadEx) {
+			LOGGER.error("Failed to archive container: " + description, uploadEx);
+			for (final File packedFile : container.getPackedFiles()) {
+				resultSink.failed(packedFile, uploadEx);
+			}
+			return null;
+		} finally {
+			container.close();
+		}
+		final ContainerIndex index = container.getIndex();
+		index.uploaded(uploadResult.getArchiveId(), container.getPosition());
+		final File indexFile = new File(indexDirectory, description + INDEX_FILE_SUFFIX);
+		index.writeTo(indexFile);
+		LOGGER.info("Archived container: {} holding {} files, {} bytes", description, index.getEntries().size(),
+				index.getArchiveSize());
+		for (final File packedFile : container.getPackedFiles()) {
+			resultSink.archived(packedFile, uploadResult.getArchiveId());
+		}
+		return indexFile;
+	}
+
+	/**
+	 * Error handler which reports directories that can not be traversed to the result sink.
+	 *
+	 * @param resultSink the result sink
+	 * @return the traversal error handler
+	 */
+	private static TraversalErrorHandler errorHandler(final ArchiveResultSink resultSink) {
+		return new TraversalErrorHandler() {
+			@Override
+			public void traversalFailed(final Path path, final IOException cause) {
+				LOGGER.warn("Could not traverse: {}", path, cause);
+				resultSink.failed(path.toFile(), cause);
+			}
+		};
+	}
+
+	/**
+	 * Path of a file relative to the directory being packed.
+	 *
+	 * @param directory the directory
+	 * @param file the file
+	 * @return the relative path, using '/' as separator
+	 */
+	private static String relativePath(final Path directory, final Path file) {
+		return directory.relativize(file).toString().replace(File.separatorChar,
+				AWSUtilConstants.SEPARATOR.charAt(0));
+	}
+
+	/**
+	 * The Class SmallFileIterator.<br/>
+	 * Iterates the files to be packed out of the traversal, handing the large files over to the
+	 * large file workers as they are found.
+	 */
+	private final class SmallFileIterator implements Iterator<PackedSource> {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The directory. */
+		private final Path directory;
+
+		/** The traversal. */
+		private final TraversalIterator traversal;
+
+		/** The large file workers. */
+		private final ThreadPoolExecutor largeFileWorkers;
+
+		/** The result sink. */
+		private final ArchiveResultSink resultSink;
+
+		/** The next small file. */
+		private PackedSource nextFile;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param directory the directory
+		 * @param traversal the traversal
+		 * @param largeFileWorkers the large file workers
+		 * @param resultSink the result sink
+		 */
+		SmallFileIterator(final String vaultName, final Path directory, final TraversalIterator traversal,
+				final ThreadPoolExecutor largeFileWorkers, final ArchiveResultSink resultSink) {
+			this.vaultName = vaultName;
+			this.directory = directory;
+			this.traversal = traversal;
+			this.largeFileWorkers = largeFileWorkers;
+			this.resultSink = resultSink;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			while (nextFile == null && traversal.hasNext()) {
+				final TraversedFile entry = traversal.next();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				final String path = relativePath(directory, entry.getPath());
+				if (entry.getSize() < transferConfig.getPackThreshold()) {
+					nextFile = new PackedSource(entry.getFile(), path);
+				} else {
+					largeFileWorkers.execute(UploadCancellation.propagate(
+							new LargeFileUpload(vaultName, entry.getFile(), path, resultSink)));
+				}
+			}
+			return nextFile != null;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public PackedSource next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final PackedSource packedSource = nextFile;
+			nextFile = null;
+			return packedSource;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The Class LargeFileUpload.<br/>
+	 * Archives a file which is too large to be packed as an archive of its own.
+	 */
+	private final class LargeFileUpload implements Runnable {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The file. */
+		private final File file;
+
+		/** The description. */
+		private final String description;
+
+		/** The result sink. */
+		private final ArchiveResultSink resultSink;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param file the file
+		 * @param description the description
+		 * @param resultSink the result sink
+		 */
+		LargeFileUpload(final String vaultName, final File file, final String description,
+				final ArchiveResultSink resultSink) {
+			this.vaultName = vaultName;
+			this.file = file;
+			this.description = description;
+			this.resultSink = resultSink;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				resultSink.archived(file, archiveService.archive(vaultName, file, description).getArchiveId());
+			} catch (IOException | AmazonClientException uploadEx) {
+				LOGGER.error("Failed to archive file: " + file, uploadEx);
+				resultSink.failed(file, uploadEx);
+			}
+		}
+	}
+}
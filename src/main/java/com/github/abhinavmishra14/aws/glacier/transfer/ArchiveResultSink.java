@@ -0,0 +1,47 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.File;
+
+/**
+ * The Interface ArchiveResultSink.<br/>
+ * Receives the outcome of every file archived by {@link DirectoryArchiver}. Methods are called
+ * by many upload workers at the same time, hence implementations must be thread safe.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface ArchiveResultSink {
+
+	/**
+	 * Called when a file is archived.
+	 *
+	 * @param file the file
+	 * @param archiveId the archive id
+	 */
+	void archived(File file, String archiveId);
+
+	/**
+	 * Called when a file could not be archived, or a directory could not be traversed.
+	 *
+	 * @param file the file or directory
+	 * @param cause the cause
+	 */
+	void failed(File file, Exception cause);
+}
@@ -0,0 +1,96 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import com.amazonaws.services.glacier.transfer.UploadResult;
+
+/**
+ * The Class ArchiveUploadResult.<br/>
+ * Upload result returned by {@link ParallelMultipartUploader}, it carries the tree hash and size of
+ * the archive along with the archive id, since both are known once the upload is completed.<br/>
+ * A duplicate result is returned when the content was already archived in the vault, in which case
+ * nothing was uploaded and the archive id is the id of the existing archive.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ArchiveUploadResult extends UploadResult {
+
+	/** The checksum. */
+	private final String checksum;
+
+	/** The archive size. */
+	private final long archiveSize;
+
+	/** The duplicate. */
+	private final boolean duplicate;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveId the archive id
+	 * @param checksum the tree hash of the archive, hex encoded
+	 * @param archiveSize the archive size
+	 */
+	public ArchiveUploadResult(final String archiveId, final String checksum, final long archiveSize) {
+		this(archiveId, checksum, archiveSize, false);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveId the archive id
+	 * @param checksum the tree hash of the archive, hex encoded
+	 * @param archiveSize the archive size
+	 * @param duplicate true if the upload was skipped since the archive already existed
+	 */
+	public ArchiveUploadResult(final String archiveId, final String checksum, final long archiveSize,
+			final boolean duplicate) {
+		super(archiveId);
+		this.checksum = checksum;
+		this.archiveSize = archiveSize;
+		this.duplicate = duplicate;
+	}
+
+	/**
+	 * Gets the checksum.
+	 *
+	 * @return the tree hash of the archive, hex encoded
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Gets the archive size.
+	 *
+	 * @return the archive size
+	 */
+	public long getArchiveSize() {
+		return archiveSize;
+	}
+
+	/**
+	 * Checks if the upload was skipped.
+	 *
+	 * @return true, if the content was already archived and nothing was uploaded
+	 */
+	public boolean isDuplicate() {
+		return duplicate;
+	}
+}
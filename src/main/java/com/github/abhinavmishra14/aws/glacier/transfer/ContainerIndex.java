@@ -0,0 +1,397 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * The Class ContainerIndex.<br/>
+ * Index of a container archive produced by {@link ArchivePacker}. It holds path, offset, length
+ * and SHA-256 hash of every file packed into the container, so that a single file can be restored
+ * using a ranged retrieval job instead of retrieving the whole container.<br/>
+ * Layout of a container is:
+ * <pre>
+ * [file data][file data]...[gzipped index][index length: 8 bytes][magic: 8 bytes]
+ * </pre>
+ * A copy of the index travels at the end of the container, so it can be rebuilt by retrieving the
+ * last megabyte(s) of the archive when the local copy is lost.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ContainerIndex {
+
+	/** The Constant FOOTER_LENGTH. Length of the fixed footer at the end of a container. */
+	public static final int FOOTER_LENGTH = 16;
+
+	/** The Constant FOOTER_MAGIC. */
+	private static final long FOOTER_MAGIC = 0x474C435250414B31L; // "GLCRPAK1"
+
+	/** The Constant INDEX_MAGIC. */
+	private static final int INDEX_MAGIC = 0x47504958; // "GPIX"
+
+	/** The Constant INDEX_VERSION. */
+	private static final int INDEX_VERSION = 1;
+
+	/** The Constant HASH_LENGTH. */
+	private static final int HASH_LENGTH = 32;
+
+	/** The archive id. */
+	private String archiveId;
+
+	/** The description. */
+	private final String description;
+
+	/** The archive size. */
+	private long archiveSize;
+
+	/** The entries. */
+	private final List<PackedFile> entries;
+
+	/** The entries by path, built on first lookup. */
+	private Map<String, PackedFile> entriesByPath;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param description the container archive description
+	 */
+	ContainerIndex(final String description) {
+		this(null, description, 0, new ArrayList<PackedFile>());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveId the archive id
+	 * @param description the description
+	 * @param archiveSize the archive size
+	 * @param entries the entries
+	 */
+	private ContainerIndex(final String archiveId, final String description, final long archiveSize,
+			final List<PackedFile> entries) {
+		this.archiveId = archiveId;
+		this.description = description;
+		this.archiveSize = archiveSize;
+		this.entries = entries;
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id of the container, null when the index was read from the container itself
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Gets the description.
+	 *
+	 * @return the archive description of the container
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gets the archive size.
+	 *
+	 * @return the size of the container archive including the index, 0 when it is not known
+	 */
+	public long getArchiveSize() {
+		return archiveSize;
+	}
+
+	/**
+	 * Gets the entries.
+	 *
+	 * @return the packed files, in the order they are stored in the container
+	 */
+	public List<PackedFile> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Find a packed file by its path.
+	 *
+	 * @param path the path relative to the packed directory, using '/' as separator
+	 * @return the packed file, null if the container does not have the path
+	 */
+	public synchronized PackedFile find(final String path) {
+		if (entriesByPath == null) {
+			entriesByPath = new HashMap<String, PackedFile>(entries.size() * 2);
+			for (final PackedFile entry : entries) {
+				entriesByPath.put(entry.getPath(), entry);
+			}
+		}
+		return entriesByPath.get(path);
+	}
+
+	/**
+	 * Adds the entry.
+	 *
+	 * @param entry the entry
+	 */
+	void add(final PackedFile entry) {
+		entries.add(entry);
+	}
+
+	/**
+	 * Sets the archive id and size, once the container is uploaded.
+	 *
+	 * @param archiveId the archive id
+	 * @param archiveSize the archive size
+	 */
+	void uploaded(final String archiveId, final long archiveSize) {
+		this.archiveId = archiveId;
+		this.archiveSize = archiveSize;
+	}
+
+	/**
+	 * Write the index to a file.
+	 *
+	 * @param indexFile the index file
+	 * @throws IOException the IO exception
+	 */
+	public void writeTo(final File indexFile) throws IOException {
+		try (OutputStream outStream = new BufferedOutputStream(new FileOutputStream(indexFile))) {
+			writeTo(outStream);
+		}
+	}
+
+	/**
+	 * Write the index, gzipped, to the stream. Stream is not closed.
+	 *
+	 * @param outStream the out stream
+	 * @throws IOException the IO exception
+	 */
+	public void writeTo(final OutputStream outStream) throws IOException {
+		final GZIPOutputStream gzipStream = new GZIPOutputStream(outStream);
+		final DataOutputStream dataStream = new DataOutputStream(gzipStream);
+		dataStream.writeInt(INDEX_MAGIC);
+		dataStream.writeInt(INDEX_VERSION);
+		dataStream.writeUTF(archiveId == null ? "" : archiveId);
+		dataStream.writeUTF(description);
+		dataStream.writeLong(archiveSize);
+		dataStream.writeInt(entries.size());
+		for (final PackedFile entry : entries) {
+			dataStream.writeUTF(entry.getPath());
+			dataStream.writeLong(entry.getOffset());
+			dataStream.writeLong(entry.getLength());
+			dataStream.write(entry.sha256);
+		}
+		dataStream.flush();
+		gzipStream.finish();
+	}
+
+	/**
+	 * Read an index from a file.
+	 *
+	 * @param indexFile the index file
+	 * @return the container index
+	 * @throws IOException the IO exception
+	 */
+	public static ContainerIndex readFrom(final File indexFile) throws IOException {
+		try (InputStream inStream = new BufferedInputStream(new FileInputStream(indexFile))) {
+			return readFrom(inStream);
+		}
+	}
+
+	/**
+	 * Read an index, as written by {@link #writeTo(OutputStream)}, from the stream.
+	 *
+	 * @param inStream the in stream
+	 * @return the container index
+	 * @throws IOException the IO exception
+	 */
+	public static ContainerIndex readFrom(final InputStream inStream) throws IOException {
+		final DataInputStream dataStream = new DataInputStream(new GZIPInputStream(inStream));
+		if (dataStream.readInt() != INDEX_MAGIC) {
+			throw new IOException("Not a container index");
+		}
+		final int version = dataStream.readInt();
+		if (version != INDEX_VERSION) {
+			throw new IOException("Unsupported container index version: " + version);
+		}
+		final String archiveId = dataStream.readUTF();
+		final String description = dataStream.readUTF();
+		final long archiveSize = dataStream.readLong();
+		final int entryCount = dataStream.readInt();
+		final List<PackedFile> entries = new ArrayList<PackedFile>(entryCount);
+		for (int entryIndex = 0; entryIndex < entryCount; entryIndex++) {
+			final String path = dataStream.readUTF();
+			final long offset = dataStream.readLong();
+			final long length = dataStream.readLong();
+			final byte[] sha256 = new byte[HASH_LENGTH];
+			dataStream.readFully(sha256);
+			entries.add(new PackedFile(path, offset, length, sha256));
+		}
+		return new ContainerIndex(archiveId.isEmpty() ? null : archiveId, description, archiveSize, entries);
+	}
+
+	/**
+	 * Build the footer which closes a container.
+	 *
+	 * @param indexLength the length of the gzipped index preceding the footer
+	 * @return the footer bytes
+	 */
+	static byte[] footer(final long indexLength) {
+		return ByteBuffer.allocate(FOOTER_LENGTH).putLong(indexLength).putLong(FOOTER_MAGIC).array();
+	}
+
+	/**
+	 * Read the index length from the last {@link #FOOTER_LENGTH} bytes of a container.<br/>
+	 * The gzipped index occupies the index length bytes just before the footer.
+	 *
+	 * @param footer the footer
+	 * @return the index length
+	 * @throws IOException if the bytes are not a container footer
+	 */
+	public static long readIndexLength(final byte[] footer) throws IOException {
+		final ByteBuffer footerBuffer = ByteBuffer.wrap(footer);
+		if (footer.length != FOOTER_LENGTH || footerBuffer.getLong(Long.SIZE / Byte.SIZE) != FOOTER_MAGIC) {
+			throw new IOException("Not a container footer");
+		}
+		return footerBuffer.getLong(0);
+	}
+
+	/**
+	 * The Class PackedFile.<br/>
+	 * Location of a single file in a container.
+	 */
+	public static final class PackedFile {
+
+		/** The path. */
+		private final String path;
+
+		/** The offset. */
+		private final long offset;
+
+		/** The length. */
+		private final long length;
+
+		/** The sha256. */
+		private final byte[] sha256;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param path the path
+		 * @param offset the offset
+		 * @param length the length
+		 * @param sha256 the sha256
+		 */
+		PackedFile(final String path, final long offset, final long length, final byte[] sha256) {
+			this.path = path;
+			this.offset = offset;
+			this.length = length;
+			this.sha256 = sha256;
+		}
+
+		/**
+		 * Gets the path.
+		 *
+		 * @return the path relative to the packed directory, using '/' as separator
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Gets the offset.
+		 *
+		 * @return the offset of the file in the container
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Gets the length.
+		 *
+		 * @return the length
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * Gets the SHA-256 hash of the file content.
+		 *
+		 * @return the sha256, hex encoded
+		 */
+		public String getSha256() {
+			return BinaryUtils.toHex(sha256);
+		}
+
+		/**
+		 * Gets the retrieval byte range.<br/>
+		 * Glacier requires ranged retrievals to start at a megabyte boundary and end at a megabyte
+		 * boundary or at the end of the archive. Returned range is the smallest such range which covers
+		 * the file, the file starts at {@link #getOffsetInRange()} of the retrieved bytes.
+		 *
+		 * @param archiveSize the size of the container archive
+		 * @return the retrieval byte range, in the "start-end" form of a retrieval job request
+		 */
+		public String getRetrievalByteRange(final long archiveSize) {
+			final long rangeStart = offset / ONE_MB * ONE_MB;
+			final long alignedEnd = (offset + length + ONE_MB - 1) / ONE_MB * ONE_MB;
+			final long rangeEnd = Math.max(Math.min(alignedEnd, archiveSize), rangeStart + 1) - 1;
+			return rangeStart + "-" + rangeEnd;
+		}
+
+		/**
+		 * Gets the offset of the file in the bytes retrieved using {@link #getRetrievalByteRange(long)}.
+		 *
+		 * @return the offset in range
+		 */
+		public long getOffsetInRange() {
+			return offset % ONE_MB;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return path + "@" + offset + "+" + length;
+		}
+	}
+}
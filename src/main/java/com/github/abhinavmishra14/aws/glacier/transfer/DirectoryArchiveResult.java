@@ -0,0 +1,83 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class DirectoryArchiveResult.<br/>
+ * Result sink which keeps the archive id of every archived file and the failure of every file
+ * which could not be archived.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class DirectoryArchiveResult implements ArchiveResultSink {
+
+	/** The archive ids. */
+	private final Map<File, String> archiveIds = new ConcurrentHashMap<File, String>();
+
+	/** The failures. */
+	private final Map<File, Exception> failures = new ConcurrentHashMap<File, Exception>();
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.transfer.ArchiveResultSink#archived(java.io.File, java.lang.String)
+	 */
+	@Override
+	public void archived(final File file, final String archiveId) {
+		archiveIds.put(file, archiveId);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.transfer.ArchiveResultSink#failed(java.io.File, java.lang.Exception)
+	 */
+	@Override
+	public void failed(final File file, final Exception cause) {
+		failures.put(file, cause);
+	}
+
+	/**
+	 * Gets the archive ids.
+	 *
+	 * @return the archive ids keyed by file
+	 */
+	public Map<File, String> getArchiveIds() {
+		return Collections.unmodifiableMap(archiveIds);
+	}
+
+	/**
+	 * Gets the failures.
+	 *
+	 * @return the failures keyed by file
+	 */
+	public Map<File, Exception> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Checks for failures.
+	 *
+	 * @return true, if any of the files could not be archived
+	 */
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+}
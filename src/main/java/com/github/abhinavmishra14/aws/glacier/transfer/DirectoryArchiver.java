@@ -0,0 +1,331 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.util.AWSUtilConstants;
+import com.github.abhinavmishra14.aws.util.DirectoryTraverser;
+import com.github.abhinavmishra14.aws.util.TraversalErrorHandler;
+import com.github.abhinavmishra14.aws.util.TraversalIterator;
+import com.github.abhinavmishra14.aws.util.TraversedFile;
+
+/**
+ * The Class DirectoryArchiver.<br/>
+ * Archives every file of a directory tree, one archive per file, as a pipeline of three stages:
+ * <ul>
+ * <li>traversal, which walks the tree lazily using {@link DirectoryTraverser} on the calling thread and puts
+ * the files into a bounded queue,</li>
+ * <li>a pool of upload workers, which take the files from the queue and upload them,</li>
+ * <li>a {@link ArchiveResultSink}, which receives the archive id or failure of every file.</li>
+ * </ul>
+ * Uploads start as soon as the first file is found, traversal pauses whenever the queue is full.
+ * Number of files uploaded at the same time is {@link TransferConfig#getFileConcurrency()}, parts of
+ * a single file are limited by {@link TransferConfig#getConcurrency()} and upload requests in flight
+ * across all the files are limited by {@link TransferConfig#getMaxConcurrentRequests()}. Filters and parallel
+ * walking are set using {@link TransferConfig#getTraversalOptions()}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class DirectoryArchiver {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryArchiver.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-archive";
+
+	/** The Constant END_OF_FILES. Marks the end of traversal for the upload workers. */
+	private static final File END_OF_FILES = new File("");
+
+	/** The Constant QUEUE_POLL_SECONDS. */
+	private static final long QUEUE_POLL_SECONDS = 1;
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/** The catalog, null if uploads are not cataloged. */
+	private ArchiveCatalog catalog;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param transferConfig the transfer config
+	 */
+	public DirectoryArchiver(final AmazonGlacier glacierClient, final TransferConfig transferConfig) {
+		super();
+		this.glacierClient = glacierClient;
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Sets the catalog.<br/>
+	 * When set, every archived file is recorded in the catalog. Files already archived are skipped
+	 * if deduplication is enabled on the transfer config.
+	 *
+	 * @param catalog the catalog, null in order to stop cataloging
+	 */
+	public void setCatalog(final ArchiveCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	/**
+	 * Archive every file of the directory tree.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @return the directory archive result
+	 * @throws IOException the IO exception
+	 */
+	public DirectoryArchiveResult archive(final String vaultName, final File directory) throws IOException {
+		final DirectoryArchiveResult archiveResult = new DirectoryArchiveResult();
+		archive(vaultName, directory, archiveResult);
+		return archiveResult;
+	}
+
+	/**
+	 * Archive every file of the directory tree.<br/>
+	 * Description of each archive is the path of the file relative to the directory. Files which fail
+	 * are reported to the result sink and do not stop the other files.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param resultSink the result sink
+	 * @throws IOException the IO exception
+	 */
+	public void archive(final String vaultName, final File directory, final ArchiveResultSink resultSink)
+			throws IOException {
+		if (!directory.isDirectory()) {
+			throw new FileNotFoundException("Directory does not exist: " + directory);
+		}
+		final int workerCount = transferConfig.getFileConcurrency();
+		final BlockingQueue<File> fileQueue = new ArrayBlockingQueue<File>(transferConfig.getTraversalQueueSize());
+		final ParallelMultipartUploader uploader = new ParallelMultipartUploader(
+				RequestLimiter.limit(glacierClient, transferConfig.getMaxConcurrentRequests()), transferConfig);
+		final ExecutorService workers = transferConfig.getExecutorStrategy().newExecutor(THREAD_NAME_PREFIX,
+				workerCount);
+		final List<Future<Void>> workerFutures = new ArrayList<Future<Void>>(workerCount);
+		LOGGER.info("Archiving directory: {} to vault: {} using {} upload workers", directory, vaultName, workerCount);
+		try {
+			for (int workerIndex = 0; workerIndex < workerCount; workerIndex++) {
+				workerFutures.add(workers.submit(UploadCancellation.propagate(new UploadWorker(vaultName,
+						directory.toPath(), fileQueue, uploader, catalog, transferConfig.isDeduplicate(),
+						resultSink))));
+			}
+			traverse(directory, fileQueue, workerFutures, resultSink);
+			for (int workerIndex = 0; workerIndex < workerCount; workerIndex++) {
+				enqueue(fileQueue, END_OF_FILES, workerFutures);
+			}
+			for (final Future<Void> workerFuture : workerFutures) {
+				workerFuture.get();
+			}
+			LOGGER.info("Archived directory: {} to vault: {}", directory, vaultName);
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Directory archive interrupted: " + directory);
+		} catch (ExecutionException execEx) {
+			throw new AmazonClientException("Upload worker failed: " + execEx.getCause().getMessage(),
+					execEx.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Traverse the directory and put every file into the queue, directories which can not be read are
+	 * reported to the result sink and skipped.
+	 *
+	 * @param directory the directory
+	 * @param fileQueue the file queue
+	 * @param workerFutures the worker futures
+	 * @param resultSink the result sink
+	 * @throws IOException the IO exception
+	 * @throws InterruptedException the interrupted exception
+	 * @throws ExecutionException the execution exception
+	 */
+	private void traverse(final File directory, final BlockingQueue<File> fileQueue,
+			final List<Future<Void>> workerFutures, final ArchiveResultSink resultSink) throws IOException,
+			InterruptedException, ExecutionException {
+		final TraversalErrorHandler errorHandler = new TraversalErrorHandler() {
+			@Override
+			public void traversalFailed(final Path path, final IOException cause) {
+				LOGGER.warn("Could not traverse: {}", path, cause);
+				resultSink.failed(path.toFile(), cause);
+			}
+		};
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(directory,
+				transferConfig.getTraversalOptions(), errorHandler)) {
+			while (traversal.hasNext()) {
+				final TraversedFile entry = traversal.next();
+				if (!entry.isDirectory()) {
+					enqueue(fileQueue, entry.getFile(), workerFutures);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Put the file into the queue.<br/>
+	 * Waits while the queue is full, but gives up if any of the workers died, since the queue
+	 * may never drain in that case.
+	 *
+	 * @param fileQueue the file queue
+	 * @param file the file
+	 * @param workerFutures the worker futures
+	 * @throws InterruptedException the interrupted exception
+	 * @throws ExecutionException the execution exception
+	 */
+	private static void enqueue(final BlockingQueue<File> fileQueue, final File file,
+			final List<Future<Void>> workerFutures) throws InterruptedException, ExecutionException {
+		while (!fileQueue.offer(file, QUEUE_POLL_SECONDS, TimeUnit.SECONDS)) {
+			for (final Future<Void> workerFuture : workerFutures) {
+				if (workerFuture.isDone()) {
+					workerFuture.get();
+					throw new IllegalStateException("Upload worker stopped before traversal was completed");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Archive description of a file.
+	 *
+	 * @param directory the directory being archived
+	 * @param file the file
+	 * @return the path of file relative to directory, using '/' as separator
+	 */
+	private static String describe(final Path directory, final File file) {
+		return directory.relativize(file.toPath()).toString().replace(File.separatorChar,
+				AWSUtilConstants.SEPARATOR.charAt(0));
+	}
+
+	/**
+	 * The Class UploadWorker.<br/>
+	 * Uploads the files taken from the queue until the end of traversal is reached.
+	 */
+	private static final class UploadWorker implements Callable<Void> {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The directory. */
+		private final Path directory;
+
+		/** The file queue. */
+		private final BlockingQueue<File> fileQueue;
+
+		/** The uploader. */
+		private final ParallelMultipartUploader uploader;
+
+		/** The catalog, null if uploads are not cataloged. */
+		private final ArchiveCatalog catalog;
+
+		/** The deduplicate. */
+		private final boolean deduplicate;
+
+		/** The result sink. */
+		private final ArchiveResultSink resultSink;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param directory the directory
+		 * @param fileQueue the file queue
+		 * @param uploader the uploader
+		 * @param catalog the catalog
+		 * @param deduplicate true in order to skip files already archived according to the catalog
+		 * @param resultSink the result sink
+		 */
+		UploadWorker(final String vaultName, final Path directory, final BlockingQueue<File> fileQueue,
+				final ParallelMultipartUploader uploader, final ArchiveCatalog catalog, final boolean deduplicate,
+				final ArchiveResultSink resultSink) {
+			this.vaultName = vaultName;
+			this.directory = directory;
+			this.fileQueue = fileQueue;
+			this.uploader = uploader;
+			this.catalog = catalog;
+			this.deduplicate = deduplicate;
+			this.resultSink = resultSink;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() throws InterruptedException {
+			File file;
+			while ((file = fileQueue.take()) != END_OF_FILES) {
+				try {
+					final String description = describe(directory, file);
+					final ArchiveUploadResult uploadResult = deduplicate && catalog != null
+							? uploader.upload(vaultName, description, file, catalog)
+							: uploader.upload(vaultName, description, file);
+					resultSink.archived(file, uploadResult.getArchiveId());
+					catalog(uploadResult, file, description);
+				} catch (IOException | AmazonClientException uploadEx) {
+					LOGGER.error("Failed to archive file: " + file, uploadEx);
+					resultSink.failed(file, uploadEx);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Record the upload in the catalog, if any. A failure to record is logged, the file is archived anyway.
+		 *
+		 * @param uploadResult the upload result
+		 * @param file the file
+		 * @param description the description
+		 */
+		private void catalog(final ArchiveUploadResult uploadResult, final File file, final String description) {
+			if (catalog == null) {
+				return;
+			}
+			try {
+				catalog.record(vaultName, uploadResult, file.getAbsolutePath(), description);
+			} catch (IOException ioEx) {
+				LOGGER.error("Archived file: " + file + " could not be recorded in the catalog", ioEx);
+			}
+		}
+	}
+}
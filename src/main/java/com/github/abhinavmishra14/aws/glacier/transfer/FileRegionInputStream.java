@@ -0,0 +1,135 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The Class FileRegionInputStream.<br/>
+ * Reads a region of a file using positional reads, so many streams can share one
+ * {@link FileChannel} concurrently. Mark and reset are supported so that the sdk can
+ * replay the part body when a request is retried. Closing the stream does not close the channel.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class FileRegionInputStream extends InputStream {
+
+	/** The channel. */
+	private final FileChannel channel;
+
+	/** The end position (exclusive). */
+	private final long end;
+
+	/** The position. */
+	private long position;
+
+	/** The mark. */
+	private long mark;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param channel the channel
+	 * @param start the start position
+	 * @param length the length of region
+	 */
+	FileRegionInputStream(final FileChannel channel, final long start, final long length) {
+		super();
+		this.channel = channel;
+		this.position = start;
+		this.mark = start;
+		this.end = start + length;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		final byte[] single = new byte[1];
+		final int bytesRead = read(single, 0, 1);
+		return bytesRead == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+		if (position >= end) {
+			return -1;
+		}
+		final int toRead = (int) Math.min(length, end - position);
+		final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, toRead);
+		while (byteBuffer.hasRemaining()) {
+			final int bytesRead = channel.read(byteBuffer, position + byteBuffer.position() - offset);
+			if (bytesRead == -1) {
+				break;
+			}
+		}
+		final int totalRead = byteBuffer.position() - offset;
+		position += totalRead;
+		return totalRead == 0 ? -1 : totalRead;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#skip(long)
+	 */
+	@Override
+	public long skip(final long count) {
+		final long skipped = Math.max(0, Math.min(count, end - position));
+		position += skipped;
+		return skipped;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, end - position);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#markSupported()
+	 */
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#mark(int)
+	 */
+	@Override
+	public synchronized void mark(final int readLimit) {
+		mark = position;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#reset()
+	 */
+	@Override
+	public synchronized void reset() {
+		position = mark;
+	}
+}
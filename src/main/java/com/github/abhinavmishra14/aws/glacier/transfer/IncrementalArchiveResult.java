@@ -0,0 +1,78 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class IncrementalArchiveResult.<br/>
+ * Result of an incremental archive, in addition to the archived and failed files it holds the files
+ * which were deleted since the previous run and the number of files which were not changed.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class IncrementalArchiveResult extends DirectoryArchiveResult {
+
+	/** The deleted files. */
+	private final Map<String, String> deletedFiles = new ConcurrentHashMap<String, String>();
+
+	/** The unchanged count. */
+	private final AtomicLong unchangedCount = new AtomicLong();
+
+	/**
+	 * Called when a file of the previous snapshot no longer exists.
+	 *
+	 * @param path the path of file relative to the directory
+	 * @param archiveId the id of the archive holding the last content of file, null if it was never archived
+	 */
+	public void deleted(final String path, final String archiveId) {
+		deletedFiles.put(path, archiveId == null ? "" : archiveId);
+	}
+
+	/**
+	 * Called when a file did not change since the previous snapshot.
+	 *
+	 * @param path the path of file relative to the directory
+	 */
+	public void unchanged(final String path) {
+		unchangedCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the deleted files.
+	 *
+	 * @return the ids of archives holding the last content of deleted files, keyed by path relative to the
+	 *         directory, empty id if a file was never archived
+	 */
+	public Map<String, String> getDeletedFiles() {
+		return Collections.unmodifiableMap(deletedFiles);
+	}
+
+	/**
+	 * Gets the unchanged count.
+	 *
+	 * @return the number of files which were not changed
+	 */
+	public long getUnchangedCount() {
+		return unchangedCount.get();
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_SORT_BUFFER_SIZE;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierArchiveService;
+import com.github.abhinavmishra14.aws.util.AWSUtilConstants;
+import com.github.abhinavmishra14.aws.util.DirectoryTraverser;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+import com.github.abhinavmishra14.aws.util.TraversalErrorHandler;
+import com.github.abhinavmishra14.aws.util.TraversalIterator;
+import com.github.abhinavmishra14.aws.util.TraversedFile;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class IncrementalArchiver.<br/>
+ * Archives the files of a directory tree which were added or modified since the previous run, one archive
+ * per file. State of the tree is kept in a snapshot file (see {@link SnapshotWriter}) holding path, size,
+ * last modified time, optionally file key and tree hash, and the archive id of every file, sorted by path.
+ * Each run:
+ * <ol>
+ * <li>walks the tree and sorts the entries found, spilling sorted runs to disk for large trees,</li>
+ * <li>merges the sorted entries with the previous snapshot, both read sequentially, and uploads the new and
+ * modified files while the merge goes on; files missing from the tree are reported as deleted,</li>
+ * <li>merges the upload results into a new snapshot, which replaces the previous one atomically.</li>
+ * </ol>
+ * Files which fail to upload keep their previous entry, hence they are uploaded again by the next run.
+ * Files below directories which could not be read are kept as they were, they are not reported as deleted.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class IncrementalArchiver {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalArchiver.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-incremental";
+
+	/** The Constant NO_SNAPSHOT. Previous snapshot of the first run. */
+	private static final SnapshotSource NO_SNAPSHOT = new SnapshotSource() {
+		@Override
+		public SnapshotEntry next() {
+			return null;
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release
+		}
+	};
+
+	/** The archive service. */
+	private final GlacierArchiveService archiveService;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/** The compare file keys. */
+	private boolean compareFileKeys;
+
+	/** The compare hashes. */
+	private boolean compareHashes;
+
+	/** The sort buffer size. */
+	private int sortBufferSize = DEFAULT_SORT_BUFFER_SIZE;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param archiveService the archive service used to upload the files
+	 * @param transferConfig the transfer config
+	 */
+	public IncrementalArchiver(final GlacierArchiveService archiveService, final TransferConfig transferConfig) {
+		super();
+		this.archiveService = archiveService;
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Sets the compare file keys.<br/>
+	 * When enabled, a file whose file key (inode) changed is considered modified even if its size and last
+	 * modified time did not change, e.g. a file replaced by another one with preserved times.
+	 *
+	 * @param compareFileKeys true in order to compare file keys
+	 */
+	public void setCompareFileKeys(final boolean compareFileKeys) {
+		this.compareFileKeys = compareFileKeys;
+	}
+
+	/**
+	 * Sets the compare hashes.<br/>
+	 * When enabled, a file whose size did not change but whose last modified time (or file key) did is hashed,
+	 * and it is not uploaded again if its tree hash did not change either, e.g. a file which was only touched.
+	 *
+	 * @param compareHashes true in order to compare tree hashes of files which look modified
+	 */
+	public void setCompareHashes(final boolean compareHashes) {
+		this.compareHashes = compareHashes;
+	}
+
+	/**
+	 * Sets the sort buffer size.
+	 *
+	 * @param sortBufferSize the number of entries sorted in memory before they are spilled to disk
+	 */
+	public void setSortBufferSize(final int sortBufferSize) {
+		if (sortBufferSize < 1) {
+			throw new IllegalArgumentException("Sort buffer size must be positive!");
+		}
+		this.sortBufferSize = sortBufferSize;
+	}
+
+	/**
+	 * Archive the files of the directory tree added or modified since the previous snapshot.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param snapshotFile the snapshot file of directory, it is created by the first run
+	 * @return the incremental archive result
+	 * @throws IOException the IO exception
+	 */
+	public IncrementalArchiveResult archive(final String vaultName, final File directory, final File snapshotFile)
+			throws IOException {
+		final IncrementalArchiveResult archiveResult = new IncrementalArchiveResult();
+		archive(vaultName, directory, snapshotFile, archiveResult);
+		return archiveResult;
+	}
+
+	/**
+	 * Archive the files of the directory tree added or modified since the previous snapshot.<br/>
+	 * Description of each archive is the path of the file relative to the directory. Files which fail
+	 * are reported to the result and do not stop the other files.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param snapshotFile the snapshot file of directory, it is created by the first run
+	 * @param archiveResult the archive result
+	 * @throws IOException the IO exception
+	 */
+	public void archive(final String vaultName, final File directory, final File snapshotFile,
+			final IncrementalArchiveResult archiveResult) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new FileNotFoundException("Directory does not exist: " + directory);
+		}
+		final File snapshotDirectory = snapshotFile.getAbsoluteFile().getParentFile();
+		if (!snapshotDirectory.isDirectory() && !snapshotDirectory.mkdirs()) {
+			throw new IOException("Could not create snapshot directory: " + snapshotDirectory);
+		}
+		final File draftFile = new File(snapshotFile.getPath() + ".draft");
+		final File newSnapshotFile = new File(snapshotFile.getPath() + ".new");
+		final Set<String> unreadPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		LOGGER.info("Archiving changes of directory: {} to vault: {}", directory, vaultName);
+		try (SnapshotSorter scan = new SnapshotSorter(new File(snapshotFile.getPath() + ".scan"), sortBufferSize);
+				SnapshotSorter uploads = new SnapshotSorter(new File(snapshotFile.getPath() + ".uploads"),
+						sortBufferSize)) {
+			scan(directory, scan, unreadPaths, archiveResult);
+			upload(vaultName, directory, snapshotFile, scan, unreadPaths, draftFile, uploads, archiveResult);
+			settle(draftFile, uploads, newSnapshotFile);
+			Files.move(newSnapshotFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			delete(draftFile);
+			delete(newSnapshotFile);
+		}
+		LOGGER.info("Archived changes of directory: {} to vault: {}, {} files archived, {} unchanged, {} deleted,"
+				+ " {} failed", directory, vaultName, archiveResult.getArchiveIds().size(),
+				archiveResult.getUnchangedCount(), archiveResult.getDeletedFiles().size(),
+				archiveResult.getFailures().size());
+	}
+
+	/**
+	 * Walk the tree and add an entry for every file to the sorter.
+	 *
+	 * @param directory the directory
+	 * @param scan the sorter receiving the entries
+	 * @param unreadPaths the relative paths which could not be read
+	 * @param archiveResult the archive result
+	 * @throws IOException the IO exception
+	 */
+	private void scan(final File directory, final SnapshotSorter scan, final Set<String> unreadPaths,
+			final IncrementalArchiveResult archiveResult) throws IOException {
+		final Path root = directory.toPath();
+		final TraversalErrorHandler errorHandler = new TraversalErrorHandler() {
+			@Override
+			public void traversalFailed(final Path path, final IOException cause) {
+				LOGGER.warn("Could not traverse: {}", path, cause);
+				unreadPaths.add(relativePath(root, path));
+				archiveResult.failed(path.toFile(), cause);
+			}
+		};
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(directory,
+				transferConfig.getTraversalOptions(), errorHandler)) {
+			while (traversal.hasNext()) {
+				final TraversedFile entry = traversal.next();
+				if (!entry.isDirectory()) {
+					scan.add(new SnapshotEntry(relativePath(root, entry.getPath()), entry.getSize(),
+							entry.getAttributes().lastModifiedTime().toMillis(),
+							compareFileKeys ? SnapshotEntry.fileKey(entry.getAttributes().fileKey())
+									: SnapshotEntry.NO_FILE_KEY, null, null));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merge the scanned entries with the previous snapshot and upload the new and modified files.<br/>
+	 * Every entry of the new snapshot is written to the draft, entries being uploaded are marked pending.
+	 * A pending entry carries the previous state of the file, if any, which is kept if the upload fails.
+	 *
+	 * @param vaultName the vault name
+	 * @param directory the directory
+	 * @param snapshotFile the previous snapshot file
+	 * @param scan the scanned entries
+	 * @param unreadPaths the relative paths which could not be read
+	 * @param draftFile the draft file
+	 * @param uploads the sorter receiving the entries of uploaded files
+	 * @param archiveResult the archive result
+	 * @throws IOException the IO exception
+	 */
+	private void upload(final String vaultName, final File directory, final File snapshotFile,
+			final SnapshotSorter scan, final Set<String> unreadPaths, final File draftFile,
+			final SnapshotSorter uploads, final IncrementalArchiveResult archiveResult) throws IOException {
+		final int workerCount = transferConfig.getFileConcurrency();
+		// Merging thread uploads the file itself while the queue is full
+		final ThreadPoolExecutor workers = new ThreadPoolExecutor(workerCount, workerCount, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(transferConfig.getTraversalQueueSize()),
+				new NamedThreadFactory(THREAD_NAME_PREFIX), new ThreadPoolExecutor.CallerRunsPolicy());
+		try (SnapshotSource current = scan.sorted();
+				SnapshotSource previous = snapshotFile.exists() ? new SnapshotReader(snapshotFile)
+						: NO_SNAPSHOT;
+				SnapshotWriter draft = new SnapshotWriter(draftFile)) {
+			SnapshotEntry currentEntry = current.next();
+			SnapshotEntry previousEntry = previous.next();
+			while (currentEntry != null || previousEntry != null) {
+				final int order = currentEntry == null ? 1 : previousEntry == null ? -1
+						: currentEntry.compareTo(previousEntry);
+				if (order < 0) {
+					draft.write(currentEntry.asPending());
+					workers.execute(UploadCancellation.propagate(
+							new FileUpload(vaultName, directory, currentEntry, uploads, archiveResult)));
+					currentEntry = current.next();
+				} else if (order > 0) {
+					if (isUnread(previousEntry.getPath(), unreadPaths)) {
+						draft.write(previousEntry);
+					} else {
+						archiveResult.deleted(previousEntry.getPath(), previousEntry.getArchiveId());
+					}
+					previousEntry = previous.next();
+				} else {
+					final SnapshotEntry unchangedEntry = unchanged(directory, currentEntry, previousEntry);
+					if (unchangedEntry != null) {
+						draft.write(unchangedEntry);
+						archiveResult.unchanged(unchangedEntry.getPath());
+					} else {
+						draft.write(previousEntry.asPending());
+						workers.execute(UploadCancellation.propagate(
+								new FileUpload(vaultName, directory, currentEntry, uploads, archiveResult)));
+					}
+					currentEntry = current.next();
+					previousEntry = previous.next();
+				}
+			}
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Incremental archive interrupted: " + directory);
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Merge the draft with the uploaded entries into the new snapshot. A pending entry is replaced by the
+	 * uploaded entry of the same path, if the upload failed the previous state of the file is kept.
+	 *
+	 * @param draftFile the draft file
+	 * @param uploads the uploaded entries
+	 * @param newSnapshotFile the new snapshot file
+	 * @throws IOException the IO exception
+	 */
+	private static void settle(final File draftFile, final SnapshotSorter uploads, final File newSnapshotFile)
+			throws IOException {
+		try (SnapshotSource draft = new SnapshotReader(draftFile);
+				SnapshotSource uploaded = uploads.sorted();
+				SnapshotWriter snapshot = new SnapshotWriter(newSnapshotFile)) {
+			SnapshotEntry uploadedEntry = uploaded.next();
+			SnapshotEntry draftEntry;
+			while ((draftEntry = draft.next()) != null) {
+				if (!draftEntry.isPending()) {
+					snapshot.write(draftEntry);
+					continue;
+				}
+				while (uploadedEntry != null && uploadedEntry.compareTo(draftEntry) < 0) {
+					uploadedEntry = uploaded.next();
+				}
+				if (uploadedEntry != null && uploadedEntry.compareTo(draftEntry) == 0) {
+					snapshot.write(uploadedEntry);
+				} else if (draftEntry.getArchiveId() != null) {
+					snapshot.write(draftEntry.asSettled());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compare the current state of a file with its previous state.
+	 *
+	 * @param directory the directory
+	 * @param currentEntry the current entry
+	 * @param previousEntry the previous entry
+	 * @return the entry of the new snapshot if the file did not change, null if it has to be uploaded
+	 */
+	private SnapshotEntry unchanged(final File directory, final SnapshotEntry currentEntry,
+			final SnapshotEntry previousEntry) {
+		if (previousEntry.getArchiveId() == null || currentEntry.getSize() != previousEntry.getSize()) {
+			return null;
+		}
+		// File key of a snapshot taken without comparing file keys is not known
+		final boolean sameFileKey = !compareFileKeys || previousEntry.getFileKey() == SnapshotEntry.NO_FILE_KEY
+				|| currentEntry.getFileKey() == previousEntry.getFileKey();
+		if (sameFileKey && currentEntry.getLastModified() == previousEntry.getLastModified()) {
+			return currentEntry.archivedAs(previousEntry.getTreeHash(), previousEntry.getArchiveId());
+		}
+		if (compareHashes && previousEntry.getTreeHash() != null) {
+			final File file = new File(directory, currentEntry.getPath());
+			try {
+				if (TreeHash.compute(file).getTreeHashHex().equalsIgnoreCase(previousEntry.getTreeHash())) {
+					return currentEntry.archivedAs(previousEntry.getTreeHash(), previousEntry.getArchiveId());
+				}
+			} catch (IOException ioEx) {
+				LOGGER.debug("Could not hash file: {}, it is archived again", file, ioEx);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the path is below a path which could not be read.
+	 *
+	 * @param path the path
+	 * @param unreadPaths the unread paths
+	 * @return true, if path or any of its parents could not be read
+	 */
+	private static boolean isUnread(final String path, final Set<String> unreadPaths) {
+		if (unreadPaths.isEmpty()) {
+			return false;
+		}
+		if (unreadPaths.contains("")) {
+			return true;
+		}
+		for (int separator = path.length(); separator > 0;
+				separator = path.lastIndexOf(AWSUtilConstants.SEPARATOR, separator - 1)) {
+			if (unreadPaths.contains(path.substring(0, separator))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Relative path.
+	 *
+	 * @param root the root
+	 * @param path the path
+	 * @return the path relative to root, using '/' as separator
+	 */
+	private static String relativePath(final Path root, final Path path) {
+		return root.relativize(path).toString().replace(File.separatorChar, AWSUtilConstants.SEPARATOR.charAt(0));
+	}
+
+	/**
+	 * Delete a work file quietly.
+	 *
+	 * @param workFile the work file
+	 */
+	private static void delete(final File workFile) {
+		if (workFile.exists() && !workFile.delete()) {
+			LOGGER.warn("Could not delete: {}", workFile);
+		}
+	}
+
+	/**
+	 * The Class FileUpload.<br/>
+	 * Archives a new or modified file and adds its entry, along with the archive id, to the uploaded entries.
+	 */
+	private final class FileUpload implements Runnable {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The file. */
+		private final File file;
+
+		/** The entry. */
+		private final SnapshotEntry entry;
+
+		/** The uploads. */
+		private final SnapshotSorter uploads;
+
+		/** The archive result. */
+		private final IncrementalArchiveResult archiveResult;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param directory the directory
+		 * @param entry the entry
+		 * @param uploads the uploads
+		 * @param archiveResult the archive result
+		 */
+		FileUpload(final String vaultName, final File directory, final SnapshotEntry entry,
+				final SnapshotSorter uploads, final IncrementalArchiveResult archiveResult) {
+			this.vaultName = vaultName;
+			this.file = new File(directory, entry.getPath());
+			this.entry = entry;
+			this.uploads = uploads;
+			this.archiveResult = archiveResult;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				final UploadResult uploadResult = archiveService.archive(vaultName, file, entry.getPath());
+				final String treeHash = uploadResult instanceof ArchiveUploadResult
+						? ((ArchiveUploadResult) uploadResult).getChecksum() : null;
+				uploads.add(entry.archivedAs(treeHash, uploadResult.getArchiveId()));
+				archiveResult.archived(file, uploadResult.getArchiveId());
+			} catch (IOException | AmazonClientException uploadEx) {
+				LOGGER.error("Failed to archive file: " + file, uploadEx);
+				archiveResult.failed(file, uploadEx);
+			}
+		}
+	}
+}
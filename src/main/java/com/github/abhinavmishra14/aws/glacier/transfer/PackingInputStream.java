@@ -0,0 +1,296 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class PackingInputStream.<br/>
+ * Reads files one after another as a single container stream, and closes the container with its
+ * index once the container size is reached or there are no more files. Offset, length and SHA-256 of
+ * each file are recorded while the bytes pass through, so the files are read exactly once. Files which can
+ * not be opened or fail while they are read are reported to the result sink and left out of the index,
+ * the container goes on with the next file.
+ */
+final class PackingInputStream extends InputStream {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(PackingInputStream.class);
+
+	/** The Constant HASH_ALGORITHM. */
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	/** The files. */
+	private final Iterator<PackedSource> files;
+
+	/** The container size. */
+	private final long containerSize;
+
+	/** The result sink, receives the files which could not be read. */
+	private final ArchiveResultSink resultSink;
+
+	/** The index. */
+	private final ContainerIndex index;
+
+	/** The packed files, including the one being read. */
+	private final List<File> packedFiles = new ArrayList<File>();
+
+	/** The digest. */
+	private final MessageDigest digest;
+
+	/** The current source. */
+	private PackedSource currentSource;
+
+	/** The current stream. */
+	private InputStream currentStream;
+
+	/** The current start. */
+	private long currentStart;
+
+	/** The position. */
+	private long position;
+
+	/** The trailer, index and footer, set once the last file is read. */
+	private InputStream trailer;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param files the files to pack, the stream takes files until the container is full
+	 * @param containerSize the container size
+	 * @param description the container description
+	 * @param resultSink the result sink
+	 */
+	PackingInputStream(final Iterator<PackedSource> files, final long containerSize, final String description,
+			final ArchiveResultSink resultSink) {
+		super();
+		this.files = files;
+		this.containerSize = containerSize;
+		this.resultSink = resultSink;
+		this.index = new ContainerIndex(description);
+		try {
+			this.digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException noAlgoEx) {
+			throw new IllegalStateException(noAlgoEx);
+		}
+	}
+
+	/**
+	 * Gets the index.
+	 *
+	 * @return the index of the files packed so far
+	 */
+	ContainerIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the packed files.
+	 *
+	 * @return the files taken into the container so far, in the order of the index entries
+	 */
+	List<File> getPackedFiles() {
+		return packedFiles;
+	}
+
+	/**
+	 * Gets the position.
+	 *
+	 * @return the number of bytes read so far
+	 */
+	long getPosition() {
+		return position;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		final byte[] single = new byte[1];
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		while (true) {
+			if (trailer != null) {
+				final int bytesRead = trailer.read(buffer, offset, length);
+				if (bytesRead > 0) {
+					position += bytesRead;
+				}
+				return bytesRead;
+			}
+			if (currentStream == null && !openNext()) {
+				trailer = buildTrailer();
+				continue;
+			}
+			final int bytesRead;
+			try {
+				bytesRead = currentStream.read(buffer, offset, length);
+			} catch (IOException readEx) {
+				failCurrent(readEx);
+				continue;
+			}
+			if (bytesRead == -1) {
+				finishCurrent();
+				continue;
+			}
+			digest.update(buffer, offset, bytesRead);
+			position += bytesRead;
+			return bytesRead;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (currentStream != null) {
+			currentStream.close();
+			currentStream = null;
+		}
+	}
+
+	/**
+	 * Open the next file, unless the container is full.
+	 *
+	 * @return true, if a file was opened
+	 */
+	private boolean openNext() {
+		while (position < containerSize && files.hasNext()) {
+			final PackedSource source = files.next();
+			try {
+				currentStream = new FileInputStream(source.getFile());
+				currentSource = source;
+				currentStart = position;
+				packedFiles.add(source.getFile());
+				digest.reset();
+				return true;
+			} catch (IOException ioEx) {
+				LOGGER.warn("Could not pack file: {}", source.getFile(), ioEx);
+				resultSink.failed(source.getFile(), ioEx);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Record the file which was read completely.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	private void finishCurrent() throws IOException {
+		currentStream.close();
+		currentStream = null;
+		index.add(new ContainerIndex.PackedFile(currentSource.getPath(), currentStart, position - currentStart,
+				digest.digest()));
+	}
+
+	/**
+	 * Drop the file which failed while it was read, like a file which could not be opened: it is left out of
+	 * the index and reported to the result sink. Its bytes which already passed into the container are not
+	 * addressed by any index entry, the following files are packed after them.
+	 *
+	 * @param readEx the read exception
+	 */
+	private void failCurrent(final IOException readEx) {
+		LOGGER.warn("Could not pack file: {}", currentSource.getFile(), readEx);
+		IOUtils.closeQuietly(currentStream);
+		currentStream = null;
+		packedFiles.remove(packedFiles.size() - 1);
+		resultSink.failed(currentSource.getFile(), readEx);
+	}
+
+	/**
+	 * Build the trailer of the container.
+	 *
+	 * @return the trailer stream
+	 * @throws IOException the IO exception
+	 */
+	private InputStream buildTrailer() throws IOException {
+		final ByteArrayOutputStream trailerBytes = new ByteArrayOutputStream();
+		index.writeTo(trailerBytes);
+		final long indexLength = trailerBytes.size();
+		trailerBytes.write(ContainerIndex.footer(indexLength));
+		return new ByteArrayInputStream(trailerBytes.toByteArray());
+	}
+
+	/**
+	 * The Class PackedSource.<br/>
+	 * A file to be packed along with its path inside the container.
+	 */
+	static final class PackedSource {
+
+		/** The file. */
+		private final File file;
+
+		/** The path. */
+		private final String path;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param file the file
+		 * @param path the path
+		 */
+		PackedSource(final File file, final String path) {
+			this.file = file;
+			this.path = path;
+		}
+
+		/**
+		 * Gets the file.
+		 *
+		 * @return the file
+		 */
+		File getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets the path.
+		 *
+		 * @return the path
+		 */
+		String getPath() {
+			return path;
+		}
+	}
+}
@@ -0,0 +1,1216 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ACCOUNT_ID_SELF;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_PARTS;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.ListPartsRequest;
+import com.amazonaws.services.glacier.model.ListPartsResult;
+import com.amazonaws.services.glacier.model.PartListElement;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.amazonaws.services.glacier.model.UploadArchiveRequest;
+import com.amazonaws.services.glacier.model.UploadArchiveResult;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.glacier.transfer.UploadJournal.PartRecord;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class ParallelMultipartUploader.<br/>
+ * Splits an archive into parts and uploads the parts at the same time on a bounded
+ * worker pool. Tree hash of a file and its parts is computed up front, in parallel, using
+ * {@link TreeHash}. Once all parts are uploaded the multipart upload is completed using
+ * the tree hash combined from the part hashes. Archives which fit into a single part
+ * are uploaded using a single request.<br/>
+ * Streams are uploaded without spooling them to disk. Stream is read into a bounded pool of
+ * part buffers and every part is uploaded as soon as its buffer is filled, so the memory used
+ * is capped at part size multiplied by {@link TransferConfig#getMaxPartsInFlight()}.<br/>
+ * If any of the part fails, the multipart upload is aborted. When a journal directory is
+ * configured, the upload is kept instead and completed parts are recorded in an {@link UploadJournal},
+ * uploading the same source again uploads only the parts which are missing. Interrupting the uploading
+ * thread only stops the upload, a journaled upload is aborted and its journal deleted only when the
+ * {@link UploadCancellation} of the operation is cancelled.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ParallelMultipartUploader {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMultipartUploader.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-upload";
+
+	/** The Constant MAX_BUFFERED_PART_SIZE. Largest part which can be held in a byte array (1 GB). */
+	private static final long MAX_BUFFERED_PART_SIZE = 1024L * 1024L * 1024L;
+
+	/** The Constant UNKNOWN_LENGTH. */
+	private static final long UNKNOWN_LENGTH = -1;
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param transferConfig the transfer config
+	 */
+	public ParallelMultipartUploader(final AmazonGlacier glacierClient,
+			final TransferConfig transferConfig) {
+		super();
+		this.glacierClient = glacierClient;
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Upload.<br/>
+	 * Upload starts right away, every part is hashed by the worker which uploads it and the part hashes are
+	 * combined into the tree hash of the archive. If journal directory is configured, an interrupted upload
+	 * of the same file is resumed as long as the file was not modified in the meantime.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param inputFile the input file
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveUploadResult upload(final String vaultName, final String archiveDescription,
+			final File inputFile) throws AmazonServiceException, AmazonClientException, IOException {
+		if (!inputFile.isFile()) {
+			throw new FileNotFoundException("File does not exist: " + inputFile);
+		}
+		return uploadFile(vaultName, archiveDescription, inputFile, null);
+	}
+
+	/**
+	 * Upload.<br/>
+	 * Tree hash of the file is computed first and looked up in the catalog. If the vault already holds an
+	 * archive with the same content, the file is not uploaded and a duplicate result carrying the id of
+	 * the existing archive is returned. Otherwise the file is uploaded using the tree hash computed up front.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param inputFile the input file
+	 * @param catalog the catalog of previously uploaded archives
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveUploadResult upload(final String vaultName, final String archiveDescription,
+			final File inputFile, final ArchiveCatalog catalog)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		if (!inputFile.isFile()) {
+			throw new FileNotFoundException("File does not exist: " + inputFile);
+		}
+		final TreeHash.Result treeHash = computeTreeHash(inputFile);
+		final String treeHashHex = treeHash.getTreeHashHex();
+		final long archiveSize = inputFile.length();
+		final CatalogEntry existing = catalog.findDuplicate(vaultName, treeHashHex, archiveSize);
+		if (existing != null) {
+			LOGGER.info("Content of file: {} is already archived in vault: {} as archive: {}, upload skipped",
+					inputFile, vaultName, existing.getArchiveId());
+			return new ArchiveUploadResult(existing.getArchiveId(), treeHashHex, archiveSize, true);
+		}
+		return uploadFile(vaultName, archiveDescription, inputFile, treeHash);
+	}
+
+	/**
+	 * Upload file.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param inputFile the input file
+	 * @param treeHash the tree hash of the file, null if parts are hashed while they are uploaded
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private ArchiveUploadResult uploadFile(final String vaultName, final String archiveDescription,
+			final File inputFile, final TreeHash.Result treeHash)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		final String fileIdentity = UploadJournal.fileIdentity(inputFile);
+		final long archiveSize = inputFile.length();
+		final long partSize = TransferConfig.calculatePartSize(archiveSize, transferConfig.getPartSize());
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(inputFile, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			if (archiveSize <= partSize) {
+				return uploadInSingleRequest(vaultName, archiveDescription, treeHash == null
+						? TreeHash.hash(channel, 0, archiveSize) : treeHash.getTreeHash(),
+						new FileRegionInputStream(channel, 0, archiveSize), archiveSize);
+			}
+			try (UploadJournal journal = openJournal(vaultName, inputFile.getCanonicalPath())) {
+				return uploadInParts(vaultName, archiveDescription, channel, archiveSize, partSize,
+						treeHash == null ? null : treeHash.getPartHashes(partSize), journal, fileIdentity);
+			}
+		}
+	}
+
+	/**
+	 * Upload.<br/>
+	 * Uploads the stream while it is being read. Length of the stream need not to be known
+	 * up front, however the stream can not be larger than part size multiplied by 10,000 parts.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param inputStream the input stream
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveUploadResult upload(final String vaultName, final String archiveDescription,
+			final InputStream inputStream) throws AmazonServiceException, AmazonClientException, IOException {
+		return upload(vaultName, archiveDescription, inputStream, null);
+	}
+
+	/**
+	 * Upload.<br/>
+	 * Uploads the stream while it is being read. If journal directory is configured, an interrupted
+	 * upload with the same upload key is resumed. The stream has to be read from the beginning again,
+	 * however parts whose tree hash matches the journal are not uploaded again.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param inputStream the input stream
+	 * @param uploadKey the upload key, a name which stays the same when the upload is restarted. Upload can
+	 * not be resumed if it is null.
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveUploadResult upload(final String vaultName, final String archiveDescription,
+			final InputStream inputStream, final String uploadKey) throws AmazonServiceException,
+			AmazonClientException, IOException {
+		final long configuredPartSize = transferConfig.getPartSize();
+		checkBufferedPartSize(configuredPartSize);
+		final int partSize = (int) configuredPartSize;
+		final byte[] firstBuffer = new byte[partSize];
+		final int firstLength = readFully(inputStream, firstBuffer);
+		if (firstLength < partSize) {
+			return uploadInSingleRequest(vaultName, archiveDescription, TreeHash.hash(firstBuffer, 0, firstLength),
+					new ByteArrayInputStream(firstBuffer, 0, firstLength), firstLength);
+		}
+		try (UploadJournal journal = uploadKey == null ? null : openJournal(vaultName, uploadKey)) {
+			return uploadBufferedParts(vaultName, archiveDescription, new StreamPartReader(inputStream),
+					UNKNOWN_LENGTH, partSize, firstBuffer, journal, uploadKey);
+		}
+	}
+
+	/**
+	 * Upload.<br/>
+	 * Uploads a seekable source part by part. If journal directory is configured, an interrupted upload
+	 * of the same source is resumed as long as its identity did not change, parts which were already
+	 * uploaded are neither read nor uploaded again.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param source the source
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public ArchiveUploadResult upload(final String vaultName, final String archiveDescription,
+			final SeekableSource source) throws AmazonServiceException, AmazonClientException, IOException {
+		final long archiveSize = source.getLength();
+		final long partSize = TransferConfig.calculatePartSize(archiveSize, transferConfig.getPartSize());
+		checkBufferedPartSize(partSize);
+		final PartReader partReader = new SeekablePartReader(source);
+		if (archiveSize <= partSize) {
+			final byte[] buffer = new byte[(int) archiveSize];
+			if (readPart(partReader, 0, buffer) < archiveSize) {
+				throw new EOFException("Source ended before its length: " + source.getKey());
+			}
+			return uploadInSingleRequest(vaultName, archiveDescription, TreeHash.hash(buffer, 0, buffer.length),
+					new ByteArrayInputStream(buffer), archiveSize);
+		}
+		try (UploadJournal journal = openJournal(vaultName, source.getKey())) {
+			return uploadBufferedParts(vaultName, archiveDescription, partReader, archiveSize, (int) partSize, null,
+					journal, source.getIdentity());
+		}
+	}
+
+	/**
+	 * Upload in single request.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param treeHash the tree hash of the archive
+	 * @param bodyStream the stream used as request body
+	 * @param archiveSize the archive size
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	private ArchiveUploadResult uploadInSingleRequest(final String vaultName, final String archiveDescription,
+			final byte[] treeHash, final InputStream bodyStream, final long archiveSize)
+			throws AmazonServiceException, AmazonClientException {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Uploading {} bytes to vault: {} in a single request", archiveSize, vaultName);
+		}
+		final String checksum = TreeHash.toHex(treeHash);
+		final UploadArchiveRequest uploadRequest = new UploadArchiveRequest().withAccountId(ACCOUNT_ID_SELF)
+				.withVaultName(vaultName).withArchiveDescription(archiveDescription).withChecksum(checksum)
+				.withContentLength(archiveSize).withBody(bodyStream);
+		final UploadArchiveResult uploadResult = glacierClient.uploadArchive(uploadRequest);
+		return new ArchiveUploadResult(uploadResult.getArchiveId(), checksum, archiveSize);
+	}
+
+	/**
+	 * Upload in parts.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param channel the channel
+	 * @param archiveSize the archive size
+	 * @param partSize the part size
+	 * @param partHashes the tree hashes of the parts, null if parts are hashed by the workers
+	 * @param journal the journal, null if upload is not journaled
+	 * @param sourceIdentity the source identity
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private ArchiveUploadResult uploadInParts(final String vaultName, final String archiveDescription,
+			final FileChannel channel, final long archiveSize, final long partSize, final List<byte[]> partHashes,
+			final UploadJournal journal, final String sourceIdentity)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		final int partCount = (int) ((archiveSize + partSize - 1) / partSize);
+		final UploadSession session = initiateOrResume(vaultName, archiveDescription, partSize, journal,
+				sourceIdentity);
+		final String uploadId = session.getUploadId();
+		LOGGER.info("Uploading multipart upload: {} of {} bytes in {} parts to vault: {}", uploadId, archiveSize,
+				partCount, vaultName);
+
+		final byte[][] partChecksums = new byte[partCount][];
+		final ExecutorService executor = newExecutor(Math.min(transferConfig.getConcurrency(), partCount));
+		boolean isCompleted = false;
+		try {
+			final CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+			for (int partIndex = 0; partIndex < partCount; partIndex++) {
+				final long partStart = partIndex * partSize;
+				final long partLength = Math.min(partSize, archiveSize - partStart);
+				completionService.submit(new FilePartUploadTask(vaultName, session, journal, partIndex, partStart,
+						partLength, partHashes == null ? null : partHashes.get(partIndex), partChecksums, channel));
+			}
+			for (int partIndex = 0; partIndex < partCount; partIndex++) {
+				completionService.take().get(); // Fail fast on the first failed part
+			}
+			final ArchiveUploadResult uploadResult = completeUpload(vaultName, uploadId, archiveSize,
+					Arrays.asList(partChecksums), journal);
+			isCompleted = true;
+			return uploadResult;
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Multipart upload interrupted: " + uploadId, intEx);
+		} catch (ExecutionException execEx) {
+			throw launderPartFailure(execEx.getCause());
+		} finally {
+			executor.shutdownNow();
+			if (!isCompleted) {
+				abandonUpload(vaultName, uploadId, journal);
+			}
+		}
+	}
+
+	/**
+	 * Upload buffered parts.<br/>
+	 * The calling thread keeps reading the source into free part buffers while the workers upload
+	 * the filled ones. Workers return their buffer to the pool once the part is uploaded, so reading
+	 * blocks whenever all buffers are in flight. When length of the source is known, parts which
+	 * were uploaded before are skipped without reading them.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param partReader the part reader
+	 * @param knownLength the length of the source, {@link #UNKNOWN_LENGTH} for streams
+	 * @param partSize the part size
+	 * @param firstBuffer the first buffer, already filled with first part. Null if nothing is read yet.
+	 * @param journal the journal, null if upload is not journaled
+	 * @param sourceIdentity the source identity
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private ArchiveUploadResult uploadBufferedParts(final String vaultName, final String archiveDescription,
+			final PartReader partReader, final long knownLength, final int partSize, final byte[] firstBuffer,
+			final UploadJournal journal, final String sourceIdentity) throws AmazonServiceException,
+			AmazonClientException, IOException {
+		final int partsInFlight = transferConfig.getMaxPartsInFlight();
+		final UploadSession session = initiateOrResume(vaultName, archiveDescription, partSize, journal,
+				sourceIdentity);
+		final String uploadId = session.getUploadId();
+		LOGGER.info("Uploading buffered multipart upload: {} with part size {} to vault: {}", uploadId, partSize,
+				vaultName);
+
+		final PartBufferPool bufferPool = new PartBufferPool(partSize, partsInFlight, firstBuffer == null ? 0 : 1);
+		final byte[][] partChecksums = new byte[MAX_PARTS][];
+		final List<Future<Void>> partFutures = new ArrayList<Future<Void>>();
+		final ExecutorService executor = newExecutor(Math.min(transferConfig.getConcurrency(), partsInFlight));
+		boolean isCompleted = false;
+		try {
+			int partCount = 0;
+			long archiveSize = 0;
+			byte[] buffer = firstBuffer;
+			while (knownLength == UNKNOWN_LENGTH || archiveSize < knownLength) {
+				if (partCount == MAX_PARTS) {
+					throw new AmazonClientException("Source is larger than " + MAX_PARTS + " parts of " + partSize
+							+ " bytes, increase the part size");
+				}
+				final PartRecord uploadedPart = session.getUploadedPart(archiveSize);
+				if (knownLength != UNKNOWN_LENGTH && uploadedPart != null
+						&& uploadedPart.getPartLength() == Math.min(partSize, knownLength - archiveSize)) {
+					partChecksums[partCount++] = uploadedPart.getTreeHash(); // Seekable source, skip the part
+					archiveSize += uploadedPart.getPartLength();
+					continue;
+				}
+				final int length;
+				if (buffer == null) {
+					buffer = bufferPool.take();
+					checkForFailedParts(partFutures);
+					length = readPart(partReader, archiveSize, buffer);
+				} else {
+					length = buffer.length; // First part was read up front
+				}
+				if (length == 0) {
+					bufferPool.release(buffer);
+					break; // Stream ended at part boundary
+				}
+				final byte[] uploadedHash = uploadedPart != null && uploadedPart.getPartLength() == length
+						? uploadedPart.getTreeHash() : null;
+				partFutures.add(executor.submit(new BufferPartUploadTask(vaultName, session, journal, partCount,
+						archiveSize, length, uploadedHash, partChecksums, buffer, bufferPool)));
+				buffer = null;
+				partCount++;
+				archiveSize += length;
+				if (length < partSize) {
+					break; // End of source reached
+				}
+			}
+			if (knownLength != UNKNOWN_LENGTH && archiveSize != knownLength) {
+				throw new EOFException("Source ended at " + archiveSize + " bytes, expected " + knownLength);
+			}
+			for (final Future<Void> partFuture : partFutures) {
+				partFuture.get();
+			}
+			final ArchiveUploadResult uploadResult = completeUpload(vaultName, uploadId, archiveSize,
+					Arrays.asList(partChecksums).subList(0, partCount), journal);
+			isCompleted = true;
+			return uploadResult;
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Multipart upload interrupted: " + uploadId, intEx);
+		} catch (ExecutionException execEx) {
+			throw launderPartFailure(execEx.getCause());
+		} finally {
+			executor.shutdownNow();
+			if (!isCompleted) {
+				abandonUpload(vaultName, uploadId, journal);
+			}
+		}
+	}
+
+	/**
+	 * Check for failed parts.<br/>
+	 * Stops reading the source as soon as any of the already submitted parts has failed.
+	 *
+	 * @param partFutures the part futures
+	 * @throws InterruptedException the interrupted exception
+	 * @throws ExecutionException the execution exception
+	 */
+	private static void checkForFailedParts(final List<Future<Void>> partFutures) throws InterruptedException,
+			ExecutionException {
+		for (final Future<Void> partFuture : partFutures) {
+			if (partFuture.isDone()) {
+				partFuture.get();
+			}
+		}
+	}
+
+	/**
+	 * Open journal.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadKey the upload key
+	 * @return the upload journal, null if journal directory is not configured
+	 * @throws IOException the IO exception
+	 */
+	private UploadJournal openJournal(final String vaultName, final String uploadKey) throws IOException {
+		final File journalDirectory = transferConfig.getJournalDirectory();
+		return journalDirectory == null ? null : UploadJournal.open(journalDirectory, vaultName, uploadKey);
+	}
+
+	/**
+	 * Initiate or resume.<br/>
+	 * Resumes the upload recorded in the journal if it still belongs to the same source and still exists
+	 * on the server. Parts are treated as uploaded only if both the journal and the server list them with
+	 * the same range and tree hash. Otherwise a new upload is initiated and recorded in the journal.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param partSize the part size
+	 * @param journal the journal, null if upload is not journaled
+	 * @param sourceIdentity the source identity
+	 * @return the upload session
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private UploadSession initiateOrResume(final String vaultName, final String archiveDescription,
+			final long partSize, final UploadJournal journal, final String sourceIdentity)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		if (journal != null && journal.isStarted()) {
+			if (journal.matches(vaultName, partSize, sourceIdentity)) {
+				final Map<String, String> serverParts = listUploadedParts(vaultName, journal.getUploadId());
+				if (serverParts != null) {
+					final Map<Long, PartRecord> uploadedParts = new HashMap<Long, PartRecord>();
+					for (final PartRecord part : journal.getCompletedParts().values()) {
+						final String range = part.getPartStart() + "-" + (part.getPartStart() + part.getPartLength() - 1);
+						if (TreeHash.toHex(part.getTreeHash()).equals(serverParts.get(range))) {
+							uploadedParts.put(part.getPartStart(), part);
+						}
+					}
+					LOGGER.info("Resuming multipart upload: {} in vault: {}, {} parts were uploaded before",
+							journal.getUploadId(), vaultName, uploadedParts.size());
+					return new UploadSession(journal.getUploadId(), uploadedParts);
+				}
+				LOGGER.info("Multipart upload: {} from journal: {} no longer exists, starting over",
+						journal.getUploadId(), journal.getJournalFile());
+			} else {
+				LOGGER.info("Source has changed since multipart upload: {} was started, starting over",
+						journal.getUploadId());
+				abortQuietly(journal.getVaultName(), journal.getUploadId());
+			}
+		}
+		final String uploadId = initiateUpload(vaultName, archiveDescription, partSize);
+		if (journal != null) {
+			journal.start(vaultName, uploadId, partSize, sourceIdentity);
+		}
+		return new UploadSession(uploadId, Collections.<Long, PartRecord>emptyMap());
+	}
+
+	/**
+	 * List uploaded parts.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @return the tree hashes of the uploaded parts keyed by range ("start-end"), null if upload does not exist
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	private Map<String, String> listUploadedParts(final String vaultName, final String uploadId)
+			throws AmazonServiceException, AmazonClientException {
+		final Map<String, String> uploadedParts = new HashMap<String, String>();
+		String marker = null;
+		try {
+			do {
+				final ListPartsResult listPartsResult = glacierClient.listParts(new ListPartsRequest()
+						.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withUploadId(uploadId)
+						.withMarker(marker));
+				for (final PartListElement part : listPartsResult.getParts()) {
+					uploadedParts.put(part.getRangeInBytes(), part.getSHA256TreeHash());
+				}
+				marker = listPartsResult.getMarker();
+			} while (marker != null);
+		} catch (ResourceNotFoundException notFoundEx) {
+			return null;
+		}
+		return uploadedParts;
+	}
+
+	/**
+	 * Initiate upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveDescription the archive description
+	 * @param partSize the part size
+	 * @return the upload id
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 */
+	private String initiateUpload(final String vaultName, final String archiveDescription, final long partSize)
+			throws AmazonServiceException, AmazonClientException {
+		final InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest()
+				.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName)
+				.withArchiveDescription(archiveDescription).withPartSize(String.valueOf(partSize));
+		return glacierClient.initiateMultipartUpload(initiateRequest).getUploadId();
+	}
+
+	/**
+	 * Complete upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param archiveSize the archive size
+	 * @param partChecksums the part checksums in part order
+	 * @param journal the journal, deleted once upload is completed
+	 * @return the upload result
+	 * @throws AmazonServiceException the amazon service exception
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private ArchiveUploadResult completeUpload(final String vaultName, final String uploadId, final long archiveSize,
+			final List<byte[]> partChecksums, final UploadJournal journal) throws AmazonServiceException,
+			AmazonClientException, IOException {
+		final String checksum = TreeHash.toHex(TreeHash.combine(partChecksums));
+		final CompleteMultipartUploadRequest completeRequest = new CompleteMultipartUploadRequest()
+				.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withUploadId(uploadId)
+				.withArchiveSize(String.valueOf(archiveSize)).withChecksum(checksum);
+		final CompleteMultipartUploadResult completeResult = glacierClient.completeMultipartUpload(completeRequest);
+		LOGGER.info("Completed multipart upload: {} of {} bytes in vault: {}", uploadId, archiveSize, vaultName);
+		if (journal != null) {
+			journal.delete();
+		}
+		return new ArchiveUploadResult(completeResult.getArchiveId(), checksum, archiveSize);
+	}
+
+	/**
+	 * Abandon an upload which could not be completed.<br/>
+	 * Journaled uploads are kept so that they can be resumed, others are aborted. An upload whose
+	 * {@link UploadCancellation} is cancelled is aborted and its journal is deleted. An interrupt alone, e.g.
+	 * from an executor being shut down, does not cancel the upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param journal the journal, null if upload is not journaled
+	 */
+	private void abandonUpload(final String vaultName, final String uploadId, final UploadJournal journal) {
+		final boolean isCancelled = UploadCancellation.isCurrentCancelled();
+		final boolean isInterrupted = Thread.interrupted();//Cleared so that the abort request can be made
+		try {
+			if (journal == null || isCancelled) {
+				abortQuietly(vaultName, uploadId);
+				if (journal != null) {
+					journal.delete();
+				}
+			} else {
+				LOGGER.warn("Multipart upload: {} in vault: {} is kept for resuming, journal: {}", uploadId,
+						vaultName, journal.getJournalFile());
+			}
+		} catch (IOException ioex) {
+			LOGGER.warn("Journal of cancelled upload: {} could not be deleted: {}", uploadId, ioex.getMessage());
+		} finally {
+			if (isInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * New executor, created by the executor strategy of the transfer config.
+	 *
+	 * @param threads the threads
+	 * @return the executor service
+	 */
+	private ExecutorService newExecutor(final int threads) {
+		return transferConfig.getExecutorStrategy().newExecutor(THREAD_NAME_PREFIX, threads);
+	}
+
+	/**
+	 * Check buffered part size.
+	 *
+	 * @param partSize the part size
+	 */
+	private static void checkBufferedPartSize(final long partSize) {
+		if (partSize > MAX_BUFFERED_PART_SIZE) {
+			throw new IllegalArgumentException("Part size for stream uploads can not be larger than 1 GB!");
+		}
+	}
+
+	/**
+	 * Compute tree hash of the file, recording the time taken.
+	 *
+	 * @param inputFile the input file
+	 * @return the tree hash
+	 * @throws IOException the IO exception
+	 */
+	private static TreeHash.Result computeTreeHash(final File inputFile) throws IOException {
+		final long startNanos = System.nanoTime();
+		final TreeHash.Result treeHash = TreeHash.compute(inputFile);
+		GlacierMetrics.getInstance().record(GlacierMetrics.HASH_FILE, startNanos, inputFile.length());
+		return treeHash;
+	}
+
+	/**
+	 * Read the part using given reader, recording the time taken.
+	 *
+	 * @param partReader the part reader
+	 * @param partStart the part start
+	 * @param buffer the buffer
+	 * @return the number of bytes read
+	 * @throws IOException the IO exception
+	 */
+	private static int readPart(final PartReader partReader, final long partStart, final byte[] buffer)
+			throws IOException {
+		final long startNanos = System.nanoTime();
+		final int length = partReader.readPart(partStart, buffer);
+		GlacierMetrics.getInstance().record(GlacierMetrics.READ_PART, startNanos, length);
+		return length;
+	}
+
+	/**
+	 * Read fully.<br/>
+	 * Fills the buffer from the stream, returns less than buffer length only at end of stream.
+	 *
+	 * @param inputStream the input stream
+	 * @param buffer the buffer
+	 * @return the number of bytes read
+	 * @throws IOException the IO exception
+	 */
+	private static int readFully(final InputStream inputStream, final byte[] buffer) throws IOException {
+		int totalRead = 0;
+		while (totalRead < buffer.length) {
+			final int bytesRead = inputStream.read(buffer, totalRead, buffer.length - totalRead);
+			if (bytesRead == -1) {
+				break;
+			}
+			totalRead += bytesRead;
+		}
+		return totalRead;
+	}
+
+	/**
+	 * Launder part failure.<br/>
+	 * Rethrows the IO failures as is, everything else is surfaced as amazon client exception.
+	 *
+	 * @param cause the cause
+	 * @return the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	private static AmazonClientException launderPartFailure(final Throwable cause) throws IOException {
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+		if (cause instanceof AmazonClientException) {
+			return (AmazonClientException) cause;
+		}
+		return new AmazonClientException("Part upload failed: " + cause.getMessage(), cause);
+	}
+
+	/**
+	 * Abort the multipart upload, failures are only logged.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 */
+	private void abortQuietly(final String vaultName, final String uploadId) {
+		LOGGER.warn("Aborting multipart upload: {} in vault: {}", uploadId, vaultName);
+		try {
+			glacierClient.abortMultipartUpload(new AbortMultipartUploadRequest().withAccountId(ACCOUNT_ID_SELF)
+					.withVaultName(vaultName).withUploadId(uploadId));
+		} catch (AmazonClientException abortEx) {
+			LOGGER.error("Failed to abort multipart upload: " + uploadId, abortEx);
+		}
+	}
+
+	/**
+	 * The Class PartUploadTask.<br/>
+	 * Uploads a part along with its tree hash. A part whose tree hash matches the hash of the part
+	 * uploaded before is skipped, every uploaded part is recorded in the journal.
+	 */
+	private abstract class PartUploadTask implements Callable<Void> {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The upload session. */
+		private final UploadSession session;
+
+		/** The journal. */
+		private final UploadJournal journal;
+
+		/** The part index. */
+		private final int partIndex;
+
+		/** The part start. */
+		private final long partStart;
+
+		/** The part length. */
+		private final long partLength;
+
+		/** The tree hash of the part uploaded before, null if part was not uploaded. */
+		private final byte[] uploadedHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param session the upload session
+		 * @param journal the journal, null if upload is not journaled
+		 * @param partIndex the part index
+		 * @param partStart the part start
+		 * @param partLength the part length
+		 * @param uploadedHash the tree hash of the part uploaded before, null if part was not uploaded
+		 */
+		PartUploadTask(final String vaultName, final UploadSession session, final UploadJournal journal,
+				final int partIndex, final long partStart, final long partLength, final byte[] uploadedHash) {
+			this.vaultName = vaultName;
+			this.session = session;
+			this.journal = journal;
+			this.partIndex = partIndex;
+			this.partStart = partStart;
+			this.partLength = partLength;
+			this.uploadedHash = uploadedHash;
+		}
+
+		/**
+		 * Gets the part index.
+		 *
+		 * @return the part index
+		 */
+		protected int getPartIndex() {
+			return partIndex;
+		}
+
+		/**
+		 * Gets the part start.
+		 *
+		 * @return the part start
+		 */
+		protected long getPartStart() {
+			return partStart;
+		}
+
+		/**
+		 * Gets the part length.
+		 *
+		 * @return the part length
+		 */
+		protected long getPartLength() {
+			return partLength;
+		}
+
+		/**
+		 * Part tree hash.
+		 *
+		 * @return the tree hash of the part
+		 * @throws IOException the IO exception
+		 */
+		protected abstract byte[] partTreeHash() throws IOException;
+
+		/**
+		 * Open part stream.
+		 *
+		 * @return the input stream, positioned at the beginning of the part
+		 */
+		protected abstract InputStream openPartStream();
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() throws IOException {
+			final byte[] partHash = partTreeHash();
+			final String uploadId = session.getUploadId();
+			if (Arrays.equals(uploadedHash, partHash)) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("Part {} of multipart upload: {} was uploaded before", partIndex, uploadId);
+				}
+				return null;
+			}
+			final String range = "bytes " + partStart + "-" + (partStart + partLength - 1) + "/*";
+			final UploadMultipartPartRequest partRequest = new UploadMultipartPartRequest()
+					.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withUploadId(uploadId)
+					.withChecksum(TreeHash.toHex(partHash)).withRange(range).withBody(openPartStream());
+			glacierClient.uploadMultipartPart(partRequest);
+			if (journal != null) {
+				journal.recordPart(partStart, partLength, partHash);
+			}
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Uploaded part {} ({}) of multipart upload: {}", partIndex, range, uploadId);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The Class FilePartUploadTask.<br/>
+	 * Uploads a region of a file. Tree hash of the region is computed by the worker, unless it was
+	 * computed up front.
+	 */
+	private final class FilePartUploadTask extends PartUploadTask {
+
+		/** The channel. */
+		private final FileChannel channel;
+
+		/** The part hash, null if it is computed by the worker. */
+		private final byte[] partHash;
+
+		/** The part checksums, this task fills the entry at part index. */
+		private final byte[][] partChecksums;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param session the upload session
+		 * @param journal the journal
+		 * @param partIndex the part index
+		 * @param partStart the part start
+		 * @param partLength the part length
+		 * @param partHash the part hash, null if it is computed by the worker
+		 * @param partChecksums the part checksums
+		 * @param channel the channel
+		 */
+		FilePartUploadTask(final String vaultName, final UploadSession session, final UploadJournal journal,
+				final int partIndex, final long partStart, final long partLength, final byte[] partHash,
+				final byte[][] partChecksums, final FileChannel channel) {
+			super(vaultName, session, journal, partIndex, partStart, partLength,
+					session.getUploadedHash(partStart, partLength));
+			this.channel = channel;
+			this.partHash = partHash;
+			this.partChecksums = partChecksums;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartUploadTask#partTreeHash()
+		 */
+		@Override
+		protected byte[] partTreeHash() throws IOException {
+			byte[] treeHash = partHash;
+			if (treeHash == null) {
+				final long startNanos = System.nanoTime();
+				treeHash = TreeHash.hash(channel, getPartStart(), getPartLength());
+				GlacierMetrics.getInstance().record(GlacierMetrics.HASH_PART, startNanos, getPartLength());
+			}
+			partChecksums[getPartIndex()] = treeHash;
+			return treeHash;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartUploadTask#openPartStream()
+		 */
+		@Override
+		protected InputStream openPartStream() {
+			return new FileRegionInputStream(channel, getPartStart(), getPartLength());
+		}
+	}
+
+	/**
+	 * The Class BufferPartUploadTask.<br/>
+	 * Uploads a part held in a pooled buffer and returns the buffer to the pool afterwards.
+	 * Tree hash of the part is computed by the worker while the source is still being read.
+	 */
+	private final class BufferPartUploadTask extends PartUploadTask {
+
+		/** The buffer. */
+		private final byte[] buffer;
+
+		/** The length. */
+		private final int length;
+
+		/** The part checksums, this task fills the entry at part index. */
+		private final byte[][] partChecksums;
+
+		/** The buffer pool. */
+		private final PartBufferPool bufferPool;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param session the upload session
+		 * @param journal the journal
+		 * @param partIndex the part index
+		 * @param partStart the part start
+		 * @param length the length
+		 * @param uploadedHash the tree hash of the part uploaded before, null if part was not uploaded
+		 * @param partChecksums the part checksums
+		 * @param buffer the buffer
+		 * @param bufferPool the buffer pool
+		 */
+		BufferPartUploadTask(final String vaultName, final UploadSession session, final UploadJournal journal,
+				final int partIndex, final long partStart, final int length, final byte[] uploadedHash,
+				final byte[][] partChecksums, final byte[] buffer, final PartBufferPool bufferPool) {
+			super(vaultName, session, journal, partIndex, partStart, length, uploadedHash);
+			this.buffer = buffer;
+			this.length = length;
+			this.partChecksums = partChecksums;
+			this.bufferPool = bufferPool;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartUploadTask#partTreeHash()
+		 */
+		@Override
+		protected byte[] partTreeHash() {
+			final long startNanos = System.nanoTime();
+			final byte[] partHash = TreeHash.hash(buffer, 0, length);
+			GlacierMetrics.getInstance().record(GlacierMetrics.HASH_PART, startNanos, length);
+			partChecksums[getPartIndex()] = partHash;
+			return partHash;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartUploadTask#openPartStream()
+		 */
+		@Override
+		protected InputStream openPartStream() {
+			return new ByteArrayInputStream(buffer, 0, length);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartUploadTask#call()
+		 */
+		@Override
+		public Void call() throws IOException {
+			try {
+				return super.call();
+			} finally {
+				bufferPool.release(buffer); // Always hand the buffer back, so that reader never waits forever
+			}
+		}
+	}
+
+	/**
+	 * The Class UploadSession.<br/>
+	 * Upload id of a started or resumed multipart upload along with the parts uploaded before.
+	 */
+	private static final class UploadSession {
+
+		/** The upload id. */
+		private final String uploadId;
+
+		/** The uploaded parts, keyed by part start. */
+		private final Map<Long, PartRecord> uploadedParts;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param uploadId the upload id
+		 * @param uploadedParts the uploaded parts
+		 */
+		UploadSession(final String uploadId, final Map<Long, PartRecord> uploadedParts) {
+			this.uploadId = uploadId;
+			this.uploadedParts = uploadedParts;
+		}
+
+		/**
+		 * Gets the upload id.
+		 *
+		 * @return the upload id
+		 */
+		String getUploadId() {
+			return uploadId;
+		}
+
+		/**
+		 * Gets the uploaded part.
+		 *
+		 * @param partStart the part start
+		 * @return the uploaded part, null if no part starting at given offset was uploaded
+		 */
+		PartRecord getUploadedPart(final long partStart) {
+			return uploadedParts.get(partStart);
+		}
+
+		/**
+		 * Gets the uploaded hash.
+		 *
+		 * @param partStart the part start
+		 * @param partLength the part length
+		 * @return the tree hash of the uploaded part, null if the part was not uploaded
+		 */
+		byte[] getUploadedHash(final long partStart, final long partLength) {
+			final PartRecord uploadedPart = uploadedParts.get(partStart);
+			return uploadedPart != null && uploadedPart.getPartLength() == partLength ? uploadedPart.getTreeHash()
+					: null;
+		}
+	}
+
+	/**
+	 * The Class PartBufferPool.<br/>
+	 * Bounded pool of part buffers. Buffers are allocated lazily, taking a buffer blocks once all of them
+	 * are in use.
+	 */
+	private static final class PartBufferPool {
+
+		/** The free buffers. */
+		private final BlockingQueue<byte[]> freeBuffers;
+
+		/** The part size. */
+		private final int partSize;
+
+		/** The capacity. */
+		private final int capacity;
+
+		/** The allocated buffers, only touched by the reading thread. */
+		private int allocated;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param partSize the part size
+		 * @param capacity the capacity
+		 * @param allocated the buffers allocated already by the caller
+		 */
+		PartBufferPool(final int partSize, final int capacity, final int allocated) {
+			this.freeBuffers = new ArrayBlockingQueue<byte[]>(capacity);
+			this.partSize = partSize;
+			this.capacity = capacity;
+			this.allocated = allocated;
+		}
+
+		/**
+		 * Take a free buffer, waits while all buffers are in use.
+		 *
+		 * @return the buffer
+		 * @throws InterruptedException the interrupted exception
+		 */
+		byte[] take() throws InterruptedException {
+			final byte[] buffer = freeBuffers.poll();
+			if (buffer != null) {
+				return buffer;
+			}
+			if (allocated < capacity) {
+				allocated++;
+				return new byte[partSize];
+			}
+			return freeBuffers.take();
+		}
+
+		/**
+		 * Release the buffer.
+		 *
+		 * @param buffer the buffer
+		 */
+		void release(final byte[] buffer) {
+			freeBuffers.offer(buffer);
+		}
+	}
+
+	/**
+	 * The Interface PartReader.
+	 */
+	private interface PartReader {
+
+		/**
+		 * Read the part starting at given offset.
+		 *
+		 * @param partStart the part start
+		 * @param buffer the buffer
+		 * @return the number of bytes read, less than buffer length only at end of source
+		 * @throws IOException the IO exception
+		 */
+		int readPart(long partStart, byte[] buffer) throws IOException;
+	}
+
+	/**
+	 * The Class StreamPartReader.<br/>
+	 * Reads the parts of a stream one after the other, a stream can not skip parts.
+	 */
+	private static final class StreamPartReader implements PartReader {
+
+		/** The input stream. */
+		private final InputStream inputStream;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param inputStream the input stream
+		 */
+		StreamPartReader(final InputStream inputStream) {
+			this.inputStream = inputStream;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartReader#readPart(long, byte[])
+		 */
+		@Override
+		public int readPart(final long partStart, final byte[] buffer) throws IOException {
+			return readFully(inputStream, buffer);
+		}
+	}
+
+	/**
+	 * The Class SeekablePartReader.<br/>
+	 * Reads a part of a seekable source using a stream opened at the beginning of the part.
+	 */
+	private static final class SeekablePartReader implements PartReader {
+
+		/** The source. */
+		private final SeekableSource source;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param source the source
+		 */
+		SeekablePartReader(final SeekableSource source) {
+			this.source = source;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader.PartReader#readPart(long, byte[])
+		 */
+		@Override
+		public int readPart(final long partStart, final byte[] buffer) throws IOException {
+			try (InputStream partStream = source.openStream(partStart)) {
+				return readFully(partStream, buffer);
+			}
+		}
+	}
+}
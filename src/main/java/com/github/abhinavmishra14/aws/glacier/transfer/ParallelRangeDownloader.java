@@ -0,0 +1,571 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ACCOUNT_ID_SELF;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class ParallelRangeDownloader.<br/>
+ * Downloads the output of a completed retrieval job as byte ranges of {@link TransferConfig#getPartSize()},
+ * up to {@link TransferConfig#getConcurrency()} ranges at the same time. The target file is preallocated
+ * and every range is written straight to its offset through a positional {@link FileChannel} write,
+ * one megabyte at a time, so no range is held in memory as a whole.<br/>
+ * Since part size is a power of two multiple of 1 MB, every range is tree hash aligned. Each range is
+ * checked against the tree hash returned with it and the whole output against the tree hash of the job.
+ * Ranges which fail are retried on their own, up to {@link #MAX_RANGE_ATTEMPTS} times.<br/>
+ * Output which has to be decrypted or decompressed before it is written can be read as a stream instead,
+ * see {@link #open(String, String, long, String)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class ParallelRangeDownloader {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelRangeDownloader.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-download";
+
+	/** The Constant MAX_RANGE_ATTEMPTS. */
+	public static final int MAX_RANGE_ATTEMPTS = 3;
+
+	/** The Constant MAX_BUFFERED_RANGE_SIZE. Ranges of a streamed output are held in memory, hence capped. */
+	private static final long MAX_BUFFERED_RANGE_SIZE = 1024 * ONE_MB;
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param transferConfig the transfer config
+	 */
+	public ParallelRangeDownloader(final AmazonGlacier glacierClient, final TransferConfig transferConfig) {
+		super();
+		this.glacierClient = glacierClient;
+		this.transferConfig = transferConfig;
+	}
+
+	/**
+	 * Download the output of a completed job.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param outputSize the size of the job output
+	 * @param expectedTreeHash the tree hash of the whole output, null if glacier did not report one
+	 * @param targetFile the target file, overwritten if it exists
+	 * @throws AmazonClientException if a range still fails after all the attempts
+	 * @throws IOException the IO exception
+	 */
+	public void download(final String vaultName, final String jobId, final long outputSize,
+			final String expectedTreeHash, final File targetFile) throws AmazonClientException, IOException {
+		if (outputSize == 0) {
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(targetFile, "rw")) {
+				randomAccessFile.setLength(0);
+			}
+			return;
+		}
+		final long rangeSize = transferConfig.getPartSize();
+		final int rangeCount = (int) ((outputSize + rangeSize - 1) / rangeSize);
+		final int leafCount = (int) ((outputSize + ONE_MB - 1) / ONE_MB);
+		final byte[][] leafHashes = new byte[leafCount][];
+		LOGGER.info("Downloading output of job: {} of {} bytes in {} ranges", jobId, outputSize, rangeCount);
+		final ExecutorService executor = transferConfig.getExecutorStrategy().newExecutor(THREAD_NAME_PREFIX,
+				Math.min(transferConfig.getConcurrency(), rangeCount));
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(targetFile, "rw");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			randomAccessFile.setLength(outputSize);
+			List<RangeDownloadTask> pendingRanges = new ArrayList<RangeDownloadTask>(rangeCount);
+			for (int rangeIndex = 0; rangeIndex < rangeCount; rangeIndex++) {
+				final long rangeStart = rangeIndex * rangeSize;
+				pendingRanges.add(new RangeDownloadTask(vaultName, jobId, rangeStart, Math.min(rangeSize,
+						outputSize - rangeStart), channel, leafHashes));
+			}
+			for (int attempt = 1; !pendingRanges.isEmpty(); attempt++) {
+				pendingRanges = downloadRanges(executor, pendingRanges, attempt);
+			}
+			channel.force(false);
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			throw new AmazonClientException("Download interrupted: " + jobId, intEx);
+		} finally {
+			executor.shutdownNow();
+		}
+		if (expectedTreeHash != null
+				&& !expectedTreeHash.equalsIgnoreCase(TreeHash.toHex(TreeHash.combine(Arrays.asList(leafHashes))))) {
+			throw new IOException("Tree hash mismatch in output of retrieval job: " + jobId);
+		}
+	}
+
+	/**
+	 * Open the output of a completed job as a stream. Ranges ahead of the reader are downloaded at the same
+	 * time and held in memory until they are read, up to {@link TransferConfig#getMaxPartsInFlight()} ranges
+	 * of part size, the same as part buffers of a stream upload. Each range is checked against its tree hash
+	 * and retried on its own, the read reaching the end of the output fails if the tree hash of the whole
+	 * output does not match.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param outputSize the size of the job output
+	 * @param expectedTreeHash the tree hash of the whole output, null if glacier did not report one
+	 * @return the output, it must be closed in order to release its threads
+	 */
+	public InputStream open(final String vaultName, final String jobId, final long outputSize,
+			final String expectedTreeHash) {
+		return new RangeInputStream(vaultName, jobId, outputSize, expectedTreeHash);
+	}
+
+	/**
+	 * Gets the description of the archive retrieved by a completed job. Glacier returns it along with the
+	 * output, so only the first byte of the output is requested.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @return the archive description, null if the archive has none
+	 * @throws AmazonClientException the amazon client exception
+	 * @throws IOException the IO exception
+	 */
+	public String getArchiveDescription(final String vaultName, final String jobId) throws AmazonClientException,
+			IOException {
+		final GetJobOutputResult outputResult = glacierClient.getJobOutput(new GetJobOutputRequest()
+				.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withJobId(jobId).withRange("bytes=0-0"));
+		if (outputResult.getBody() != null) {
+			outputResult.getBody().close();
+		}
+		return outputResult.getArchiveDescription();
+	}
+
+	/**
+	 * Download the ranges at the same time.
+	 *
+	 * @param executor the executor
+	 * @param ranges the ranges
+	 * @param attempt the attempt number
+	 * @return the ranges which failed and are to be retried
+	 * @throws InterruptedException the interrupted exception
+	 * @throws AmazonClientException if a range failed on its last attempt
+	 */
+	private List<RangeDownloadTask> downloadRanges(final ExecutorService executor,
+			final List<RangeDownloadTask> ranges, final int attempt) throws InterruptedException {
+		final CompletionService<RangeDownloadTask> completionService = new ExecutorCompletionService<RangeDownloadTask>(
+				executor);
+		for (final RangeDownloadTask range : ranges) {
+			completionService.submit(range, range);
+		}
+		final List<RangeDownloadTask> failedRanges = new ArrayList<RangeDownloadTask>();
+		for (int rangeIndex = 0; rangeIndex < ranges.size(); rangeIndex++) {
+			try {
+				completionService.take().get();
+			} catch (ExecutionException execEx) {
+				if (!(execEx.getCause() instanceof RangeFailure)) {
+					throw new AmazonClientException("Range download failed", execEx.getCause());
+				}
+				final RangeDownloadTask failedRange = ((RangeFailure) execEx.getCause()).range;
+				if (attempt >= MAX_RANGE_ATTEMPTS) {
+					throw new AmazonClientException("Failed to download range: " + failedRange + " after " + attempt
+							+ " attempts", execEx.getCause().getCause());
+				}
+				LOGGER.warn("Failed to download range: {}, retrying", failedRange, execEx.getCause().getCause());
+				GlacierMetrics.getInstance().countRetry(GlacierMetrics.DOWNLOAD_RANGE);
+				failedRanges.add(failedRange);
+			}
+		}
+		return failedRanges;
+	}
+
+	/**
+	 * The Class RangeFailure.<br/>
+	 * Carries the range which failed along with the cause, out of the completion service.
+	 */
+	private static final class RangeFailure extends RuntimeException {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The range. */
+		private final transient RangeDownloadTask range;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param range the range
+		 * @param cause the cause
+		 */
+		RangeFailure(final RangeDownloadTask range, final Exception cause) {
+			super(cause);
+			this.range = range;
+		}
+	}
+
+	/**
+	 * The Class RangeInputStream.<br/>
+	 * Output of a job read in order, while the ranges ahead of the reader are downloaded at the same time.
+	 */
+	private final class RangeInputStream extends InputStream {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The job id. */
+		private final String jobId;
+
+		/** The output size. */
+		private final long outputSize;
+
+		/** The expected tree hash. */
+		private final String expectedTreeHash;
+
+		/** The range size. */
+		private final long rangeSize;
+
+		/** The max ranges in flight. */
+		private final int maxRangesInFlight;
+
+		/** The executor. */
+		private final ExecutorService executor;
+
+		/** The downloaded ranges, in output order. */
+		private final Deque<Future<RangeDownloadTask>> pendingRanges = new ArrayDeque<Future<RangeDownloadTask>>();
+
+		/** The leaf hashes of the whole output. */
+		private final byte[][] leafHashes;
+
+		/** The start of the next range to submit. */
+		private long nextRangeStart;
+
+		/** The current range. */
+		private byte[] currentRange;
+
+		/** The position in the current range. */
+		private int position;
+
+		/** Whether the whole output was read and verified. */
+		private boolean ended;
+
+		/** The closed. */
+		private boolean closed;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param jobId the job id
+		 * @param outputSize the output size
+		 * @param expectedTreeHash the expected tree hash
+		 */
+		RangeInputStream(final String vaultName, final String jobId, final long outputSize,
+				final String expectedTreeHash) {
+			super();
+			this.vaultName = vaultName;
+			this.jobId = jobId;
+			this.outputSize = outputSize;
+			this.expectedTreeHash = expectedTreeHash;
+			this.rangeSize = Math.min(transferConfig.getPartSize(), MAX_BUFFERED_RANGE_SIZE);
+			this.maxRangesInFlight = transferConfig.getMaxPartsInFlight();
+			this.leafHashes = new byte[(int) ((outputSize + ONE_MB - 1) / ONE_MB)][];
+			this.executor = transferConfig.getExecutorStrategy().newExecutor(THREAD_NAME_PREFIX,
+					Math.min(transferConfig.getConcurrency(), maxRangesInFlight));
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			final byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (length == 0) {
+				return 0;
+			}
+			while (currentRange == null || position == currentRange.length) {
+				if (!nextRange()) {
+					return -1;
+				}
+			}
+			final int count = Math.min(length, currentRange.length - position);
+			System.arraycopy(currentRange, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#close()
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				executor.shutdownNow();
+				pendingRanges.clear();
+				currentRange = null;
+			}
+		}
+
+		/**
+		 * Move to the next range, submitting the ranges ahead of it.
+		 *
+		 * @return true, if there is a next range
+		 * @throws IOException if a range still fails after all the attempts, or the output is corrupt
+		 */
+		private boolean nextRange() throws IOException {
+			if (ended) {
+				return false;
+			}
+			while (nextRangeStart < outputSize && pendingRanges.size() < maxRangesInFlight) {
+				final RangeDownloadTask range = new RangeDownloadTask(vaultName, jobId, nextRangeStart,
+						Math.min(rangeSize, outputSize - nextRangeStart), null, leafHashes);
+				pendingRanges.add(executor.submit(range, range));
+				nextRangeStart += range.rangeLength;
+			}
+			Future<RangeDownloadTask> pendingRange = pendingRanges.poll();
+			if (pendingRange == null) {
+				ended = true;
+				if (expectedTreeHash != null && !expectedTreeHash.equalsIgnoreCase(TreeHash.toHex(TreeHash.combine(
+						Arrays.asList(leafHashes))))) {
+					throw new IOException("Tree hash mismatch in output of retrieval job: " + jobId);
+				}
+				return false;
+			}
+			try {
+				while (true) {
+					try {
+						currentRange = pendingRange.get().takeBuffer();
+						position = 0;
+						return true;
+					} catch (ExecutionException execEx) {
+						if (!(execEx.getCause() instanceof RangeFailure)) {
+							throw new IOException("Range download failed", execEx.getCause());
+						}
+						final RangeDownloadTask failedRange = ((RangeFailure) execEx.getCause()).range;
+						if (failedRange.attempts >= MAX_RANGE_ATTEMPTS) {
+							throw new IOException("Failed to download range: " + failedRange + " after "
+									+ failedRange.attempts + " attempts", execEx.getCause().getCause());
+						}
+						LOGGER.warn("Failed to download range: {}, retrying", failedRange,
+								execEx.getCause().getCause());
+						GlacierMetrics.getInstance().countRetry(GlacierMetrics.DOWNLOAD_RANGE);
+						pendingRange = executor.submit(failedRange, failedRange);
+					}
+				}
+			} catch (InterruptedException intEx) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while downloading output of job: " + jobId);
+			}
+		}
+	}
+
+	/**
+	 * The Class RangeDownloadTask.<br/>
+	 * Downloads a single range and writes it at its offset of the target file, or into a buffer of its own
+	 * if there is no target file.
+	 */
+	private final class RangeDownloadTask implements Runnable {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The job id. */
+		private final String jobId;
+
+		/** The range start. */
+		private final long rangeStart;
+
+		/** The range length. */
+		private final long rangeLength;
+
+		/** The channel, null if the range is downloaded into a buffer. */
+		private final FileChannel channel;
+
+		/** The buffer, the range downloaded when there is no channel. */
+		private byte[] buffer;
+
+		/** The number of attempts made. */
+		private int attempts;
+
+		/** The leaf hashes of the whole output, this range fills its own slots. */
+		private final byte[][] leafHashes;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 * @param jobId the job id
+		 * @param rangeStart the range start
+		 * @param rangeLength the range length
+		 * @param channel the channel, null to download into a buffer
+		 * @param leafHashes the leaf hashes
+		 */
+		RangeDownloadTask(final String vaultName, final String jobId, final long rangeStart, final long rangeLength,
+				final FileChannel channel, final byte[][] leafHashes) {
+			this.vaultName = vaultName;
+			this.jobId = jobId;
+			this.rangeStart = rangeStart;
+			this.rangeLength = rangeLength;
+			this.channel = channel;
+			this.leafHashes = leafHashes;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			attempts++;
+			final GlacierMetrics metrics = GlacierMetrics.getInstance();
+			final long startNanos = metrics.start(GlacierMetrics.DOWNLOAD_RANGE);
+			try {
+				download();
+				metrics.complete(GlacierMetrics.DOWNLOAD_RANGE, startNanos, null);
+				metrics.addBytes(GlacierMetrics.DOWNLOAD_RANGE, rangeLength);
+			} catch (IOException | AmazonClientException downloadEx) {
+				metrics.complete(GlacierMetrics.DOWNLOAD_RANGE, startNanos, downloadEx);
+				throw new RangeFailure(this, downloadEx);
+			}
+		}
+
+		/**
+		 * Download the range, hashing and writing it one leaf at a time.
+		 *
+		 * @throws IOException the IO exception
+		 */
+		private void download() throws IOException {
+			final GetJobOutputResult outputResult = glacierClient.getJobOutput(new GetJobOutputRequest()
+					.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withJobId(jobId)
+					.withRange("bytes=" + this));
+			final int firstLeaf = (int) (rangeStart / ONE_MB);
+			final int leafCount = (int) ((rangeLength + ONE_MB - 1) / ONE_MB);
+			final List<byte[]> rangeLeafHashes = new ArrayList<byte[]>(leafCount);
+			// Whole range is read into one buffer if it is kept in memory, otherwise one leaf at a time
+			final byte[] leaf = channel == null ? new byte[(int) rangeLength]
+					: new byte[(int) Math.min(ONE_MB, rangeLength)];
+			try (InputStream body = outputResult.getBody()) {
+				long position = rangeStart;
+				for (int leafIndex = 0; leafIndex < leafCount; leafIndex++) {
+					final int leafLength = (int) Math.min(ONE_MB, rangeStart + rangeLength - position);
+					final int leafOffset = channel == null ? (int) (position - rangeStart) : 0;
+					readFully(body, leaf, leafOffset, leafLength);
+					if (channel != null) {
+						final ByteBuffer leafBuffer = ByteBuffer.wrap(leaf, 0, leafLength);
+						while (leafBuffer.hasRemaining()) {
+							channel.write(leafBuffer, position + leafBuffer.position());
+						}
+					}
+					rangeLeafHashes.add(TreeHash.hash(leaf, leafOffset, leafLength));
+					position += leafLength;
+				}
+				if (body.read() != -1) {
+					throw new IOException("Range: " + this + " is longer than expected");
+				}
+			}
+			final String checksum = outputResult.getChecksum();
+			if (checksum != null && !checksum.equalsIgnoreCase(TreeHash.toHex(TreeHash.combine(rangeLeafHashes)))) {
+				throw new IOException("Tree hash mismatch in range: " + this);
+			}
+			for (int leafIndex = 0; leafIndex < leafCount; leafIndex++) {
+				leafHashes[firstLeaf + leafIndex] = rangeLeafHashes.get(leafIndex);
+			}
+			if (channel == null) {
+				buffer = leaf;
+			}
+		}
+
+		/**
+		 * Take the buffer the range was downloaded into.
+		 *
+		 * @return the buffer
+		 */
+		private byte[] takeBuffer() {
+			final byte[] rangeBuffer = buffer;
+			buffer = null;
+			return rangeBuffer;
+		}
+
+		/**
+		 * Read exactly the given number of bytes.
+		 *
+		 * @param body the body
+		 * @param leaf the buffer the leaf is read into
+		 * @param offset the offset of the leaf in the buffer
+		 * @param length the length
+		 * @throws IOException if the body ends early
+		 */
+		private void readFully(final InputStream body, final byte[] leaf, final int offset, final int length)
+				throws IOException {
+			int count = 0;
+			while (count < length) {
+				final int bytesRead = body.read(leaf, offset + count, length - count);
+				if (bytesRead == -1) {
+					throw new IOException("Range: " + this + " ended after " + count + " bytes of a leaf");
+				}
+				count += bytesRead;
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return rangeStart + "-" + (rangeStart + rangeLength - 1);
+		}
+	}
+}
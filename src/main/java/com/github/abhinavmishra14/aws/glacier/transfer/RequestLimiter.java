@@ -0,0 +1,94 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Semaphore;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+
+/**
+ * The Class RequestLimiter.<br/>
+ * Wraps a glacier client so that no more than the given number of upload requests are in flight
+ * at the same time, across all the threads sharing the wrapped client. Other requests are passed
+ * through as is.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class RequestLimiter implements InvocationHandler {
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The permits. */
+	private final Semaphore permits;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param maxConcurrentRequests the max concurrent requests
+	 */
+	private RequestLimiter(final AmazonGlacier glacierClient, final int maxConcurrentRequests) {
+		this.glacierClient = glacierClient;
+		this.permits = new Semaphore(maxConcurrentRequests, true);
+	}
+
+	/**
+	 * Limit the upload requests of the given client.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param maxConcurrentRequests the max concurrent requests
+	 * @return the limited glacier client
+	 */
+	static AmazonGlacier limit(final AmazonGlacier glacierClient, final int maxConcurrentRequests) {
+		return (AmazonGlacier) Proxy.newProxyInstance(AmazonGlacier.class.getClassLoader(),
+				new Class<?>[] {AmazonGlacier.class}, new RequestLimiter(glacierClient, maxConcurrentRequests));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		final boolean isUpload = "uploadArchive".equals(method.getName())
+				|| "uploadMultipartPart".equals(method.getName());
+		if (isUpload) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException intEx) {
+				Thread.currentThread().interrupt();
+				throw new AmazonClientException("Interrupted while waiting for an upload slot", intEx);
+			}
+		}
+		try {
+			return method.invoke(glacierClient, args);
+		} catch (InvocationTargetException invocationEx) {
+			throw invocationEx.getCause();
+		} finally {
+			if (isUpload) {
+				permits.release();
+			}
+		}
+	}
+}
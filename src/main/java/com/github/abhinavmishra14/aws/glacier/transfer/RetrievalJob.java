@@ -0,0 +1,201 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.amazonaws.services.glacier.model.GlacierJobDescription;
+
+/**
+ * The Class RetrievalJob.<br/>
+ * Handle of a retrieval job tracked by {@link RetrievalJobTracker}. It is a future which completes
+ * with the downloaded file once the job has completed and its output is downloaded, or with null when
+ * the job was tracked without a target file. Cancelling the future stops tracking the job.<br/>
+ * Completion can also be observed without blocking a thread, see {@link #toCompletableFuture()}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class RetrievalJob extends FutureTask<File> {
+
+	/** The Constant NOT_RUNNABLE. Job futures are completed by the tracker, never run. */
+	private static final Callable<File> NOT_RUNNABLE = new Callable<File>() {
+		@Override
+		public File call() {
+			throw new UnsupportedOperationException("Retrieval jobs are completed by the tracker");
+		}
+	};
+
+	/** The vault name. */
+	private final String vaultName;
+
+	/** The job id. */
+	private final String jobId;
+
+	/** The archive id. */
+	private final String archiveId;
+
+	/** The target file. */
+	private final File targetFile;
+
+	/** The job description, set once the job has completed. */
+	private volatile GlacierJobDescription jobDescription;
+
+	/** The completion, completed along with this future. */
+	private final CompletableFuture<File> completion = new CompletableFuture<File>();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param archiveId the archive id, null if not known
+	 * @param targetFile the target file, null if output is not downloaded
+	 */
+	RetrievalJob(final String vaultName, final String jobId, final String archiveId, final File targetFile) {
+		super(NOT_RUNNABLE);
+		this.vaultName = vaultName;
+		this.jobId = jobId;
+		this.archiveId = archiveId;
+		this.targetFile = targetFile;
+		completion.whenComplete((outputFile, failure) -> {
+			if (completion.isCancelled()) {
+				cancel(false);
+			}
+		});
+	}
+
+	/**
+	 * Gets the vault name.
+	 *
+	 * @return the vault name
+	 */
+	public String getVaultName() {
+		return vaultName;
+	}
+
+	/**
+	 * Gets the job id.
+	 *
+	 * @return the job id
+	 */
+	public String getJobId() {
+		return jobId;
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id, null if the job was tracked by its id only
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Gets the target file.
+	 *
+	 * @return the target file, null if output is not downloaded
+	 */
+	public File getTargetFile() {
+		return targetFile;
+	}
+
+	/**
+	 * Gets the job description.
+	 *
+	 * @return the job description as reported by glacier on completion, null while the job is in progress
+	 */
+	public GlacierJobDescription getJobDescription() {
+		return jobDescription;
+	}
+
+	/**
+	 * Gets the job as completable future.<br/>
+	 * It completes along with the job, cancelling it cancels the job.
+	 *
+	 * @return the completable future
+	 */
+	public CompletableFuture<File> toCompletableFuture() {
+		return completion;
+	}
+
+	/**
+	 * Run does nothing, the future is completed by the tracker.
+	 */
+	@Override
+	public void run() {
+		// Completed by the tracker
+	}
+
+	/**
+	 * Job has completed on glacier side.
+	 *
+	 * @param jobDescription the job description
+	 */
+	void jobCompleted(final GlacierJobDescription jobDescription) {
+		this.jobDescription = jobDescription;
+	}
+
+	/**
+	 * Complete the future.
+	 *
+	 * @param outputFile the output file
+	 */
+	void completed(final File outputFile) {
+		set(outputFile);
+	}
+
+	/**
+	 * Fail the future.
+	 *
+	 * @param cause the cause
+	 */
+	void failed(final Throwable cause) {
+		setException(cause);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.FutureTask#done()
+	 */
+	@Override
+	protected void done() {
+		try {
+			completion.complete(get());
+		} catch (CancellationException cancelEx) {
+			completion.cancel(false);
+		} catch (ExecutionException execEx) {
+			completion.completeExceptionally(execEx.getCause());
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();//Not expected, future is done
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return vaultName + "/" + jobId;
+	}
+}
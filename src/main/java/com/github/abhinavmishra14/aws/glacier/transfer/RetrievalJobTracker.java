@@ -0,0 +1,504 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ACCOUNT_ID_SELF;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GlacierJobDescription;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.JobParameters;
+import com.amazonaws.services.glacier.model.ListJobsRequest;
+import com.amazonaws.services.glacier.model.ListJobsResult;
+import com.amazonaws.services.glacier.model.StatusCode;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveCompression;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveEncryption;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptionHeader;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+
+/**
+ * The Class RetrievalJobTracker.<br/>
+ * Starts retrieval jobs and tracks any number of outstanding jobs using a single scheduler thread.
+ * Instead of asking for the status of every job, the tracker lists the completed jobs of each vault
+ * which has outstanding jobs, so the number of status requests depends on the number of vaults
+ * rather than the number of jobs. The poll interval of a vault starts at
+ * {@link TransferConfig#getMinPollInterval()}, doubles after every poll which finds nothing new, up to
+ * {@link TransferConfig#getMaxPollInterval()}, and drops back once a job completes, since jobs tend to
+ * complete in bursts.<br/>
+ * Output of completed jobs is downloaded by a fixed pool of {@link TransferConfig#getFileConcurrency()}
+ * threads, each one using {@link ParallelRangeDownloader}, so the thread count stays the same no matter how
+ * many jobs are tracked.<br/>
+ * Output of an encrypted or compressed archive is decrypted and decompressed while it is downloaded, so only
+ * plain text reaches the target file, see {@link #openDecoded(ParallelRangeDownloader, RetrievalJob)}.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class RetrievalJobTracker {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetrievalJobTracker.class);
+
+	/** The Constant ARCHIVE_RETRIEVAL. */
+	private static final String ARCHIVE_RETRIEVAL = "archive-retrieval";
+
+	/** The Constant PARTIAL_FILE_SUFFIX. Output is downloaded to this file, then renamed to the target. */
+	private static final String PARTIAL_FILE_SUFFIX = ".part";
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The transfer config. */
+	private final TransferConfig transferConfig;
+
+	/** The scheduler. */
+	private final ScheduledExecutorService scheduler;
+
+	/** The download workers. */
+	private final ExecutorService downloadWorkers;
+
+	/** The vault pollers, one per vault having outstanding jobs. */
+	private final Map<String, VaultPoller> vaultPollers = new HashMap<String, VaultPoller>();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param transferConfig the transfer config
+	 */
+	public RetrievalJobTracker(final AmazonGlacier glacierClient, final TransferConfig transferConfig) {
+		super();
+		this.glacierClient = glacierClient;
+		this.transferConfig = transferConfig;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("glacier-job-poll"));
+		this.downloadWorkers = transferConfig.getExecutorStrategy().newExecutor("glacier-job-output",
+				transferConfig.getFileConcurrency());
+	}
+
+	/**
+	 * Start an archive retrieval job and track it.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param byteRange the byte range to retrieve in "start-end" form, null for the whole archive
+	 * @param targetFile the file where output is downloaded, null if output should not be downloaded
+	 * @return the retrieval job
+	 * @throws AmazonClientException if the job could not be started
+	 */
+	public RetrievalJob retrieve(final String vaultName, final String archiveId, final String byteRange,
+			final File targetFile) throws AmazonClientException {
+		return retrieve(vaultName, archiveId, byteRange, null, targetFile);
+	}
+
+	/**
+	 * Start a retrieval job for a plain text range of an encrypted archive and track it. The segments holding
+	 * the range are retrieved, output is decrypted while it is downloaded and only the range is written to the
+	 * target file.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param encryptedRange the plain text range
+	 * @param targetFile the file where the range is downloaded, null if output should not be downloaded
+	 * @return the retrieval job
+	 * @throws AmazonClientException if the job could not be started
+	 */
+	public RetrievalJob retrieve(final String vaultName, final String archiveId,
+			final EncryptedRange encryptedRange, final File targetFile) throws AmazonClientException {
+		return retrieve(vaultName, archiveId, encryptedRange.getRetrievalByteRange(),
+				encryptedRange.getJobDescription(), targetFile);
+	}
+
+	/**
+	 * Start an archive retrieval job and track it.
+	 *
+	 * @param vaultName the vault name
+	 * @param archiveId the archive id
+	 * @param byteRange the byte range, null for the whole archive
+	 * @param jobDescription the job description, may be null
+	 * @param targetFile the target file, may be null
+	 * @return the retrieval job
+	 * @throws AmazonClientException if the job could not be started
+	 */
+	private RetrievalJob retrieve(final String vaultName, final String archiveId, final String byteRange,
+			final String jobDescription, final File targetFile) throws AmazonClientException {
+		final JobParameters jobParameters = new JobParameters().withType(ARCHIVE_RETRIEVAL).withArchiveId(archiveId)
+				.withRetrievalByteRange(byteRange).withDescription(jobDescription);
+		final String jobId = glacierClient.initiateJob(new InitiateJobRequest().withAccountId(ACCOUNT_ID_SELF)
+				.withVaultName(vaultName).withJobParameters(jobParameters)).getJobId();
+		LOGGER.info("Started retrieval job: {} for archive: {} in vault: {}", jobId, archiveId, vaultName);
+		final RetrievalJob retrievalJob = new RetrievalJob(vaultName, jobId, archiveId, targetFile);
+		schedule(retrievalJob);
+		return retrievalJob;
+	}
+
+	/**
+	 * Track a job which was started before, for example by a previous run of the process.
+	 *
+	 * @param vaultName the vault name
+	 * @param jobId the job id
+	 * @param targetFile the file where output is downloaded, null if output should not be downloaded
+	 * @return the retrieval job
+	 * @throws AmazonClientException if the job does not exist
+	 */
+	public RetrievalJob track(final String vaultName, final String jobId, final File targetFile)
+			throws AmazonClientException {
+		final DescribeJobResult describeResult = glacierClient.describeJob(new DescribeJobRequest()
+				.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withJobId(jobId));
+		final RetrievalJob retrievalJob = new RetrievalJob(vaultName, jobId, describeResult.getArchiveId(),
+				targetFile);
+		if (Boolean.TRUE.equals(describeResult.getCompleted())) {
+			dispatch(retrievalJob, toJobDescription(describeResult));
+		} else {
+			schedule(retrievalJob);
+		}
+		return retrievalJob;
+	}
+
+	/**
+	 * Gets the number of outstanding jobs.
+	 *
+	 * @return the number of jobs which are not completed on glacier side yet
+	 */
+	public synchronized int getOutstandingJobs() {
+		int outstandingJobs = 0;
+		for (final VaultPoller vaultPoller : vaultPollers.values()) {
+			outstandingJobs += vaultPoller.jobs.size();
+		}
+		return outstandingJobs;
+	}
+
+	/**
+	 * Shutdown the tracker. Outstanding jobs are cancelled locally, they keep running on glacier side and
+	 * can be tracked again using {@link #track(String, String, File)}.
+	 */
+	public void shutdown() {
+		final List<RetrievalJob> outstandingJobs = new ArrayList<RetrievalJob>();
+		synchronized (this) {
+			for (final VaultPoller vaultPoller : vaultPollers.values()) {
+				outstandingJobs.addAll(vaultPoller.jobs.values());
+			}
+			vaultPollers.clear();
+			scheduler.shutdownNow();
+		}
+		downloadWorkers.shutdownNow();
+		for (final RetrievalJob retrievalJob : outstandingJobs) {
+			retrievalJob.cancel(false);
+		}
+	}
+
+	/**
+	 * Add the job to the poller of its vault, starting the poller if the vault has no other outstanding jobs.
+	 *
+	 * @param retrievalJob the retrieval job
+	 */
+	private synchronized void schedule(final RetrievalJob retrievalJob) {
+		if (scheduler.isShutdown()) {
+			throw new IllegalStateException("Retrieval job tracker is shut down");
+		}
+		VaultPoller vaultPoller = vaultPollers.get(retrievalJob.getVaultName());
+		if (vaultPoller == null) {
+			vaultPoller = new VaultPoller(retrievalJob.getVaultName());
+			vaultPollers.put(retrievalJob.getVaultName(), vaultPoller);
+			scheduler.schedule(vaultPoller, vaultPoller.pollInterval, TimeUnit.MILLISECONDS);
+		}
+		vaultPoller.jobs.put(retrievalJob.getJobId(), retrievalJob);
+	}
+
+	/**
+	 * Schedule the next poll of the vault, or stop polling it when it has no more outstanding jobs.
+	 *
+	 * @param vaultPoller the vault poller
+	 */
+	private synchronized void reschedule(final VaultPoller vaultPoller) {
+		if (vaultPollers.get(vaultPoller.vaultName) != vaultPoller) {
+			return;
+		}
+		if (vaultPoller.jobs.isEmpty()) {
+			vaultPollers.remove(vaultPoller.vaultName);
+		} else if (!scheduler.isShutdown()) {
+			scheduler.schedule(vaultPoller, vaultPoller.pollInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Handle a job which completed on glacier side.
+	 *
+	 * @param retrievalJob the retrieval job
+	 * @param jobDescription the job description
+	 */
+	private void dispatch(final RetrievalJob retrievalJob, final GlacierJobDescription jobDescription) {
+		retrievalJob.jobCompleted(jobDescription);
+		if (!StatusCode.Succeeded.toString().equals(jobDescription.getStatusCode())) {
+			LOGGER.warn("Retrieval job: {} failed: {}", retrievalJob, jobDescription.getStatusMessage());
+			retrievalJob.failed(new AmazonClientException("Retrieval job " + retrievalJob.getJobId() + " "
+					+ jobDescription.getStatusCode() + ": " + jobDescription.getStatusMessage()));
+		} else if (retrievalJob.getTargetFile() == null) {
+			retrievalJob.completed(null);
+		} else {
+			downloadWorkers.execute(new OutputDownload(retrievalJob));
+		}
+	}
+
+	/**
+	 * Checks if the job retrieves the whole archive, rather than a byte range of it.
+	 *
+	 * @param jobDescription the job description
+	 * @return true, if the output is the whole archive
+	 */
+	private static boolean isWholeArchive(final GlacierJobDescription jobDescription) {
+		final String byteRange = jobDescription.getRetrievalByteRange();
+		return byteRange == null || outputSize(jobDescription) == jobDescription.getArchiveSizeInBytes();
+	}
+
+	/**
+	 * Size of the output of a completed job.
+	 *
+	 * @param jobDescription the job description
+	 * @return the size of the retrieved byte range, or of the whole archive
+	 */
+	private static long outputSize(final GlacierJobDescription jobDescription) {
+		final String byteRange = jobDescription.getRetrievalByteRange();
+		if (byteRange == null) {
+			return jobDescription.getArchiveSizeInBytes();
+		}
+		final int separator = byteRange.indexOf('-');
+		return Long.parseLong(byteRange.substring(separator + 1)) - Long.parseLong(byteRange.substring(0, separator))
+				+ 1;
+	}
+
+	/**
+	 * Convert the result of describe job to a job description.
+	 *
+	 * @param describeResult the describe result
+	 * @return the glacier job description
+	 */
+	private static GlacierJobDescription toJobDescription(final DescribeJobResult describeResult) {
+		return new GlacierJobDescription().withJobId(describeResult.getJobId())
+				.withJobDescription(describeResult.getJobDescription()).withArchiveId(describeResult.getArchiveId())
+				.withCompleted(describeResult.getCompleted())
+				.withStatusCode(describeResult.getStatusCode()).withStatusMessage(describeResult.getStatusMessage())
+				.withArchiveSizeInBytes(describeResult.getArchiveSizeInBytes())
+				.withSHA256TreeHash(describeResult.getSHA256TreeHash())
+				.withRetrievalByteRange(describeResult.getRetrievalByteRange());
+	}
+
+	/**
+	 * The Class VaultPoller.<br/>
+	 * Polls the completed jobs of one vault. Runs on the scheduler thread only.
+	 */
+	private final class VaultPoller implements Runnable {
+
+		/** The vault name. */
+		private final String vaultName;
+
+		/** The outstanding jobs, keyed by job id. */
+		private final Map<String, RetrievalJob> jobs = new ConcurrentHashMap<String, RetrievalJob>();
+
+		/** The poll interval. */
+		private long pollInterval = transferConfig.getMinPollInterval();
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param vaultName the vault name
+		 */
+		VaultPoller(final String vaultName) {
+			this.vaultName = vaultName;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			boolean anyCompleted = false;
+			try {
+				anyCompleted = poll();
+			} catch (RuntimeException pollEx) {
+				LOGGER.warn("Could not poll retrieval jobs of vault: {}, {} jobs outstanding", vaultName,
+						jobs.size(), pollEx);
+			}
+			pollInterval = anyCompleted ? transferConfig.getMinPollInterval() : Math.min(pollInterval * 2,
+					transferConfig.getMaxPollInterval());
+			reschedule(this);
+		}
+
+		/**
+		 * List the completed jobs of the vault and dispatch the ones being tracked.
+		 *
+		 * @return true, if any tracked job has completed
+		 */
+		private boolean poll() {
+			for (final Iterator<RetrievalJob> jobIterator = jobs.values().iterator(); jobIterator.hasNext();) {
+				if (jobIterator.next().isCancelled()) {
+					jobIterator.remove();
+				}
+			}
+			boolean anyCompleted = false;
+			String marker = null;
+			do {
+				final ListJobsResult listResult = glacierClient.listJobs(new ListJobsRequest()
+						.withAccountId(ACCOUNT_ID_SELF).withVaultName(vaultName).withCompleted(Boolean.TRUE.toString())
+						.withMarker(marker));
+				for (final GlacierJobDescription jobDescription : listResult.getJobList()) {
+					final RetrievalJob retrievalJob = jobs.remove(jobDescription.getJobId());
+					if (retrievalJob != null) {
+						anyCompleted = true;
+						dispatch(retrievalJob, jobDescription);
+					}
+				}
+				marker = listResult.getMarker();
+			} while (marker != null && !jobs.isEmpty());
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Polled vault: {}, {} jobs outstanding", vaultName, jobs.size());
+			}
+			return anyCompleted;
+		}
+	}
+
+	/**
+	 * Open the output of a retrieval job decrypted and decompressed, if the archive description tells it was
+	 * encrypted or compressed when it was archived. A byte range of an encrypted archive is decrypted if the
+	 * job was started for an {@link EncryptedRange}, other byte ranges are left as they are, since they do
+	 * not start at a member boundary or with the encryption header. Output of an encrypted archive is left as
+	 * it is as well if no encryption key is configured.
+	 *
+	 * @param downloader the downloader
+	 * @param retrievalJob the retrieval job
+	 * @return the decoded output, null if the output is downloaded as it is
+	 * @throws IOException if the encryption header in the archive description is not valid
+	 */
+	private InputStream openDecoded(final ParallelRangeDownloader downloader, final RetrievalJob retrievalJob)
+			throws IOException {
+		final GlacierJobDescription jobDescription = retrievalJob.getJobDescription();
+		final long outputSize = outputSize(jobDescription);
+		if (outputSize == 0) {
+			return null;
+		}
+		final String archiveDescription = downloader.getArchiveDescription(retrievalJob.getVaultName(),
+				retrievalJob.getJobId());
+		final EncryptionHeader header = ArchiveEncryption.getHeader(archiveDescription);
+		if (header != null && transferConfig.getEncryptionKey() == null) {
+			LOGGER.warn("Archive of retrieval job: {} is encrypted, no encryption key is configured", retrievalJob);
+			return null;
+		}
+		final boolean wholeArchive = isWholeArchive(jobDescription);
+		final EncryptedRange encryptedRange = header == null || wholeArchive ? null
+				: EncryptedRange.fromJobDescription(header, jobDescription.getJobDescription(),
+						jobDescription.getArchiveSizeInBytes());
+		final boolean compressed = wholeArchive && ArchiveCompression.getCodec(archiveDescription) != null;
+		if (!compressed && encryptedRange == null && (header == null || !wholeArchive)) {
+			return null;
+		}
+		InputStream decoded = downloader.open(retrievalJob.getVaultName(), retrievalJob.getJobId(), outputSize,
+				jobDescription.getSHA256TreeHash());
+		try {
+			if (encryptedRange != null) {
+				decoded = encryptedRange.decrypt(decoded, transferConfig.getEncryptionKey(), transferConfig);
+			} else if (header != null) {
+				decoded = ArchiveEncryption.decrypt(decoded, transferConfig.getEncryptionKey(), transferConfig);
+			}
+			if (compressed) {
+				decoded = ArchiveCompression.decompress(decoded, archiveDescription, transferConfig);
+			}
+			return decoded;
+		} catch (IOException | RuntimeException openEx) {
+			decoded.close();
+			throw openEx;
+		}
+	}
+
+	/**
+	 * The Class OutputDownload.<br/>
+	 * Downloads the output of a completed job into a partial file, decoding it on the way if needed, and
+	 * renames it to the target file.
+	 */
+	private final class OutputDownload implements Runnable {
+
+		/** The retrieval job. */
+		private final RetrievalJob retrievalJob;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param retrievalJob the retrieval job
+		 */
+		OutputDownload(final RetrievalJob retrievalJob) {
+			this.retrievalJob = retrievalJob;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			final File targetFile = retrievalJob.getTargetFile();
+			final File partialFile = new File(targetFile.getPath() + PARTIAL_FILE_SUFFIX);
+			try {
+				final File parentDirectory = targetFile.getAbsoluteFile().getParentFile();
+				if (!parentDirectory.isDirectory() && !parentDirectory.mkdirs()) {
+					throw new IOException("Could not create directory: " + parentDirectory);
+				}
+				final GlacierJobDescription jobDescription = retrievalJob.getJobDescription();
+				final ParallelRangeDownloader downloader = new ParallelRangeDownloader(glacierClient, transferConfig);
+				final InputStream decoded = openDecoded(downloader, retrievalJob);
+				if (decoded == null) {
+					downloader.download(retrievalJob.getVaultName(), retrievalJob.getJobId(),
+							outputSize(jobDescription), jobDescription.getSHA256TreeHash(), partialFile);
+				} else {
+					try (InputStream plainText = decoded) {
+						Files.copy(plainText, partialFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				Files.move(partialFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				LOGGER.info("Downloaded output of retrieval job: {} to: {}", retrievalJob, targetFile);
+				retrievalJob.completed(targetFile);
+			} catch (IOException | RuntimeException downloadEx) {
+				// Decoding failures surface as runtime exceptions too, the job must not be left waiting
+				LOGGER.error("Failed to download output of retrieval job: " + retrievalJob, downloadEx);
+				if (!partialFile.delete() && partialFile.exists()) {
+					LOGGER.warn("Could not delete partial file: {}", partialFile);
+				}
+				retrievalJob.failed(downloadEx);
+			}
+		}
+	}
+}
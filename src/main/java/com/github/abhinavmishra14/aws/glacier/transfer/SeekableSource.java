@@ -0,0 +1,66 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The Interface SeekableSource.<br/>
+ * A source of archive content which can be read again starting at any position, for example a
+ * blob in another store which supports ranged reads. Unlike a plain stream, an interrupted upload
+ * of a seekable source is resumed without reading the parts which were already uploaded.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface SeekableSource {
+
+	/**
+	 * Gets the key.<br/>
+	 * Key must stay the same when an upload of the source is restarted, it is used to find the journal.
+	 *
+	 * @return the key
+	 */
+	String getKey();
+
+	/**
+	 * Gets the identity.<br/>
+	 * Identity must change whenever the content changes, e.g. key along with a version or modified time.
+	 *
+	 * @return the identity
+	 */
+	String getIdentity();
+
+	/**
+	 * Gets the length.
+	 *
+	 * @return the length of the content in bytes
+	 * @throws IOException the IO exception
+	 */
+	long getLength() throws IOException;
+
+	/**
+	 * Open a stream positioned at the given offset.
+	 *
+	 * @param position the position
+	 * @return the input stream, reading from position till the end of content
+	 * @throws IOException the IO exception
+	 */
+	InputStream openStream(long position) throws IOException;
+}
@@ -0,0 +1,226 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+/**
+ * The Class SnapshotEntry.<br/>
+ * A file of a directory tree as recorded in a snapshot: its path relative to the root of the tree, size,
+ * last modified time and, optionally, file key, tree hash and the id of the archive holding its content.
+ * Entries of a snapshot are ordered by path.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class SnapshotEntry implements Comparable<SnapshotEntry> {
+
+	/** The Constant NO_FILE_KEY. */
+	public static final long NO_FILE_KEY = 0;
+
+	/** The Constant FNV_OFFSET_BASIS. */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/** The Constant FNV_PRIME. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** The path. */
+	private final String path;
+
+	/** The size. */
+	private final long size;
+
+	/** The last modified. */
+	private final long lastModified;
+
+	/** The file key. */
+	private final long fileKey;
+
+	/** The tree hash. */
+	private final String treeHash;
+
+	/** The archive id. */
+	private final String archiveId;
+
+	/** The pending. Marks an entry whose upload was not completed yet. */
+	private final boolean pending;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param path the path relative to the root, using '/' as separator
+	 * @param size the size
+	 * @param lastModified the last modified time in millis
+	 * @param fileKey the file key, {@link #NO_FILE_KEY} if not known
+	 * @param treeHash the tree hash, hex encoded, null if not known
+	 * @param archiveId the archive id, null if not archived
+	 */
+	public SnapshotEntry(final String path, final long size, final long lastModified, final long fileKey,
+			final String treeHash, final String archiveId) {
+		this(path, size, lastModified, fileKey, treeHash, archiveId, false);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param path the path
+	 * @param size the size
+	 * @param lastModified the last modified
+	 * @param fileKey the file key
+	 * @param treeHash the tree hash
+	 * @param archiveId the archive id
+	 * @param pending the pending
+	 */
+	SnapshotEntry(final String path, final long size, final long lastModified, final long fileKey,
+			final String treeHash, final String archiveId, final boolean pending) {
+		super();
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.fileKey = fileKey;
+		this.treeHash = treeHash;
+		this.archiveId = archiveId;
+		this.pending = pending;
+	}
+
+	/**
+	 * Gets the path.
+	 *
+	 * @return the path relative to the root, using '/' as separator
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the last modified.
+	 *
+	 * @return the last modified time in millis
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Gets the file key.
+	 *
+	 * @return the file key (a hash of inode and device on most file systems), {@link #NO_FILE_KEY} if not known
+	 */
+	public long getFileKey() {
+		return fileKey;
+	}
+
+	/**
+	 * Gets the tree hash.
+	 *
+	 * @return the tree hash, hex encoded, null if not known
+	 */
+	public String getTreeHash() {
+		return treeHash;
+	}
+
+	/**
+	 * Gets the archive id.
+	 *
+	 * @return the archive id, null if not archived
+	 */
+	public String getArchiveId() {
+		return archiveId;
+	}
+
+	/**
+	 * Checks if is pending.
+	 *
+	 * @return true, if the upload of entry was not completed yet
+	 */
+	boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Same entry, marked as pending.
+	 *
+	 * @return the snapshot entry
+	 */
+	SnapshotEntry asPending() {
+		return new SnapshotEntry(path, size, lastModified, fileKey, treeHash, archiveId, true);
+	}
+
+	/**
+	 * Same entry, no longer pending.
+	 *
+	 * @return the snapshot entry
+	 */
+	SnapshotEntry asSettled() {
+		return new SnapshotEntry(path, size, lastModified, fileKey, treeHash, archiveId, false);
+	}
+
+	/**
+	 * Same file, archived.
+	 *
+	 * @param archivedTreeHash the tree hash of the archive, null if not known
+	 * @param archivedId the archive id
+	 * @return the snapshot entry
+	 */
+	SnapshotEntry archivedAs(final String archivedTreeHash, final String archivedId) {
+		return new SnapshotEntry(path, size, lastModified, fileKey, archivedTreeHash, archivedId, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(final SnapshotEntry other) {
+		return path.compareTo(other.path);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return path + " [size=" + size + ", lastModified=" + lastModified + ", archiveId=" + archiveId + "]";
+	}
+
+	/**
+	 * File key.<br/>
+	 * File keys returned by the file system are not numbers, a 64 bit hash of the key is kept instead.
+	 *
+	 * @param key the file key returned by the file system, may be null
+	 * @return the file key, {@link #NO_FILE_KEY} if key is null
+	 */
+	public static long fileKey(final Object key) {
+		if (key == null) {
+			return NO_FILE_KEY;
+		}
+		final String keyString = key.toString();
+		long hash = FNV_OFFSET_BASIS;
+		for (int index = 0; index < keyString.length(); index++) {
+			hash ^= keyString.charAt(index);
+			hash *= FNV_PRIME;
+		}
+		return hash == NO_FILE_KEY ? 1 : hash;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.BUFFER_SIZE;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.END_MARKER;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.FLAG_ARCHIVE_ID;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.FLAG_FILE_KEY;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.FLAG_PENDING;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.FLAG_TREE_HASH;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.MAGIC;
+import static com.github.abhinavmishra14.aws.glacier.transfer.SnapshotWriter.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class SnapshotReader.<br/>
+ * Reads a snapshot file written by {@link SnapshotWriter} from start to end, one entry at a time, so
+ * that snapshots of any number of files are compared without loading them.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class SnapshotReader implements SnapshotSource {
+
+	/** The snapshot file. */
+	private final File snapshotFile;
+
+	/** The checksum. */
+	private final CRC32 checksum = new CRC32();
+
+	/** The input. */
+	private final DataInputStream input;
+
+	/** The path bytes of the previous entry. */
+	private byte[] pathBytes = new byte[256];
+
+	/** The path length of the previous entry. */
+	private int pathLength;
+
+	/** The entry count. */
+	private long entryCount;
+
+	/** The end reached. */
+	private boolean endReached;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param snapshotFile the snapshot file
+	 * @throws IOException the IO exception
+	 */
+	public SnapshotReader(final File snapshotFile) throws IOException {
+		super();
+		this.snapshotFile = snapshotFile;
+		input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(
+				new FileInputStream(snapshotFile), BUFFER_SIZE), checksum));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a snapshot file: " + snapshotFile);
+			}
+		} catch (IOException ioEx) {
+			input.close();
+			throw ioEx;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.transfer.SnapshotSource#next()
+	 */
+	@Override
+	public SnapshotEntry next() throws IOException {
+		if (endReached) {
+			return null;
+		}
+		try {
+			final int flags = input.readUnsignedByte();
+			if (flags == END_MARKER) {
+				verifyEnd();
+				return null;
+			}
+			final int sharedLength = (int) readVarLong();
+			final int suffixLength = (int) readVarLong();
+			if (sharedLength > pathLength || suffixLength < 0) {
+				throw new IOException("Snapshot is corrupt: " + snapshotFile);
+			}
+			pathLength = sharedLength + suffixLength;
+			if (pathLength > pathBytes.length) {
+				pathBytes = Arrays.copyOf(pathBytes, Math.max(pathLength, pathBytes.length * 2));
+			}
+			input.readFully(pathBytes, sharedLength, suffixLength);
+			final String path = new String(pathBytes, 0, pathLength, StandardCharsets.UTF_8);
+			final long size = readVarLong();
+			final long lastModified = readVarLong();
+			final long fileKey = (flags & FLAG_FILE_KEY) != 0 ? input.readLong() : SnapshotEntry.NO_FILE_KEY;
+			String treeHash = null;
+			if ((flags & FLAG_TREE_HASH) != 0) {
+				final byte[] hash = new byte[TreeHash.HASH_LENGTH];
+				input.readFully(hash);
+				treeHash = TreeHash.toHex(hash);
+			}
+			String archiveId = null;
+			if ((flags & FLAG_ARCHIVE_ID) != 0) {
+				final byte[] archiveIdBytes = new byte[(int) readVarLong()];
+				input.readFully(archiveIdBytes);
+				archiveId = new String(archiveIdBytes, StandardCharsets.UTF_8);
+			}
+			entryCount++;
+			return new SnapshotEntry(path, size, lastModified, fileKey, treeHash, archiveId,
+					(flags & FLAG_PENDING) != 0);
+		} catch (EOFException eofEx) {
+			throw new IOException("Snapshot is truncated: " + snapshotFile, eofEx);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Verify entry count and checksum at the end of snapshot.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	private void verifyEnd() throws IOException {
+		if (readVarLong() != entryCount) {
+			throw new IOException("Snapshot is corrupt, entry count does not match: " + snapshotFile);
+		}
+		final int expectedChecksum = (int) checksum.getValue();
+		if (input.readInt() != expectedChecksum) {
+			throw new IOException("Snapshot is corrupt, checksum does not match: " + snapshotFile);
+		}
+		endReached = true;
+	}
+
+	/**
+	 * Read a variable length long.
+	 *
+	 * @return the long
+	 * @throws IOException the IO exception
+	 */
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int next = input.readUnsignedByte();
+			value |= (long) (next & 0x7f) << shift;
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Snapshot is corrupt: " + snapshotFile);
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class SnapshotSorter.<br/>
+ * Sorts snapshot entries by path, in any number. Entries are collected in memory up to the buffer size,
+ * each full buffer is sorted and spilled to a run file next to the snapshot. Sorted entries are returned by
+ * merging the runs, reading each of them sequentially. Adding entries is thread safe.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class SnapshotSorter implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotSorter.class);
+
+	/** The run file prefix. */
+	private final File runFilePrefix;
+
+	/** The buffer size. */
+	private final int bufferSize;
+
+	/** The buffer. */
+	private List<SnapshotEntry> buffer;
+
+	/** The run files. */
+	private final List<File> runFiles = new ArrayList<File>();
+
+	/** The open runs. */
+	private final List<SnapshotReader> openRuns = new ArrayList<SnapshotReader>();
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param runFilePrefix the path prefix of the run files
+	 * @param bufferSize the number of entries sorted in memory
+	 */
+	SnapshotSorter(final File runFilePrefix, final int bufferSize) {
+		super();
+		this.runFilePrefix = runFilePrefix;
+		this.bufferSize = bufferSize;
+		this.buffer = new ArrayList<SnapshotEntry>(Math.min(bufferSize, 1024));
+	}
+
+	/**
+	 * Add an entry.
+	 *
+	 * @param entry the entry
+	 * @throws IOException the IO exception
+	 */
+	synchronized void add(final SnapshotEntry entry) throws IOException {
+		buffer.add(entry);
+		if (buffer.size() >= bufferSize) {
+			spill();
+		}
+	}
+
+	/**
+	 * Sorted entries.<br/>
+	 * No more entries can be added once the sorted entries are requested.
+	 *
+	 * @return the entries added, in ascending order of path
+	 * @throws IOException the IO exception
+	 */
+	synchronized SnapshotSource sorted() throws IOException {
+		if (runFiles.isEmpty()) {
+			Collections.sort(buffer);
+			final Iterator<SnapshotEntry> entries = buffer.iterator();
+			buffer = Collections.emptyList();
+			return new SnapshotSource() {
+				@Override
+				public SnapshotEntry next() {
+					return entries.hasNext() ? entries.next() : null;
+				}
+
+				@Override
+				public void close() {
+					// Nothing to release
+				}
+			};
+		}
+		if (!buffer.isEmpty()) {
+			spill();
+		}
+		buffer = Collections.emptyList();
+		final PriorityQueue<RunCursor> cursors = new PriorityQueue<RunCursor>(runFiles.size());
+		for (final File runFile : runFiles) {
+			final SnapshotReader run = new SnapshotReader(runFile);
+			openRuns.add(run);
+			final RunCursor cursor = new RunCursor(run);
+			if (cursor.advance()) {
+				cursors.add(cursor);
+			}
+		}
+		LOGGER.debug("Merging {} sorted runs of {}", runFiles.size(), runFilePrefix);
+		return new SnapshotSource() {
+			@Override
+			public SnapshotEntry next() throws IOException {
+				final RunCursor cursor = cursors.poll();
+				if (cursor == null) {
+					return null;
+				}
+				final SnapshotEntry entry = cursor.current;
+				if (cursor.advance()) {
+					cursors.add(cursor);
+				}
+				return entry;
+			}
+
+			@Override
+			public void close() throws IOException {
+				SnapshotSorter.this.close();
+			}
+		};
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		for (final SnapshotReader run : openRuns) {
+			run.close();
+		}
+		openRuns.clear();
+		for (final File runFile : runFiles) {
+			if (!runFile.delete() && runFile.exists()) {
+				LOGGER.warn("Could not delete sorted run: {}", runFile);
+			}
+		}
+		runFiles.clear();
+	}
+
+	/**
+	 * Sort the buffer and write it to a new run file.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	private void spill() throws IOException {
+		Collections.sort(buffer);
+		final File runFile = new File(runFilePrefix.getPath() + ".run" + runFiles.size());
+		runFiles.add(runFile);
+		try (SnapshotWriter runWriter = new SnapshotWriter(runFile)) {
+			for (final SnapshotEntry entry : buffer) {
+				runWriter.write(entry);
+			}
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * The Class RunCursor.<br/>
+	 * Current entry of a sorted run, ordered by the path of the entry.
+	 */
+	private static final class RunCursor implements Comparable<RunCursor> {
+
+		/** The run. */
+		private final SnapshotReader run;
+
+		/** The current. */
+		private SnapshotEntry current;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param run the run
+		 */
+		RunCursor(final SnapshotReader run) {
+			this.run = run;
+		}
+
+		/**
+		 * Advance to the next entry of run.
+		 *
+		 * @return true, if there is a next entry
+		 * @throws IOException the IO exception
+		 */
+		boolean advance() throws IOException {
+			current = run.next();
+			return current != null;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(final RunCursor other) {
+			return current.compareTo(other.current);
+		}
+	}
+}
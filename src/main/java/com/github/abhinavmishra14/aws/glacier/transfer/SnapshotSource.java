@@ -0,0 +1,39 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The Interface SnapshotSource.<br/>
+ * A stream of snapshot entries in ascending order of path.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+interface SnapshotSource extends Closeable {
+
+	/**
+	 * Next entry.
+	 *
+	 * @return the next entry, null at the end
+	 * @throws IOException the IO exception
+	 */
+	SnapshotEntry next() throws IOException;
+}
@@ -0,0 +1,218 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.amazonaws.util.BinaryUtils;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class SnapshotWriter.<br/>
+ * Writes a snapshot file, entries must be written in ascending order of path. Layout of the file:
+ * <pre>
+ * [magic][version] [entry]... [end marker][entry count][crc32]
+ * </pre>
+ * Each entry starts with a flags byte, followed by the length of the path prefix shared with the previous
+ * entry and the rest of the path, so that sorted paths of a tree take little more than their file names.
+ * Numbers are written as variable length integers. Entry count and checksum at the end let the reader
+ * detect a truncated or corrupt snapshot.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class SnapshotWriter implements Closeable {
+
+	/** The Constant MAGIC. */
+	static final int MAGIC = 0x47534e50;
+
+	/** The Constant VERSION. */
+	static final int VERSION = 1;
+
+	/** The Constant FLAG_FILE_KEY. */
+	static final int FLAG_FILE_KEY = 1;
+
+	/** The Constant FLAG_TREE_HASH. */
+	static final int FLAG_TREE_HASH = 2;
+
+	/** The Constant FLAG_ARCHIVE_ID. */
+	static final int FLAG_ARCHIVE_ID = 4;
+
+	/** The Constant FLAG_PENDING. */
+	static final int FLAG_PENDING = 8;
+
+	/** The Constant END_MARKER. */
+	static final int END_MARKER = 0xff;
+
+	/** The Constant BUFFER_SIZE. */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The checksum. */
+	private final CRC32 checksum = new CRC32();
+
+	/** The output. */
+	private final DataOutputStream output;
+
+	/** The previous path. */
+	private String previousPath;
+
+	/** The previous path bytes. */
+	private byte[] previousPathBytes = new byte[0];
+
+	/** The entry count. */
+	private long entryCount;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param snapshotFile the snapshot file, it is overwritten
+	 * @throws IOException the IO exception
+	 */
+	public SnapshotWriter(final File snapshotFile) throws IOException {
+		super();
+		output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(
+				new FileOutputStream(snapshotFile), BUFFER_SIZE), checksum));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+	}
+
+	/**
+	 * Write an entry.
+	 *
+	 * @param entry the entry, its path must be greater than path of the previous entry
+	 * @throws IOException the IO exception
+	 */
+	public void write(final SnapshotEntry entry) throws IOException {
+		if (previousPath != null && previousPath.compareTo(entry.getPath()) >= 0) {
+			throw new IllegalStateException("Snapshot entries are not in order: " + previousPath + ", "
+					+ entry.getPath());
+		}
+		int flags = 0;
+		if (entry.getFileKey() != SnapshotEntry.NO_FILE_KEY) {
+			flags |= FLAG_FILE_KEY;
+		}
+		if (entry.getTreeHash() != null) {
+			flags |= FLAG_TREE_HASH;
+		}
+		if (entry.getArchiveId() != null) {
+			flags |= FLAG_ARCHIVE_ID;
+		}
+		if (entry.isPending()) {
+			flags |= FLAG_PENDING;
+		}
+		final byte[] pathBytes = entry.getPath().getBytes(StandardCharsets.UTF_8);
+		final int sharedLength = sharedPrefix(previousPathBytes, pathBytes);
+		output.writeByte(flags);
+		writeVarLong(sharedLength);
+		writeVarLong(pathBytes.length - sharedLength);
+		output.write(pathBytes, sharedLength, pathBytes.length - sharedLength);
+		writeVarLong(entry.getSize());
+		writeVarLong(entry.getLastModified());
+		if ((flags & FLAG_FILE_KEY) != 0) {
+			output.writeLong(entry.getFileKey());
+		}
+		if ((flags & FLAG_TREE_HASH) != 0) {
+			output.write(fromHex(entry.getTreeHash()));
+		}
+		if ((flags & FLAG_ARCHIVE_ID) != 0) {
+			final byte[] archiveIdBytes = entry.getArchiveId().getBytes(StandardCharsets.UTF_8);
+			writeVarLong(archiveIdBytes.length);
+			output.write(archiveIdBytes);
+		}
+		previousPath = entry.getPath();
+		previousPathBytes = pathBytes;
+		entryCount++;
+	}
+
+	/**
+	 * Gets the entry count.
+	 *
+	 * @return the number of entries written so far
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			output.writeByte(END_MARKER);
+			writeVarLong(entryCount);
+			output.flush();
+			output.writeInt((int) checksum.getValue());
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Write a variable length long, 7 bits per byte, negative values take 10 bytes.
+	 *
+	 * @param value the value
+	 * @throws IOException the IO exception
+	 */
+	private void writeVarLong(final long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~0x7fL) != 0) {
+			output.writeByte((int) (remaining & 0x7f) | 0x80);
+			remaining >>>= 7;
+		}
+		output.writeByte((int) remaining);
+	}
+
+	/**
+	 * Shared prefix.
+	 *
+	 * @param previous the previous path bytes
+	 * @param current the current path bytes
+	 * @return the length of the prefix shared by both paths
+	 */
+	private static int sharedPrefix(final byte[] previous, final byte[] current) {
+		final int limit = Math.min(previous.length, current.length);
+		int length = 0;
+		while (length < limit && previous[length] == current[length]) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Decode a hex encoded tree hash.
+	 *
+	 * @param hex the hex
+	 * @return the hash bytes
+	 */
+	private static byte[] fromHex(final String hex) {
+		final byte[] hash = BinaryUtils.fromHex(hex);
+		if (hash.length != TreeHash.HASH_LENGTH) {
+			throw new IllegalArgumentException("Not a tree hash: " + hex);
+		}
+		return hash;
+	}
+}
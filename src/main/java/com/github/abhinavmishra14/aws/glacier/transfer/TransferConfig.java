@@ -0,0 +1,544 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_COMPRESSION_BLOCK_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_CONTAINER_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_ENCRYPTION_SEGMENT_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_FILE_CONCURRENCY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MAX_CONCURRENT_REQUESTS;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MAX_PARTS_IN_FLIGHT;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MAX_POLL_INTERVAL;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_MIN_POLL_INTERVAL;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_PACK_THRESHOLD;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_PART_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_TRAVERSAL_QUEUE_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_UPLOAD_CONCURRENCY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_CONCURRENCY;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ERR_MSG_PART_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_PARTS;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_PART_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.File;
+
+import javax.crypto.SecretKey;
+
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
+import com.github.abhinavmishra14.aws.util.TraversalOptions;
+
+/**
+ * The Class TransferConfig.<br/>
+ * Holds the tuning parameters of the multipart transfer engine. Default values are
+ * suitable for most of the uploads, increase the concurrency in order to fill fast links.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class TransferConfig {
+
+	/** The part size. */
+	private long partSize = DEFAULT_PART_SIZE;
+
+	/** The concurrency. */
+	private int concurrency = DEFAULT_UPLOAD_CONCURRENCY;
+
+	/** The max parts in flight. */
+	private int maxPartsInFlight = DEFAULT_MAX_PARTS_IN_FLIGHT;
+
+	/** The journal directory. */
+	private File journalDirectory;
+
+	/** The file concurrency. */
+	private int fileConcurrency = DEFAULT_FILE_CONCURRENCY;
+
+	/** The max concurrent requests. */
+	private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+	/** The traversal queue size. */
+	private int traversalQueueSize = DEFAULT_TRAVERSAL_QUEUE_SIZE;
+
+	/** The traversal options. */
+	private TraversalOptions traversalOptions = new TraversalOptions();
+
+	/** The container size. */
+	private long containerSize = DEFAULT_CONTAINER_SIZE;
+
+	/** The pack threshold. */
+	private long packThreshold = DEFAULT_PACK_THRESHOLD;
+
+	/** The min poll interval. */
+	private long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+
+	/** The max poll interval. */
+	private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+
+	/** The deduplicate. */
+	private boolean deduplicate;
+
+	/** The executor strategy. */
+	private ExecutorStrategy executorStrategy = ExecutorStrategies.getDefault();
+
+	/** The compression level, 0 if uploads are not compressed. */
+	private int compressionLevel;
+
+	/** The compression block size. */
+	private int compressionBlockSize = DEFAULT_COMPRESSION_BLOCK_SIZE;
+
+	/** The encryption key, null if uploads are not encrypted. */
+	private SecretKey encryptionKey;
+
+	/** The encryption segment size. */
+	private int encryptionSegmentSize = DEFAULT_ENCRYPTION_SEGMENT_SIZE;
+
+	/** The codec threads. */
+	private int codecThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Gets the part size.
+	 *
+	 * @return the part size
+	 */
+	public long getPartSize() {
+		return partSize;
+	}
+
+	/**
+	 * Sets the part size.<br/>
+	 * Part size must be a power of two multiple of 1 MB (1 MB, 2 MB, 4 MB ... 4 GB).
+	 *
+	 * @param partSize the part size
+	 */
+	public void setPartSize(final long partSize) {
+		if (!isValidPartSize(partSize)) {
+			throw new IllegalArgumentException(ERR_MSG_PART_SIZE);
+		}
+		this.partSize = partSize;
+	}
+
+	/**
+	 * Gets the concurrency.
+	 *
+	 * @return the concurrency
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Sets the concurrency.<br/>
+	 * It is the maximum number of parts of a single archive which are uploaded at the same time.
+	 *
+	 * @param concurrency the concurrency
+	 */
+	public void setConcurrency(final int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Gets the max parts in flight.
+	 *
+	 * @return the max parts in flight
+	 */
+	public int getMaxPartsInFlight() {
+		return maxPartsInFlight;
+	}
+
+	/**
+	 * Sets the max parts in flight.<br/>
+	 * It is the number of part buffers used while uploading a stream, memory used by a stream
+	 * upload is roughly part size multiplied by max parts in flight. It is also the number of ranges
+	 * buffered while an encrypted or compressed retrieval output is decoded as it downloads.
+	 *
+	 * @param maxPartsInFlight the max parts in flight
+	 */
+	public void setMaxPartsInFlight(final int maxPartsInFlight) {
+		if (maxPartsInFlight < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.maxPartsInFlight = maxPartsInFlight;
+	}
+
+	/**
+	 * Gets the journal directory.
+	 *
+	 * @return the journal directory, null if uploads are not journaled
+	 */
+	public File getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	/**
+	 * Sets the journal directory.<br/>
+	 * When set, every multipart upload keeps a checkpoint journal in this directory. An upload which
+	 * fails, or whose process dies, is not aborted and uploading the same source again resumes it,
+	 * only the missing parts are uploaded. Set to null in order to disable resuming.
+	 *
+	 * @param journalDirectory the journal directory
+	 */
+	public void setJournalDirectory(final File journalDirectory) {
+		this.journalDirectory = journalDirectory;
+	}
+
+	/**
+	 * Gets the file concurrency.
+	 *
+	 * @return the file concurrency
+	 */
+	public int getFileConcurrency() {
+		return fileConcurrency;
+	}
+
+	/**
+	 * Sets the file concurrency.<br/>
+	 * It is the number of files which are archived at the same time while archiving a directory.
+	 *
+	 * @param fileConcurrency the file concurrency
+	 */
+	public void setFileConcurrency(final int fileConcurrency) {
+		if (fileConcurrency < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.fileConcurrency = fileConcurrency;
+	}
+
+	/**
+	 * Gets the max concurrent requests.
+	 *
+	 * @return the max concurrent requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Sets the max concurrent requests.<br/>
+	 * It is the global limit of upload requests (archives and parts) in flight while archiving a
+	 * directory, no matter how many files are being uploaded at that time.
+	 *
+	 * @param maxConcurrentRequests the max concurrent requests
+	 */
+	public void setMaxConcurrentRequests(final int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	/**
+	 * Gets the traversal queue size.
+	 *
+	 * @return the traversal queue size
+	 */
+	public int getTraversalQueueSize() {
+		return traversalQueueSize;
+	}
+
+	/**
+	 * Sets the traversal queue size.<br/>
+	 * It is the number of files found by directory traversal which may wait for an upload worker,
+	 * traversal pauses while the queue is full.
+	 *
+	 * @param traversalQueueSize the traversal queue size
+	 */
+	public void setTraversalQueueSize(final int traversalQueueSize) {
+		if (traversalQueueSize < 1) {
+			throw new IllegalArgumentException("Traversal queue size must be greater than zero!");
+		}
+		this.traversalQueueSize = traversalQueueSize;
+	}
+
+	/**
+	 * Gets the traversal options.
+	 *
+	 * @return the traversal options
+	 */
+	public TraversalOptions getTraversalOptions() {
+		return traversalOptions;
+	}
+
+	/**
+	 * Sets the traversal options.<br/>
+	 * Filters and parallelism used to walk a directory which is being archived.
+	 *
+	 * @param traversalOptions the traversal options
+	 */
+	public void setTraversalOptions(final TraversalOptions traversalOptions) {
+		AWSUtil.notNull(traversalOptions, "TraversalOptions can not be null!");
+		this.traversalOptions = traversalOptions;
+	}
+
+	/**
+	 * Gets the container size.
+	 *
+	 * @return the container size
+	 */
+	public long getContainerSize() {
+		return containerSize;
+	}
+
+	/**
+	 * Sets the container size.<br/>
+	 * Packed files are streamed into a container until its size reaches this value, then the
+	 * container is closed at the next file boundary. Sizes between 1 GB and 4 GB keep the number
+	 * of archives and requests low.
+	 *
+	 * @param containerSize the container size
+	 */
+	public void setContainerSize(final long containerSize) {
+		if (containerSize < ONE_MB) {
+			throw new IllegalArgumentException("Container size can not be less than 1 MB!");
+		}
+		this.containerSize = containerSize;
+	}
+
+	/**
+	 * Gets the pack threshold.
+	 *
+	 * @return the pack threshold
+	 */
+	public long getPackThreshold() {
+		return packThreshold;
+	}
+
+	/**
+	 * Sets the pack threshold.<br/>
+	 * Files smaller than the threshold are packed into containers, larger files are archived one by one.
+	 *
+	 * @param packThreshold the pack threshold
+	 */
+	public void setPackThreshold(final long packThreshold) {
+		if (packThreshold < 0) {
+			throw new IllegalArgumentException("Pack threshold can not be negative!");
+		}
+		this.packThreshold = packThreshold;
+	}
+
+	/**
+	 * Gets the min poll interval.
+	 *
+	 * @return the min poll interval in millis
+	 */
+	public long getMinPollInterval() {
+		return minPollInterval;
+	}
+
+	/**
+	 * Gets the max poll interval.
+	 *
+	 * @return the max poll interval in millis
+	 */
+	public long getMaxPollInterval() {
+		return maxPollInterval;
+	}
+
+	/**
+	 * Sets the poll intervals.<br/>
+	 * Status of retrieval jobs is polled once per vault, starting with the min interval. The interval
+	 * doubles after every poll which finds no completed job, up to the max interval, and drops back
+	 * to the min interval as soon as a job completes.
+	 *
+	 * @param minPollInterval the min poll interval in millis
+	 * @param maxPollInterval the max poll interval in millis
+	 */
+	public void setPollIntervals(final long minPollInterval, final long maxPollInterval) {
+		if (minPollInterval < 1 || maxPollInterval < minPollInterval) {
+			throw new IllegalArgumentException("Poll intervals must be positive and min can not exceed max!");
+		}
+		this.minPollInterval = minPollInterval;
+		this.maxPollInterval = maxPollInterval;
+	}
+
+	/**
+	 * Checks if uploads are deduplicated.
+	 *
+	 * @return true, if files are looked up by tree hash before they are uploaded
+	 */
+	public boolean isDeduplicate() {
+		return deduplicate;
+	}
+
+	/**
+	 * Sets the deduplicate.<br/>
+	 * When enabled, tree hash of a file is computed before it is uploaded and looked up in the catalog
+	 * of the vault. A file whose content is already archived in the vault is not uploaded again, the id of
+	 * the existing archive is returned instead. It has no effect unless a catalog is set.
+	 *
+	 * @param deduplicate true in order to deduplicate uploads
+	 */
+	public void setDeduplicate(final boolean deduplicate) {
+		this.deduplicate = deduplicate;
+	}
+
+	/**
+	 * Gets the executor strategy.
+	 *
+	 * @return the executor strategy
+	 */
+	public ExecutorStrategy getExecutorStrategy() {
+		return executorStrategy;
+	}
+
+	/**
+	 * Sets the executor strategy.<br/>
+	 * It creates the workers uploading parts and files and downloading ranges and job outputs.
+	 *
+	 * @param executorStrategy the executor strategy, e.g. {@link ExecutorStrategies#virtual()}
+	 */
+	public void setExecutorStrategy(final ExecutorStrategy executorStrategy) {
+		AWSUtil.notNull(executorStrategy, "Executor strategy can not be null!");
+		this.executorStrategy = executorStrategy;
+	}
+
+	/**
+	 * Gets the compression level.
+	 *
+	 * @return the compression level, 0 if uploads are not compressed
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Gets the compression block size.
+	 *
+	 * @return the compression block size
+	 */
+	public int getCompressionBlockSize() {
+		return compressionBlockSize;
+	}
+
+	/**
+	 * Sets the compression.<br/>
+	 * When enabled, files and streams archived through the archive service are compressed into gzip
+	 * before they are uploaded. Input is cut into blocks, which are compressed independently at the same
+	 * time, so larger blocks compress slightly better while smaller blocks spread a small archive over more
+	 * threads. Containers of packed archives are never compressed, since their indexes address raw bytes,
+	 * and compressed files are not deduplicated.
+	 *
+	 * @param compressionLevel the compression level, 1 (fastest) to 9 (smallest), 0 in order to disable it
+	 * @param compressionBlockSize the compression block size
+	 */
+	public void setCompression(final int compressionLevel, final int compressionBlockSize) {
+		if (compressionLevel < 0 || compressionLevel > 9) {
+			throw new IllegalArgumentException("Compression level must be between 0 and 9!");
+		}
+		if (compressionBlockSize < 1) {
+			throw new IllegalArgumentException("Compression block size must be positive!");
+		}
+		this.compressionLevel = compressionLevel;
+		this.compressionBlockSize = compressionBlockSize;
+	}
+
+	/**
+	 * Gets the encryption key.
+	 *
+	 * @return the encryption key, null if uploads are not encrypted
+	 */
+	public SecretKey getEncryptionKey() {
+		return encryptionKey;
+	}
+
+	/**
+	 * Gets the encryption segment size.
+	 *
+	 * @return the encryption segment size
+	 */
+	public int getEncryptionSegmentSize() {
+		return encryptionSegmentSize;
+	}
+
+	/**
+	 * Sets the encryption.<br/>
+	 * When enabled, files and streams archived through the archive service are encrypted using AES-GCM
+	 * before they are uploaded, after they are compressed. Every archive gets a data key of its own, which is
+	 * wrapped with the given key and kept in the header of the archive. Segments are encrypted independently
+	 * at the same time, so a byte range of an archive can be decrypted on its own. Retrieval jobs
+	 * decrypt the archives they restore using the same key. Encrypted uploads are not resumed.
+	 *
+	 * @param encryptionKey the AES key, null in order to disable it
+	 * @param encryptionSegmentSize the size of the plain text of a segment
+	 */
+	public void setEncryption(final SecretKey encryptionKey, final int encryptionSegmentSize) {
+		if (encryptionKey != null && !"AES".equalsIgnoreCase(encryptionKey.getAlgorithm())) {
+			throw new IllegalArgumentException("Encryption key must be an AES key!");
+		}
+		if (encryptionSegmentSize < 1) {
+			throw new IllegalArgumentException("Encryption segment size must be positive!");
+		}
+		this.encryptionKey = encryptionKey;
+		this.encryptionSegmentSize = encryptionSegmentSize;
+	}
+
+	/**
+	 * Gets the codec threads.
+	 *
+	 * @return the codec threads
+	 */
+	public int getCodecThreads() {
+		return codecThreads;
+	}
+
+	/**
+	 * Sets the codec threads.<br/>
+	 * Defaults to the number of available processors.
+	 *
+	 * @param codecThreads the threads compressing or encrypting the blocks of a single archive
+	 */
+	public void setCodecThreads(final int codecThreads) {
+		if (codecThreads < 1) {
+			throw new IllegalArgumentException(ERR_MSG_CONCURRENCY);
+		}
+		this.codecThreads = codecThreads;
+	}
+
+	/**
+	 * Calculate part size.<br/>
+	 * Returns the configured part size, doubled as many times as required to keep the
+	 * number of parts for the given archive size within the glacier limit of 10,000 parts.
+	 *
+	 * @param archiveSize the archive size
+	 * @param configuredPartSize the configured part size
+	 * @return the part size to be used for the archive
+	 */
+	public static long calculatePartSize(final long archiveSize, final long configuredPartSize) {
+		long calculatedPartSize = configuredPartSize;
+		while (calculatedPartSize < MAX_PART_SIZE
+				&& (archiveSize + calculatedPartSize - 1) / calculatedPartSize > MAX_PARTS) {
+			calculatedPartSize = calculatedPartSize * 2;
+		}
+		return calculatedPartSize;
+	}
+
+	/**
+	 * Checks if is valid part size.
+	 *
+	 * @param partSize the part size
+	 * @return true, if is valid part size
+	 */
+	private static boolean isValidPartSize(final long partSize) {
+		final long partSizeInMb = partSize / ONE_MB;
+		return partSize >= ONE_MB && partSize <= MAX_PART_SIZE && partSize % ONE_MB == 0
+				&& Long.bitCount(partSizeInMb) == 1;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The Class UploadCancellation.<br/>
+ * Tells the uploads run by an operation that the caller has cancelled them. Interrupting an upload only
+ * stops it, a journaled upload is kept for resuming like after any other failure. A multipart upload is
+ * aborted and its journal is deleted only when the cancellation of the operation running it is cancelled.<br/>
+ * Cancellation is bound to the thread running the operation, and passed on to the workers which upload
+ * files on behalf of that operation.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class UploadCancellation {
+
+	/** The Constant CURRENT. Cancellation of the operation run by the thread, if any. */
+	private static final ThreadLocal<UploadCancellation> CURRENT = new ThreadLocal<UploadCancellation>();
+
+	/** The cancelled flag. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Cancel the uploads of the operation.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks if the uploads of the operation are cancelled.
+	 *
+	 * @return true, if cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Run the operation with this cancellation bound to the calling thread.
+	 *
+	 * @param <T> the result type
+	 * @param operation the operation
+	 * @return the result of the operation
+	 * @throws Exception the exception thrown by the operation
+	 */
+	public <T> T call(final Callable<T> operation) throws Exception {
+		final UploadCancellation previous = bind(this);
+		try {
+			return operation.call();
+		} finally {
+			bind(previous);
+		}
+	}
+
+	/**
+	 * Checks if the uploads of the operation run by the calling thread are cancelled.
+	 *
+	 * @return true, if cancelled. False if the thread runs no cancellable operation.
+	 */
+	static boolean isCurrentCancelled() {
+		final UploadCancellation current = CURRENT.get();
+		return current != null && current.isCancelled();
+	}
+
+	/**
+	 * Pass the cancellation of the calling thread on to the worker running the task.
+	 *
+	 * @param <T> the result type
+	 * @param task the task
+	 * @return the task run with the cancellation of the calling thread, the task itself if there is none
+	 */
+	static <T> Callable<T> propagate(final Callable<T> task) {
+		final UploadCancellation current = CURRENT.get();
+		return current == null ? task : () -> current.call(task);
+	}
+
+	/**
+	 * Pass the cancellation of the calling thread on to the worker running the task.
+	 *
+	 * @param task the task
+	 * @return the task run with the cancellation of the calling thread, the task itself if there is none
+	 */
+	static Runnable propagate(final Runnable task) {
+		final UploadCancellation current = CURRENT.get();
+		if (current == null) {
+			return task;
+		}
+		return () -> {
+			final UploadCancellation previous = bind(current);
+			try {
+				task.run();
+			} finally {
+				bind(previous);
+			}
+		};
+	}
+
+	/**
+	 * Bind the cancellation to the calling thread.
+	 *
+	 * @param cancellation the cancellation, null in order to unbind
+	 * @return the cancellation bound before
+	 */
+	private static UploadCancellation bind(final UploadCancellation cancellation) {
+		final UploadCancellation previous = CURRENT.get();
+		if (cancellation == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(cancellation);
+		}
+		return previous;
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.util.BinaryUtils;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class UploadJournal.<br/>
+ * Append only checkpoint journal of a multipart upload. It records the upload id, part size and
+ * identity of the source, followed by one record per completed part with its range and tree hash.
+ * Every record is forced to disk before the part is reported as done, so a restarted process
+ * knows which parts were uploaded and can upload only the missing ones.<br/>
+ * Journal is a small text file, one record per line:
+ * <pre>
+ * upload &lt;vault&gt; &lt;uploadId&gt; &lt;partSize&gt; &lt;sourceIdentity&gt;
+ * part &lt;start&gt; &lt;length&gt; &lt;treeHash&gt;
+ * </pre>
+ * A line which was only partially written when the process died is ignored.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class UploadJournal implements Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(UploadJournal.class);
+
+	/** The Constant JOURNAL_SUFFIX. */
+	private static final String JOURNAL_SUFFIX = ".journal";
+
+	/** The Constant UPLOAD_RECORD. */
+	private static final String UPLOAD_RECORD = "upload";
+
+	/** The Constant PART_RECORD. */
+	private static final String PART_RECORD = "part";
+
+	/** The Constant ENCODING. */
+	private static final String ENCODING = "UTF-8";
+
+	/** The journal file. */
+	private final File journalFile;
+
+	/** The channel. */
+	private final FileChannel channel;
+
+	/** The completed parts, keyed by part start. */
+	private final Map<Long, PartRecord> completedParts = new TreeMap<Long, PartRecord>();
+
+	/** The vault name. */
+	private String vaultName;
+
+	/** The upload id. */
+	private String uploadId;
+
+	/** The part size. */
+	private long partSize;
+
+	/** The source identity. */
+	private String sourceIdentity;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param journalFile the journal file
+	 * @throws IOException the IO exception
+	 */
+	private UploadJournal(final File journalFile) throws IOException {
+		super();
+		this.journalFile = journalFile;
+		final long validLength = journalFile.isFile() ? load() : 0;
+		channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(validLength); // Drop the torn record, if any
+		channel.position(validLength);
+	}
+
+	/**
+	 * Opens the journal, the existing records are loaded if the journal file exists.
+	 *
+	 * @param journalFile the journal file
+	 * @return the upload journal
+	 * @throws IOException the IO exception
+	 */
+	public static UploadJournal open(final File journalFile) throws IOException {
+		return new UploadJournal(journalFile);
+	}
+
+	/**
+	 * Opens the journal kept in the given directory for the given vault and upload key.
+	 *
+	 * @param journalDirectory the journal directory
+	 * @param vaultName the vault name
+	 * @param uploadKey the upload key, a name which stays the same when the upload is restarted
+	 * @return the upload journal
+	 * @throws IOException the IO exception
+	 */
+	public static UploadJournal open(final File journalDirectory, final String vaultName, final String uploadKey)
+			throws IOException {
+		if (!journalDirectory.isDirectory() && !journalDirectory.mkdirs()) {
+			throw new IOException("Could not create journal directory: " + journalDirectory);
+		}
+		final String journalName = DigestUtils.sha1Hex(vaultName + '\n' + uploadKey) + JOURNAL_SUFFIX;
+		return open(new File(journalDirectory, journalName));
+	}
+
+	/**
+	 * Gets the identity of a file, it changes whenever the file is modified.
+	 *
+	 * @param file the file
+	 * @return the identity made of path, size and last modified time of the file
+	 * @throws IOException the IO exception
+	 */
+	public static String fileIdentity(final File file) throws IOException {
+		return file.getCanonicalPath() + '|' + file.length() + '|' + file.lastModified();
+	}
+
+	/**
+	 * Checks if upload was started.
+	 *
+	 * @return true, if journal has an upload record
+	 */
+	public synchronized boolean isStarted() {
+		return uploadId != null;
+	}
+
+	/**
+	 * Checks if journal belongs to the given upload.
+	 *
+	 * @param vaultName the vault name
+	 * @param partSize the part size
+	 * @param sourceIdentity the source identity
+	 * @return true, if vault, part size and source identity match the journal
+	 */
+	public synchronized boolean matches(final String vaultName, final long partSize, final String sourceIdentity) {
+		return isStarted() && this.vaultName.equals(vaultName) && this.partSize == partSize
+				&& this.sourceIdentity.equals(sourceIdentity);
+	}
+
+	/**
+	 * Gets the vault name.
+	 *
+	 * @return the vault name
+	 */
+	public synchronized String getVaultName() {
+		return vaultName;
+	}
+
+	/**
+	 * Gets the upload id.
+	 *
+	 * @return the upload id
+	 */
+	public synchronized String getUploadId() {
+		return uploadId;
+	}
+
+	/**
+	 * Gets the part size.
+	 *
+	 * @return the part size
+	 */
+	public synchronized long getPartSize() {
+		return partSize;
+	}
+
+	/**
+	 * Gets the source identity.
+	 *
+	 * @return the source identity
+	 */
+	public synchronized String getSourceIdentity() {
+		return sourceIdentity;
+	}
+
+	/**
+	 * Gets the completed parts.
+	 *
+	 * @return the completed parts, keyed by part start
+	 */
+	public synchronized Map<Long, PartRecord> getCompletedParts() {
+		return Collections.unmodifiableMap(new TreeMap<Long, PartRecord>(completedParts));
+	}
+
+	/**
+	 * Gets the journal file.
+	 *
+	 * @return the journal file
+	 */
+	public File getJournalFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Start a new upload, records of the previous upload are discarded.
+	 *
+	 * @param vaultName the vault name
+	 * @param uploadId the upload id
+	 * @param partSize the part size
+	 * @param sourceIdentity the source identity
+	 * @throws IOException the IO exception
+	 */
+	public synchronized void start(final String vaultName, final String uploadId, final long partSize,
+			final String sourceIdentity) throws IOException {
+		channel.truncate(0);
+		channel.position(0);
+		completedParts.clear();
+		this.vaultName = vaultName;
+		this.uploadId = uploadId;
+		this.partSize = partSize;
+		this.sourceIdentity = sourceIdentity;
+		append(UPLOAD_RECORD + ' ' + encode(vaultName) + ' ' + encode(uploadId) + ' ' + partSize + ' '
+				+ encode(sourceIdentity));
+	}
+
+	/**
+	 * Record a completed part.
+	 *
+	 * @param partStart the part start
+	 * @param partLength the part length
+	 * @param treeHash the tree hash of the part
+	 * @throws IOException the IO exception
+	 */
+	public synchronized void recordPart(final long partStart, final long partLength, final byte[] treeHash)
+			throws IOException {
+		if (!isStarted()) {
+			throw new IllegalStateException("Upload is not started: " + journalFile);
+		}
+		append(PART_RECORD + ' ' + partStart + ' ' + partLength + ' ' + TreeHash.toHex(treeHash));
+		completedParts.put(partStart, new PartRecord(partStart, partLength, treeHash));
+	}
+
+	/**
+	 * Delete the journal, called once the upload is completed.
+	 *
+	 * @throws IOException the IO exception
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+		Files.deleteIfExists(journalFile.toPath());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Append a record and force it to disk.
+	 *
+	 * @param record the record
+	 * @throws IOException the IO exception
+	 */
+	private void append(final String record) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap((record + '\n').getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * Load the records of the journal file.
+	 *
+	 * @return the length of the journal covered by complete records
+	 * @throws IOException the IO exception
+	 */
+	private long load() throws IOException {
+		final byte[] content = Files.readAllBytes(journalFile.toPath());
+		int lineStart = 0;
+		for (int index = 0; index < content.length; index++) {
+			if (content[index] != '\n') {
+				continue;
+			}
+			final String line = new String(content, lineStart, index - lineStart, StandardCharsets.UTF_8);
+			if (!parseRecord(line.split(" "))) {
+				LOGGER.warn("Ignoring malformed records from offset {} of journal: {}", lineStart, journalFile);
+				return lineStart;
+			}
+			lineStart = index + 1;
+		}
+		return lineStart;
+	}
+
+	/**
+	 * Parse a record.
+	 *
+	 * @param fields the fields of the record
+	 * @return true, if record is valid
+	 * @throws UnsupportedEncodingException the unsupported encoding exception
+	 */
+	private boolean parseRecord(final String[] fields) throws UnsupportedEncodingException {
+		try {
+			if (UPLOAD_RECORD.equals(fields[0]) && fields.length == 5) {
+				vaultName = decode(fields[1]);
+				uploadId = decode(fields[2]);
+				partSize = Long.parseLong(fields[3]);
+				sourceIdentity = decode(fields[4]);
+				completedParts.clear();
+				return true;
+			}
+			if (PART_RECORD.equals(fields[0]) && fields.length == 4 && uploadId != null) {
+				final long partStart = Long.parseLong(fields[1]);
+				final byte[] treeHash = BinaryUtils.fromHex(fields[3]);
+				if (treeHash.length != TreeHash.HASH_LENGTH) {
+					return false;
+				}
+				completedParts.put(partStart, new PartRecord(partStart, Long.parseLong(fields[2]), treeHash));
+				return true;
+			}
+		} catch (IllegalArgumentException illegalEx) {
+			LOGGER.debug("Malformed journal record", illegalEx);
+		}
+		return false;
+	}
+
+	/**
+	 * Encode a text field, so that it contains no separators.
+	 *
+	 * @param value the value
+	 * @return the encoded value
+	 * @throws UnsupportedEncodingException the unsupported encoding exception
+	 */
+	private static String encode(final String value) throws UnsupportedEncodingException {
+		return URLEncoder.encode(value, ENCODING);
+	}
+
+	/**
+	 * Decode a text field.
+	 *
+	 * @param value the value
+	 * @return the decoded value
+	 * @throws UnsupportedEncodingException the unsupported encoding exception
+	 */
+	private static String decode(final String value) throws UnsupportedEncodingException {
+		return URLDecoder.decode(value, ENCODING);
+	}
+
+	/**
+	 * The Class PartRecord.<br/>
+	 * A part which was uploaded, along with its tree hash.
+	 */
+	public static final class PartRecord {
+
+		/** The part start. */
+		private final long partStart;
+
+		/** The part length. */
+		private final long partLength;
+
+		/** The tree hash. */
+		private final byte[] treeHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param partStart the part start
+		 * @param partLength the part length
+		 * @param treeHash the tree hash
+		 */
+		PartRecord(final long partStart, final long partLength, final byte[] treeHash) {
+			this.partStart = partStart;
+			this.partLength = partLength;
+			this.treeHash = treeHash;
+		}
+
+		/**
+		 * Gets the part start.
+		 *
+		 * @return the part start
+		 */
+		public long getPartStart() {
+			return partStart;
+		}
+
+		/**
+		 * Gets the part length.
+		 *
+		 * @return the part length
+		 */
+		public long getPartLength() {
+			return partLength;
+		}
+
+		/**
+		 * Gets the tree hash.
+		 *
+		 * @return the tree hash
+		 */
+		public byte[] getTreeHash() {
+			return treeHash.clone();
+		}
+	}
+}
@@ -0,0 +1,429 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.vault;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_VAULT_CACHE_SIZE;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.DEFAULT_VAULT_CACHE_TTL;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.model.CreateVaultResult;
+import com.amazonaws.services.glacier.model.DescribeVaultOutput;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class CachingVaultService.<br/>
+ * Decorates a {@link GlacierVaultService}, keeping vault descriptions and the list of all vaults for a
+ * limited time. Cache holds up to the given number of entries, least recently used entries are evicted
+ * first. Concurrent calls for the same entry share a single request: the first caller makes the request
+ * while the others wait for its result. Failed requests are not cached.<br/>
+ * Entries of a vault and the list of all vaults are invalidated when a vault is created or deleted, or
+ * an archive is deleted, through this service. Changes made by other clients are visible once the
+ * entries expire. Lazy listings returned by {@link #listVaults(int)} are not cached.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class CachingVaultService implements GlacierVaultService {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingVaultService.class);
+
+	/** The Constant ALL_VAULTS_KEY. */
+	private static final String ALL_VAULTS_KEY = "\u0000vaults";
+
+	/** The vault service. */
+	private final GlacierVaultService vaultService;
+
+	/** The time to live in millis. */
+	private final long timeToLive;
+
+	/** The entries, in access order. */
+	private final Map<String, CachedCall<?>> entries;
+
+	/** The hit count. */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/** The miss count. */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * The Constructor.<br/>
+	 * Entries are cached for a minute, up to 1000 entries.
+	 *
+	 * @param vaultService the vault service
+	 */
+	public CachingVaultService(final GlacierVaultService vaultService) {
+		this(vaultService, DEFAULT_VAULT_CACHE_TTL, DEFAULT_VAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param vaultService the vault service
+	 * @param timeToLive the time for which an entry is cached in millis, counted from its request completed
+	 * @param maxEntries the max number of entries cached
+	 */
+	public CachingVaultService(final GlacierVaultService vaultService, final long timeToLive,
+			final int maxEntries) {
+		super();
+		AWSUtil.notNull(vaultService, "Vault service can not be null!");
+		if (timeToLive < 1 || maxEntries < 1) {
+			throw new IllegalArgumentException("Time to live and max entries must be positive!");
+		}
+		this.vaultService = vaultService;
+		this.timeToLive = timeToLive;
+		this.entries = new LinkedHashMap<String, CachedCall<?>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CachedCall<?>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#createVault(java.lang.String)
+	 */
+	@Override
+	public CreateVaultResult createVault(final String vaultName)
+			throws AmazonServiceException, AmazonClientException {
+		try {
+			return vaultService.createVault(vaultName);
+		} finally {
+			invalidate(vaultName);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#deleteVault(java.lang.String)
+	 */
+	@Override
+	public void deleteVault(final String vaultName) throws AmazonServiceException, AmazonClientException {
+		try {
+			vaultService.deleteVault(vaultName);
+		} finally {
+			invalidate(vaultName);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#listAllVaults()
+	 */
+	@Override
+	public List<DescribeVaultOutput> listAllVaults() throws AmazonServiceException, AmazonClientException {
+		final List<DescribeVaultOutput> vaults = get(ALL_VAULTS_KEY, new Callable<List<DescribeVaultOutput>>() {
+			@Override
+			public List<DescribeVaultOutput> call() {
+				return vaultService.listAllVaults();
+			}
+		});
+		// Model objects are mutable, callers get their own copies
+		final List<DescribeVaultOutput> copies = new ArrayList<DescribeVaultOutput>(vaults.size());
+		for (final DescribeVaultOutput vault : vaults) {
+			copies.add(vault.clone());
+		}
+		return copies;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#getVaultDescription(java.lang.String)
+	 */
+	@Override
+	public DescribeVaultResult getVaultDescription(final String vaultName)
+			throws AmazonServiceException, AmazonClientException {
+		return get(vaultName, new Callable<DescribeVaultResult>() {
+			@Override
+			public DescribeVaultResult call() {
+				return vaultService.getVaultDescription(vaultName);
+			}
+		}).clone();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#getVaultDescriptions(java.util.List, int)
+	 */
+	@Override
+	public List<DescribeVaultResult> getVaultDescriptions(final List<String> vaultNames, final int maxConcurrency)
+			throws AmazonServiceException, AmazonClientException {
+		final List<DescribeVaultResult> descriptions = new ArrayList<DescribeVaultResult>(vaultNames.size());
+		final List<String> missingNames = new ArrayList<String>();
+		for (final String vaultName : vaultNames) {
+			final DescribeVaultResult cached = getIfPresent(vaultName);
+			descriptions.add(cached);
+			if (cached == null) {
+				missingNames.add(vaultName);
+			}
+		}
+		if (missingNames.isEmpty()) {
+			return descriptions;
+		}
+		// Missing descriptions are requested at the same time and cached
+		final List<DescribeVaultResult> fetched = vaultService.getVaultDescriptions(missingNames, maxConcurrency);
+		for (int index = 0, fetchedIndex = 0; index < descriptions.size(); index++) {
+			if (descriptions.get(index) == null) {
+				final DescribeVaultResult description = fetched.get(fetchedIndex++);
+				put(vaultNames.get(index), description);
+				descriptions.set(index, description.clone());
+			}
+		}
+		return descriptions;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#listVaults(int)
+	 */
+	@Override
+	public VaultListing listVaults(final int describeConcurrency)
+			throws AmazonServiceException, AmazonClientException {
+		return vaultService.listVaults(describeConcurrency);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#deleteArchivedObject(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void deleteArchivedObject(final String vaultName, final String archiveId)
+			throws AmazonServiceException, AmazonClientException {
+		try {
+			vaultService.deleteArchivedObject(vaultName, archiveId);
+		} finally {
+			invalidate(vaultName);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService#deleteArchives(java.lang.String, com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource, com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy, com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions)
+	 */
+	@Override
+	public PurgeProgress deleteArchives(final String vaultName, final ArchiveSource archives,
+			final RetentionPolicy policy, final PurgeOptions options)
+			throws AmazonServiceException, AmazonClientException, IOException {
+		try {
+			return vaultService.deleteArchives(vaultName, archives, policy, options);
+		} finally {
+			invalidate(vaultName);
+		}
+	}
+
+	/**
+	 * Invalidate the cached description of a vault and the list of all vaults.
+	 *
+	 * @param vaultName the vault name
+	 */
+	public void invalidate(final String vaultName) {
+		synchronized (entries) {
+			entries.remove(vaultName);
+			entries.remove(ALL_VAULTS_KEY);
+		}
+	}
+
+	/**
+	 * Invalidate every cached entry.
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Gets the hit count.
+	 *
+	 * @return the number of calls answered from the cache, including the calls which waited for a request in flight
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the miss count.
+	 *
+	 * @return the number of calls which made a request
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Get the cached result of a call, making the call if there is none. Only one caller makes the call
+	 * while it is in flight, concurrent callers wait for its result.
+	 *
+	 * @param <T> the result type
+	 * @param key the key
+	 * @param callable the callable making the request
+	 * @return the result
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T get(final String key, final Callable<T> callable) {
+		final long now = System.currentTimeMillis();
+		CachedCall<T> cachedCall;
+		boolean owner = false;
+		synchronized (entries) {
+			cachedCall = (CachedCall<T>) entries.get(key);
+			if (cachedCall == null || cachedCall.isExpired(now)) {
+				cachedCall = new CachedCall<T>(callable);
+				entries.put(key, cachedCall);
+				owner = true;
+			}
+		}
+		if (owner) {
+			missCount.incrementAndGet();
+			cachedCall.run();
+			cachedCall.expiresAt = System.currentTimeMillis() + timeToLive;
+		} else {
+			hitCount.incrementAndGet();
+		}
+		try {
+			return cachedCall.await();
+		} catch (RuntimeException callEx) {
+			synchronized (entries) {
+				if (entries.get(key) == cachedCall) {
+					entries.remove(key);
+				}
+			}
+			throw callEx;
+		}
+	}
+
+	/**
+	 * Gets the vault description if it is cached and completed.
+	 *
+	 * @param vaultName the vault name
+	 * @return the cached vault description, null if not cached
+	 */
+	private DescribeVaultResult getIfPresent(final String vaultName) {
+		final CachedCall<?> cachedCall;
+		synchronized (entries) {
+			cachedCall = entries.get(vaultName);
+		}
+		if (cachedCall == null || !cachedCall.isDone() || cachedCall.isExpired(System.currentTimeMillis())) {
+			return null;
+		}
+		try {
+			final DescribeVaultResult description = (DescribeVaultResult) cachedCall.await();
+			hitCount.incrementAndGet();
+			return description.clone();
+		} catch (RuntimeException callEx) {
+			LOGGER.debug("Cached description of vault: {} is not available", vaultName, callEx);
+			return null;
+		}
+	}
+
+	/**
+	 * Cache a vault description.
+	 *
+	 * @param vaultName the vault name
+	 * @param description the description
+	 */
+	private void put(final String vaultName, final DescribeVaultResult description) {
+		missCount.incrementAndGet();
+		final CachedCall<DescribeVaultResult> cachedCall = new CachedCall<DescribeVaultResult>(
+				new Callable<DescribeVaultResult>() {
+					@Override
+					public DescribeVaultResult call() {
+						return description;
+					}
+				});
+		cachedCall.run();
+		cachedCall.expiresAt = System.currentTimeMillis() + timeToLive;
+		synchronized (entries) {
+			entries.put(vaultName, cachedCall);
+		}
+	}
+
+	/**
+	 * The Class CachedCall.<br/>
+	 * A call which is in flight or completed, along with the time its result expires at.
+	 *
+	 * @param <T> the result type
+	 */
+	private static final class CachedCall<T> extends FutureTask<T> {
+
+		/** The expires at, set once the call completed. */
+		private volatile long expiresAt = Long.MAX_VALUE;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param callable the callable
+		 */
+		CachedCall(final Callable<T> callable) {
+			super(callable);
+		}
+
+		/**
+		 * Checks if is expired.
+		 *
+		 * @param now the now
+		 * @return true, if the result expired
+		 */
+		boolean isExpired(final long now) {
+			return now >= expiresAt;
+		}
+
+		/**
+		 * Await the result.
+		 *
+		 * @return the result
+		 */
+		T await() {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return get();
+					} catch (InterruptedException intEx) {
+						// The call is made by another caller, it completes anyway
+						interrupted = true;
+					}
+				}
+			} catch (ExecutionException execEx) {
+				if (execEx.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) execEx.getCause();
+				}
+				throw new AmazonClientException("Vault request failed: " + execEx.getCause().getMessage(),
+						execEx.getCause());
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.vault;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ACCOUNT_ID_SELF;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DescribeVaultOutput;
+import com.amazonaws.services.glacier.model.DescribeVaultRequest;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.amazonaws.services.glacier.model.ListVaultsRequest;
+import com.amazonaws.services.glacier.model.ListVaultsResult;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
+import com.github.abhinavmishra14.aws.util.NamedThreadFactory;
+
+/**
+ * The Class VaultListing.<br/>
+ * Lists the vaults of the account lazily, page by page, following the marker returned with each page.
+ * Next page is requested in the background as soon as the current page is received, so it is usually
+ * available by the time the caller is done with the current one. Pages of every listing are requested on one
+ * small shared pool of daemon threads, so a listing is cheap to create and idle threads are reused.<br/>
+ * Optionally every listed vault is described again, with up to the given number of describe requests in
+ * flight. Vaults are returned in the order they are listed either way.<br/>
+ * Describe workers are released once the last vault is returned, listings which are abandoned before
+ * that should be closed.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class VaultListing implements Iterator<DescribeVaultOutput>, Closeable {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(VaultListing.class);
+
+	/** The Constant THREAD_NAME_PREFIX. */
+	private static final String THREAD_NAME_PREFIX = "glacier-vault-list";
+
+	/** The Constant PAGE_FETCHER_THREADS. Page requests of more listings than this wait for their turn. */
+	private static final int PAGE_FETCHER_THREADS = 4;
+
+	/** The Constant PAGE_FETCHER. Shared by all listings, idle threads end after a minute. */
+	private static final ExecutorService PAGE_FETCHER = newPageFetcher();
+
+	/** The glacier client. */
+	private final AmazonGlacier glacierClient;
+
+	/** The describe concurrency. */
+	private final int describeConcurrency;
+
+	/** The describers, null if vaults are not described. */
+	private final ExecutorService describers;
+
+	/** The descriptions in flight, in listing order. */
+	private final Deque<Future<DescribeVaultOutput>> descriptions = new ArrayDeque<Future<DescribeVaultOutput>>();
+
+	/** The next page, null once the last page was requested. */
+	private Future<ListVaultsResult> nextPage;
+
+	/** The current page. */
+	private Iterator<DescribeVaultOutput> currentPage = Collections.<DescribeVaultOutput> emptyList().iterator();
+
+	/** The page count. */
+	private int pageCount;
+
+	/** The closed. */
+	private boolean closed;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 */
+	public VaultListing(final AmazonGlacier glacierClient) {
+		this(glacierClient, 0);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param describeConcurrency the max number of describe requests in flight, 0 in order to return the
+	 *            vaults as they are listed
+	 */
+	public VaultListing(final AmazonGlacier glacierClient, final int describeConcurrency) {
+		this(glacierClient, describeConcurrency, ExecutorStrategies.getDefault());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param glacierClient the glacier client
+	 * @param describeConcurrency the max number of describe requests in flight, 0 in order to return the
+	 *            vaults as they are listed
+	 * @param executorStrategy the executor strategy creating the describe workers
+	 */
+	public VaultListing(final AmazonGlacier glacierClient, final int describeConcurrency,
+			final ExecutorStrategy executorStrategy) {
+		super();
+		if (describeConcurrency < 0) {
+			throw new IllegalArgumentException("Describe concurrency can not be negative!");
+		}
+		this.glacierClient = glacierClient;
+		this.describeConcurrency = describeConcurrency;
+		this.describers = describeConcurrency == 0 ? null
+				: executorStrategy.newExecutor(THREAD_NAME_PREFIX + "-describe", describeConcurrency);
+		this.nextPage = fetchPage(null);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			return false;
+		}
+		if (describers == null) {
+			return pageHasNext();
+		}
+		// Keep twice as many descriptions requested as may be in flight, so that the describers never wait
+		while (descriptions.size() < describeConcurrency * 2 && pageHasNext()) {
+			descriptions.add(describe(currentPage.next().getVaultName()));
+		}
+		if (descriptions.isEmpty()) {
+			close();
+			return false;
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public DescribeVaultOutput next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return describers == null ? currentPage.next() : await(descriptions.poll());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Vaults can not be removed while listing");
+	}
+
+	/**
+	 * Gets the page count.
+	 *
+	 * @return the number of pages received so far
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		if (nextPage != null) {
+			nextPage.cancel(true);
+			nextPage = null;
+		}
+		for (final Future<DescribeVaultOutput> description : descriptions) {
+			description.cancel(true);
+		}
+		descriptions.clear();
+		if (describers != null) {
+			describers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks if the current page, or any of the pages after it, has more vaults. Moves to the next page
+	 * when the current one is consumed and requests the page after it.
+	 *
+	 * @return true, if there are more vaults listed
+	 */
+	private boolean pageHasNext() {
+		while (!currentPage.hasNext()) {
+			if (nextPage == null) {
+				if (describers == null) {
+					close();
+				}
+				return false;
+			}
+			final ListVaultsResult page = await(nextPage);
+			pageCount++;
+			nextPage = page.getMarker() == null ? null : fetchPage(page.getMarker());
+			currentPage = page.getVaultList().iterator();
+		}
+		return true;
+	}
+
+	/**
+	 * Request a page of vaults in the background.
+	 *
+	 * @param marker the marker returned with the previous page, null for the first page
+	 * @return the future page
+	 */
+	private Future<ListVaultsResult> fetchPage(final String marker) {
+		return PAGE_FETCHER.submit(new Callable<ListVaultsResult>() {
+			@Override
+			public ListVaultsResult call() {
+				LOGGER.debug("Listing vaults from marker: {}", marker);
+				return glacierClient.listVaults(new ListVaultsRequest().withAccountId(ACCOUNT_ID_SELF)
+						.withMarker(marker));
+			}
+		});
+	}
+
+	/**
+	 * New page fetcher, its threads are started on demand and end when idle.
+	 *
+	 * @return the executor service
+	 */
+	private static ExecutorService newPageFetcher() {
+		final ThreadPoolExecutor pageFetcher = new ThreadPoolExecutor(PAGE_FETCHER_THREADS, PAGE_FETCHER_THREADS,
+				1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(THREAD_NAME_PREFIX));
+		pageFetcher.allowCoreThreadTimeOut(true);
+		return pageFetcher;
+	}
+
+	/**
+	 * Request the description of a vault in the background.
+	 *
+	 * @param vaultName the vault name
+	 * @return the future description
+	 */
+	private Future<DescribeVaultOutput> describe(final String vaultName) {
+		return describers.submit(new Callable<DescribeVaultOutput>() {
+			@Override
+			public DescribeVaultOutput call() {
+				return toOutput(glacierClient.describeVault(new DescribeVaultRequest(vaultName)));
+			}
+		});
+	}
+
+	/**
+	 * Await a background request. Listing is closed if the request failed.
+	 *
+	 * @param <T> the result type
+	 * @param future the future
+	 * @return the result
+	 */
+	private <T> T await(final Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException intEx) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new AmazonClientException("Interrupted while listing vaults", intEx);
+		} catch (ExecutionException execEx) {
+			close();
+			if (execEx.getCause() instanceof AmazonClientException) {
+				throw (AmazonClientException) execEx.getCause();
+			}
+			throw new AmazonClientException("Failed to list vaults: " + execEx.getCause().getMessage(),
+					execEx.getCause());
+		}
+	}
+
+	/**
+	 * Convert a vault description to the form returned by the listing.
+	 *
+	 * @param describeVaultResult the describe vault result
+	 * @return the describe vault output
+	 */
+	private static DescribeVaultOutput toOutput(final DescribeVaultResult describeVaultResult) {
+		return new DescribeVaultOutput().withVaultARN(describeVaultResult.getVaultARN())
+				.withVaultName(describeVaultResult.getVaultName())
+				.withCreationDate(describeVaultResult.getCreationDate())
+				.withLastInventoryDate(describeVaultResult.getLastInventoryDate())
+				.withNumberOfArchives(describeVaultResult.getNumberOfArchives())
+				.withSizeInBytes(describeVaultResult.getSizeInBytes());
+	}
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -98,4 +99,19 @@ public final class AWSUtil {
 	    cal.add(expireBy, expireByValue);
 		return cal.getTime();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Gets the delay before the next attempt of a failed request.<br/>
+	 * Delay doubles with every attempt up to the max delay, half of it is random so that requests which
+	 * failed together are not attempted again all at once.
+	 *
+	 * @param attempt the failed attempt, starting with 1
+	 * @param baseDelay the delay after the first attempt
+	 * @param maxDelay the max delay
+	 * @return the delay
+	 */
+	public static long getRetryDelay(final int attempt, final long baseDelay, final long maxDelay) {
+		final long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+		return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+	}
+}
@@ -54,6 +54,102 @@ public final class AWSUtilConstants {
 	/** The Constant CLASSPATH_CREDENTIAL_PATH. */
 	public static final String CLASSPATH_CREDENTIAL_PATH = "AwsCredentials.properties";
 
+	/** The Constant ACCOUNT_ID_SELF. Refers to the account which owns the credentials. */
+	public static final String ACCOUNT_ID_SELF = "-";
+
+	/** The Constant ONE_MB. Size of a tree hash leaf and the smallest multipart part size. */
+	public static final long ONE_MB = 1024L * 1024L;
+
+	/** The Constant MAX_PART_SIZE. Largest multipart part size accepted by glacier (4 GB). */
+	public static final long MAX_PART_SIZE = 4096L * ONE_MB;
+
+	/** The Constant MAX_PARTS. Maximum number of parts in a multipart upload. */
+	public static final int MAX_PARTS = 10000;
+
+	/** The Constant DEFAULT_PART_SIZE. */
+	public static final long DEFAULT_PART_SIZE = 64L * ONE_MB;
+
+	/** The Constant DEFAULT_UPLOAD_CONCURRENCY. Number of parts uploaded at the same time. */
+	public static final int DEFAULT_UPLOAD_CONCURRENCY = 16;
+
+	/** The Constant DEFAULT_MAX_PARTS_IN_FLIGHT. Number of part buffers used while uploading a stream. */
+	public static final int DEFAULT_MAX_PARTS_IN_FLIGHT = 4;
+
+	/** The Constant DEFAULT_FILE_CONCURRENCY. Number of files archived at the same time. */
+	public static final int DEFAULT_FILE_CONCURRENCY = 8;
+
+	/** The Constant DEFAULT_MAX_CONCURRENT_REQUESTS. Upload requests in flight across all files of a directory. */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+	/** The Constant DEFAULT_TRAVERSAL_QUEUE_SIZE. Files found by traversal which wait for an upload worker. */
+	public static final int DEFAULT_TRAVERSAL_QUEUE_SIZE = 1024;
+
+	/** The Constant DEFAULT_CONTAINER_SIZE. Size at which a container of packed files is closed (1 GB). */
+	public static final long DEFAULT_CONTAINER_SIZE = 1024L * ONE_MB;
+
+	/** The Constant DEFAULT_PACK_THRESHOLD. Files smaller than this are packed into containers. */
+	public static final long DEFAULT_PACK_THRESHOLD = 8L * ONE_MB;
+
+	/** The Constant DEFAULT_MIN_POLL_INTERVAL. Shortest wait between two job status polls of a vault (1 minute). */
+	public static final long DEFAULT_MIN_POLL_INTERVAL = 60 * 1000L;
+
+	/** The Constant DEFAULT_MAX_POLL_INTERVAL. Longest wait between two job status polls of a vault (15 minutes). */
+	public static final long DEFAULT_MAX_POLL_INTERVAL = 15 * 60 * 1000L;
+
+	/** The Constant DEFAULT_SORT_BUFFER_SIZE. Number of snapshot entries sorted in memory before spilling to disk. */
+	public static final int DEFAULT_SORT_BUFFER_SIZE = 250000;
+
+	/** The Constant DEFAULT_VAULT_CACHE_TTL. Time for which vault descriptions are cached (1 minute). */
+	public static final long DEFAULT_VAULT_CACHE_TTL = 60 * 1000L;
+
+	/** The Constant DEFAULT_VAULT_CACHE_SIZE. Max number of vault descriptions and listings cached. */
+	public static final int DEFAULT_VAULT_CACHE_SIZE = 1000;
+
+	/** The Constant DEFAULT_PURGE_CONCURRENCY. Number of archives deleted at the same time. */
+	public static final int DEFAULT_PURGE_CONCURRENCY = 16;
+
+	/** The Constant DEFAULT_PURGE_MAX_ATTEMPTS. Attempts to delete an archive when requests are throttled. */
+	public static final int DEFAULT_PURGE_MAX_ATTEMPTS = 8;
+
+	/** The Constant DEFAULT_RETRY_BASE_DELAY. Delay before the first retry of a throttled request. */
+	public static final long DEFAULT_RETRY_BASE_DELAY = 100L;
+
+	/** The Constant DEFAULT_RETRY_MAX_DELAY. Longest delay between two retries of a throttled request. */
+	public static final long DEFAULT_RETRY_MAX_DELAY = 20 * 1000L;
+
+	/** The Constant DEFAULT_PROGRESS_INTERVAL. Time between two progress reports of a purge (10 seconds). */
+	public static final long DEFAULT_PROGRESS_INTERVAL = 10 * 1000L;
+
+	/** The Constant DEFAULT_INITIAL_CONCURRENCY. Requests in flight allowed by a new adaptive throttle. */
+	public static final int DEFAULT_INITIAL_CONCURRENCY = 16;
+
+	/** The Constant DEFAULT_THROTTLE_MAX_ATTEMPTS. Attempts of a request which keeps being throttled. */
+	public static final int DEFAULT_THROTTLE_MAX_ATTEMPTS = 8;
+
+	/** The Constant DEFAULT_LATENCY_TOLERANCE. Latency rise taken as congestion, 0 as latency is no signal. */
+	public static final double DEFAULT_LATENCY_TOLERANCE = 0;
+
+	/** The Constant DEFAULT_COMPRESSION_BLOCK_SIZE. Size of the blocks compressed independently (1 MB). */
+	public static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 1024 * 1024;
+
+	/** The Constant DEFAULT_ENCRYPTION_SEGMENT_SIZE. Size of the plain text encrypted as one segment (1 MB). */
+	public static final int DEFAULT_ENCRYPTION_SEGMENT_SIZE = 1024 * 1024;
+
+	/** The Constant DEFAULT_ASYNC_THREADS. Threads of the executor shared by async services by default. */
+	public static final int DEFAULT_ASYNC_THREADS = 64;
+
+	/** The Constant DEFAULT_MAX_CONNECTIONS. Size of the connection pool of a shared client. */
+	public static final int DEFAULT_MAX_CONNECTIONS = 128;
+
+	/** The Constant MAX_ARCHIVE_DESCRIPTION_LENGTH. Longest archive description Glacier accepts. */
+	public static final int MAX_ARCHIVE_DESCRIPTION_LENGTH = 1024;
+
+	/** The Constant ERR_MSG_PART_SIZE. */
+	public static final String ERR_MSG_PART_SIZE = "Part size must be a power of two multiple of 1 MB, between 1 MB and 4 GB!";
+
+	/** The Constant ERR_MSG_CONCURRENCY. */
+	public static final String ERR_MSG_CONCURRENCY = "Concurrency must be greater than zero!";
+
 	/**
 	 * Instantiates a new AWS Util Constants.
 	 */
@@ -0,0 +1,117 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class BoundedExecutorService.<br/>
+ * Runs every task on its own thread, started by the given thread per task executor, while a fair semaphore
+ * caps the tasks running at the same time. Threads of waiting tasks are blocked on the semaphore, which is
+ * cheap for virtual threads. Tasks interrupted while waiting are cancelled.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+final class BoundedExecutorService extends AbstractExecutorService {
+
+	/** The thread per task executor. */
+	private final ExecutorService executor;
+
+	/** The permits, one per running task. */
+	private final Semaphore permits;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param executor the thread per task executor
+	 * @param concurrency the max number of tasks running at the same time
+	 */
+	BoundedExecutorService(final ExecutorService executor, final int concurrency) {
+		super();
+		this.executor = executor;
+		this.permits = new Semaphore(concurrency, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(final Runnable task) {
+		executor.execute(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException intEx) {
+				if (task instanceof Future) {
+					((Future<?>) task).cancel(false); // Shut down before its turn came
+				}
+				return;
+			}
+			try {
+				task.run();
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdownNow()
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		return executor.shutdownNow();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isShutdown()
+	 */
+	@Override
+	public boolean isShutdown() {
+		return executor.isShutdown();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isTerminated()
+	 */
+	@Override
+	public boolean isTerminated() {
+		return executor.isTerminated();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+}
@@ -19,24 +19,77 @@ package com.github.abhinavmishra14.aws.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
  * This class DirectoryTraverser.<br/>
- * It returns set of files by traversing directories recursively.
+ * It walks directory trees using {@link java.nio.file}. Trees are walked lazily through a
+ * {@link TraversalIterator}, which holds only the directories on the current path (or a bounded queue
+ * of entries when walking in parallel), never the whole tree. Attributes of every entry are read once
+ * and handed out with the entry. Include and exclude filters are applied while walking, so excluded
+ * subtrees are never read.
  *
  * @author Abhinav Kumar Mishra
  * @since 2017
  */
 public final class DirectoryTraverser {
 
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryTraverser.class);
+
+	/** The Constant GLOB_SYNTAX. */
+	private static final String GLOB_SYNTAX = "glob:";
+
+	/** The Constant PARALLEL_QUEUE_SIZE. Entries found by parallel walkers which wait for the iterator. */
+	private static final int PARALLEL_QUEUE_SIZE = 4096;
+
+	/** The Constant OFFER_MILLIS. */
+	private static final long OFFER_MILLIS = 100;
+
+	/** The Constant FOLLOW_LINKS. */
+	private static final LinkOption[] FOLLOW_LINKS = new LinkOption[0];
+
+	/** The Constant NOFOLLOW_LINKS. */
+	private static final LinkOption[] NOFOLLOW_LINKS = new LinkOption[] {LinkOption.NOFOLLOW_LINKS};
+
+	/** The Constant LOGGING_ERROR_HANDLER. */
+	private static final TraversalErrorHandler LOGGING_ERROR_HANDLER = new TraversalErrorHandler() {
+		@Override
+		public void traversalFailed(final Path path, final IOException cause) {
+			LOGGER.warn("Could not traverse: {}", path, cause);
+		}
+	};
+
 	/**
-	 * Gets the file uris.
+	 * Gets the file uris.<br/>
+	 * Returns all the files and directories of the tree. Prefer {@link #traverse(File, TraversalOptions)}
+	 * for large trees, this method keeps every entry in memory.
 	 *
 	 * @param startDir the start dir
 	 * @return the file uris
@@ -44,36 +97,48 @@ public final class DirectoryTraverser {
 	 */
 	public static Set<File> getFileUris(final File startDir) throws FileNotFoundException {
 		checkDirectories(startDir); // throw exception if not valid.
-		return getUrisRecursive(startDir);
+		final TraversalOptions options = new TraversalOptions();
+		options.setFollowLinks(true);
+		options.setIncludeDirectories(true);
+		final Set<File> filesAndDirs = new HashSet<File>();
+		final TraversalIterator traversal = traverse(startDir, options);
+		while (traversal.hasNext()) {
+			filesAndDirs.add(traversal.next().getFile());
+		}
+		return filesAndDirs;
 	}
 
 	/**
-	 * Gets the uris recursive.<br/>
-	 * Recursively traverse each directory and uris of files.
+	 * Traverse the tree lazily, unreadable entries are logged and skipped.
 	 *
-	 * @param startDir the a starting dir
-	 * @return the uris recursive
+	 * @param startDir the start dir
+	 * @param options the options
+	 * @return the traversal iterator
 	 * @throws FileNotFoundException the file not found exception
 	 */
-	private static Set<File> getUrisRecursive(final File startDir) throws FileNotFoundException {
-		final Set<File> sortedSetOfFiles = new HashSet<File>();
-		final File[] filesAndDirs = startDir.listFiles();
-		final List<File> filesDirs = Arrays.asList(filesAndDirs);
-		final Iterator<File> filesDirsItr = filesDirs.iterator();
-		while (filesDirsItr.hasNext()) {
-			final File file = filesDirsItr.next();
-			sortedSetOfFiles.add(file); // Add files and directory URIs both
-			// If uri is a directory the revisit it recursively.
-			if (!file.isFile()) {
-				// Call 'getUrisRecursive' to extract uris from directory
-				final Set<File> innerSet = getUrisRecursive(file);
-				sortedSetOfFiles.addAll(innerSet);
-			}
-		}
-
-		return sortedSetOfFiles;
+	public static TraversalIterator traverse(final File startDir, final TraversalOptions options)
+			throws FileNotFoundException {
+		return traverse(startDir, options, LOGGING_ERROR_HANDLER);
 	}
 
+	/**
+	 * Traverse the tree lazily.
+	 *
+	 * @param startDir the start dir
+	 * @param options the options
+	 * @param errorHandler the error handler, receives the entries which could not be read
+	 * @return the traversal iterator
+	 * @throws FileNotFoundException the file not found exception
+	 */
+	public static TraversalIterator traverse(final File startDir, final TraversalOptions options,
+			final TraversalErrorHandler errorHandler) throws FileNotFoundException {
+		checkDirectories(startDir); // throw exception if not valid.
+		final Walker walker = new Walker(startDir.toPath(), options, errorHandler);
+		if (options.getParallelism() > 0) {
+			return new ParallelIterator(walker, options.getParallelism());
+		}
+		return new SequentialIterator(walker);
+	}
 
 	/**
 	 * Checks if is valid directory.<br/>
@@ -104,4 +169,571 @@ public final class DirectoryTraverser {
 	private DirectoryTraverser() {
 		super();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The Class Walker.<br/>
+	 * Reads the entries of a directory and decides which of them are returned and which are walked,
+	 * shared by the sequential and the parallel iterator.
+	 */
+	private static final class Walker {
+
+		/** The start dir. */
+		private final Path startDir;
+
+		/** The link options. */
+		private final LinkOption[] linkOptions;
+
+		/** The include directories. */
+		private final boolean includeDirectories;
+
+		/** The include matchers. */
+		private final List<PathMatcher> includes;
+
+		/** The exclude matchers. */
+		private final List<PathMatcher> excludes;
+
+		/** The error handler. */
+		private final TraversalErrorHandler errorHandler;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param startDir the start dir
+		 * @param options the options
+		 * @param errorHandler the error handler
+		 */
+		Walker(final Path startDir, final TraversalOptions options, final TraversalErrorHandler errorHandler) {
+			this.startDir = startDir;
+			this.linkOptions = options.isFollowLinks() ? FOLLOW_LINKS : NOFOLLOW_LINKS;
+			this.includeDirectories = options.isIncludeDirectories();
+			this.includes = compile(startDir.getFileSystem(), options.getIncludes());
+			this.excludes = compile(startDir.getFileSystem(), options.getExcludes());
+			this.errorHandler = errorHandler;
+		}
+
+		/**
+		 * Root directory node.
+		 *
+		 * @return the directory node of start dir, null if it can not be read
+		 */
+		DirectoryNode root() {
+			try {
+				return new DirectoryNode(startDir, Files.readAttributes(startDir, BasicFileAttributes.class,
+						linkOptions).fileKey(), null);
+			} catch (IOException ioEx) {
+				errorHandler.traversalFailed(startDir, ioEx);
+				return null;
+			}
+		}
+
+		/**
+		 * Open the directory for reading.
+		 *
+		 * @param directory the directory
+		 * @return the directory stream, null if it can not be read
+		 */
+		DirectoryStream<Path> open(final DirectoryNode directory) {
+			try {
+				return Files.newDirectoryStream(directory.path);
+			} catch (IOException ioEx) {
+				errorHandler.traversalFailed(directory.path, ioEx);
+				return null;
+			}
+		}
+
+		/**
+		 * Visit an entry of a directory.
+		 *
+		 * @param path the path of entry
+		 * @param parent the parent directory
+		 * @param visitor the visitor receiving the entry and the subdirectory to walk
+		 */
+		void visit(final Path path, final DirectoryNode parent, final EntryVisitor visitor) {
+			final BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class, linkOptions);
+			} catch (IOException ioEx) {
+				errorHandler.traversalFailed(path, ioEx);
+				return;
+			}
+			final Path relativePath = startDir.relativize(path);
+			if (matchesAny(excludes, relativePath)) {
+				return;
+			}
+			if (attributes.isDirectory()) {
+				final DirectoryNode directory = new DirectoryNode(path, attributes.fileKey(), parent);
+				if (directory.isLoop()) {
+					errorHandler.traversalFailed(path, new FileSystemLoopException(path.toString()));
+					return;
+				}
+				visitor.directory(directory, includeDirectories ? new TraversedFile(path, attributes) : null);
+			} else if (attributes.isRegularFile() && (includes.isEmpty() || matchesAny(includes, relativePath))) {
+				visitor.file(new TraversedFile(path, attributes));
+			}
+		}
+
+		/**
+		 * Report a failure while reading a directory.
+		 *
+		 * @param directory the directory
+		 * @param iteratorEx the iterator exception
+		 */
+		void failed(final DirectoryNode directory, final DirectoryIteratorException iteratorEx) {
+			errorHandler.traversalFailed(directory.path, iteratorEx.getCause());
+		}
+
+		/**
+		 * Close the directory stream quietly.
+		 *
+		 * @param directoryStream the directory stream
+		 */
+		static void closeQuietly(final DirectoryStream<Path> directoryStream) {
+			try {
+				directoryStream.close();
+			} catch (IOException ioEx) {
+				LOGGER.debug("Failed to close directory stream", ioEx);
+			}
+		}
+
+		/**
+		 * Compile the glob patterns.
+		 *
+		 * @param fileSystem the file system
+		 * @param patterns the patterns
+		 * @return the path matchers
+		 */
+		private static List<PathMatcher> compile(final FileSystem fileSystem, final List<String> patterns) {
+			final List<PathMatcher> matchers = new ArrayList<PathMatcher>(patterns.size());
+			for (final String pattern : patterns) {
+				matchers.add(fileSystem.getPathMatcher(GLOB_SYNTAX + pattern));
+			}
+			return matchers;
+		}
+
+		/**
+		 * Matches any.
+		 *
+		 * @param matchers the matchers
+		 * @param relativePath the relative path
+		 * @return true, if any of the matchers matches the path
+		 */
+		private static boolean matchesAny(final List<PathMatcher> matchers, final Path relativePath) {
+			for (final PathMatcher matcher : matchers) {
+				if (matcher.matches(relativePath)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The Interface EntryVisitor.
+	 */
+	private interface EntryVisitor {
+
+		/**
+		 * Called for a file which passed the filters.
+		 *
+		 * @param file the file
+		 */
+		void file(TraversedFile file);
+
+		/**
+		 * Called for a directory which has to be walked.
+		 *
+		 * @param directory the directory
+		 * @param entry the entry to be returned for directory, null if directories are not returned
+		 */
+		void directory(DirectoryNode directory, TraversedFile entry);
+	}
+
+	/**
+	 * The Class DirectoryNode.<br/>
+	 * A directory on the path from start dir, linked to its parent so that loops can be detected
+	 * when symbolic links are followed.
+	 */
+	private static final class DirectoryNode {
+
+		/** The path. */
+		private final Path path;
+
+		/** The file key. */
+		private final Object fileKey;
+
+		/** The parent. */
+		private final DirectoryNode parent;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param path the path
+		 * @param fileKey the file key, may be null
+		 * @param parent the parent
+		 */
+		DirectoryNode(final Path path, final Object fileKey, final DirectoryNode parent) {
+			this.path = path;
+			this.fileKey = fileKey;
+			this.parent = parent;
+		}
+
+		/**
+		 * Checks if is loop.
+		 *
+		 * @return true, if any of the ancestors is the same directory
+		 */
+		boolean isLoop() {
+			if (fileKey == null) {
+				return false;
+			}
+			for (DirectoryNode ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+				if (fileKey.equals(ancestor.fileKey)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The Class SequentialIterator.<br/>
+	 * Walks the tree depth first on the iterating thread, keeping one open directory stream per level.
+	 */
+	private static final class SequentialIterator implements TraversalIterator, EntryVisitor {
+
+		/** The walker. */
+		private final Walker walker;
+
+		/** The open directories. */
+		private final Deque<OpenDirectory> openDirectories = new ArrayDeque<OpenDirectory>();
+
+		/** The next entry. */
+		private TraversedFile nextEntry;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param walker the walker
+		 */
+		SequentialIterator(final Walker walker) {
+			this.walker = walker;
+			final DirectoryNode root = walker.root();
+			if (root != null) {
+				push(root);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			while (nextEntry == null && !openDirectories.isEmpty()) {
+				final OpenDirectory current = openDirectories.peek();
+				final Path path;
+				try {
+					if (!current.entries.hasNext()) {
+						Walker.closeQuietly(openDirectories.pop().stream);
+						continue;
+					}
+					path = current.entries.next();
+				} catch (DirectoryIteratorException iteratorEx) {
+					walker.failed(current.directory, iteratorEx);
+					Walker.closeQuietly(openDirectories.pop().stream);
+					continue;
+				}
+				walker.visit(path, current.directory, this);
+			}
+			return nextEntry != null;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public TraversedFile next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final TraversedFile entry = nextEntry;
+			nextEntry = null;
+			return entry;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Closeable#close()
+		 */
+		@Override
+		public void close() {
+			while (!openDirectories.isEmpty()) {
+				Walker.closeQuietly(openDirectories.pop().stream);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.util.DirectoryTraverser.EntryVisitor#file(com.github.abhinavmishra14.aws.util.TraversedFile)
+		 */
+		@Override
+		public void file(final TraversedFile file) {
+			nextEntry = file;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.util.DirectoryTraverser.EntryVisitor#directory(com.github.abhinavmishra14.aws.util.DirectoryTraverser.DirectoryNode, com.github.abhinavmishra14.aws.util.TraversedFile)
+		 */
+		@Override
+		public void directory(final DirectoryNode directory, final TraversedFile entry) {
+			push(directory);
+			nextEntry = entry;
+		}
+
+		/**
+		 * Open the directory and push it on the stack.
+		 *
+		 * @param directory the directory
+		 */
+		private void push(final DirectoryNode directory) {
+			final DirectoryStream<Path> stream = walker.open(directory);
+			if (stream != null) {
+				openDirectories.push(new OpenDirectory(directory, stream));
+			}
+		}
+	}
+
+	/**
+	 * The Class OpenDirectory.
+	 */
+	private static final class OpenDirectory {
+
+		/** The directory. */
+		private final DirectoryNode directory;
+
+		/** The stream. */
+		private final DirectoryStream<Path> stream;
+
+		/** The entries. */
+		private final Iterator<Path> entries;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param directory the directory
+		 * @param stream the stream
+		 */
+		OpenDirectory(final DirectoryNode directory, final DirectoryStream<Path> stream) {
+			this.directory = directory;
+			this.stream = stream;
+			this.entries = stream.iterator();
+		}
+	}
+
+	/**
+	 * The Class ParallelIterator.<br/>
+	 * Walks every subtree as a separate fork join task. Walkers put the entries into a bounded queue
+	 * which is drained by the iterating thread, walkers wait while the queue is full.
+	 */
+	private static final class ParallelIterator implements TraversalIterator {
+
+		/** The Constant END_OF_WALK. */
+		private static final TraversedFile END_OF_WALK = new TraversedFile(null, null);
+
+		/** The walker. */
+		private final Walker walker;
+
+		/** The pool. */
+		private final ForkJoinPool pool;
+
+		/** The entries. */
+		private final BlockingQueue<TraversedFile> entries = new ArrayBlockingQueue<TraversedFile>(
+				PARALLEL_QUEUE_SIZE);
+
+		/** The closed flag. */
+		private volatile boolean closed;
+
+		/** The failure of the walk. */
+		private volatile RuntimeException failure;
+
+		/** The next entry. */
+		private TraversedFile nextEntry;
+
+		/** The end reached. */
+		private boolean endReached;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param walker the walker
+		 * @param parallelism the parallelism
+		 */
+		ParallelIterator(final Walker walker, final int parallelism) {
+			this.walker = walker;
+			this.pool = new ForkJoinPool(parallelism);
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						final DirectoryNode root = walker.root();
+						if (root != null) {
+							new DirectoryTask(root).invoke();
+						}
+					} catch (RuntimeException walkEx) {
+						failure = walkEx;
+					} finally {
+						emit(END_OF_WALK);
+					}
+				}
+			});
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			if (nextEntry == null && !endReached && !closed) {
+				try {
+					final TraversedFile entry = entries.take();
+					if (entry == END_OF_WALK) {
+						endReached = true;
+						pool.shutdown();
+						if (failure != null) {
+							throw new IllegalStateException("Parallel traversal failed", failure);
+						}
+					} else {
+						nextEntry = entry;
+					}
+				} catch (InterruptedException intEx) {
+					Thread.currentThread().interrupt();
+					close();
+					throw new IllegalStateException("Traversal interrupted", intEx);
+				}
+			}
+			return nextEntry != null;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public TraversedFile next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final TraversedFile entry = nextEntry;
+			nextEntry = null;
+			return entry;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.Closeable#close()
+		 */
+		@Override
+		public void close() {
+			closed = true;
+			pool.shutdownNow();
+			entries.clear(); // Unblock the walkers waiting for space
+		}
+
+		/**
+		 * Emit an entry, waits while the queue is full unless the iterator is closed.
+		 *
+		 * @param entry the entry
+		 */
+		private void emit(final TraversedFile entry) {
+			try {
+				boolean isQueued = false;
+				while (!closed && !isQueued) {
+					isQueued = entries.offer(entry, OFFER_MILLIS, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException intEx) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * The Class DirectoryTask.<br/>
+		 * Reads a directory, emits its entries and forks a task for every subdirectory.
+		 */
+		private final class DirectoryTask extends RecursiveAction implements EntryVisitor {
+
+			/** The Constant serialVersionUID. */
+			private static final long serialVersionUID = 1L;
+
+			/** The directory. */
+			private final transient DirectoryNode directory;
+
+			/** The subtasks. */
+			private final transient List<DirectoryTask> subtasks = new ArrayList<DirectoryTask>();
+
+			/**
+			 * The Constructor.
+			 *
+			 * @param directory the directory
+			 */
+			DirectoryTask(final DirectoryNode directory) {
+				super();
+				this.directory = directory;
+			}
+
+			/* (non-Javadoc)
+			 * @see java.util.concurrent.RecursiveAction#compute()
+			 */
+			@Override
+			protected void compute() {
+				final DirectoryStream<Path> stream = walker.open(directory);
+				if (stream != null) {
+					try {
+						final Iterator<Path> paths = stream.iterator();
+						while (!closed && paths.hasNext()) {
+							walker.visit(paths.next(), directory, this);
+						}
+					} catch (DirectoryIteratorException iteratorEx) {
+						walker.failed(directory, iteratorEx);
+					} finally {
+						Walker.closeQuietly(stream);
+					}
+				}
+				for (final DirectoryTask subtask : subtasks) {
+					subtask.join();
+				}
+			}
+
+			/* (non-Javadoc)
+			 * @see com.github.abhinavmishra14.aws.util.DirectoryTraverser.EntryVisitor#file(com.github.abhinavmishra14.aws.util.TraversedFile)
+			 */
+			@Override
+			public void file(final TraversedFile file) {
+				emit(file);
+			}
+
+			/* (non-Javadoc)
+			 * @see com.github.abhinavmishra14.aws.util.DirectoryTraverser.EntryVisitor#directory(com.github.abhinavmishra14.aws.util.DirectoryTraverser.DirectoryNode, com.github.abhinavmishra14.aws.util.TraversedFile)
+			 */
+			@Override
+			public void directory(final DirectoryNode subdirectory, final TraversedFile entry) {
+				if (entry != null) {
+					emit(entry);
+				}
+				final DirectoryTask subtask = new DirectoryTask(subdirectory);
+				subtask.fork();
+				subtasks.add(subtask);
+			}
+		}
+	}
+}
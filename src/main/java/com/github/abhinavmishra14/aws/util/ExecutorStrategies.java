@@ -0,0 +1,183 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class ExecutorStrategies.<br/>
+ * Platform thread strategy creates fixed thread pools, as always. Virtual thread strategy starts a virtual
+ * thread per task and caps the running tasks instead, so that tens of thousands of blocking requests can be
+ * in flight without sizing a thread pool. Virtual threads are looked up at runtime, they are available on
+ * JDK 21 and later, the project itself still runs on JDK 1.8.<br/>
+ * Default strategy is taken from the system property {@value #STRATEGY_PROPERTY} (platform or virtual),
+ * platform threads are used if it is not set or virtual threads are not available.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class ExecutorStrategies {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorStrategies.class);
+
+	/** The Constant STRATEGY_PROPERTY. */
+	public static final String STRATEGY_PROPERTY = "glacier.executor.strategy";
+
+	/** The Constant PLATFORM. */
+	private static final ExecutorStrategy PLATFORM = new ExecutorStrategy() {
+		@Override
+		public ExecutorService newExecutor(final String namePrefix, final int concurrency) {
+			return Executors.newFixedThreadPool(concurrency, new NamedThreadFactory(namePrefix));
+		}
+
+		@Override
+		public String toString() {
+			return "platform";
+		}
+	};
+
+	/** The Constant VIRTUAL. Null if virtual threads are not available. */
+	private static final ExecutorStrategy VIRTUAL = lookupVirtualThreads();
+
+	/** The default strategy. */
+	private static volatile ExecutorStrategy defaultStrategy = initialDefault();
+
+	/**
+	 * The Constructor.
+	 */
+	private ExecutorStrategies() {
+		super();
+	}
+
+	/**
+	 * Gets the platform thread strategy.
+	 *
+	 * @return the executor strategy
+	 */
+	public static ExecutorStrategy platform() {
+		return PLATFORM;
+	}
+
+	/**
+	 * Gets the virtual thread strategy.
+	 *
+	 * @return the executor strategy
+	 * @throws UnsupportedOperationException if the JDK has no virtual threads
+	 */
+	public static ExecutorStrategy virtual() {
+		if (VIRTUAL == null) {
+			throw new UnsupportedOperationException("Virtual threads require JDK 21 or later, running on "
+					+ System.getProperty("java.version"));
+		}
+		return VIRTUAL;
+	}
+
+	/**
+	 * Checks if virtual threads are available.
+	 *
+	 * @return true, if virtual threads are available
+	 */
+	public static boolean isVirtualThreadsAvailable() {
+		return VIRTUAL != null;
+	}
+
+	/**
+	 * Gets the default strategy, used by transfer configs, purge options and vault services created
+	 * afterwards.
+	 *
+	 * @return the default strategy
+	 */
+	public static ExecutorStrategy getDefault() {
+		return defaultStrategy;
+	}
+
+	/**
+	 * Sets the default strategy.
+	 *
+	 * @param strategy the new default strategy
+	 */
+	public static void setDefault(final ExecutorStrategy strategy) {
+		AWSUtil.notNull(strategy, "Executor strategy can not be null!");
+		defaultStrategy = strategy;
+	}
+
+	/**
+	 * Initial default strategy, from the system property.
+	 *
+	 * @return the executor strategy
+	 */
+	private static ExecutorStrategy initialDefault() {
+		final String strategy = System.getProperty(STRATEGY_PROPERTY, PLATFORM.toString());
+		if ("virtual".equalsIgnoreCase(strategy.trim())) {
+			if (VIRTUAL != null) {
+				return VIRTUAL;
+			}
+			LOGGER.warn("Virtual threads are not available on JDK {}, using platform threads",
+					System.getProperty("java.version"));
+		} else if (!PLATFORM.toString().equalsIgnoreCase(strategy.trim())) {
+			LOGGER.warn("Unknown executor strategy: {}, using platform threads", strategy);
+		}
+		return PLATFORM;
+	}
+
+	/**
+	 * Look up virtual threads, i.e. Thread.ofVirtual() and Executors.newThreadPerTaskExecutor(ThreadFactory).
+	 *
+	 * @return the virtual thread strategy, null if not available
+	 */
+	private static ExecutorStrategy lookupVirtualThreads() {
+		try {
+			final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			final Method name = builderType.getMethod("name", String.class, long.class);
+			final Method factory = builderType.getMethod("factory");
+			final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+					ThreadFactory.class);
+			final ExecutorStrategy virtual = new ExecutorStrategy() {
+				@Override
+				public ExecutorService newExecutor(final String namePrefix, final int concurrency) {
+					try {
+						final Object builder = name.invoke(ofVirtual.invoke(null), namePrefix + "-", 1L);
+						final ExecutorService executor = (ExecutorService) newThreadPerTaskExecutor.invoke(null,
+								factory.invoke(builder));
+						return new BoundedExecutorService(executor, concurrency);
+					} catch (IllegalAccessException | InvocationTargetException reflectEx) {
+						throw new IllegalStateException("Virtual thread executor could not be created", reflectEx);
+					}
+				}
+
+				@Override
+				public String toString() {
+					return "virtual";
+				}
+			};
+			virtual.newExecutor("glacier-probe", 1).shutdown(); // Preview builds throw unless enabled
+			return virtual;
+		} catch (ReflectiveOperationException | IllegalStateException | UnsupportedOperationException ex) {
+			return null;
+		}
+	}
+}
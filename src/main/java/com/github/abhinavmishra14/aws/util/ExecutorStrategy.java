@@ -0,0 +1,42 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The Interface ExecutorStrategy.<br/>
+ * Creates the executors used to fan out uploads, deletes, describes and codec blocks. See {@link ExecutorStrategies}
+ * for the platform thread and virtual thread strategies.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface ExecutorStrategy {
+
+	/**
+	 * Creates an executor running at most the given number of tasks at the same time, other tasks wait
+	 * for their turn in submission order. Threads are named after the prefix, shutdownNow interrupts the
+	 * running tasks.
+	 *
+	 * @param namePrefix the thread name prefix
+	 * @param concurrency the max number of tasks running at the same time
+	 * @return the executor service
+	 */
+	ExecutorService newExecutor(final String namePrefix, final int concurrency);
+}
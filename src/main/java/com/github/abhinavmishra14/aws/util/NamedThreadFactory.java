@@ -0,0 +1,59 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class NamedThreadFactory.<br/>
+ * Creates daemon threads named as 'prefix-N', so worker pools never keep the JVM alive
+ * and can be identified easily in thread dumps.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class NamedThreadFactory implements ThreadFactory {
+
+	/** The name prefix. */
+	private final String namePrefix;
+
+	/** The thread number. */
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param namePrefix the name prefix
+	 */
+	public NamedThreadFactory(final String namePrefix) {
+		super();
+		AWSUtil.notNull(namePrefix, "Thread name prefix can not be null!");
+		this.namePrefix = namePrefix;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+	 */
+	@Override
+	public Thread newThread(final Runnable runnable) {
+		final Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class RateLimiter.<br/>
+ * Token bucket which hands out permits at a fixed rate. Each permit is scheduled one interval after the
+ * previous one, so callers are spread evenly over time. Permits which were not taken in time are saved up to
+ * the burst size, by default none are saved, hence the rate is never exceeded after a pause.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class RateLimiter {
+
+	/** The interval between two permits in nanos. */
+	private final long intervalNanos;
+
+	/** The time by which saved permits may lag behind in nanos. */
+	private final long burstNanos;
+
+	/** The time at which the next permit is available in nanos. */
+	private long nextPermitNanos;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param permitsPerSecond the permits per second
+	 */
+	public RateLimiter(final double permitsPerSecond) {
+		this(permitsPerSecond, 1);
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param permitsPerSecond the permits per second
+	 * @param burst the max number of permits handed out at once after a pause
+	 */
+	public RateLimiter(final double permitsPerSecond, final int burst) {
+		super();
+		if (permitsPerSecond <= 0) {
+			throw new IllegalArgumentException("Permits per second must be positive!");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("Burst must be greater than zero!");
+		}
+		this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		this.burstNanos = (burst - 1) * intervalNanos;
+		this.nextPermitNanos = System.nanoTime() - burstNanos;
+	}
+
+	/**
+	 * Acquire a permit, waiting until it is available.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	public void acquire() throws InterruptedException {
+		final long waitNanos;
+		synchronized (this) {
+			final long now = System.nanoTime();
+			final long permitNanos = Math.max(now - burstNanos, nextPermitNanos);
+			nextPermitNanos = permitNanos + intervalNanos;
+			waitNanos = Math.max(0, permitNanos - now);
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	/**
+	 * Gets the permits per second.
+	 *
+	 * @return the permits per second
+	 */
+	public double getPermitsPerSecond() {
+		return (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The Interface TraversalErrorHandler.<br/>
+ * Receives the files and directories which could not be read while walking a directory tree.
+ * Walking continues with the next entry. Parallel walks call it from many threads at the same time.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface TraversalErrorHandler {
+
+	/**
+	 * Called when a file or directory could not be read.
+	 *
+	 * @param path the path
+	 * @param cause the cause
+	 */
+	void traversalFailed(Path path, IOException cause);
+}
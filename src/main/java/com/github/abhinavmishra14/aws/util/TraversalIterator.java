@@ -0,0 +1,33 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * The Interface TraversalIterator.<br/>
+ * Lazy iterator over the entries of a directory tree. Directories are read only as far as the
+ * iteration has progressed, so memory does not grow with the size of the tree. Close the iterator
+ * if it is not iterated till the end, in order to release the open directories.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public interface TraversalIterator extends Iterator<TraversedFile>, Closeable {
+}
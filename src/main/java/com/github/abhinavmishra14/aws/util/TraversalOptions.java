@@ -0,0 +1,155 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class TraversalOptions.<br/>
+ * Options of a {@link DirectoryTraverser} walk. Include and exclude filters are glob patterns
+ * (see {@link java.nio.file.FileSystem#getPathMatcher(String)}) matched against the path relative
+ * to the start directory. Excluded directories are not walked at all.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public class TraversalOptions {
+
+	/** The include patterns. */
+	private final List<String> includes = new ArrayList<String>();
+
+	/** The exclude patterns. */
+	private final List<String> excludes = new ArrayList<String>();
+
+	/** The parallelism. */
+	private int parallelism;
+
+	/** The follow links. */
+	private boolean followLinks;
+
+	/** The include directories. */
+	private boolean includeDirectories;
+
+	/**
+	 * Adds an include pattern.<br/>
+	 * When any include pattern is added, only the files matching at least one of them are returned.
+	 * Include patterns are not applied to directories.
+	 *
+	 * @param globPattern the glob pattern, e.g. "**.pdf"
+	 * @return the traversal options
+	 */
+	public TraversalOptions addInclude(final String globPattern) {
+		AWSUtil.notNull(globPattern, "Include pattern can not be null!");
+		includes.add(globPattern);
+		return this;
+	}
+
+	/**
+	 * Adds an exclude pattern.<br/>
+	 * Files and directories matching any of the exclude patterns are skipped.
+	 *
+	 * @param globPattern the glob pattern, e.g. "**&#47;.git"
+	 * @return the traversal options
+	 */
+	public TraversalOptions addExclude(final String globPattern) {
+		AWSUtil.notNull(globPattern, "Exclude pattern can not be null!");
+		excludes.add(globPattern);
+		return this;
+	}
+
+	/**
+	 * Gets the includes.
+	 *
+	 * @return the includes
+	 */
+	public List<String> getIncludes() {
+		return Collections.unmodifiableList(includes);
+	}
+
+	/**
+	 * Gets the excludes.
+	 *
+	 * @return the excludes
+	 */
+	public List<String> getExcludes() {
+		return Collections.unmodifiableList(excludes);
+	}
+
+	/**
+	 * Gets the parallelism.
+	 *
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the parallelism.<br/>
+	 * When greater than zero, subtrees are walked at the same time on a fork join pool of the given
+	 * parallelism, which helps on high latency file systems such as network shares. Entries are
+	 * returned in no particular order then. Zero walks the tree on the iterating thread.
+	 *
+	 * @param parallelism the parallelism
+	 */
+	public void setParallelism(final int parallelism) {
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("Parallelism can not be negative!");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Checks if is follow links.
+	 *
+	 * @return true, if symbolic links are followed
+	 */
+	public boolean isFollowLinks() {
+		return followLinks;
+	}
+
+	/**
+	 * Sets the follow links.<br/>
+	 * When set, symbolic links are followed, links which would cause a cycle are reported as errors.
+	 *
+	 * @param followLinks the follow links
+	 */
+	public void setFollowLinks(final boolean followLinks) {
+		this.followLinks = followLinks;
+	}
+
+	/**
+	 * Checks if is include directories.
+	 *
+	 * @return true, if directories are returned along with files
+	 */
+	public boolean isIncludeDirectories() {
+		return includeDirectories;
+	}
+
+	/**
+	 * Sets the include directories.
+	 *
+	 * @param includeDirectories the include directories
+	 */
+	public void setIncludeDirectories(final boolean includeDirectories) {
+		this.includeDirectories = includeDirectories;
+	}
+}
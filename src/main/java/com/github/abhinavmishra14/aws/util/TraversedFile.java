@@ -0,0 +1,103 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The Class TraversedFile.<br/>
+ * A file or directory found by {@link DirectoryTraverser}, along with the attributes read while
+ * walking, so that callers need not stat the file again.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class TraversedFile {
+
+	/** The path. */
+	private final Path path;
+
+	/** The attributes. */
+	private final BasicFileAttributes attributes;
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param path the path
+	 * @param attributes the attributes
+	 */
+	TraversedFile(final Path path, final BasicFileAttributes attributes) {
+		this.path = path;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Gets the path.
+	 *
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the file.
+	 *
+	 * @return the file
+	 */
+	public File getFile() {
+		return path.toFile();
+	}
+
+	/**
+	 * Gets the attributes.
+	 *
+	 * @return the attributes read while walking
+	 */
+	public BasicFileAttributes getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Checks if is directory.
+	 *
+	 * @return true, if is directory
+	 */
+	public boolean isDirectory() {
+		return attributes.isDirectory();
+	}
+
+	/**
+	 * Gets the size.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getSize() {
+		return attributes.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return path.toString();
+	}
+}
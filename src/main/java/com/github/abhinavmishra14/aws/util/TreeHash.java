@@ -0,0 +1,389 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra.
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * The Class TreeHash.<br/>
+ * Computes the SHA-256 tree hash used by glacier. The data is split into 1 MB leaves, every leaf
+ * is hashed and the leaf hashes are combined pairwise until a single hash remains.<br/>
+ * Leaves of files are read with positional reads and hashed across all cores using fork-join. Every
+ * thread reuses its own {@link MessageDigest} and leaf buffer, and leaf hashes are written into a single
+ * flat array, so nothing is allocated per leaf and nothing is left mapped once hashing returns.
+ *
+ * @author Abhinav Kumar Mishra
+ * @since 2017
+ */
+public final class TreeHash {
+
+	/** The Constant HASH_LENGTH. Length of a SHA-256 hash in bytes. */
+	public static final int HASH_LENGTH = 32;
+
+	/** The Constant LEAF_SIZE. */
+	private static final int LEAF_SIZE = (int) ONE_MB;
+
+	/** The Constant LEAVES_PER_TASK. Fork-join tasks stop splitting below this number of leaves. */
+	private static final int LEAVES_PER_TASK = 8;
+
+	/** The Constant DIGESTS. Per thread digest, message digests are not thread safe. */
+	private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException noAlgoEx) {
+				throw new IllegalStateException("SHA-256 is not supported by the JVM", noAlgoEx);
+			}
+		}
+	};
+
+	/** The Constant LEAF_BUFFERS. Per thread buffer, leaves of files are read into it. */
+	private static final ThreadLocal<ByteBuffer> LEAF_BUFFERS = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(LEAF_SIZE);
+		}
+	};
+
+	/** The Constant POOL. Shared fork-join pool, sized as per available processors. */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	/**
+	 * Instantiates a new tree hash.
+	 */
+	private TreeHash() {
+		super();
+	}
+
+	/**
+	 * Computes the tree hash of the file.<br/>
+	 * Returned result holds the hash of each leaf, so that the whole archive hash and hashes
+	 * of the parts of a multipart upload can be derived from it without reading the file again.
+	 *
+	 * @param inputFile the input file
+	 * @return the result
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static Result compute(final File inputFile) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(inputFile, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			final long length = channel.size();
+			if (length == 0) {
+				return new Result(hash(new byte[0], 0, 0), 0);
+			}
+			final int leafCount = (int) ((length + LEAF_SIZE - 1) / LEAF_SIZE);
+			final byte[] leafHashes = new byte[leafCount * HASH_LENGTH];
+			try {
+				POOL.invoke(new LeafHashTask(channel, length, leafHashes, 0, leafCount));
+			} catch (UncheckedIOException ioex) {
+				throw ioex.getCause();
+			}
+			return new Result(leafHashes, length);
+		}
+	}
+
+	/**
+	 * Computes the tree hash of a region of the file, in the calling thread.<br/>
+	 * Used to hash a part of a multipart upload by the thread which uploads it.
+	 *
+	 * @param channel the channel
+	 * @param position the position of the region
+	 * @param length the length of the region
+	 * @return the tree hash
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static byte[] hash(final FileChannel channel, final long position, final long length)
+			throws IOException {
+		final int leafCount = (int) Math.max(1, (length + LEAF_SIZE - 1) / LEAF_SIZE);
+		final byte[] leafHashes = new byte[leafCount * HASH_LENGTH];
+		hashLeaves(channel, position, length, leafHashes, 0, leafCount);
+		return reduce(leafHashes, leafCount);
+	}
+
+	/**
+	 * Computes the tree hash of the given bytes.
+	 *
+	 * @param data the data
+	 * @param offset the offset
+	 * @param length the length
+	 * @return the tree hash
+	 */
+	public static byte[] hash(final byte[] data, final int offset, final int length) {
+		final MessageDigest digest = DIGESTS.get();
+		final int leafCount = Math.max(1, (length + LEAF_SIZE - 1) / LEAF_SIZE);
+		final byte[] leafHashes = new byte[leafCount * HASH_LENGTH];
+		for (int leaf = 0; leaf < leafCount; leaf++) {
+			final int leafStart = offset + leaf * LEAF_SIZE;
+			digest.update(data, leafStart, Math.min(LEAF_SIZE, offset + length - leafStart));
+			digestInto(digest, leafHashes, leaf * HASH_LENGTH);
+		}
+		return reduce(leafHashes, leafCount);
+	}
+
+	/**
+	 * Combines the tree hashes of consecutive parts into the tree hash of the whole.<br/>
+	 * Every part except the last one must be a power of two multiple of 1 MB.
+	 *
+	 * @param hashes the hashes
+	 * @return the tree hash
+	 */
+	public static byte[] combine(final List<byte[]> hashes) {
+		final byte[] nodes = new byte[hashes.size() * HASH_LENGTH];
+		for (int index = 0; index < hashes.size(); index++) {
+			System.arraycopy(hashes.get(index), 0, nodes, index * HASH_LENGTH, HASH_LENGTH);
+		}
+		return reduce(nodes, hashes.size());
+	}
+
+	/**
+	 * To hex.
+	 *
+	 * @param hash the hash
+	 * @return the hex string as expected by glacier
+	 */
+	public static String toHex(final byte[] hash) {
+		return BinaryUtils.toHex(hash);
+	}
+
+	/**
+	 * Reduces the nodes in place, level by level, until a single hash remains.<br/>
+	 * An odd node at the end of a level is promoted to the next level as it is.
+	 *
+	 * @param nodes the nodes, flat array of hashes which is overwritten
+	 * @param nodeCount the node count
+	 * @return the root hash
+	 */
+	private static byte[] reduce(final byte[] nodes, final int nodeCount) {
+		final MessageDigest digest = DIGESTS.get();
+		int count = nodeCount;
+		while (count > 1) {
+			final int parentCount = (count + 1) / 2;
+			for (int parent = 0; parent < parentCount; parent++) {
+				final int left = 2 * parent * HASH_LENGTH;
+				if (2 * parent + 1 < count) {
+					digest.update(nodes, left, 2 * HASH_LENGTH);
+					digestInto(digest, nodes, parent * HASH_LENGTH);
+				} else {
+					System.arraycopy(nodes, left, nodes, parent * HASH_LENGTH, HASH_LENGTH);
+				}
+			}
+			count = parentCount;
+		}
+		return Arrays.copyOf(nodes, HASH_LENGTH);
+	}
+
+	/**
+	 * Hashes a range of leaves of a file region, reading every leaf into the buffer of the thread.
+	 *
+	 * @param channel the channel
+	 * @param position the position of the region
+	 * @param length the length of the region
+	 * @param leafHashes the leaf hashes of the region
+	 * @param fromLeaf the first leaf
+	 * @param toLeaf the last leaf (exclusive)
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void hashLeaves(final FileChannel channel, final long position, final long length,
+			final byte[] leafHashes, final int fromLeaf, final int toLeaf) throws IOException {
+		final MessageDigest digest = DIGESTS.get();
+		final ByteBuffer buffer = LEAF_BUFFERS.get();
+		for (int leaf = fromLeaf; leaf < toLeaf; leaf++) {
+			final long leafStart = position + (long) leaf * LEAF_SIZE;
+			buffer.clear();
+			buffer.limit((int) Math.min(LEAF_SIZE, position + length - leafStart));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, leafStart + buffer.position()) == -1) {
+					throw new EOFException("File ended at " + (leafStart + buffer.position()) + " bytes");
+				}
+			}
+			digest.update(buffer.array(), 0, buffer.limit());
+			digestInto(digest, leafHashes, leaf * HASH_LENGTH);
+		}
+	}
+
+	/**
+	 * Completes the digest and writes the hash into the target array.
+	 *
+	 * @param digest the digest
+	 * @param target the target
+	 * @param offset the offset
+	 */
+	private static void digestInto(final MessageDigest digest, final byte[] target, final int offset) {
+		try {
+			digest.digest(target, offset, HASH_LENGTH);
+		} catch (DigestException digestEx) {
+			throw new IllegalStateException("Failed to complete digest", digestEx);
+		}
+	}
+
+	/**
+	 * The Class Result.<br/>
+	 * Tree hash of a file along with the hashes of its 1 MB leaves.
+	 */
+	public static final class Result {
+
+		/** The leaf hashes, flat array of 32 byte hashes. */
+		private final byte[] leafHashes;
+
+		/** The length. */
+		private final long length;
+
+		/** The tree hash. */
+		private final byte[] treeHash;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param leafHashes the leaf hashes
+		 * @param length the length
+		 */
+		Result(final byte[] leafHashes, final long length) {
+			this.leafHashes = leafHashes;
+			this.length = length;
+			this.treeHash = reduce(leafHashes.clone(), leafHashes.length / HASH_LENGTH);
+		}
+
+		/**
+		 * Gets the length of the hashed data.
+		 *
+		 * @return the length
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * Gets the tree hash.
+		 *
+		 * @return the tree hash
+		 */
+		public byte[] getTreeHash() {
+			return treeHash.clone();
+		}
+
+		/**
+		 * Gets the tree hash as hex string.
+		 *
+		 * @return the tree hash hex
+		 */
+		public String getTreeHashHex() {
+			return toHex(treeHash);
+		}
+
+		/**
+		 * Gets the part hashes.<br/>
+		 * Returns the tree hash of every part, for the given multipart upload part size.
+		 *
+		 * @param partSize the part size, power of two multiple of 1 MB
+		 * @return the part hashes, in part order
+		 */
+		public List<byte[]> getPartHashes(final long partSize) {
+			final int leafCount = leafHashes.length / HASH_LENGTH;
+			final int leavesPerPart = (int) (partSize / LEAF_SIZE);
+			final List<byte[]> partHashes = new ArrayList<byte[]>((leafCount + leavesPerPart - 1) / leavesPerPart);
+			final byte[] scratch = new byte[Math.min(leafCount, leavesPerPart) * HASH_LENGTH];
+			for (int firstLeaf = 0; firstLeaf < leafCount; firstLeaf += leavesPerPart) {
+				final int partLeaves = Math.min(leavesPerPart, leafCount - firstLeaf);
+				System.arraycopy(leafHashes, firstLeaf * HASH_LENGTH, scratch, 0, partLeaves * HASH_LENGTH);
+				partHashes.add(reduce(scratch, partLeaves));
+			}
+			return partHashes;
+		}
+	}
+
+	/**
+	 * The Class LeafHashTask.<br/>
+	 * Hashes a range of leaves, splitting the range in halves until it is small enough.
+	 */
+	private static final class LeafHashTask extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The channel. */
+		private final transient FileChannel channel;
+
+		/** The length of the file. */
+		private final long length;
+
+		/** The leaf hashes. */
+		private final byte[] leafHashes;
+
+		/** The first leaf. */
+		private final int fromLeaf;
+
+		/** The last leaf (exclusive). */
+		private final int toLeaf;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param channel the channel
+		 * @param length the length of the file
+		 * @param leafHashes the leaf hashes
+		 * @param fromLeaf the from leaf
+		 * @param toLeaf the to leaf
+		 */
+		LeafHashTask(final FileChannel channel, final long length, final byte[] leafHashes, final int fromLeaf,
+				final int toLeaf) {
+			super();
+			this.channel = channel;
+			this.length = length;
+			this.leafHashes = leafHashes;
+			this.fromLeaf = fromLeaf;
+			this.toLeaf = toLeaf;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (toLeaf - fromLeaf > LEAVES_PER_TASK) {
+				final int middle = (fromLeaf + toLeaf) >>> 1;
+				invokeAll(new LeafHashTask(channel, length, leafHashes, fromLeaf, middle),
+						new LeafHashTask(channel, length, leafHashes, middle, toLeaf));
+				return;
+			}
+			try {
+				hashLeaves(channel, 0, length, leafHashes, fromLeaf, toLeaf);
+			} catch (IOException ioex) {
+				throw new UncheckedIOException(ioex);
+			}
+		}
+	}
+}
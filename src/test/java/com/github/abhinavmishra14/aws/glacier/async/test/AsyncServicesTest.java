@@ -0,0 +1,196 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.async.test;
+
+import static com.github.abhinavmishra14.aws.glacier.transfer.test.TestData.randomBytes;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.github.abhinavmishra14.aws.glacier.async.AsyncArchiveService;
+import com.github.abhinavmishra14.aws.glacier.async.AsyncRetrievalService;
+import com.github.abhinavmishra14.aws.glacier.async.AsyncVaultService;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class AsyncServicesTest.
+ */
+public class AsyncServicesTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "asyncVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(2);
+		transferConfig.setPollIntervals(50, 400);
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Test upload, describe and delete composed without blocking.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testComposedPipeline() throws Exception {
+		final byte[] content = randomBytes((int) (3 * ONE_MB + 10));
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		final AsyncArchiveService archiveService = new AsyncArchiveService(newArchiveService(), executor);
+		final AsyncVaultService vaultService = new AsyncVaultService(new GlacierVaultServiceImpl(glacier.client()),
+				executor);
+		final CompletableFuture<DescribeVaultResult> pipeline = vaultService.createVault(VAULT_NAME)
+				.thenCompose(created -> archiveService.archive(VAULT_NAME, file, "pipeline"))
+				.thenApply(uploaded -> {
+					assertArrayEquals(content, glacier.getArchive(uploaded.getArchiveId()));
+					assertTrue(file.delete());
+					return uploaded.getArchiveId();
+				})
+				.thenCompose(archiveId -> vaultService.deleteArchivedObject(VAULT_NAME, archiveId))
+				.thenCompose(deleted -> vaultService.getVaultDescription(VAULT_NAME));
+		assertEquals(VAULT_NAME, pipeline.get(30, TimeUnit.SECONDS).getVaultName());
+		assertEquals(0, glacier.getArchiveCount());
+	}
+
+	/**
+	 * Test cancelling an upload aborts the multipart upload and deletes its journal.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testCancelAbortsMultipartUpload() throws Exception {
+		final File journalDirectory = tempFolder.newFolder("journal");
+		transferConfig.setJournalDirectory(journalDirectory);
+		glacier.setPartLatencyMillis(200);
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, randomBytes((int) (16 * ONE_MB)));
+		final CompletableFuture<?> upload = new AsyncArchiveService(newArchiveService(), executor)
+				.archive(VAULT_NAME, file, "cancelled");
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (glacier.getPartRequests() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(upload.cancel(true));
+		while (glacier.getAbortedUploads() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(upload.isCancelled());
+		assertEquals(1, glacier.getAbortedUploads());
+		assertEquals(0, glacier.getOpenUploads());
+		while (journalDirectory.list().length > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, journalDirectory.list().length);
+		assertTrue(glacier.getPartRequests() < 16);
+	}
+
+	/**
+	 * Test retrieval completes once the job completes, and cancelled retrieval stops tracking the job.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRetrieval() throws Exception {
+		final byte[] content = randomBytes(1000);
+		final String archiveId = glacier.putArchive(VAULT_NAME, content);
+		glacier.setJobCompletionMillis(300);
+		final GlacierRetrievalServiceImpl retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		retrievalService.setTransferConfig(transferConfig);
+		try {
+			final AsyncRetrievalService asyncService = new AsyncRetrievalService(retrievalService, executor);
+			final File targetFile = new File(tempFolder.getRoot(), "restored");
+			final CompletableFuture<byte[]> restored = asyncService.retrieveArchive(VAULT_NAME, archiveId,
+					targetFile).thenApply(file -> {
+						try {
+							return FileUtils.readFileToByteArray(file);
+						} catch (IOException ioex) {
+							throw new IllegalStateException(ioex);
+						}
+					});
+			assertArrayEquals(content, restored.get(30, TimeUnit.SECONDS));
+			final File cancelledFile = new File(tempFolder.getRoot(), "cancelled");
+			final CompletableFuture<File> cancelled = asyncService.retrieveArchive(VAULT_NAME, archiveId,
+					cancelledFile);
+			assertTrue(cancelled.cancel(true));
+			Thread.sleep(600); // Job completes meanwhile, its output is not downloaded
+			assertFalse(cancelledFile.exists());
+		} finally {
+			retrievalService.shutdown();
+		}
+	}
+
+	/**
+	 * New archive service.
+	 *
+	 * @return the glacier archive service impl
+	 */
+	private GlacierArchiveServiceImpl newArchiveService() {
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		return archiveService;
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.catalog.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchiveUploadResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class ArchiveCatalogTest.
+ */
+public class ArchiveCatalogTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Test lookups by archive id, path and hash, across compactions and reopening.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testLookups() throws Exception {
+		final File directory = tempFolder.newFolder("catalog");
+		try (ArchiveCatalog catalog = new ArchiveCatalog(directory)) {
+			catalog.setCompactionThreshold(1000);
+			for (int index = 0; index < 5500; index++) {
+				catalog.record(entry(VAULT_NAME, index));
+			}
+			catalog.record(entry("otherVault", 7));
+			assertLookups(catalog, 5500);
+		}
+		try (ArchiveCatalog catalog = new ArchiveCatalog(directory)) {
+			assertLookups(catalog, 5500);
+			assertEquals(1, catalog.findBySourcePath("otherVault", "/data/file7").size());
+			assertNull(catalog.findByArchiveId(VAULT_NAME, "missing"));
+			assertTrue(catalog.findByTreeHash(VAULT_NAME, "ABCDEF").isEmpty());
+		}
+	}
+
+	/**
+	 * Test records which were not compacted are replayed when the catalog is opened.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testReplayAfterCrash() throws Exception {
+		final File directory = tempFolder.newFolder("crashed");
+		final ArchiveCatalog crashed = new ArchiveCatalog(directory);
+		crashed.setCompactionThreshold(100);
+		for (int index = 0; index < 250; index++) {
+			crashed.record(entry(VAULT_NAME, index));
+		}
+		// A torn record left by a crash while appending
+		try (FileOutputStream logStream = new FileOutputStream(new File(directory, "catalog.log"), true)) {
+			logStream.write(new byte[] {0, 0, 0, 50, 1, 2, 3});
+		}
+		try (ArchiveCatalog catalog = new ArchiveCatalog(directory)) {
+			assertLookups(catalog, 250);
+			catalog.record(entry(VAULT_NAME, 250));
+			assertNotNull(catalog.findByArchiveId(VAULT_NAME, "archive250"));
+		}
+	}
+
+	/**
+	 * Test deleted archives are not returned.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testDeletion() throws Exception {
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("deletion"))) {
+			catalog.record(entry(VAULT_NAME, 1));
+			catalog.record(entry(VAULT_NAME, 2));
+			catalog.recordDeletion(VAULT_NAME, "archive1");
+			assertNull(catalog.findByArchiveId(VAULT_NAME, "archive1"));
+			assertTrue(catalog.findBySourcePath(VAULT_NAME, "/data/file1").isEmpty());
+			catalog.compact();
+			assertNull(catalog.findByArchiveId(VAULT_NAME, "archive1"));
+			assertNotNull(catalog.findByArchiveId(VAULT_NAME, "archive2"));
+		}
+	}
+
+	/**
+	 * Test uploads through the archive service are cataloged.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testArchiveServiceRecordsUploads() throws Exception {
+		final File file = tempFolder.newFile("report.txt");
+		FileUtils.writeStringToFile(file, "quarterly report", "UTF-8");
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("service"))) {
+			final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(
+					new InMemoryGlacier().client());
+			archiveService.setCatalog(catalog);
+			final UploadResult uploadResult = archiveService.archive(VAULT_NAME, file, "report");
+			final CatalogEntry entry = catalog.findByArchiveId(VAULT_NAME, uploadResult.getArchiveId());
+			assertEquals(file.getAbsolutePath(), entry.getSourcePath());
+			assertEquals(file.length(), entry.getSize());
+			assertEquals("report", entry.getDescription());
+			assertEquals(1, catalog.findByTreeHash(VAULT_NAME, entry.getTreeHash()).size());
+		}
+	}
+
+	/**
+	 * Test files whose content is already archived in the vault are not uploaded again.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testDeduplicatedUploads() throws Exception {
+		final File file = tempFolder.newFile("report.txt");
+		final File copy = tempFolder.newFile("copy-of-report.txt");
+		final File other = tempFolder.newFile("other.txt");
+		FileUtils.writeStringToFile(file, "quarterly report", "UTF-8");
+		FileUtils.writeStringToFile(copy, "quarterly report", "UTF-8");
+		FileUtils.writeStringToFile(other, "yearly report", "UTF-8");
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("dedup"))) {
+			final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+			archiveService.setCatalog(catalog);
+			archiveService.getTransferConfig().setDeduplicate(true);
+			final ArchiveUploadResult first = (ArchiveUploadResult) archiveService.archive(VAULT_NAME, file, "report");
+			final ArchiveUploadResult second = (ArchiveUploadResult) archiveService.archive(VAULT_NAME, copy, "copy");
+			final ArchiveUploadResult again = (ArchiveUploadResult) archiveService.archive(VAULT_NAME, file, "report");
+			assertFalse(first.isDuplicate());
+			assertTrue(second.isDuplicate());
+			assertTrue(again.isDuplicate());
+			assertEquals(first.getArchiveId(), second.getArchiveId());
+			assertEquals(first.getArchiveId(), again.getArchiveId());
+			assertEquals(1, glacier.getArchiveCount());
+			// Every path with the same content resolves to the existing archive, recorded once per path
+			assertEquals(first.getArchiveId(),
+					catalog.findBySourcePath(VAULT_NAME, copy.getAbsolutePath()).get(0).getArchiveId());
+			assertEquals(1, catalog.findBySourcePath(VAULT_NAME, file.getAbsolutePath()).size());
+			// Different content, another vault or a deleted archive are uploaded
+			assertFalse(((ArchiveUploadResult) archiveService.archive(VAULT_NAME, other, "other")).isDuplicate());
+			assertFalse(((ArchiveUploadResult) archiveService.archive("otherVault", file, "report")).isDuplicate());
+			catalog.recordDeletion(VAULT_NAME, first.getArchiveId());
+			assertFalse(((ArchiveUploadResult) archiveService.archive(VAULT_NAME, copy, "copy")).isDuplicate());
+			assertEquals(4, glacier.getArchiveCount());
+		}
+	}
+
+	/**
+	 * Test a duplicate recorded by concurrent uploads of the same path is appended once.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testConcurrentDuplicatesRecordedOnce() throws Exception {
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("concurrent"))) {
+			catalog.record(entry(VAULT_NAME, 1));
+			final ArchiveUploadResult duplicate = new ArchiveUploadResult("archive1", treeHash(1), 1, true);
+			final int threads = 8;
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (int copy = 0; copy < 50; copy++) {
+					final String sourcePath = "/data/copy" + copy;
+					final CyclicBarrier start = new CyclicBarrier(threads);
+					final List<Future<Void>> results = new ArrayList<Future<Void>>();
+					for (int thread = 0; thread < threads; thread++) {
+						results.add(executor.submit(new Callable<Void>() {
+							@Override
+							public Void call() throws Exception {
+								start.await();
+								catalog.record(VAULT_NAME, duplicate, sourcePath, "copy");
+								return null;
+							}
+						}));
+					}
+					for (final Future<Void> result : results) {
+						result.get(30, TimeUnit.SECONDS);
+					}
+					assertEquals(sourcePath, 1, catalog.findBySourcePath(VAULT_NAME, sourcePath).size());
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Assert every entry can be found by each of its keys.
+	 *
+	 * @param catalog the catalog
+	 * @param entryCount the entry count
+	 * @throws Exception the exception
+	 */
+	private static void assertLookups(final ArchiveCatalog catalog, final int entryCount) throws Exception {
+		for (int index = 0; index < entryCount; index += 7) {
+			final CatalogEntry entry = catalog.findByArchiveId(VAULT_NAME, "archive" + index);
+			assertNotNull("archive" + index, entry);
+			assertEquals("/data/file" + index, entry.getSourcePath());
+			assertEquals(index, entry.getSize());
+			final List<CatalogEntry> byPath = catalog.findBySourcePath(VAULT_NAME, "/data/file" + index);
+			assertEquals(1, byPath.size());
+			assertEquals("archive" + index, byPath.get(0).getArchiveId());
+			final List<CatalogEntry> byHash = catalog.findByTreeHash(VAULT_NAME, treeHash(index).toUpperCase());
+			assertEquals(1, byHash.size());
+		}
+	}
+
+	/**
+	 * Entry.
+	 *
+	 * @param vaultName the vault name
+	 * @param index the index
+	 * @return the catalog entry
+	 */
+	private static CatalogEntry entry(final String vaultName, final int index) {
+		return new CatalogEntry(vaultName, "archive" + index, "/data/file" + index, index, treeHash(index),
+				"file " + index, 1000L + index);
+	}
+
+	/**
+	 * Tree hash.
+	 *
+	 * @param index the index
+	 * @return the string
+	 */
+	private static String treeHash(final int index) {
+		return String.format("%064x", index);
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.model.CreateVaultRequest;
+import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
+import com.amazonaws.services.glacier.model.DescribeVaultRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.github.abhinavmishra14.aws.glacier.client.AdaptiveThrottle;
+import com.github.abhinavmishra14.aws.glacier.client.ThrottleSettings;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class AdaptiveThrottleTest.
+ */
+public class AdaptiveThrottleTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "throttled";
+
+	/** The in memory glacier. */
+	private InMemoryGlacier inMemoryGlacier;
+
+	/** The settings. */
+	private ThrottleSettings settings;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		inMemoryGlacier = new InMemoryGlacier();
+		inMemoryGlacier.client().createVault(new CreateVaultRequest(VAULT_NAME));
+		settings = new ThrottleSettings();
+		settings.setRetryDelays(5, 100);
+	}
+
+	/**
+	 * Test requests in flight converge to the capacity of the service.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testConcurrencyConvergesToCapacity() throws Exception {
+		final int capacity = 8;
+		inMemoryGlacier.setVaultCapacity(capacity);
+		inMemoryGlacier.setVaultLatencyMillis(5);
+		settings.setConcurrency(2, 1, 64);
+		settings.setMaxAttempts(20);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		final int threads = 32;
+		final int requestsPerThread = 40;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < threads; thread++) {
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int request = 0; request < requestsPerThread; request++) {
+							glacierClient.describeVault(new DescribeVaultRequest(VAULT_NAME));
+						}
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> result : results) {
+				result.get(60, TimeUnit.SECONDS);//Throttling never reaches the callers
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		final AdaptiveThrottle throttle = AdaptiveThrottle.of(glacierClient);
+		assertNotNull(throttle);
+		assertEquals(0, throttle.getInFlightCount());
+		assertTrue("Limit is probed above capacity", throttle.getThrottledCount() > 0);
+		assertTrue("Limit stays near capacity: " + throttle.getConcurrencyLimit("describeVault"),
+				throttle.getConcurrencyLimit("describeVault") <= 2 * capacity);
+		assertTrue("Throttled " + inMemoryGlacier.getVaultThrottles(),
+				inMemoryGlacier.getVaultThrottles() < threads * requestsPerThread / 5);
+	}
+
+	/**
+	 * Test requests of an operation are paced by its rate limit.
+	 */
+	@Test
+	public void testRateLimitPacesOperation() {
+		settings.setRateLimit("describeVault", 50, 1);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		final long start = System.nanoTime();
+		for (int request = 0; request <= 25; request++) {
+			glacierClient.describeVault(new DescribeVaultRequest(VAULT_NAME));
+		}
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 450);
+	}
+
+	/**
+	 * Test throttled requests are attempted again.
+	 */
+	@Test
+	public void testThrottledRequestsAreRetried() {
+		final String archiveId = inMemoryGlacier.putArchive(VAULT_NAME, new byte[] {1});
+		inMemoryGlacier.throttleNextDeletes(3);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, archiveId));
+		assertNull(inMemoryGlacier.getArchive(archiveId));
+		assertEquals(4, inMemoryGlacier.getDeleteRequests());
+		assertEquals(3, AdaptiveThrottle.of(glacierClient).getRetryCount());
+	}
+
+	/**
+	 * Test throttled control calls do not reduce the requests in flight of uploads.
+	 */
+	@Test
+	public void testLimitsAreKeptPerOperation() {
+		final String archiveId = inMemoryGlacier.putArchive(VAULT_NAME, new byte[] {1});
+		inMemoryGlacier.throttleNextDeletes(3);
+		settings.setConcurrency(8, 1, 64);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, archiveId));
+		final AdaptiveThrottle throttle = AdaptiveThrottle.of(glacierClient);
+		assertTrue(throttle.getConcurrencyLimit("deleteArchive") < 8);
+		assertEquals(8, throttle.getConcurrencyLimit("uploadMultipartPart"));
+	}
+
+	/**
+	 * Test rising latency of uploads does not reduce their requests in flight, even with a latency tolerance.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testUploadConcurrencyDoesNotCollapse() throws Exception {
+		final int threads = 8;
+		settings.setLatencyTolerance(2);
+		settings.setConcurrency(threads, 1, threads);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		final String uploadId = glacierClient.initiateMultipartUpload(new InitiateMultipartUploadRequest()
+				.withVaultName(VAULT_NAME).withPartSize(String.valueOf(ONE_MB))).getUploadId();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			inMemoryGlacier.setPartLatencyMillis(1);
+			uploadParts(executor, glacierClient, uploadId, threads, 0);
+			inMemoryGlacier.setPartLatencyMillis(20);//E.g. larger parts, or bandwidth shared by more uploads
+			uploadParts(executor, glacierClient, uploadId, threads, threads * 10);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(threads, AdaptiveThrottle.of(glacierClient).getConcurrencyLimit("uploadMultipartPart"));
+		assertEquals(threads, inMemoryGlacier.getMaxInFlightParts());
+	}
+
+	/**
+	 * Test throttling is passed to the caller after max attempts.
+	 */
+	@Test
+	public void testThrottlingAfterMaxAttempts() {
+		final String archiveId = inMemoryGlacier.putArchive(VAULT_NAME, new byte[] {1});
+		inMemoryGlacier.throttleNextDeletes(5);
+		settings.setMaxAttempts(2);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		try {
+			glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, archiveId));
+			fail("Throttling expected");
+		} catch (AmazonServiceException throttling) {
+			assertEquals("ThrottlingException", throttling.getErrorCode());
+		}
+		assertEquals(2, inMemoryGlacier.getDeleteRequests());
+	}
+
+	/**
+	 * Upload ten parts from each thread.
+	 *
+	 * @param executor the executor
+	 * @param glacierClient the glacier client
+	 * @param uploadId the upload id
+	 * @param threads the threads
+	 * @param firstPart the index of the first part
+	 * @throws Exception the exception
+	 */
+	private static void uploadParts(final ExecutorService executor, final AmazonGlacier glacierClient,
+			final String uploadId, final int threads, final int firstPart) throws Exception {
+		final byte[] content = new byte[1024];
+		final String checksum = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(content));
+		final List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int thread = 0; thread < threads; thread++) {
+			final int threadIndex = thread;
+			results.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int part = 0; part < 10; part++) {
+						final long start = (firstPart + threadIndex * 10 + part) * ONE_MB;
+						glacierClient.uploadMultipartPart(new UploadMultipartPartRequest().withVaultName(VAULT_NAME)
+								.withUploadId(uploadId).withChecksum(checksum)
+								.withRange("bytes " + start + "-" + (start + content.length - 1) + "/*")
+								.withBody(new ByteArrayInputStream(content)));
+					}
+					return null;
+				}
+			}));
+		}
+		for (final Future<Void> result : results) {
+			result.get(60, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Test other failures are passed through.
+	 */
+	@Test
+	public void testOtherFailuresArePassedThrough() {
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(inMemoryGlacier.client(), settings);
+		try {
+			glacierClient.describeVault(new DescribeVaultRequest("unknown"));
+			fail("ResourceNotFoundException expected");
+		} catch (ResourceNotFoundException notFound) {
+			assertEquals(0, AdaptiveThrottle.of(glacierClient).getRetryCount());
+		}
+		assertNull(AdaptiveThrottle.of(inMemoryGlacier.client()));
+	}
+}
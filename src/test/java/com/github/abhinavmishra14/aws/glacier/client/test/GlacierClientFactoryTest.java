@@ -0,0 +1,71 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.client.test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.github.abhinavmishra14.aws.glacier.client.AdaptiveThrottle;
+import com.github.abhinavmishra14.aws.glacier.client.GlacierClientFactory;
+import com.github.abhinavmishra14.aws.glacier.client.GlacierClients;
+
+/**
+ * The Class GlacierClientFactoryTest.
+ */
+public class GlacierClientFactoryTest {
+
+	/** The Constant ENDPOINT. */
+	private static final String ENDPOINT = "http://localhost:8080/";
+
+	/**
+	 * Shutdown the clients created by the tests.
+	 */
+	@AfterClass
+	public static void tearDown() {
+		GlacierClientFactory.getInstance().shutdown();
+	}
+
+	/**
+	 * Test clients are shared for the same key.
+	 */
+	@Test
+	public void testClientsAreShared() {
+		final GlacierClientFactory factory = GlacierClientFactory.getInstance();
+		final GlacierClients first = factory.getClients("accessKey", "secretKey", false, ENDPOINT);
+		final GlacierClients second = factory.getClients("accessKey", "secretKey", false, " " + ENDPOINT + " ");
+		assertSame(first, second);
+		assertSame(first.getGlacierClient(), second.getGlacierClient());
+		assertSame(first.getSqsClient(), second.getSqsClient());
+		assertNotNull(AdaptiveThrottle.of(first.getGlacierClient()));
+	}
+
+	/**
+	 * Test clients differ by credentials and endpoint.
+	 */
+	@Test
+	public void testClientsDifferByKey() {
+		final GlacierClientFactory factory = GlacierClientFactory.getInstance();
+		final GlacierClients clients = factory.getClients("accessKey", "secretKey", false, ENDPOINT);
+		assertNotSame(clients, factory.getClients("otherKey", "secretKey", false, ENDPOINT));
+		assertNotSame(clients, factory.getClients("accessKey", "secretKey", false, null));
+	}
+}
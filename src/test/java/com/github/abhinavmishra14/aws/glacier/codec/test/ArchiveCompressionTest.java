@@ -0,0 +1,285 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_ARCHIVE_DESCRIPTION_LENGTH;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveCompression;
+import com.github.abhinavmishra14.aws.glacier.codec.ParallelTransformInputStream;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+
+/**
+ * The Class ArchiveCompressionTest.
+ */
+public class ArchiveCompressionTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "compressedVault";
+
+	/** The Constant BLOCK_SIZE. */
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		transferConfig = new TransferConfig();
+		transferConfig.setCompression(6, BLOCK_SIZE);
+		transferConfig.setCodecThreads(4);
+		transferConfig.setPollIntervals(50, 400);
+	}
+
+	/**
+	 * Test blocks compressed at the same time form a single gzip stream, which is the same on every run.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testBlocksFormGzipStream() throws Exception {
+		final byte[] content = compressibleBytes(20 * BLOCK_SIZE + 17);
+		final byte[] compressed = compress(content);
+		assertTrue(compressed.length < content.length / 2);
+		assertArrayEquals(content, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+		assertArrayEquals(compressed, compress(content));
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, compressed);
+		assertTrue(ArchiveCompression.isCompressed(file));
+		FileUtils.writeByteArrayToFile(file, content);
+		assertFalse(ArchiveCompression.isCompressed(file));
+	}
+
+	/**
+	 * Test members are inflated at the same time, and a corrupt member fails the read.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testMembersAreInflatedInParallel() throws Exception {
+		final String description = ArchiveCompression.describe("report", BLOCK_SIZE);
+		for (final int length : new int[] {0, 1, BLOCK_SIZE, 20 * BLOCK_SIZE + 17}) {
+			final byte[] content = compressibleBytes(length);
+			try (InputStream decompressed = ArchiveCompression.decompress(new ByteArrayInputStream(
+					compress(content)), description, transferConfig)) {
+				assertArrayEquals(content, IOUtils.toByteArray(decompressed));
+			}
+		}
+		final byte[] corrupt = compress(compressibleBytes(4 * BLOCK_SIZE));
+		corrupt[corrupt.length - 12] ^= 1;
+		try (InputStream decompressed = ArchiveCompression.decompress(new ByteArrayInputStream(corrupt),
+				description, transferConfig)) {
+			IOUtils.toByteArray(decompressed);
+			fail("Corrupt member was not detected");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith("Member: 3 "));
+		}
+	}
+
+	/**
+	 * Test an archive which is not described as compressed is restored as it is, even if it looks compressed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testUndescribedArchiveIsNotInflated() throws Exception {
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final byte[] content = compress(compressibleBytes(3 * BLOCK_SIZE));
+		final String archiveId = glacier.putArchive(VAULT_NAME, content);
+		final GlacierRetrievalServiceImpl retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		retrievalService.setTransferConfig(transferConfig);
+		try {
+			final File restored = retrievalService.retrieveArchive(VAULT_NAME, archiveId,
+					new File(tempFolder.getRoot(), "restored")).get(30, TimeUnit.SECONDS);
+			assertArrayEquals(content, FileUtils.readFileToByteArray(restored));
+		} finally {
+			retrievalService.shutdown();
+		}
+	}
+
+	/**
+	 * Test blocks are transformed on an executor created by the executor strategy of the transfer config.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testExecutorStrategyIsUsed() throws Exception {
+		final List<String> namePrefixes = new CopyOnWriteArrayList<String>();
+		transferConfig.setExecutorStrategy((namePrefix, concurrency) -> {
+			namePrefixes.add(namePrefix);
+			return ExecutorStrategies.getDefault().newExecutor(namePrefix, concurrency);
+		});
+		final byte[] content = compressibleBytes(4 * BLOCK_SIZE);
+		final String description = ArchiveCompression.describe(null, BLOCK_SIZE);
+		try (InputStream decompressed = ArchiveCompression.decompress(new ByteArrayInputStream(compress(content)),
+				description, transferConfig)) {
+			assertArrayEquals(content, IOUtils.toByteArray(decompressed));
+		}
+		assertEquals(Arrays.asList("glacier-transform", "glacier-transform"), namePrefixes);
+	}
+
+	/**
+	 * Test a failed block is thrown by the read reaching it.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFailedBlockIsThrown() throws Exception {
+		final byte[] content = compressibleBytes(8 * 1024);
+		try (InputStream transformed = new ParallelTransformInputStream(new ByteArrayInputStream(content), 1024,
+				(blockIndex, block, length, lastBlock) -> {
+					if (blockIndex == 5) {
+						throw new IOException("Block 5 failed");
+					}
+					return Arrays.copyOf(block, length);
+				}, ExecutorStrategies.getDefault(), 3)) {
+			final byte[] head = new byte[5 * 1024];
+			assertEquals(head.length, IOUtils.read(transformed, head));
+			assertArrayEquals(Arrays.copyOf(content, head.length), head);
+			transformed.read();
+			fail("Failure of block 5 was not thrown");
+		} catch (IOException ioEx) {
+			assertEquals("Block 5 failed", ioEx.getMessage());
+		}
+	}
+
+	/**
+	 * Test archived files and streams are compressed and restored files are decompressed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testArchiveAndRetrieve() throws Exception {
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		final byte[] content = compressibleBytes(10 * BLOCK_SIZE + 3);
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		final UploadResult fileResult = archiveService.archive(VAULT_NAME, file, "report");
+		assertEquals("report [codec=gzip;block=65536]", glacier.getArchiveDescription(fileResult.getArchiveId()));
+		assertEquals(ArchiveCompression.CODEC, ArchiveCompression.getCodec("report [codec=gzip;block=65536]"));
+		assertNull(ArchiveCompression.getCodec("report"));
+		final byte[] archived = glacier.getArchive(fileResult.getArchiveId());
+		assertTrue(archived.length < content.length);
+		assertArrayEquals(content, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(archived))));
+		final UploadResult streamResult = archiveService.archive(VAULT_NAME, new ByteArrayInputStream(content), null);
+		assertArrayEquals(archived, glacier.getArchive(streamResult.getArchiveId()));
+
+		final GlacierRetrievalServiceImpl retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		retrievalService.setTransferConfig(transferConfig);
+		try {
+			final File restored = retrievalService.retrieveArchive(VAULT_NAME, fileResult.getArchiveId(),
+					new File(tempFolder.getRoot(), "restored")).get(30, TimeUnit.SECONDS);
+			assertArrayEquals(content, FileUtils.readFileToByteArray(restored));
+			assertEquals(1, tempFolder.getRoot().list((directory, name) -> name.startsWith("restored")).length);
+		} finally {
+			retrievalService.shutdown();
+		}
+	}
+
+	/**
+	 * Test a description which is too long once the codec is appended is rejected before anything is uploaded.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTooLongDescriptionIsRejected() throws Exception {
+		final String tag = ArchiveCompression.describe(null, BLOCK_SIZE);
+		final String longest = StringUtils.repeat("d", MAX_ARCHIVE_DESCRIPTION_LENGTH - tag.length() - 1);
+		assertEquals(MAX_ARCHIVE_DESCRIPTION_LENGTH, ArchiveCompression.describe(longest, BLOCK_SIZE).length());
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		try {
+			archiveService.archive(VAULT_NAME, new ByteArrayInputStream(compressibleBytes(BLOCK_SIZE)),
+					longest + "d");
+			fail("Archive was uploaded with a too long description");
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage().contains(String.valueOf(MAX_ARCHIVE_DESCRIPTION_LENGTH)));
+		}
+		assertEquals(0, glacier.getArchiveCount());
+		assertEquals(0, glacier.getOpenUploads());
+	}
+
+	/**
+	 * Compress.
+	 *
+	 * @param content the content
+	 * @return the compressed content
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private byte[] compress(final byte[] content) throws IOException {
+		try (InputStream compressed = ArchiveCompression.compress(new ByteArrayInputStream(content),
+				transferConfig)) {
+			return IOUtils.toByteArray(compressed);
+		}
+	}
+
+	/**
+	 * Compressible bytes, lines of text with random numbers.
+	 *
+	 * @param length the length
+	 * @return the bytes
+	 */
+	private static byte[] compressibleBytes(final int length) {
+		final Random random = new Random(length);
+		final StringBuilder text = new StringBuilder(length + 64);
+		while (text.length() < length) {
+			text.append("record ").append(random.nextInt(1000)).append(" of the quarterly report\n");
+		}
+		return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+	}
+}
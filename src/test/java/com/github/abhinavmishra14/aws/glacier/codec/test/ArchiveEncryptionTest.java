@@ -0,0 +1,317 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.codec.test;
+
+import static com.github.abhinavmishra14.aws.glacier.transfer.test.TestData.randomBytes;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.MAX_ARCHIVE_DESCRIPTION_LENGTH;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveCompression;
+import com.github.abhinavmishra14.aws.glacier.codec.ArchiveEncryption;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptedRange;
+import com.github.abhinavmishra14.aws.glacier.codec.EncryptionHeader;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class ArchiveEncryptionTest.
+ */
+public class ArchiveEncryptionTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "encryptedVault";
+
+	/** The Constant SEGMENT_SIZE. */
+	private static final int SEGMENT_SIZE = 64 * 1024;
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The master key. */
+	private SecretKey masterKey;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		masterKey = newKey(1);
+	}
+
+	/**
+	 * Test archives of any size are decrypted to their plain text.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (final int length : new int[] {0, 1, SEGMENT_SIZE, 5 * SEGMENT_SIZE, 5 * SEGMENT_SIZE + 7}) {
+			final byte[] content = randomBytes(length);
+			final EncryptionHeader header = EncryptionHeader.generate(masterKey, SEGMENT_SIZE);
+			final byte[] encrypted = encrypt(content, header);
+			final int segments = Math.max(1, (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			assertEquals(header.getLength() + length + segments * ArchiveEncryption.TAG_LENGTH, encrypted.length);
+			assertArrayEquals(content, decrypt(encrypted, masterKey));
+		}
+	}
+
+	/**
+	 * Test modified or truncated archives and wrong keys fail to decrypt.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTamperingIsDetected() throws Exception {
+		final byte[] encrypted = encrypt(randomBytes(3 * SEGMENT_SIZE),
+				EncryptionHeader.generate(masterKey, SEGMENT_SIZE));
+		final byte[] modified = encrypted.clone();
+		modified[modified.length / 2] ^= 1;
+		assertDecryptFails(modified, masterKey);
+		final byte[] lastSegmentDropped = Arrays.copyOf(encrypted, encrypted.length - SEGMENT_SIZE
+				- ArchiveEncryption.TAG_LENGTH);
+		assertDecryptFails(lastSegmentDropped, masterKey);
+		assertDecryptFails(encrypted, newKey(2));
+	}
+
+	/**
+	 * Test a plain text range is decrypted from the output of a ranged retrieval.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRangeIsDecrypted() throws Exception {
+		final byte[] content = randomBytes((int) (3 * ONE_MB) + 5);
+		final EncryptionHeader header = EncryptionHeader.generate(masterKey, SEGMENT_SIZE);
+		final byte[] encrypted = encrypt(content, header);
+		final EncryptionHeader described = ArchiveEncryption.getHeader(ArchiveEncryption.describe("report", header));
+		assertNotNull(described);
+		final long[][] ranges = {{(long) (1.5 * ONE_MB), 100 * 1024}, {0, 10}, {content.length - 9, 9},
+				{3 * ONE_MB - SEGMENT_SIZE, SEGMENT_SIZE}};
+		for (final long[] range : ranges) {
+			final EncryptedRange encryptedRange = new EncryptedRange(described, range[0], range[1], encrypted.length);
+			final String byteRange = encryptedRange.getRetrievalByteRange();
+			final int separator = byteRange.indexOf('-');
+			final int rangeStart = Integer.parseInt(byteRange.substring(0, separator));
+			final int rangeEnd = Integer.parseInt(byteRange.substring(separator + 1));
+			assertEquals(0, rangeStart % ONE_MB);
+			assertTrue(rangeEnd == encrypted.length - 1 || (rangeEnd + 1) % ONE_MB == 0);
+			final byte[] output = Arrays.copyOfRange(encrypted, rangeStart, rangeEnd + 1);
+			try (InputStream plainText = encryptedRange.decrypt(new ByteArrayInputStream(output), masterKey,
+					codecConfig(2))) {
+				assertArrayEquals(Arrays.copyOfRange(content, (int) range[0], (int) (range[0] + range[1])),
+						IOUtils.toByteArray(plainText));
+			}
+		}
+	}
+
+	/**
+	 * Test archived files are compressed, then encrypted, and restored files are decrypted and decompressed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testArchiveAndRetrieve() throws Exception {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setCompression(1, SEGMENT_SIZE);
+		transferConfig.setEncryption(masterKey, SEGMENT_SIZE);
+		transferConfig.setCodecThreads(4);
+		transferConfig.setPollIntervals(50, 400);
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		final byte[] content = new byte[(int) (2 * ONE_MB)];
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		final UploadResult uploadResult = archiveService.archive(VAULT_NAME, file, "zeros");
+		final String description = glacier.getArchiveDescription(uploadResult.getArchiveId());
+		assertTrue(description.startsWith("zeros [codec=gzip;block=65536] [enc=aes-gcm;hdr="));
+		assertEquals(ArchiveCompression.CODEC, ArchiveCompression.getCodec(description));
+		final byte[] archived = glacier.getArchive(uploadResult.getArchiveId());
+		assertTrue(EncryptionHeader.isEncrypted(new ByteArrayInputStream(archived)));
+		assertTrue(archived.length < content.length / 10);
+
+		final GlacierRetrievalServiceImpl retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		retrievalService.setTransferConfig(transferConfig);
+		try {
+			final File restored = retrievalService.retrieveArchive(VAULT_NAME, uploadResult.getArchiveId(),
+					new File(tempFolder.getRoot(), "restored")).get(30, TimeUnit.SECONDS);
+			assertArrayEquals(content, FileUtils.readFileToByteArray(restored));
+		} finally {
+			retrievalService.shutdown();
+		}
+	}
+
+	/**
+	 * Test a description which is too long once the header is appended is rejected before anything is uploaded.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTooLongDescriptionIsRejected() throws Exception {
+		final EncryptionHeader header = EncryptionHeader.generate(masterKey, SEGMENT_SIZE);
+		final String tag = ArchiveEncryption.describe(null, header);
+		final String longest = StringUtils.repeat("d", MAX_ARCHIVE_DESCRIPTION_LENGTH - tag.length() - 1);
+		assertEquals(MAX_ARCHIVE_DESCRIPTION_LENGTH, ArchiveEncryption.describe(longest, header).length());
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setEncryption(masterKey, SEGMENT_SIZE);
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		try {
+			archiveService.archive(VAULT_NAME, new ByteArrayInputStream(randomBytes(SEGMENT_SIZE)), longest + "d");
+			fail("Archive was uploaded with a too long description");
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage().contains(String.valueOf(MAX_ARCHIVE_DESCRIPTION_LENGTH)));
+		}
+		assertEquals(0, glacier.getArchiveCount());
+		assertEquals(0, glacier.getOpenUploads());
+	}
+
+	/**
+	 * Test a plain text range of an encrypted archive is decrypted while it is retrieved.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRetrieveEncryptedRange() throws Exception {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setEncryption(masterKey, SEGMENT_SIZE);
+		transferConfig.setCodecThreads(4);
+		transferConfig.setPollIntervals(50, 400);
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		final byte[] content = randomBytes((int) (3 * ONE_MB) + 5);
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		final UploadResult uploadResult = archiveService.archive(VAULT_NAME, file, "report");
+		final String description = glacier.getArchiveDescription(uploadResult.getArchiveId());
+		final EncryptedRange encryptedRange = new EncryptedRange(ArchiveEncryption.getHeader(description),
+				(long) (1.5 * ONE_MB), 100 * 1024, glacier.getArchive(uploadResult.getArchiveId()).length);
+
+		final File targetFolder = tempFolder.newFolder();
+		final GlacierRetrievalServiceImpl retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		retrievalService.setTransferConfig(transferConfig);
+		try {
+			final File restored = retrievalService.retrieveEncryptedRange(VAULT_NAME, uploadResult.getArchiveId(),
+					encryptedRange, new File(targetFolder, "range")).get(30, TimeUnit.SECONDS);
+			assertArrayEquals(Arrays.copyOfRange(content, (int) (1.5 * ONE_MB), (int) (1.5 * ONE_MB) + 100 * 1024),
+					FileUtils.readFileToByteArray(restored));
+			assertArrayEquals(new String[] {"range"}, targetFolder.list());
+		} finally {
+			retrievalService.shutdown();
+		}
+	}
+
+	/**
+	 * Encrypt.
+	 *
+	 * @param content the content
+	 * @param header the header
+	 * @return the encrypted content
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private byte[] encrypt(final byte[] content, final EncryptionHeader header) throws IOException {
+		try (InputStream encrypted = ArchiveEncryption.encrypt(new ByteArrayInputStream(content), header,
+				masterKey, codecConfig(3))) {
+			return IOUtils.toByteArray(encrypted);
+		}
+	}
+
+	/**
+	 * Decrypt.
+	 *
+	 * @param encrypted the encrypted content
+	 * @param key the key
+	 * @return the plain text
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] decrypt(final byte[] encrypted, final SecretKey key) throws IOException {
+		try (InputStream plainText = ArchiveEncryption.decrypt(new ByteArrayInputStream(encrypted), key,
+				codecConfig(3))) {
+			return IOUtils.toByteArray(plainText);
+		}
+	}
+
+	/**
+	 * Transfer config of the given codec threads.
+	 *
+	 * @param threads the threads
+	 * @return the transfer config
+	 */
+	private static TransferConfig codecConfig(final int threads) {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setCodecThreads(threads);
+		return transferConfig;
+	}
+
+	/**
+	 * Assert decrypt fails.
+	 *
+	 * @param encrypted the encrypted content
+	 * @param key the key
+	 */
+	private static void assertDecryptFails(final byte[] encrypted, final SecretKey key) {
+		try {
+			decrypt(encrypted, key);
+			fail("Archive was decrypted");
+		} catch (IOException ioEx) {
+			assertNotNull(ioEx.getMessage());
+		}
+	}
+
+	/**
+	 * New AES-256 key.
+	 *
+	 * @param seed the seed
+	 * @return the secret key
+	 */
+	private static SecretKey newKey(final int seed) {
+		final byte[] key = new byte[32];
+		new Random(seed).nextBytes(key);
+		return new SecretKeySpec(key, "AES");
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.inventory.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryFilter;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryRecord;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSources;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierRetrievalService;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class InventoryReaderTest.
+ */
+public class InventoryReaderTest {
+
+	/** The Constant HEADER. */
+	private static final String HEADER = "{\"VaultARN\":\"arn:aws:glacier:us-east-1:012345678901:vaults/examplevault\","
+			+ "\"InventoryDate\":\"2017-06-01T01:30:00Z\",\"ArchiveList\":[";
+
+	/** The temp folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Test records of a large inventory are read one at a time from a stream which is generated as it is read,
+	 * the output is never held in memory as a whole.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRecordsAreStreamed() throws Exception {
+		final int recordCount = 100000;
+		long sizeTotal = 0;
+		try (InventoryReader reader = new InventoryReader(generatedInventory(recordCount))) {
+			InventoryRecord record;
+			int index = 0;
+			while ((record = reader.next()) != null) {
+				assertEquals("archive-" + index, record.getArchiveId());
+				assertEquals("/data/file-" + index, record.getDescription());
+				assertEquals(64, record.getTreeHash().length());
+				assertEquals(1495299823000L, record.getCreationDate().getTime());
+				sizeTotal += record.getSize();
+				index++;
+			}
+			assertEquals(recordCount, index);
+			assertEquals(recordCount, reader.getRecordCount());
+			assertEquals("arn:aws:glacier:us-east-1:012345678901:vaults/examplevault", reader.getVaultARN());
+			assertEquals(1496280600000L, reader.getInventoryDate().getTime());
+		}
+		assertEquals((long) recordCount * (recordCount - 1) / 2, sizeTotal);
+	}
+
+	/**
+	 * Test records are filtered as they are parsed, unknown fields are skipped and missing fields are null.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFilterAndUnknownFields() throws Exception {
+		final String inventory = HEADER
+				+ "{\"ArchiveId\":\"a1\",\"Size\":10,\"Tags\":{\"k\":[1,{\"x\":2}]},"
+				+ "\"CreationDate\":\"2012-03-20T17:03:43Z\"},"
+				+ "{\"ArchiveId\":\"a2\",\"Size\":5000,\"CreationDate\":\"2012-03-20T17:03:43.250Z\"},"
+				+ "{\"ArchiveId\":\"a3\",\"Size\":7000,\"ArchiveDescription\":null}],\"Extra\":[1,2,3]}";
+		try (InventoryReader reader = new InventoryReader(stream(inventory))) {
+			reader.setFilter(new InventoryFilter() {
+				@Override
+				public boolean accept(final InventoryRecord record) {
+					return record.getSize() >= 1000;
+				}
+			});
+			final InventoryRecord first = reader.next();
+			assertEquals("a2", first.getArchiveId());
+			assertEquals(1332263023250L, first.getCreationDate().getTime());
+			final InventoryRecord second = reader.next();
+			assertEquals("a3", second.getArchiveId());
+			assertNull(second.getDescription());
+			assertNull(second.getCreationDate());
+			assertNull(second.getTreeHash());
+			assertNull(reader.next());
+			assertEquals(3, reader.getRecordCount());
+		}
+	}
+
+	/**
+	 * Test output which ends before the inventory is complete is reported.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTruncatedOutputFails() throws Exception {
+		try (InventoryReader reader = new InventoryReader(stream(HEADER + "{\"ArchiveId\":\"a1\",\"Size\":10},"))) {
+			assertEquals("a1", reader.next().getArchiveId());
+			reader.next();
+			fail("Truncated inventory is expected to fail");
+		} catch (IOException ioex) {
+			assertTrue(ioex.getMessage(), ioex.getMessage().contains("truncated")
+					|| ioex.getMessage().contains("end-of-input"));
+		}
+	}
+
+	/**
+	 * Test a date whose fields are out of range is reported as corrupt.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testInvalidDateFails() throws Exception {
+		try (InventoryReader reader = new InventoryReader(stream(HEADER
+				+ "{\"ArchiveId\":\"a1\",\"Size\":10,\"CreationDate\":\"2017-13-45T99:00:00Z\"}]}"))) {
+			reader.next();
+			fail("Invalid date is expected to fail");
+		} catch (IOException ioex) {
+			assertTrue(ioex.getMessage(), ioex.getMessage().startsWith("Invalid date: 2017-13-45T99:00:00Z"));
+		}
+	}
+
+	/**
+	 * Test records are loaded into the catalog, archives which are already cataloged are skipped.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testLoadIntoCatalog() throws Exception {
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("catalog"))) {
+			catalog.record(new CatalogEntry("examplevault", "archive-3", "/data/file-3", 3, null, null, 1L));
+			try (InventoryReader reader = new InventoryReader(generatedInventory(10))) {
+				assertEquals(9, reader.loadInto(catalog, "examplevault"));
+			}
+			final CatalogEntry entry = catalog.findByArchiveId("examplevault", "archive-7");
+			assertNotNull(entry);
+			assertEquals(7, entry.getSize());
+			assertEquals("/data/file-7", entry.getDescription());
+			assertEquals("/data/file-3", catalog.findByArchiveId("examplevault", "archive-3").getSourcePath());
+			assertEquals(1, catalog.findByTreeHash("examplevault", entry.getTreeHash()).size());
+		}
+	}
+
+	/**
+	 * Test the inventory job output is read from the download stream and used as a purge source.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testReadInventoryJob() throws Exception {
+		final InMemoryGlacier glacier = new InMemoryGlacier();
+		for (int index = 0; index < 5; index++) {
+			glacier.putArchive("vault", new byte[] { (byte) index });
+		}
+		final GlacierRetrievalService retrievalService = new GlacierRetrievalServiceImpl(glacier.client());
+		final String jobId = retrievalService.initiateInventoryJob("vault");
+		try (InventoryReader reader = retrievalService.readInventory("vault", jobId)) {
+			final PurgeProgress progress = new GlacierVaultServiceImpl(glacier.client()).deleteArchives("vault",
+					ArchiveSources.fromInventory(reader), null, new PurgeOptions());
+			assertEquals(5, progress.getDeletedCount());
+			assertEquals(glacier.getStore().getVault("vault").getVaultArn(), reader.getVaultARN());
+		}
+		assertEquals(0, glacier.getArchiveCount());
+	}
+
+	/**
+	 * Inventory output generated record by record while it is read.
+	 *
+	 * @param recordCount the record count
+	 * @return the input stream
+	 */
+	private static InputStream generatedInventory(final int recordCount) {
+		return new SequenceInputStream(new Enumeration<InputStream>() {
+
+			/** The next part, -1 for the header and record count for the trailer. */
+			private int next = -1;
+
+			@Override
+			public boolean hasMoreElements() {
+				return next <= recordCount;
+			}
+
+			@Override
+			public InputStream nextElement() {
+				final int part = next++;
+				if (part < 0) {
+					return stream(HEADER);
+				} else if (part == recordCount) {
+					return stream("]}");
+				}
+				return stream((part == 0 ? "" : ",") + "{\"ArchiveId\":\"archive-" + part
+						+ "\",\"ArchiveDescription\":\"/data/file-" + part
+						+ "\",\"CreationDate\":\"2017-05-20T17:03:43Z\",\"Size\":" + part + ",\"SHA256TreeHash\":\""
+						+ String.format("%064x", part) + "\"}");
+			}
+		});
+	}
+
+	/**
+	 * Stream of a string.
+	 *
+	 * @param value the value
+	 * @return the input stream
+	 */
+	private static InputStream stream(final String value) {
+		return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.metrics.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
+import com.github.abhinavmishra14.aws.glacier.client.AdaptiveThrottle;
+import com.github.abhinavmishra14.aws.glacier.client.MeteredGlacierClient;
+import com.github.abhinavmishra14.aws.glacier.client.ThrottleSettings;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.glacier.metrics.LatencyHistogram;
+import com.github.abhinavmishra14.aws.glacier.metrics.MetricsListener;
+import com.github.abhinavmishra14.aws.glacier.metrics.OperationMetrics;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchiveUploadResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class GlacierMetricsTest.
+ */
+public class GlacierMetricsTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "metered";
+
+	/** The Constant UPLOAD_PART. */
+	private static final String UPLOAD_PART = "uploadMultipartPart";
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The operations completed, as seen by the listener. */
+	private final List<String> completed = new CopyOnWriteArrayList<String>();
+
+	/** The listener. */
+	private final MetricsListener listener = new MetricsListener() {
+		@Override
+		public void completed(final String operation, final long latencyNanos, final Throwable failure) {
+			completed.add(operation);
+		}
+	};
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		GlacierMetrics.getInstance().addListener(listener);
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@After
+	public void tearDown() {
+		GlacierMetrics.getInstance().removeListener(listener);
+	}
+
+	/**
+	 * Test percentiles of the histogram are within the precision of its buckets.
+	 */
+	@Test
+	public void testHistogramPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertEquals(50000, histogram.getValueAtPercentile(50), 50000 * 0.032);
+		assertEquals(99000, histogram.getValueAtPercentile(99), 99000 * 0.032);
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+	}
+
+	/**
+	 * Test parts, bytes and stages of an upload are recorded.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testUploadIsMetered() throws Exception {
+		final GlacierMetrics metrics = GlacierMetrics.getInstance();
+		final OperationMetrics partMetrics = metrics.getOperation(UPLOAD_PART);
+		final long parts = partMetrics.getCount();
+		final long bytes = partMetrics.getBytes();
+		final long readParts = metrics.getOperation(GlacierMetrics.READ_PART).getCount();
+		final long hashedBytes = metrics.getOperation(GlacierMetrics.HASH_PART).getBytes();
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		final byte[] content = new byte[(int) (3 * ONE_MB)];
+		new Random(7).nextBytes(content);
+		final ArchiveUploadResult result = new ParallelMultipartUploader(MeteredGlacierClient.wrap(glacier.client()),
+				transferConfig).upload(VAULT_NAME, "metered upload", new ByteArrayInputStream(content));
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(3, partMetrics.getCount() - parts);
+		assertEquals(content.length, partMetrics.getBytes() - bytes);
+		assertEquals(0, partMetrics.getInFlightCount());
+		assertTrue(partMetrics.getMaxLatencyMillis() >= partMetrics.get50thPercentileMillis());
+		assertTrue(metrics.getOperation(GlacierMetrics.READ_PART).getCount() - readParts >= 2);
+		assertEquals(content.length, metrics.getOperation(GlacierMetrics.HASH_PART).getBytes() - hashedBytes);
+		assertTrue(completed.contains("initiateMultipartUpload"));
+		assertTrue(completed.contains(UPLOAD_PART));
+		assertTrue(completed.contains("completeMultipartUpload"));
+	}
+
+	/**
+	 * Test throttled requests and their retries are counted.
+	 */
+	@Test
+	public void testThrottlingIsCounted() {
+		final OperationMetrics deleteMetrics = GlacierMetrics.getInstance().getOperation("deleteArchive");
+		final long count = deleteMetrics.getCount();
+		final long throttled = deleteMetrics.getThrottledCount();
+		final long retries = deleteMetrics.getRetryCount();
+		final long failures = deleteMetrics.getFailureCount();
+		final ThrottleSettings settings = new ThrottleSettings();
+		settings.setRetryDelays(5, 100);
+		final AmazonGlacier glacierClient = AdaptiveThrottle.wrap(MeteredGlacierClient.wrap(glacier.client()),
+				settings);
+		final String archiveId = glacier.putArchive(VAULT_NAME, new byte[] {1});
+		glacier.throttleNextDeletes(2);
+		glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, archiveId));
+		assertEquals(3, deleteMetrics.getCount() - count);
+		assertEquals(2, deleteMetrics.getThrottledCount() - throttled);
+		assertEquals(2, deleteMetrics.getRetryCount() - retries);
+		assertEquals(2, deleteMetrics.getFailureCount() - failures);
+	}
+
+	/**
+	 * Test operation metrics are exposed as MBeans.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testMetricsAreExposedOverJmx() throws Exception {
+		final AmazonGlacier glacierClient = MeteredGlacierClient.wrap(glacier.client());
+		final String archiveId = glacier.putArchive(VAULT_NAME, new byte[] {1});
+		glacierClient.deleteArchive(new DeleteArchiveRequest(VAULT_NAME, archiveId));
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(GlacierMetrics.JMX_DOMAIN + ":type=Operation,name=deleteArchive");
+		assertTrue(mbeanServer.isRegistered(name));
+		assertEquals(GlacierMetrics.getInstance().getOperation("deleteArchive").getCount(),
+				((Long) mbeanServer.getAttribute(name, "Count")).longValue());
+		assertEquals("deleteArchive", mbeanServer.getAttribute(name, "Operation"));
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.retention.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.glacier.catalog.ArchiveCatalog;
+import com.github.abhinavmishra14.aws.glacier.catalog.CatalogEntry;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveCandidate;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchivePurger;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSource;
+import com.github.abhinavmishra14.aws.glacier.retention.ArchiveSources;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeOptions;
+import com.github.abhinavmishra14.aws.glacier.retention.PurgeProgress;
+import com.github.abhinavmishra14.aws.glacier.retention.RetentionPolicy;
+import com.github.abhinavmishra14.aws.glacier.service.GlacierVaultService;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+import com.github.abhinavmishra14.aws.util.AWSUtil;
+
+/**
+ * The Class ArchivePurgerTest.
+ */
+public class ArchivePurgerTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "purge-vault";
+
+	/** The temp folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The vault service. */
+	private GlacierVaultService vaultService;
+
+	/** The options. */
+	private PurgeOptions options;
+
+	/** The date of an expired archive. */
+	private final Date expired = AWSUtil.getExpiryDate(Calendar.DATE, -60);
+
+	/** The date of a retained archive. */
+	private final Date recent = AWSUtil.getExpiryDate(Calendar.DATE, -1);
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		vaultService = new GlacierVaultServiceImpl(glacier.client());
+		options = new PurgeOptions();
+		options.setConcurrency(4);
+		options.setRetryDelays(1, 10);
+		options.setProgressInterval(50);
+	}
+
+	/**
+	 * Test only archives created before the cutoff date are deleted, archives of unknown age are retained and
+	 * archives missing from the vault are counted as not found.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testExpiredArchivesAreDeleted() throws Exception {
+		final List<ArchiveCandidate> candidates = new ArrayList<ArchiveCandidate>();
+		for (int index = 0; index < 5; index++) {
+			candidates.add(new ArchiveCandidate(glacier.putArchive(VAULT_NAME, new byte[] { 1 }), expired));
+		}
+		for (int index = 0; index < 3; index++) {
+			candidates.add(new ArchiveCandidate(glacier.putArchive(VAULT_NAME, new byte[] { 2 }), recent));
+		}
+		candidates.add(new ArchiveCandidate(glacier.putArchive(VAULT_NAME, new byte[] { 3 }), null));
+		candidates.add(new ArchiveCandidate("unknown-archive", expired));
+		final PurgeProgress progress = vaultService.deleteArchives(VAULT_NAME, ArchiveSources.of(candidates),
+				new RetentionPolicy(Calendar.DATE, 30), options);
+		assertTrue(progress.isComplete());
+		assertEquals(10, progress.getScannedCount());
+		assertEquals(5, progress.getDeletedCount());
+		assertEquals(1, progress.getNotFoundCount());
+		assertEquals(4, progress.getRetainedCount());
+		assertEquals(0, progress.getFailedCount());
+		assertEquals(4, glacier.getArchiveCount());
+		for (final ArchiveCandidate candidate : candidates.subList(5, 9)) {
+			assertNotNull(glacier.getArchive(candidate.getArchiveId()));
+		}
+	}
+
+	/**
+	 * Test throttled requests are attempted again, and that archives which keep failing are listed next to the
+	 * checkpoint in a file which can be read back as a source.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testThrottledDeletesAreRetried() throws Exception {
+		final List<ArchiveCandidate> candidates = putArchives(10);
+		glacier.throttleNextDeletes(6);
+		PurgeProgress progress = vaultService.deleteArchives(VAULT_NAME, ArchiveSources.of(candidates), null,
+				options);
+		assertEquals(10, progress.getDeletedCount());
+		assertEquals(6, progress.getRetryCount());
+		assertEquals(16, glacier.getDeleteRequests());
+		assertEquals(0, glacier.getArchiveCount());
+
+		final List<ArchiveCandidate> failing = putArchives(3);
+		final File checkpointFile = new File(tempFolder.getRoot(), "purge.checkpoint");
+		options.setCheckpointFile(checkpointFile);
+		options.setMaxAttempts(2);
+		glacier.throttleNextDeletes(Integer.MAX_VALUE);
+		progress = vaultService.deleteArchives(VAULT_NAME, ArchiveSources.of(failing), null, options);
+		assertEquals(3, progress.getFailedCount());
+		assertEquals(3, progress.getRetryCount());
+		assertFalse(checkpointFile.exists());
+		final List<String> failedIds = new ArrayList<String>();
+		try (ArchiveSource failedSource = ArchiveSources.fromFile(new File(checkpointFile.getPath() + ".failed"))) {
+			ArchiveCandidate candidate;
+			while ((candidate = failedSource.next()) != null) {
+				failedIds.add(candidate.getArchiveId());
+				assertNotNull(candidate.getCreationDate());
+			}
+		}
+		assertEquals(3, failedIds.size());
+		for (final ArchiveCandidate candidate : failing) {
+			assertTrue(failedIds.contains(candidate.getArchiveId()));
+		}
+	}
+
+	/**
+	 * Test requests are paced by the max requests per second.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRequestsArePaced() throws Exception {
+		options.setMaxRequestsPerSecond(50);
+		final PurgeProgress progress = new ArchivePurger(glacier.client(), options).purge(VAULT_NAME,
+				ArchiveSources.of(putArchives(21)), null);
+		assertEquals(21, progress.getDeletedCount());
+		// 21 requests at 50 per second are spread over at least 400 ms
+		assertTrue("Elapsed: " + progress.getElapsedMillis(), progress.getElapsedMillis() >= 380);
+		assertTrue(progress.getDeletesPerSecond() <= 55);
+	}
+
+	/**
+	 * Test a purge stopped by a failing source is resumed from the checkpoint, archives done by the first run
+	 * are skipped.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testResumeFromCheckpoint() throws Exception {
+		final List<ArchiveCandidate> candidates = putArchives(20);
+		final File checkpointFile = new File(tempFolder.getRoot(), "resume.checkpoint");
+		options.setCheckpointFile(checkpointFile);
+		options.setConcurrency(2);
+		final ArchivePurger purger = new ArchivePurger(glacier.client(), options);
+		try {
+			purger.purge(VAULT_NAME, failingAfter(candidates, 10), null);
+			fail("Source failure is expected to stop the purge");
+		} catch (IOException ioex) {
+			assertTrue(checkpointFile.isFile());
+		}
+		final long firstRunDeleted = purger.getProgress().getDeletedCount();
+		assertTrue(firstRunDeleted >= 6 && firstRunDeleted <= 10);
+
+		final PurgeProgress progress = purger.purge(VAULT_NAME, ArchiveSources.of(candidates), null);
+		assertTrue(progress.getScannedCount() <= 14);
+		assertEquals(20, firstRunDeleted + progress.getDeletedCount());
+		assertEquals(0, glacier.getArchiveCount());
+		assertFalse(checkpointFile.exists());
+	}
+
+	/**
+	 * Test archives are read from the catalog and deletions are recorded in it.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testPurgeCatalogedArchives() throws Exception {
+		try (ArchiveCatalog catalog = new ArchiveCatalog(tempFolder.newFolder("catalog"))) {
+			final List<ArchiveCandidate> candidates = putArchives(6);
+			for (int index = 0; index < candidates.size(); index++) {
+				final Date timestamp = index % 2 == 0 ? expired : recent;
+				catalog.record(new CatalogEntry(VAULT_NAME, candidates.get(index).getArchiveId(), "/data/" + index,
+						1, null, null, timestamp.getTime()));
+			}
+			catalog.record(new CatalogEntry("other-vault", "other-archive", null, 1, null, null,
+					expired.getTime()));
+			catalog.recordDeletion(VAULT_NAME, candidates.get(0).getArchiveId());
+			options.setCatalog(catalog);
+			final PurgeProgress progress;
+			try (ArchiveSource source = ArchiveSources.fromCatalog(catalog, VAULT_NAME)) {
+				progress = vaultService.deleteArchives(VAULT_NAME, source, new RetentionPolicy(Calendar.DATE, 30),
+						options);
+			}
+			assertEquals(5, progress.getScannedCount());
+			assertEquals(2, progress.getDeletedCount());
+			assertEquals(3, progress.getRetainedCount());
+			for (int index = 0; index < candidates.size(); index++) {
+				final CatalogEntry entry = catalog.findByArchiveId(VAULT_NAME, candidates.get(index).getArchiveId());
+				assertEquals(index % 2 == 0, entry == null);
+			}
+			assertNull(glacier.getArchive(candidates.get(2).getArchiveId()));
+			assertNotNull(glacier.getArchive(candidates.get(0).getArchiveId()));
+			assertNotNull(catalog.findByArchiveId("other-vault", "other-archive"));
+		}
+	}
+
+	/**
+	 * Test archives are read from a file, with and without creation dates.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testArchivesFromFile() throws Exception {
+		final File listFile = tempFolder.newFile("archives.csv");
+		Files.write(listFile.toPath(), Arrays.asList("# archiveId,creationDate", "a1,2012-03-20T17:03:43Z", "",
+				"a2, 2012-03-20T17:03:43.250Z", "a3,1332263023000", "a4"), StandardCharsets.UTF_8);
+		final List<ArchiveCandidate> candidates = new ArrayList<ArchiveCandidate>();
+		try (ArchiveSource source = ArchiveSources.fromFile(listFile)) {
+			ArchiveCandidate candidate;
+			while ((candidate = source.next()) != null) {
+				candidates.add(candidate);
+			}
+		}
+		assertEquals(4, candidates.size());
+		assertEquals("a1", candidates.get(0).getArchiveId());
+		assertEquals(1332263023000L, candidates.get(0).getCreationDate().getTime());
+		assertEquals(1332263023250L, candidates.get(1).getCreationDate().getTime());
+		assertEquals(1332263023000L, candidates.get(2).getCreationDate().getTime());
+		assertNull(candidates.get(3).getCreationDate());
+	}
+
+	/**
+	 * Put archives into the vault.
+	 *
+	 * @param count the count
+	 * @return the expired candidates
+	 */
+	private List<ArchiveCandidate> putArchives(final int count) {
+		final List<ArchiveCandidate> candidates = new ArrayList<ArchiveCandidate>();
+		for (int index = 0; index < count; index++) {
+			candidates.add(new ArchiveCandidate(glacier.putArchive(VAULT_NAME, new byte[] { (byte) index }), expired));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Source which fails once the given number of candidates were read.
+	 *
+	 * @param candidates the candidates
+	 * @param count the count
+	 * @return the archive source
+	 */
+	private static ArchiveSource failingAfter(final List<ArchiveCandidate> candidates, final int count) {
+		final ArchiveSource source = ArchiveSources.of(candidates.subList(0, count));
+		return new ArchiveSource() {
+
+			@Override
+			public ArchiveCandidate next() throws IOException {
+				final ArchiveCandidate candidate = source.next();
+				if (candidate == null) {
+					throw new IOException("Source failure");
+				}
+				return candidate;
+			}
+
+			@Override
+			public void close() throws IOException {
+				source.close();
+			}
+		};
+	}
+}
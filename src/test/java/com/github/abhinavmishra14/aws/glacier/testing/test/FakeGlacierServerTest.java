@@ -0,0 +1,270 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.testing.test;
+
+import static com.github.abhinavmishra14.aws.glacier.transfer.test.TestData.randomBytes;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.inventory.InventoryReader;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierServer;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierSettings;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+
+/**
+ * The Class FakeGlacierServerTest.
+ */
+public class FakeGlacierServerTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "fakeVault";
+
+	/** The Constant KEY. */
+	private static final String KEY = "fake";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The server. */
+	private FakeGlacierServer server;
+
+	/** The retrieval service. */
+	private GlacierRetrievalServiceImpl retrievalService;
+
+	/**
+	 * Tear down.
+	 */
+	@After
+	public void tearDown() {
+		if (retrievalService != null) {
+			retrievalService.shutdown();
+		}
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	/**
+	 * Test vaults, single and multipart uploads, archive and inventory retrievals and deletes through the
+	 * services.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testServicesRunAgainstServer() throws Exception {
+		final FakeGlacierSettings settings = new FakeGlacierSettings();
+		settings.setJobCompletionMillis(300);
+		start(settings);
+		final GlacierVaultServiceImpl vaultService = new GlacierVaultServiceImpl(KEY, KEY, server.getEndpoint());
+		vaultService.createVault(VAULT_NAME);
+		final GlacierArchiveServiceImpl archiveService = archiveService();
+		final byte[] small = randomBytes(1000);
+		final byte[] large = randomBytes((int) (3 * ONE_MB) + 5);
+		final UploadResult smallResult = archiveService.archive(VAULT_NAME, newFile("small", small), "small");
+		final UploadResult largeResult = archiveService.archive(VAULT_NAME, newFile("large", large), "large");
+		final DescribeVaultResult vault = vaultService.getVaultDescription(VAULT_NAME);
+		assertEquals(2L, vault.getNumberOfArchives().longValue());
+		assertEquals(small.length + large.length, vault.getSizeInBytes().longValue());
+
+		final File restoredSmall = retrievalService.retrieveArchive(VAULT_NAME, smallResult.getArchiveId(),
+				new File(tempFolder.getRoot(), "small.restored")).get(30, TimeUnit.SECONDS);
+		assertArrayEquals(small, FileUtils.readFileToByteArray(restoredSmall));
+		final File restoredLarge = retrievalService.retrieveArchive(VAULT_NAME, largeResult.getArchiveId(),
+				new File(tempFolder.getRoot(), "large.restored")).get(30, TimeUnit.SECONDS);
+		assertArrayEquals(large, FileUtils.readFileToByteArray(restoredLarge));
+		final File restoredRange = retrievalService.retrieveArchive(VAULT_NAME, largeResult.getArchiveId(),
+				ONE_MB + "-" + (3 * ONE_MB - 1), new File(tempFolder.getRoot(), "range.restored"))
+				.get(30, TimeUnit.SECONDS);
+		assertArrayEquals(Arrays.copyOfRange(large, (int) ONE_MB, (int) (3 * ONE_MB)),
+				FileUtils.readFileToByteArray(restoredRange));
+		final String inventoryJobId = retrievalService.initiateInventoryJob(VAULT_NAME);
+		retrievalService.trackJob(VAULT_NAME, inventoryJobId, null).get(30, TimeUnit.SECONDS);
+		try (InventoryReader inventory = retrievalService.readInventory(VAULT_NAME, inventoryJobId)) {
+			assertNotNull(inventory.next());
+			assertNotNull(inventory.next());
+			assertNull(inventory.next());
+		}
+
+		vaultService.deleteArchivedObject(VAULT_NAME, smallResult.getArchiveId());
+		vaultService.deleteArchivedObject(VAULT_NAME, largeResult.getArchiveId());
+		vaultService.deleteVault(VAULT_NAME);
+		try {
+			vaultService.getVaultDescription(VAULT_NAME);
+			fail("Deleted vault was described");
+		} catch (ResourceNotFoundException notFoundEx) {
+			assertEquals(404, notFoundEx.getStatusCode());
+		}
+	}
+
+	/**
+	 * Test uploads succeed while requests are throttled and parts fail now and then, and fail once every part
+	 * upload does.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testInjectedFailures() throws Exception {
+		final FakeGlacierSettings settings = new FakeGlacierSettings();
+		settings.setThrottlingRate(0.3);
+		settings.setPartFailureRate(0.1);
+		settings.setRandomSeed(7L);
+		start(settings);
+		new GlacierVaultServiceImpl(KEY, KEY, server.getEndpoint()).createVault(VAULT_NAME);
+		final GlacierArchiveServiceImpl archiveService = archiveService();
+		final byte[] content = randomBytes((int) (8 * ONE_MB));
+		final UploadResult uploadResult = archiveService.archive(VAULT_NAME, newFile("content", content), "faults");
+		assertTrue(server.getThrottledCount() > 0);
+		final File restored = retrievalService.retrieveArchive(VAULT_NAME, uploadResult.getArchiveId(),
+				new File(tempFolder.getRoot(), "restored")).get(30, TimeUnit.SECONDS);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(restored));
+
+		settings.setPartFailureRate(1);
+		try {
+			archiveService.archive(VAULT_NAME, newFile("failing", randomBytes((int) (2 * ONE_MB))), "failing");
+			fail("Archive was uploaded while every part failed");
+		} catch (AmazonServiceException serviceEx) {
+			assertEquals(500, serviceEx.getStatusCode());
+			assertEquals("ServiceUnavailableException", serviceEx.getErrorCode());
+		}
+		assertTrue(server.getFailedPartCount() > 0);
+		assertEquals(1, server.getArchiveCount(VAULT_NAME));
+	}
+
+	/**
+	 * Test requests are delayed by the latency and transfers are capped by the bandwidth.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testLatencyAndBandwidth() throws Exception {
+		final FakeGlacierSettings settings = new FakeGlacierSettings();
+		settings.setBandwidth(4 * ONE_MB);
+		start(settings);
+		final GlacierVaultServiceImpl vaultService = new GlacierVaultServiceImpl(KEY, KEY, server.getEndpoint());
+		vaultService.createVault(VAULT_NAME);
+		long startMillis = System.currentTimeMillis();
+		archiveService().archive(VAULT_NAME, newFile("content", randomBytes((int) (4 * ONE_MB))), "capped");
+		assertTrue(System.currentTimeMillis() - startMillis >= 900);
+		assertTrue(server.getBytesReceived() >= 4 * ONE_MB);
+
+		settings.setLatency(200, 50);
+		startMillis = System.currentTimeMillis();
+		vaultService.getVaultDescription(VAULT_NAME);
+		assertTrue(System.currentTimeMillis() - startMillis >= 200);
+	}
+
+	/**
+	 * Test archives uploaded over HTTP are seen by the in-process client of the same store, and the other way.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testStoreIsSharedWithInProcessClient() throws Exception {
+		start(new FakeGlacierSettings());
+		final InMemoryGlacier inMemoryGlacier = new InMemoryGlacier(server.getStore());
+		final byte[] uploaded = randomBytes((int) (2 * ONE_MB) + 7);
+		new GlacierVaultServiceImpl(KEY, KEY, server.getEndpoint()).createVault(VAULT_NAME);
+		final UploadResult uploadResult = archiveService().archive(VAULT_NAME, newFile("uploaded", uploaded),
+				"shared");
+		assertArrayEquals(uploaded, inMemoryGlacier.getArchive(uploadResult.getArchiveId()));
+		assertEquals("shared", inMemoryGlacier.getArchiveDescription(uploadResult.getArchiveId()));
+
+		final byte[] stored = randomBytes(1000);
+		final String archiveId = inMemoryGlacier.putArchive(VAULT_NAME, stored);
+		assertEquals(2, server.getArchiveCount(VAULT_NAME));
+		final File restored = retrievalService.retrieveArchive(VAULT_NAME, archiveId,
+				new File(tempFolder.getRoot(), "stored.restored")).get(30, TimeUnit.SECONDS);
+		assertArrayEquals(stored, FileUtils.readFileToByteArray(restored));
+	}
+
+	/**
+	 * Start the server and the retrieval service.
+	 *
+	 * @param settings the settings
+	 * @throws Exception the exception
+	 */
+	private void start(final FakeGlacierSettings settings) throws Exception {
+		server = new FakeGlacierServer(settings);
+		server.start();
+		retrievalService = new GlacierRetrievalServiceImpl(KEY, KEY, server.getEndpoint());
+		retrievalService.setTransferConfig(transferConfig());
+	}
+
+	/**
+	 * Archive service using the server.
+	 *
+	 * @return the glacier archive service
+	 */
+	private GlacierArchiveServiceImpl archiveService() {
+		final GlacierArchiveServiceImpl archiveService = new GlacierArchiveServiceImpl(KEY, KEY,
+				server.getEndpoint());
+		archiveService.setTransferConfig(transferConfig());
+		return archiveService;
+	}
+
+	/**
+	 * Transfer config of one megabyte parts.
+	 *
+	 * @return the transfer config
+	 */
+	private static TransferConfig transferConfig() {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(4);
+		transferConfig.setPollIntervals(50, 400);
+		return transferConfig;
+	}
+
+	/**
+	 * New file.
+	 *
+	 * @param name the name
+	 * @param content the content
+	 * @return the file
+	 * @throws Exception the exception
+	 */
+	private File newFile(final String name, final byte[] content) throws Exception {
+		final File file = tempFolder.newFile(name);
+		FileUtils.writeByteArrayToFile(file, content);
+		return file;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.util.BinaryUtils;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.ArchivePacker;
+import com.github.abhinavmishra14.aws.glacier.transfer.ContainerIndex;
+import com.github.abhinavmishra14.aws.glacier.transfer.ContainerIndex.PackedFile;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class ArchivePackerTest.
+ */
+public class ArchivePackerTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The archive service. */
+	private GlacierArchiveServiceImpl archiveService;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setFileConcurrency(2);
+		transferConfig.setContainerSize(ONE_MB);
+		transferConfig.setPackThreshold(ONE_MB / 2);
+		archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+	}
+
+	/**
+	 * Test small files are packed into containers and large files are archived alone.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testPackDirectory() throws Exception {
+		final File directory = tempFolder.newFolder("tree");
+		final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (int index = 0; index < 40; index++) {
+			final String relativePath = "dir" + index % 4 + "/file" + index + ".dat";
+			contents.put(relativePath, writeFile(directory, relativePath, 100 * 1024 + index));
+		}
+		contents.put("large1.dat", writeFile(directory, "large1.dat", (int) (2 * ONE_MB)));
+		contents.put("large2.dat", writeFile(directory, "large2.dat", (int) ONE_MB));
+		final File indexDirectory = new File(tempFolder.getRoot(), "indexes");
+		final DirectoryArchiveResult result = archiveService.archivePacked(VAULT_NAME, directory, indexDirectory);
+
+		assertFalse(result.hasFailures());
+		assertEquals(contents.size(), result.getArchiveIds().size());
+		final File[] indexFiles = indexDirectory.listFiles();
+		assertEquals(4, indexFiles.length);
+		final Set<String> packedPaths = new HashSet<String>();
+		for (final File indexFile : indexFiles) {
+			final ContainerIndex index = ContainerIndex.readFrom(indexFile);
+			final byte[] container = glacier.getArchive(index.getArchiveId());
+			assertEquals(container.length, index.getArchiveSize());
+			assertEquals(index.getDescription(), glacier.getArchiveDescription(index.getArchiveId()));
+			for (final PackedFile entry : index.getEntries()) {
+				final byte[] content = contents.get(entry.getPath());
+				assertArrayEquals(content, slice(container, entry.getOffset(), entry.getLength()));
+				assertEquals(BinaryUtils.toHex(MessageDigest.getInstance("SHA-256").digest(content)),
+						entry.getSha256());
+				assertEquals(index.getArchiveId(), result.getArchiveIds().get(new File(directory, entry.getPath())));
+				packedPaths.add(entry.getPath());
+			}
+		}
+		assertEquals(40, packedPaths.size());
+		assertArrayEquals(contents.get("large1.dat"),
+				glacier.getArchive(result.getArchiveIds().get(new File(directory, "large1.dat"))));
+	}
+
+	/**
+	 * Test a packed file can be cut out of a ranged retrieval, and the index can be read back from the container.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRangedRetrievalOfPackedFile() throws Exception {
+		final File directory = tempFolder.newFolder("ranged");
+		writeFile(directory, "a.dat", 300 * 1024);
+		writeFile(directory, "b.dat", 300 * 1024);
+		writeFile(directory, "c.dat", 300 * 1024);
+		final byte[] content = writeFile(directory, "d.dat", 300 * 1024);
+		final List<File> indexFiles = new ArchivePacker(archiveService, archiveService.getTransferConfig()).pack(
+				VAULT_NAME, directory, new File(tempFolder.getRoot(), "indexes"), new DirectoryArchiveResult());
+		assertEquals(1, indexFiles.size());
+		final ContainerIndex index = ContainerIndex.readFrom(indexFiles.get(0));
+		final byte[] container = glacier.getArchive(index.getArchiveId());
+
+		final PackedFile entry = index.find("d.dat");
+		assertNotNull(entry);
+		final String[] range = entry.getRetrievalByteRange(index.getArchiveSize()).split("-");
+		final long rangeStart = Long.parseLong(range[0]);
+		final long rangeEnd = Long.parseLong(range[1]);
+		assertEquals(0, rangeStart % ONE_MB);
+		assertTrue((rangeEnd + 1) % ONE_MB == 0 || rangeEnd == container.length - 1);
+		final byte[] retrieved = slice(container, rangeStart, rangeEnd - rangeStart + 1);
+		assertArrayEquals(content, slice(retrieved, entry.getOffsetInRange(), entry.getLength()));
+
+		final byte[] footer = slice(container, container.length - ContainerIndex.FOOTER_LENGTH,
+				ContainerIndex.FOOTER_LENGTH);
+		final long indexLength = ContainerIndex.readIndexLength(footer);
+		final ContainerIndex embedded = ContainerIndex.readFrom(new ByteArrayInputStream(slice(container,
+				container.length - ContainerIndex.FOOTER_LENGTH - indexLength, indexLength)));
+		assertEquals(index.getEntries().size(), embedded.getEntries().size());
+		assertEquals(entry.getOffset(), embedded.find("d.dat").getOffset());
+	}
+
+	/**
+	 * Test a file which fails while it is read is reported like one which can not be opened, and does not fail
+	 * the other files of its container. Reading /proc/self/mem from its start fails on Linux.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFileFailingWhileReadIsLeftOut() throws Exception {
+		final File unreadable = new File("/proc/self/mem");
+		assumeTrue(unreadable.isFile());
+		final File directory = tempFolder.newFolder("failing");
+		final File broken = new File(directory, "broken.dat");
+		Files.createSymbolicLink(broken.toPath(), unreadable.toPath());
+		final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (int index = 0; index < 10; index++) {
+			contents.put("file" + index + ".dat", writeFile(directory, "file" + index + ".dat", 10 * 1024 + index));
+		}
+		archiveService.getTransferConfig().getTraversalOptions().setFollowLinks(true);
+		final DirectoryArchiveResult result = new DirectoryArchiveResult();
+		final List<File> indexFiles = new ArchivePacker(archiveService, archiveService.getTransferConfig()).pack(
+				VAULT_NAME, directory, new File(tempFolder.getRoot(), "indexes"), result);
+
+		assertEquals(1, indexFiles.size());
+		assertEquals(Collections.singleton(broken), result.getFailures().keySet());
+		assertEquals(contents.size(), result.getArchiveIds().size());
+		final ContainerIndex index = ContainerIndex.readFrom(indexFiles.get(0));
+		final byte[] container = glacier.getArchive(index.getArchiveId());
+		assertEquals(contents.size(), index.getEntries().size());
+		assertNull(index.find("broken.dat"));
+		for (final PackedFile entry : index.getEntries()) {
+			assertArrayEquals(contents.get(entry.getPath()), slice(container, entry.getOffset(), entry.getLength()));
+		}
+	}
+
+	/**
+	 * Slice.
+	 *
+	 * @param bytes the bytes
+	 * @param offset the offset
+	 * @param length the length
+	 * @return the byte[]
+	 */
+	private static byte[] slice(final byte[] bytes, final long offset, final long length) {
+		return Arrays.copyOfRange(bytes, (int) offset, (int) (offset + length));
+	}
+
+	/**
+	 * Write file.
+	 *
+	 * @param directory the directory
+	 * @param relativePath the relative path
+	 * @param length the length
+	 * @return the content written
+	 * @throws Exception the exception
+	 */
+	private static byte[] writeFile(final File directory, final String relativePath, final int length)
+			throws Exception {
+		final byte[] content = new byte[length];
+		new Random(length).nextBytes(content);
+		FileUtils.writeByteArrayToFile(new File(directory, relativePath), content);
+		return content;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.DirectoryArchiver;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class DirectoryArchiverTest.
+ */
+public class DirectoryArchiverTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(4);
+		transferConfig.setFileConcurrency(4);
+		transferConfig.setMaxConcurrentRequests(3);
+		transferConfig.setTraversalQueueSize(2);
+	}
+
+	/**
+	 * Test every file of the tree is archived.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testArchiveDirectory() throws Exception {
+		final File directory = tempFolder.newFolder("tree");
+		final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (int index = 0; index < 30; index++) {
+			final String relativePath = "level" + index % 3 + "/sub" + index % 2 + "/file" + index + ".dat";
+			contents.put(relativePath, writeFile(directory, relativePath, index % 10 == 0 ? (int) (2 * ONE_MB + index)
+					: 100 + index));
+		}
+		glacier.setPartLatencyMillis(10);
+		final DirectoryArchiveResult result = new DirectoryArchiver(glacier.client(), transferConfig).archive(
+				VAULT_NAME, directory);
+		assertFalse(result.hasFailures());
+		assertEquals(contents.size(), result.getArchiveIds().size());
+		for (final Map.Entry<File, String> archived : result.getArchiveIds().entrySet()) {
+			final String description = glacier.getArchiveDescription(archived.getValue());
+			assertArrayEquals(contents.get(description), glacier.getArchive(archived.getValue()));
+			assertEquals(new File(directory, description), archived.getKey());
+		}
+		assertTrue(glacier.getMaxInFlightParts() <= 3);
+	}
+
+	/**
+	 * Test failed files are reported and do not stop the others.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFailedFilesAreReported() throws Exception {
+		final File directory = tempFolder.newFolder("failing");
+		writeFile(directory, "small.dat", 10);
+		writeFile(directory, "large.dat", (int) (3 * ONE_MB));
+		glacier.failNextParts(Integer.MAX_VALUE);
+		final DirectoryArchiveResult result = new DirectoryArchiver(glacier.client(), transferConfig).archive(
+				VAULT_NAME, directory);
+		assertEquals(1, result.getArchiveIds().size());
+		assertTrue(result.getArchiveIds().containsKey(new File(directory, "small.dat")));
+		assertTrue(result.getFailures().containsKey(new File(directory, "large.dat")));
+	}
+
+	/**
+	 * Write file.
+	 *
+	 * @param directory the directory
+	 * @param relativePath the relative path
+	 * @param length the length
+	 * @return the content written
+	 * @throws Exception the exception
+	 */
+	private static byte[] writeFile(final File directory, final String relativePath, final int length)
+			throws Exception {
+		final byte[] content = new byte[length];
+		new Random(length).nextBytes(content);
+		FileUtils.writeByteArrayToFile(new File(directory, relativePath), content);
+		return content;
+	}
+}
@@ -0,0 +1,746 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.CreateVaultRequest;
+import com.amazonaws.services.glacier.model.CreateVaultResult;
+import com.amazonaws.services.glacier.model.DeleteArchiveRequest;
+import com.amazonaws.services.glacier.model.DeleteVaultRequest;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.DescribeVaultOutput;
+import com.amazonaws.services.glacier.model.DescribeVaultRequest;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.GlacierJobDescription;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.InitiateJobResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.glacier.model.JobParameters;
+import com.amazonaws.services.glacier.model.ListJobsRequest;
+import com.amazonaws.services.glacier.model.ListJobsResult;
+import com.amazonaws.services.glacier.model.ListPartsRequest;
+import com.amazonaws.services.glacier.model.ListPartsResult;
+import com.amazonaws.services.glacier.model.ListVaultsRequest;
+import com.amazonaws.services.glacier.model.ListVaultsResult;
+import com.amazonaws.services.glacier.model.PartListElement;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.amazonaws.services.glacier.model.StatusCode;
+import com.amazonaws.services.glacier.model.UploadArchiveRequest;
+import com.amazonaws.services.glacier.model.UploadArchiveResult;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartResult;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierException;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Archive;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Job;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.JobOutput;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Page;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Part;
+import com.github.abhinavmishra14.aws.glacier.testing.FakeGlacierStore.Vault;
+
+/**
+ * The Class InMemoryGlacier.<br/>
+ * A local stand-in for the glacier endpoint, which calls the operations of a {@link FakeGlacierStore} in-process,
+ * the same store served over HTTP by the fake glacier server, and adds the counters and the failures injected by
+ * the tests. Vaults are created on the first upload to them. Operations which are not simulated fail with
+ * {@link UnsupportedOperationException}.
+ */
+public class InMemoryGlacier implements InvocationHandler {
+
+	/** The Constant JOB_PAGE_SIZE. */
+	private static final int JOB_PAGE_SIZE = 50;
+
+	/** The Constant PART_PAGE_SIZE. */
+	private static final int PART_PAGE_SIZE = 50;
+
+	/** The Constant VAULT_PAGE_SIZE. */
+	private static final int VAULT_PAGE_SIZE = 10;
+
+	/** The store. */
+	private final FakeGlacierStore store;
+
+	/** The part requests. */
+	private final AtomicInteger partRequests = new AtomicInteger();
+
+	/** The in flight part requests. */
+	private final AtomicInteger inFlightParts = new AtomicInteger();
+
+	/** The max in flight part requests observed. */
+	private final AtomicInteger maxInFlightParts = new AtomicInteger();
+
+	/** The aborted uploads. */
+	private final AtomicInteger abortedUploads = new AtomicInteger();
+
+	/** The part failures left to inject. */
+	private final AtomicInteger partFailures = new AtomicInteger();
+
+	/** The successful part uploads left before every part fails, negative if parts do not fail. */
+	private final AtomicInteger partsBeforeFailure = new AtomicInteger(-1);
+
+	/** The part latency in millis. */
+	private volatile long partLatencyMillis;
+
+	/** The job status requests, list jobs and describe job. */
+	private final AtomicInteger jobStatusRequests = new AtomicInteger();
+
+	/** The longest time a retrieval job takes to complete, each job takes a random time up to it. */
+	private volatile long jobCompletionMillis;
+
+	/** The job output requests. */
+	private final AtomicInteger jobOutputRequests = new AtomicInteger();
+
+	/** The job output ranges left to corrupt. */
+	private final AtomicInteger outputCorruptions = new AtomicInteger();
+
+	/** The vault requests, list vaults and describe vault. */
+	private final AtomicInteger vaultRequests = new AtomicInteger();
+
+	/** The in flight vault requests. */
+	private final AtomicInteger inFlightVaultRequests = new AtomicInteger();
+
+	/** The max in flight vault requests observed. */
+	private final AtomicInteger maxInFlightVaultRequests = new AtomicInteger();
+
+	/** The vault request latency in millis. */
+	private volatile long vaultLatencyMillis;
+
+	/** The delete archive requests. */
+	private final AtomicInteger deleteRequests = new AtomicInteger();
+
+	/** The delete archive requests left to throttle. */
+	private final AtomicInteger deleteThrottles = new AtomicInteger();
+
+	/** The vault requests in flight above which requests are throttled, 0 for no limit. */
+	private volatile int vaultCapacity;
+
+	/** The throttled vault requests. */
+	private final AtomicInteger vaultThrottles = new AtomicInteger();
+
+	/**
+	 * The Constructor.
+	 */
+	public InMemoryGlacier() {
+		this(new FakeGlacierStore());
+	}
+
+	/**
+	 * The Constructor.
+	 *
+	 * @param store the store, which may be shared with a fake glacier server
+	 */
+	public InMemoryGlacier(final FakeGlacierStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Creates the client proxy backed by this stand-in.
+	 *
+	 * @return the amazon glacier
+	 */
+	public AmazonGlacier client() {
+		return (AmazonGlacier) Proxy.newProxyInstance(AmazonGlacier.class.getClassLoader(),
+				new Class<?>[] {AmazonGlacier.class}, this);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		final Object request = args == null || args.length == 0 ? null : args[0];
+		try {
+			if (request instanceof UploadArchiveRequest) {
+				return uploadArchive((UploadArchiveRequest) request);
+			} else if (request instanceof InitiateMultipartUploadRequest) {
+				return initiate((InitiateMultipartUploadRequest) request);
+			} else if (request instanceof UploadMultipartPartRequest) {
+				return uploadPart((UploadMultipartPartRequest) request);
+			} else if (request instanceof CompleteMultipartUploadRequest) {
+				return complete((CompleteMultipartUploadRequest) request);
+			} else if (request instanceof ListPartsRequest) {
+				return listParts((ListPartsRequest) request);
+			} else if (request instanceof AbortMultipartUploadRequest) {
+				final AbortMultipartUploadRequest abortRequest = (AbortMultipartUploadRequest) request;
+				abortedUploads.incrementAndGet();
+				store.abortMultipartUpload(abortRequest.getVaultName(), abortRequest.getUploadId());
+				return null;
+			} else if (request instanceof InitiateJobRequest) {
+				return initiateJob((InitiateJobRequest) request);
+			} else if (request instanceof ListJobsRequest) {
+				return listJobs((ListJobsRequest) request);
+			} else if (request instanceof DescribeJobRequest) {
+				jobStatusRequests.incrementAndGet();
+				final DescribeJobRequest describeRequest = (DescribeJobRequest) request;
+				return describe(store.getVault(describeRequest.getVaultName()),
+						store.getJob(describeRequest.getVaultName(), describeRequest.getJobId()));
+			} else if (request instanceof GetJobOutputRequest) {
+				return getJobOutput((GetJobOutputRequest) request);
+			} else if (request instanceof CreateVaultRequest) {
+				final String vaultName = ((CreateVaultRequest) request).getVaultName();
+				store.createVault(vaultName);
+				return new CreateVaultResult().withLocation("/" + FakeGlacierStore.ACCOUNT_ID + "/vaults/" + vaultName);
+			} else if (request instanceof DeleteArchiveRequest) {
+				final DeleteArchiveRequest deleteRequest = (DeleteArchiveRequest) request;
+				deleteRequests.incrementAndGet();
+				if (deleteThrottles.getAndDecrement() > 0) {
+					throw throttling();
+				}
+				store.deleteArchive(deleteRequest.getVaultName(), deleteRequest.getArchiveId());
+				return null;
+			} else if (request instanceof DeleteVaultRequest) {
+				store.deleteVault(((DeleteVaultRequest) request).getVaultName());
+				return null;
+			} else if (request instanceof ListVaultsRequest || request instanceof DescribeVaultRequest) {
+				return vaultRequest(request);
+			} else if ("shutdown".equals(method.getName())) {
+				return null;
+			}
+		} catch (FakeGlacierException storeEx) {
+			throw toServiceException(storeEx);
+		}
+		throw new UnsupportedOperationException(method.getName());
+	}
+
+	/**
+	 * Upload archive.
+	 *
+	 * @param request the request
+	 * @return the upload archive result
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private UploadArchiveResult uploadArchive(final UploadArchiveRequest request) throws IOException {
+		store.createVault(request.getVaultName());
+		final Archive archive = store.uploadArchive(request.getVaultName(), request.getArchiveDescription(),
+				readFully(request.getBody()), request.getChecksum());
+		return new UploadArchiveResult().withArchiveId(archive.getArchiveId()).withChecksum(archive.getTreeHash());
+	}
+
+	/**
+	 * Initiate.
+	 *
+	 * @param request the request
+	 * @return the initiate multipart upload result
+	 */
+	private InitiateMultipartUploadResult initiate(final InitiateMultipartUploadRequest request) {
+		store.createVault(request.getVaultName());
+		return new InitiateMultipartUploadResult().withUploadId(store.initiateMultipartUpload(request.getVaultName(),
+				Long.parseLong(request.getPartSize()), request.getArchiveDescription()).getUploadId());
+	}
+
+	/**
+	 * Upload part.
+	 *
+	 * @param request the request
+	 * @return the upload multipart part result
+	 * @throws Exception the exception
+	 */
+	private UploadMultipartPartResult uploadPart(final UploadMultipartPartRequest request) throws Exception {
+		partRequests.incrementAndGet();
+		final int inFlight = inFlightParts.incrementAndGet();
+		try {
+			int observed = maxInFlightParts.get();
+			while (inFlight > observed && !maxInFlightParts.compareAndSet(observed, inFlight)) {
+				observed = maxInFlightParts.get();
+			}
+			if (partLatencyMillis > 0) {
+				Thread.sleep(partLatencyMillis);
+			}
+			if (partFailures.getAndDecrement() > 0 || isFailingAfterParts()) {
+				final AmazonServiceException failure = new AmazonServiceException("Injected part failure");
+				failure.setStatusCode(500);
+				throw failure;
+			}
+			final Part part = store.uploadMultipartPart(request.getVaultName(), request.getUploadId(),
+					request.getRange(), readFully(request.getBody()), request.getChecksum());
+			return new UploadMultipartPartResult().withChecksum(part.getTreeHash());
+		} finally {
+			inFlightParts.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Checks if the part has to fail, because the configured number of parts were uploaded already.
+	 *
+	 * @return true, if part has to fail
+	 */
+	private boolean isFailingAfterParts() {
+		int partsLeft;
+		do {
+			partsLeft = partsBeforeFailure.get();
+			if (partsLeft <= 0) {
+				return partsLeft == 0;
+			}
+		} while (!partsBeforeFailure.compareAndSet(partsLeft, partsLeft - 1));
+		return false;
+	}
+
+	/**
+	 * List parts, in pages of {@link #PART_PAGE_SIZE} parts.
+	 *
+	 * @param request the request
+	 * @return the list parts result
+	 */
+	private ListPartsResult listParts(final ListPartsRequest request) {
+		final Page<Part> page = store.listParts(request.getVaultName(), request.getUploadId(), request.getMarker(),
+				request.getLimit() == null ? PART_PAGE_SIZE : Integer.parseInt(request.getLimit()));
+		final List<PartListElement> partList = new ArrayList<PartListElement>();
+		for (final Part part : page.getItems()) {
+			partList.add(new PartListElement().withRangeInBytes(part.getRangeInBytes())
+					.withSHA256TreeHash(part.getTreeHash()));
+		}
+		return new ListPartsResult().withMultipartUploadId(request.getUploadId()).withParts(partList)
+				.withMarker(page.getMarker());
+	}
+
+	/**
+	 * Complete.
+	 *
+	 * @param request the request
+	 * @return the complete multipart upload result
+	 */
+	private CompleteMultipartUploadResult complete(final CompleteMultipartUploadRequest request) {
+		final Archive archive = store.completeMultipartUpload(request.getVaultName(), request.getUploadId(),
+				Long.parseLong(request.getArchiveSize()), request.getChecksum());
+		return new CompleteMultipartUploadResult().withArchiveId(archive.getArchiveId())
+				.withChecksum(archive.getTreeHash());
+	}
+
+	/**
+	 * Initiate job, an archive retrieval job completes after a random delay.
+	 *
+	 * @param request the request
+	 * @return the initiate job result
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private InitiateJobResult initiateJob(final InitiateJobRequest request) throws IOException {
+		final JobParameters parameters = request.getJobParameters();
+		final Job job;
+		if ("inventory-retrieval".equals(parameters.getType())) {
+			store.createVault(request.getVaultName());
+			job = store.initiateInventoryJob(request.getVaultName(), parameters.getDescription(), 0);
+		} else {
+			final long delay = jobCompletionMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(jobCompletionMillis);
+			job = store.initiateArchiveJob(request.getVaultName(), parameters.getArchiveId(),
+					parameters.getRetrievalByteRange(), parameters.getDescription(), delay);
+		}
+		return new InitiateJobResult().withJobId(job.getJobId());
+	}
+
+	/**
+	 * List jobs, in pages of {@link #JOB_PAGE_SIZE} jobs.
+	 *
+	 * @param request the request
+	 * @return the list jobs result
+	 */
+	private ListJobsResult listJobs(final ListJobsRequest request) {
+		jobStatusRequests.incrementAndGet();
+		final Vault vault = store.getVault(request.getVaultName());
+		final Page<Job> page = store.listJobs(request.getVaultName(),
+				request.getCompleted() == null ? null : Boolean.valueOf(request.getCompleted()), request.getMarker(),
+				request.getLimit() == null ? JOB_PAGE_SIZE : Integer.parseInt(request.getLimit()));
+		final List<GlacierJobDescription> jobList = new ArrayList<GlacierJobDescription>();
+		for (final Job job : page.getItems()) {
+			final DescribeJobResult description = describe(vault, job);
+			jobList.add(new GlacierJobDescription().withJobId(description.getJobId())
+					.withArchiveId(description.getArchiveId()).withCompleted(description.getCompleted())
+					.withStatusCode(description.getStatusCode()).withVaultARN(description.getVaultARN())
+					.withArchiveSizeInBytes(description.getArchiveSizeInBytes())
+					.withInventorySizeInBytes(description.getInventorySizeInBytes())
+					.withJobDescription(description.getJobDescription())
+					.withRetrievalByteRange(description.getRetrievalByteRange())
+					.withSHA256TreeHash(description.getSHA256TreeHash()));
+		}
+		return new ListJobsResult().withJobList(jobList).withMarker(page.getMarker());
+	}
+
+	/**
+	 * Vault request, list vaults in pages of {@link #VAULT_PAGE_SIZE} vaults or describe vault.
+	 *
+	 * @param request the request
+	 * @return the list vaults or describe vault result
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private Object vaultRequest(final Object request) throws InterruptedException {
+		vaultRequests.incrementAndGet();
+		final int inFlight = inFlightVaultRequests.incrementAndGet();
+		try {
+			int maxInFlight;
+			while (inFlight > (maxInFlight = maxInFlightVaultRequests.get())
+					&& !maxInFlightVaultRequests.compareAndSet(maxInFlight, inFlight)) {
+				continue;
+			}
+			if (vaultCapacity > 0 && inFlight > vaultCapacity) {
+				vaultThrottles.incrementAndGet();
+				throw throttling();
+			}
+			if (vaultLatencyMillis > 0) {
+				Thread.sleep(vaultLatencyMillis);
+			}
+			if (request instanceof DescribeVaultRequest) {
+				final Vault vault = store.getVault(((DescribeVaultRequest) request).getVaultName());
+				return new DescribeVaultResult().withVaultName(vault.getVaultName()).withVaultARN(vault.getVaultArn())
+						.withCreationDate(vault.getCreationDate())
+						.withNumberOfArchives((long) vault.getNumberOfArchives())
+						.withSizeInBytes(vault.getSizeInBytes());
+			}
+			final ListVaultsRequest listRequest = (ListVaultsRequest) request;
+			final Page<Vault> page = store.listVaults(listRequest.getMarker(),
+					listRequest.getLimit() == null ? VAULT_PAGE_SIZE : Integer.parseInt(listRequest.getLimit()));
+			final List<DescribeVaultOutput> vaultList = new ArrayList<DescribeVaultOutput>();
+			for (final Vault vault : page.getItems()) {
+				vaultList.add(new DescribeVaultOutput().withVaultName(vault.getVaultName())
+						.withVaultARN(vault.getVaultArn()).withCreationDate(vault.getCreationDate())
+						.withNumberOfArchives((long) vault.getNumberOfArchives())
+						.withSizeInBytes(vault.getSizeInBytes()));
+			}
+			return new ListVaultsResult().withVaultList(vaultList).withMarker(page.getMarker());
+		} finally {
+			inFlightVaultRequests.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Creates a throttling error, as sent by the service.
+	 *
+	 * @return the amazon service exception
+	 */
+	private static AmazonServiceException throttling() {
+		final AmazonServiceException throttling = new AmazonServiceException("Injected throttling");
+		throttling.setErrorCode("ThrottlingException");
+		throttling.setStatusCode(400);
+		return throttling;
+	}
+
+	/**
+	 * Converts an error of the store to the exception the client throws for it.
+	 *
+	 * @param storeEx the store exception
+	 * @return the amazon service exception
+	 */
+	private static AmazonServiceException toServiceException(final FakeGlacierException storeEx) {
+		final AmazonServiceException serviceEx = storeEx.getStatusCode() == 404
+				? new ResourceNotFoundException(storeEx.getMessage())
+				: new AmazonServiceException(storeEx.getMessage());
+		serviceEx.setStatusCode(storeEx.getStatusCode());
+		serviceEx.setErrorCode(storeEx.getErrorCode());
+		serviceEx.setErrorType("Server".equals(storeEx.getErrorType()) ? ErrorType.Service : ErrorType.Client);
+		return serviceEx;
+	}
+
+	/**
+	 * Describe the job.
+	 *
+	 * @param vault the vault
+	 * @param job the job
+	 * @return the describe job result
+	 */
+	private static DescribeJobResult describe(final Vault vault, final Job job) {
+		final boolean completed = job.isCompleted();
+		final Archive archive = job.getArchive();
+		final DescribeJobResult description = new DescribeJobResult().withJobId(job.getJobId())
+				.withVaultARN(vault.getVaultArn()).withCreationDate(job.getCreationDate()).withCompleted(completed)
+				.withStatusCode(completed ? StatusCode.Succeeded : StatusCode.InProgress)
+				.withCompletionDate(completed ? job.getCompletionDate() : null)
+				.withJobDescription(job.getDescription()).withSHA256TreeHash(job.getTreeHash());
+		if (archive == null) {
+			return description.withAction("InventoryRetrieval").withInventorySizeInBytes((long) job.getOutputSize());
+		}
+		return description.withAction("ArchiveRetrieval").withArchiveId(archive.getArchiveId())
+				.withArchiveSizeInBytes((long) archive.getContent().length)
+				.withArchiveSHA256TreeHash(archive.getTreeHash()).withRetrievalByteRange(job.getByteRange());
+	}
+
+	/**
+	 * Gets the job output, the whole output or the requested range of it.
+	 *
+	 * @param request the request
+	 * @return the job output result
+	 */
+	private GetJobOutputResult getJobOutput(final GetJobOutputRequest request) {
+		final JobOutput jobOutput = store.getJobOutput(request.getVaultName(), request.getJobId(),
+				request.getRange());
+		jobOutputRequests.incrementAndGet();
+		byte[] output = jobOutput.getOutput();
+		int offset = jobOutput.getOffset();
+		if (outputCorruptions.getAndDecrement() > 0) {
+			output = Arrays.copyOfRange(output, offset, offset + jobOutput.getLength());
+			offset = 0;
+			output[output.length / 2]++;
+		}
+		final Archive archive = jobOutput.getJob().getArchive();
+		return new GetJobOutputResult().withBody(new ByteArrayInputStream(output, offset, jobOutput.getLength()))
+				.withChecksum(jobOutput.getTreeHash()).withContentRange(jobOutput.getContentRange())
+				.withStatus(jobOutput.getContentRange() == null ? 200 : 206)
+				.withArchiveDescription(archive == null ? null : archive.getDescription());
+	}
+
+	/**
+	 * Read fully.
+	 *
+	 * @param inputStream the input stream
+	 * @return the byte[]
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] readFully(final InputStream inputStream) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+		int bytesRead;
+		while ((bytesRead = inputStream.read(buffer)) != -1) {
+			content.write(buffer, 0, bytesRead);
+		}
+		return content.toByteArray();
+	}
+
+	/**
+	 * Gets the store.
+	 *
+	 * @return the store
+	 */
+	public FakeGlacierStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Gets the archive.
+	 *
+	 * @param archiveId the archive id
+	 * @return the archive
+	 */
+	public byte[] getArchive(final String archiveId) {
+		final Archive archive = store.findArchive(archiveId);
+		return archive == null ? null : archive.getContent();
+	}
+
+	/**
+	 * Gets the archive count.
+	 *
+	 * @return the number of archives in the vaults
+	 */
+	public int getArchiveCount() {
+		return store.getArchiveCount();
+	}
+
+	/**
+	 * Gets the archive description.
+	 *
+	 * @param archiveId the archive id
+	 * @return the archive description
+	 */
+	public String getArchiveDescription(final String archiveId) {
+		final Archive archive = store.findArchive(archiveId);
+		return archive == null ? null : archive.getDescription();
+	}
+
+	/**
+	 * Gets the part requests.
+	 *
+	 * @return the part requests
+	 */
+	public int getPartRequests() {
+		return partRequests.get();
+	}
+
+	/**
+	 * Gets the max in flight parts.
+	 *
+	 * @return the max in flight parts
+	 */
+	public int getMaxInFlightParts() {
+		return maxInFlightParts.get();
+	}
+
+	/**
+	 * Gets the aborted uploads.
+	 *
+	 * @return the aborted uploads
+	 */
+	public int getAbortedUploads() {
+		return abortedUploads.get();
+	}
+
+	/**
+	 * Fail the next part requests.
+	 *
+	 * @param count the count
+	 */
+	public void failNextParts(final int count) {
+		partFailures.set(count);
+	}
+
+	/**
+	 * Fail every part request once the given number of parts were uploaded, negative count
+	 * stops failing the parts.
+	 *
+	 * @param count the count
+	 */
+	public void failPartsAfter(final int count) {
+		partsBeforeFailure.set(count);
+	}
+
+	/**
+	 * Gets the open uploads.
+	 *
+	 * @return the number of uploads which are neither completed nor aborted
+	 */
+	public int getOpenUploads() {
+		return store.getUploadCount();
+	}
+
+	/**
+	 * Sets the part latency.
+	 *
+	 * @param partLatencyMillis the part latency millis
+	 */
+	public void setPartLatencyMillis(final long partLatencyMillis) {
+		this.partLatencyMillis = partLatencyMillis;
+	}
+
+	/**
+	 * Sets the job completion time.
+	 *
+	 * @param jobCompletionMillis the longest time a retrieval job takes to complete
+	 */
+	public void setJobCompletionMillis(final long jobCompletionMillis) {
+		this.jobCompletionMillis = jobCompletionMillis;
+	}
+
+	/**
+	 * Corrupt the next job output ranges, body is altered after its checksum is computed.
+	 *
+	 * @param count the count
+	 */
+	public void corruptNextOutputs(final int count) {
+		outputCorruptions.set(count);
+	}
+
+	/**
+	 * Gets the job output requests.
+	 *
+	 * @return the number of job output requests
+	 */
+	public int getJobOutputRequests() {
+		return jobOutputRequests.get();
+	}
+
+	/**
+	 * Gets the job status requests.
+	 *
+	 * @return the number of list jobs and describe job requests
+	 */
+	public int getJobStatusRequests() {
+		return jobStatusRequests.get();
+	}
+
+	/**
+	 * Sets the vault request latency.
+	 *
+	 * @param vaultLatencyMillis the latency of list vaults and describe vault requests in millis
+	 */
+	public void setVaultLatencyMillis(final long vaultLatencyMillis) {
+		this.vaultLatencyMillis = vaultLatencyMillis;
+	}
+
+	/**
+	 * Gets the vault requests.
+	 *
+	 * @return the number of list vaults and describe vault requests
+	 */
+	public int getVaultRequests() {
+		return vaultRequests.get();
+	}
+
+	/**
+	 * Gets the max in flight vault requests.
+	 *
+	 * @return the max number of list vaults and describe vault requests observed in flight
+	 */
+	public int getMaxInFlightVaultRequests() {
+		return maxInFlightVaultRequests.get();
+	}
+
+	/**
+	 * Sets the vault capacity.
+	 *
+	 * @param vaultCapacity the vault requests in flight above which requests are throttled, 0 for no limit
+	 */
+	public void setVaultCapacity(final int vaultCapacity) {
+		this.vaultCapacity = vaultCapacity;
+	}
+
+	/**
+	 * Gets the vault throttles.
+	 *
+	 * @return the number of throttled list vaults and describe vault requests
+	 */
+	public int getVaultThrottles() {
+		return vaultThrottles.get();
+	}
+
+	/**
+	 * Throttle the next delete archive requests.
+	 *
+	 * @param count the count
+	 */
+	public void throttleNextDeletes(final int count) {
+		deleteThrottles.set(count);
+	}
+
+	/**
+	 * Gets the delete requests.
+	 *
+	 * @return the number of delete archive requests, throttled ones included
+	 */
+	public int getDeleteRequests() {
+		return deleteRequests.get();
+	}
+
+
+	/**
+	 * Store an archive directly, without uploading it.
+	 *
+	 * @param vaultName the vault name, the vault is created if it does not exist
+	 * @param content the content
+	 * @return the archive id
+	 */
+	public String putArchive(final String vaultName, final byte[] content) {
+		store.createVault(vaultName);
+		return store.putArchive(vaultName, null, content).getArchiveId();
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierArchiveServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiveResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.IncrementalArchiver;
+import com.github.abhinavmishra14.aws.glacier.transfer.SnapshotEntry;
+import com.github.abhinavmishra14.aws.glacier.transfer.SnapshotReader;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class IncrementalArchiverTest.
+ */
+public class IncrementalArchiverTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/** The archive service. */
+	private GlacierArchiveServiceImpl archiveService;
+
+	/** The directory. */
+	private File directory;
+
+	/** The snapshot file. */
+	private File snapshotFile;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		glacier = new InMemoryGlacier();
+		transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setFileConcurrency(3);
+		archiveService = new GlacierArchiveServiceImpl(glacier.client());
+		archiveService.setTransferConfig(transferConfig);
+		directory = tempFolder.newFolder("data");
+		snapshotFile = new File(tempFolder.newFolder("snapshots"), "data.snapshot");
+	}
+
+	/**
+	 * Test only new and modified files are archived, deletions are reported.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testIncrementalRuns() throws Exception {
+		for (int index = 0; index < 20; index++) {
+			write("dir" + (index % 4) + "/file" + index + ".txt", "content " + index, 1000000L);
+		}
+		IncrementalArchiveResult result = archiveService.archiveIncremental(VAULT_NAME, directory, snapshotFile);
+		assertEquals(20, result.getArchiveIds().size());
+		assertEquals(0, result.getUnchangedCount());
+		assertFalse(result.hasFailures());
+		assertEquals(20, glacier.getArchiveCount());
+
+		result = archiveService.archiveIncremental(VAULT_NAME, directory, snapshotFile);
+		assertEquals(0, result.getArchiveIds().size());
+		assertEquals(20, result.getUnchangedCount());
+		assertEquals(20, glacier.getArchiveCount());
+
+		final String deletedArchiveId = readSnapshot().get("dir3/file7.txt").getArchiveId();
+		write("dir1/file5.txt", "modified content", 2000000L);
+		write("dir4/new.txt", "new file", 1000000L);
+		FileUtils.forceDelete(new File(directory, "dir3/file7.txt"));
+		result = archiveService.archiveIncremental(VAULT_NAME, directory, snapshotFile);
+		assertEquals(2, result.getArchiveIds().size());
+		assertTrue(result.getArchiveIds().containsKey(new File(directory, "dir1/file5.txt")));
+		assertTrue(result.getArchiveIds().containsKey(new File(directory, "dir4/new.txt")));
+		assertEquals(18, result.getUnchangedCount());
+		assertEquals(1, result.getDeletedFiles().size());
+		assertEquals(deletedArchiveId, result.getDeletedFiles().get("dir3/file7.txt"));
+
+		final Map<String, SnapshotEntry> snapshot = readSnapshot();
+		assertEquals(20, snapshot.size());
+		final SnapshotEntry modified = snapshot.get("dir1/file5.txt");
+		assertEquals(2000000L, modified.getLastModified());
+		assertArrayEquals("modified content".getBytes("UTF-8"), glacier.getArchive(modified.getArchiveId()));
+		assertEquals("dir4/new.txt", glacier.getArchiveDescription(snapshot.get("dir4/new.txt").getArchiveId()));
+		assertNull(snapshot.get("dir3/file7.txt"));
+	}
+
+	/**
+	 * Test large trees sorted in several runs, parallel traversal, and files which fail to upload being
+	 * archived again by the next run.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testSpilledSortAndFailedUploads() throws Exception {
+		for (int index = 0; index < 100; index++) {
+			write("a" + (index % 7) + "/b" + (index % 3) + "/file" + index, "content " + index, 1000000L);
+		}
+		final File largeFile = new File(directory, "large.bin");
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(largeFile, "rw")) {
+			randomAccessFile.setLength(2 * ONE_MB);
+		}
+		transferConfig.getTraversalOptions().setParallelism(4);
+		final IncrementalArchiver archiver = new IncrementalArchiver(archiveService, transferConfig);
+		archiver.setSortBufferSize(7);
+		glacier.failNextParts(Integer.MAX_VALUE);
+		IncrementalArchiveResult result = archiver.archive(VAULT_NAME, directory, snapshotFile);
+		assertEquals(100, result.getArchiveIds().size());
+		assertTrue(result.getFailures().containsKey(largeFile));
+		assertEquals(100, readSnapshot().size());
+
+		glacier.failNextParts(0);
+		result = archiver.archive(VAULT_NAME, directory, snapshotFile);
+		assertEquals(1, result.getArchiveIds().size());
+		assertTrue(result.getArchiveIds().containsKey(largeFile));
+		assertEquals(100, result.getUnchangedCount());
+		assertEquals(101, readSnapshot().size());
+		assertEquals(1, snapshotFile.getParentFile().list().length);
+	}
+
+	/**
+	 * Test touched files are not archived again when hashes are compared.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTouchedFilesWithHashes() throws Exception {
+		write("touched.txt", "same content", 1000000L);
+		write("changed.txt", "old content", 1000000L);
+		final IncrementalArchiver archiver = new IncrementalArchiver(archiveService, transferConfig);
+		archiver.setCompareHashes(true);
+		archiver.setCompareFileKeys(true);
+		archiver.archive(VAULT_NAME, directory, snapshotFile);
+		write("touched.txt", "same content", 2000000L);
+		write("changed.txt", "new content", 2000000L);
+		final IncrementalArchiveResult result = archiver.archive(VAULT_NAME, directory, snapshotFile);
+		assertEquals(1, result.getArchiveIds().size());
+		assertTrue(result.getArchiveIds().containsKey(new File(directory, "changed.txt")));
+		assertEquals(1, result.getUnchangedCount());
+		assertEquals(2000000L, readSnapshot().get("touched.txt").getLastModified());
+	}
+
+	/**
+	 * Test a truncated snapshot is detected instead of being taken for a smaller tree.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTruncatedSnapshot() throws Exception {
+		for (int index = 0; index < 10; index++) {
+			write("file" + index, "content " + index, 1000000L);
+		}
+		archiveService.archiveIncremental(VAULT_NAME, directory, snapshotFile);
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "rw")) {
+			randomAccessFile.setLength(randomAccessFile.length() - 8);
+		}
+		try {
+			readSnapshot();
+			fail("Truncated snapshot was read");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage().contains("Snapshot"));
+		}
+	}
+
+	/**
+	 * Write a file with the given content and last modified time.
+	 *
+	 * @param path the path
+	 * @param content the content
+	 * @param lastModified the last modified
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void write(final String path, final String content, final long lastModified) throws IOException {
+		final File file = new File(directory, path);
+		FileUtils.writeStringToFile(file, content, "UTF-8");
+		assertTrue(file.setLastModified(lastModified));
+	}
+
+	/**
+	 * Read the snapshot.
+	 *
+	 * @return the entries keyed by path, in order
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private Map<String, SnapshotEntry> readSnapshot() throws IOException {
+		final Map<String, SnapshotEntry> entries = new LinkedHashMap<String, SnapshotEntry>();
+		try (SnapshotReader reader = new SnapshotReader(snapshotFile)) {
+			SnapshotEntry entry;
+			while ((entry = reader.next()) != null) {
+				entries.put(entry.getPath(), entry);
+			}
+		}
+		return entries;
+	}
+}
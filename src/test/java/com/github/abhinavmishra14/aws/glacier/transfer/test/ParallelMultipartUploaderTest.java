@@ -0,0 +1,200 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.metrics.GlacierMetrics;
+import com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class ParallelMultipartUploaderTest.
+ */
+public class ParallelMultipartUploaderTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(4);
+	}
+
+	/**
+	 * Test multipart upload, parts are hashed while they are uploaded instead of hashing the file up front.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testMultipartUpload() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (10 * ONE_MB + 12345));
+		final File file = writeFile(content);
+		glacier.setPartLatencyMillis(50);
+		final GlacierMetrics metrics = GlacierMetrics.getInstance();
+		final long hashedFiles = metrics.getOperation(GlacierMetrics.HASH_FILE).getCount();
+		final long hashedBytes = metrics.getOperation(GlacierMetrics.HASH_PART).getBytes();
+		final UploadResult result = new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME,
+				"test upload", file);
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals("test upload", glacier.getArchiveDescription(result.getArchiveId()));
+		assertEquals(11, glacier.getPartRequests());
+		assertTrue(glacier.getMaxInFlightParts() > 1);
+		assertTrue(glacier.getMaxInFlightParts() <= 4);
+		assertEquals(hashedFiles, metrics.getOperation(GlacierMetrics.HASH_FILE).getCount());
+		assertEquals(content.length, metrics.getOperation(GlacierMetrics.HASH_PART).getBytes() - hashedBytes);
+	}
+
+	/**
+	 * Test small file is uploaded in single request.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testSmallFileSingleRequest() throws Exception {
+		final byte[] content = TestData.randomBytes(100);
+		final UploadResult result = new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME,
+				"small", writeFile(content));
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(0, glacier.getPartRequests());
+	}
+
+	/**
+	 * Test failed part aborts upload.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFailedPartAbortsUpload() throws Exception {
+		final File file = writeFile(TestData.randomBytes((int) (3 * ONE_MB)));
+		glacier.failNextParts(Integer.MAX_VALUE);
+		try {
+			new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME, "fail", file);
+			fail("Upload should have failed");
+		} catch (AmazonServiceException expected) {
+			assertEquals(1, glacier.getAbortedUploads());
+		}
+	}
+
+	/**
+	 * Test stream upload.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testStreamUpload() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (5 * ONE_MB + 999));
+		transferConfig.setMaxPartsInFlight(2);
+		glacier.setPartLatencyMillis(20);
+		final UploadResult result = new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME,
+				"stream upload", new ByteArrayInputStream(content));
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(6, glacier.getPartRequests());
+		assertTrue(glacier.getMaxInFlightParts() <= 2);
+	}
+
+	/**
+	 * Test stream upload ending at part boundary.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testStreamUploadEndingAtPartBoundary() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (3 * ONE_MB));
+		final UploadResult result = new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME,
+				"stream upload", new ByteArrayInputStream(content));
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(3, glacier.getPartRequests());
+	}
+
+	/**
+	 * Test small stream is uploaded in single request.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testSmallStreamSingleRequest() throws Exception {
+		final byte[] content = TestData.randomBytes(4096);
+		final UploadResult result = new ParallelMultipartUploader(glacier.client(), transferConfig).upload(VAULT_NAME,
+				"small stream", new ByteArrayInputStream(content));
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(0, glacier.getPartRequests());
+	}
+
+	/**
+	 * Test calculate part size.
+	 */
+	@Test
+	public void testCalculatePartSize() {
+		assertEquals(ONE_MB, TransferConfig.calculatePartSize(10000 * ONE_MB, ONE_MB));
+		assertEquals(2 * ONE_MB, TransferConfig.calculatePartSize(10000 * ONE_MB + 1, ONE_MB));
+		assertEquals(64 * ONE_MB, TransferConfig.calculatePartSize(ONE_MB, 64 * ONE_MB));
+	}
+
+	/**
+	 * Test invalid part size.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPartSize() {
+		transferConfig.setPartSize(3 * ONE_MB);
+	}
+
+	/**
+	 * Write file.
+	 *
+	 * @param content the content
+	 * @return the file
+	 * @throws Exception the exception
+	 */
+	private File writeFile(final byte[] content) throws Exception {
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		return file;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.model.InitiateJobRequest;
+import com.amazonaws.services.glacier.model.JobParameters;
+import com.github.abhinavmishra14.aws.glacier.transfer.ParallelRangeDownloader;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class ParallelRangeDownloaderTest.
+ */
+public class ParallelRangeDownloaderTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The downloader. */
+	private ParallelRangeDownloader downloader;
+
+	/** The content. */
+	private byte[] content;
+
+	/** The job id. */
+	private String jobId;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(4);
+		downloader = new ParallelRangeDownloader(glacier.client(), transferConfig);
+		content = new byte[(int) (10 * ONE_MB + 123)];
+		new Random(content.length).nextBytes(content);
+		final String archiveId = glacier.putArchive(VAULT_NAME, content);
+		jobId = glacier.client().initiateJob(new InitiateJobRequest().withVaultName(VAULT_NAME).withJobParameters(
+				new JobParameters().withType("archive-retrieval").withArchiveId(archiveId))).getJobId();
+	}
+
+	/**
+	 * Test output is downloaded in ranges.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testRangedDownload() throws Exception {
+		final File target = tempFolder.newFile();
+		downloader.download(VAULT_NAME, jobId, content.length, treeHash(content), target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertEquals(11, glacier.getJobOutputRequests());
+	}
+
+	/**
+	 * Test only the corrupted ranges are downloaded again.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testCorruptedRangesAreRetried() throws Exception {
+		final File target = tempFolder.newFile();
+		glacier.corruptNextOutputs(2);
+		downloader.download(VAULT_NAME, jobId, content.length, treeHash(content), target);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+		assertEquals(13, glacier.getJobOutputRequests());
+	}
+
+	/**
+	 * Test download fails when a range keeps failing.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testDownloadFailsAfterAttempts() throws Exception {
+		glacier.corruptNextOutputs(Integer.MAX_VALUE);
+		try {
+			downloader.download(VAULT_NAME, jobId, content.length, treeHash(content), tempFolder.newFile());
+			fail("Download should have failed");
+		} catch (AmazonClientException expected) {
+			// Every range is tried again, last attempt stops at the first failure
+			assertTrue(glacier.getJobOutputRequests() > 11 * (ParallelRangeDownloader.MAX_RANGE_ATTEMPTS - 1));
+			assertTrue(glacier.getJobOutputRequests() <= 11 * ParallelRangeDownloader.MAX_RANGE_ATTEMPTS);
+		}
+	}
+
+	/**
+	 * Tree hash.
+	 *
+	 * @param bytes the bytes
+	 * @return the tree hash
+	 */
+	private static String treeHash(final byte[] bytes) {
+		return TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(bytes));
+	}
+}
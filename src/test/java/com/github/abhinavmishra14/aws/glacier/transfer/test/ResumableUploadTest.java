@@ -0,0 +1,315 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.transfer.UploadResult;
+import com.github.abhinavmishra14.aws.glacier.transfer.ParallelMultipartUploader;
+import com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.glacier.transfer.UploadJournal;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class ResumableUploadTest.
+ */
+public class ResumableUploadTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The transfer config. */
+	private TransferConfig transferConfig;
+
+	/** The journal directory. */
+	private File journalDirectory;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		glacier = new InMemoryGlacier();
+		journalDirectory = tempFolder.newFolder("journal");
+		transferConfig = new TransferConfig();
+		transferConfig.setPartSize(ONE_MB);
+		transferConfig.setConcurrency(1);
+		transferConfig.setMaxPartsInFlight(1);
+		transferConfig.setJournalDirectory(journalDirectory);
+	}
+
+	/**
+	 * Test file upload is resumed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFileUploadIsResumed() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (6 * ONE_MB + 100));
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		glacier.failPartsAfter(3);
+		try {
+			newUploader().upload(VAULT_NAME, "resume", file);
+			fail("Upload should have failed");
+		} catch (AmazonServiceException expected) {
+			assertEquals(0, glacier.getAbortedUploads());
+			assertEquals(1, journalDirectory.list().length);
+		}
+		glacier.failPartsAfter(-1);
+		final int partRequests = glacier.getPartRequests();
+		final UploadResult result = newUploader().upload(VAULT_NAME, "resume", file);
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(4, glacier.getPartRequests() - partRequests);
+		assertEquals(0, journalDirectory.list().length);
+	}
+
+	/**
+	 * Test modified file starts over.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testModifiedFileStartsOver() throws Exception {
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, TestData.randomBytes((int) (4 * ONE_MB)));
+		glacier.failPartsAfter(2);
+		try {
+			newUploader().upload(VAULT_NAME, "modified", file);
+			fail("Upload should have failed");
+		} catch (AmazonServiceException expected) {
+			glacier.failPartsAfter(-1);
+		}
+		final byte[] content = TestData.randomBytes((int) (5 * ONE_MB));
+		FileUtils.writeByteArrayToFile(file, content);
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+		final UploadResult result = newUploader().upload(VAULT_NAME, "modified", file);
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(1, glacier.getAbortedUploads());
+		assertEquals(0, glacier.getOpenUploads());
+	}
+
+	/**
+	 * Test stream upload is resumed, stream is read again but parts are not uploaded again.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testStreamUploadIsResumed() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (5 * ONE_MB + 10));
+		glacier.failPartsAfter(2);
+		try {
+			newUploader().upload(VAULT_NAME, "stream", new ByteArrayInputStream(content), "stream-key");
+			fail("Upload should have failed");
+		} catch (AmazonServiceException expected) {
+			glacier.failPartsAfter(-1);
+		}
+		final int partRequests = glacier.getPartRequests();
+		final UploadResult result = newUploader().upload(VAULT_NAME, "stream", new ByteArrayInputStream(content),
+				"stream-key");
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(4, glacier.getPartRequests() - partRequests);
+	}
+
+	/**
+	 * Test seekable upload is resumed without reading uploaded parts.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testSeekableUploadIsResumed() throws Exception {
+		final ByteArraySource source = new ByteArraySource(TestData.randomBytes((int) (4 * ONE_MB)));
+		glacier.failPartsAfter(3);
+		try {
+			newUploader().upload(VAULT_NAME, "seekable", source);
+			fail("Upload should have failed");
+		} catch (AmazonServiceException expected) {
+			glacier.failPartsAfter(-1);
+		}
+		source.openedPositions.clear();
+		final UploadResult result = newUploader().upload(VAULT_NAME, "seekable", source);
+		assertArrayEquals(source.content, glacier.getArchive(result.getArchiveId()));
+		assertEquals(1, source.openedPositions.size());
+		assertEquals(Long.valueOf(3 * ONE_MB), source.openedPositions.get(0));
+	}
+
+	/**
+	 * Test upload whose thread is interrupted, without being cancelled, keeps its journal and is resumed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testInterruptedUploadIsResumed() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (8 * ONE_MB));
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		glacier.setPartLatencyMillis(100);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		final Thread uploadThread = new Thread(() -> {
+			try {
+				newUploader().upload(VAULT_NAME, "interrupted", file);
+			} catch (Exception ex) {
+				failure.set(ex);
+			}
+		});
+		uploadThread.start();
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (glacier.getPartRequests() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		uploadThread.interrupt();
+		uploadThread.join(10000);
+		assertTrue(failure.get() instanceof AmazonClientException);
+		assertEquals(0, glacier.getAbortedUploads());
+		assertEquals(1, glacier.getOpenUploads());
+		assertEquals(1, journalDirectory.list().length);
+
+		glacier.setPartLatencyMillis(0);
+		final int partRequests = glacier.getPartRequests();
+		final UploadResult result = newUploader().upload(VAULT_NAME, "interrupted", file);
+		assertArrayEquals(content, glacier.getArchive(result.getArchiveId()));
+		assertTrue(glacier.getPartRequests() - partRequests < 8);
+		assertEquals(0, glacier.getOpenUploads());
+		assertEquals(0, journalDirectory.list().length);
+	}
+
+	/**
+	 * Test journal ignores a torn record.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testJournalIgnoresTornRecord() throws Exception {
+		final File journalFile = new File(journalDirectory, "torn.journal");
+		final byte[] partHash = TreeHash.hash(new byte[10], 0, 10);
+		try (UploadJournal journal = UploadJournal.open(journalFile)) {
+			journal.start(VAULT_NAME, "upload id", ONE_MB, "source identity");
+			journal.recordPart(0, ONE_MB, partHash);
+		}
+		try (FileOutputStream journalStream = new FileOutputStream(journalFile, true)) {
+			journalStream.write("part 1048576 1048576 abc".getBytes("UTF-8"));
+		}
+		try (UploadJournal journal = UploadJournal.open(journalFile)) {
+			assertTrue(journal.matches(VAULT_NAME, ONE_MB, "source identity"));
+			assertFalse(journal.matches(VAULT_NAME, 2 * ONE_MB, "source identity"));
+			assertEquals("upload id", journal.getUploadId());
+			assertEquals(1, journal.getCompletedParts().size());
+			assertArrayEquals(partHash, journal.getCompletedParts().get(0L).getTreeHash());
+			journal.recordPart(ONE_MB, ONE_MB, partHash);
+		}
+		try (UploadJournal journal = UploadJournal.open(journalFile)) {
+			assertEquals(2, journal.getCompletedParts().size());
+		}
+	}
+
+	/**
+	 * New uploader.
+	 *
+	 * @return the parallel multipart uploader
+	 */
+	private ParallelMultipartUploader newUploader() {
+		return new ParallelMultipartUploader(glacier.client(), transferConfig);
+	}
+
+	/**
+	 * The Class ByteArraySource.<br/>
+	 * Seekable source over a byte array which records the positions it was opened at.
+	 */
+	private static final class ByteArraySource implements SeekableSource {
+
+		/** The content. */
+		private final byte[] content;
+
+		/** The opened positions. */
+		private final List<Long> openedPositions = new ArrayList<Long>();
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param content the content
+		 */
+		ByteArraySource(final byte[] content) {
+			this.content = content;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource#getKey()
+		 */
+		@Override
+		public String getKey() {
+			return "byte-array";
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource#getIdentity()
+		 */
+		@Override
+		public String getIdentity() {
+			return "byte-array|" + content.length;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource#getLength()
+		 */
+		@Override
+		public long getLength() {
+			return content.length;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.github.abhinavmishra14.aws.glacier.transfer.SeekableSource#openStream(long)
+		 */
+		@Override
+		public InputStream openStream(final long position) throws IOException {
+			openedPositions.add(position);
+			return new ByteArrayInputStream(content, (int) position, content.length - (int) position);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierRetrievalServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.RetrievalJob;
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+
+/**
+ * The Class RetrievalJobTrackerTest.
+ */
+public class RetrievalJobTrackerTest {
+
+	/** The Constant VAULT_NAME. */
+	private static final String VAULT_NAME = "testVault";
+
+	/** The Constant DOWNLOAD_THREADS. */
+	private static final int DOWNLOAD_THREADS = 4;
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The retrieval service. */
+	private GlacierRetrievalServiceImpl retrievalService;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		retrievalService = newRetrievalService();
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@After
+	public void tearDown() {
+		retrievalService.shutdown();
+	}
+
+	/**
+	 * Test hundreds of jobs are tracked with a constant number of threads.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testManyJobsWithConstantThreads() throws Exception {
+		glacier.setJobCompletionMillis(500);
+		final int jobCount = 200;
+		final List<byte[]> contents = new ArrayList<byte[]>();
+		final List<RetrievalJob> retrievalJobs = new ArrayList<RetrievalJob>();
+		for (int index = 0; index < jobCount; index++) {
+			final byte[] content = TestData.randomBytes(1000 + index);
+			contents.add(content);
+			retrievalJobs.add(retrievalService.retrieveArchive(VAULT_NAME, glacier.putArchive(VAULT_NAME, content),
+					new File(tempFolder.getRoot(), "restored/" + index + ".dat")));
+		}
+		assertTrue(countTrackerThreads() <= 1 + DOWNLOAD_THREADS);
+		for (int index = 0; index < jobCount; index++) {
+			final File restored = retrievalJobs.get(index).get(30, TimeUnit.SECONDS);
+			assertArrayEquals(contents.get(index), FileUtils.readFileToByteArray(restored));
+		}
+		assertTrue(countTrackerThreads() <= 1 + DOWNLOAD_THREADS);
+		// Polling every job on its own would take at least one request per job
+		assertTrue("Status requests: " + glacier.getJobStatusRequests(), glacier.getJobStatusRequests() < jobCount);
+	}
+
+	/**
+	 * Test a ranged retrieval, tracked again by its job id.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testTrackRangedRetrievalById() throws Exception {
+		final byte[] content = TestData.randomBytes((int) (2 * ONE_MB + 100));
+		final RetrievalJob startedJob = retrievalService.retrieveArchive(VAULT_NAME,
+				glacier.putArchive(VAULT_NAME, content), ONE_MB + "-" + (2 * ONE_MB - 1), null);
+		assertNull(startedJob.get(10, TimeUnit.SECONDS));
+		retrievalService.shutdown();
+
+		retrievalService = newRetrievalService();
+		final File target = new File(tempFolder.getRoot(), "range.dat");
+		final RetrievalJob trackedJob = retrievalService.trackJob(VAULT_NAME, startedJob.getJobId(), target);
+		assertEquals(target, trackedJob.get(10, TimeUnit.SECONDS));
+		assertArrayEquals(Arrays.copyOfRange(content, (int) ONE_MB, (int) (2 * ONE_MB)),
+				FileUtils.readFileToByteArray(target));
+	}
+
+	/**
+	 * Test shutdown cancels the outstanding jobs.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testShutdownCancelsOutstandingJobs() throws Exception {
+		glacier.setJobCompletionMillis(TimeUnit.HOURS.toMillis(1) + 1);
+		final RetrievalJob retrievalJob = retrievalService.retrieveArchive(VAULT_NAME,
+				glacier.putArchive(VAULT_NAME, TestData.randomBytes(10)), new File(tempFolder.getRoot(), "never.dat"));
+		retrievalService.shutdown();
+		assertTrue(retrievalJob.isCancelled());
+	}
+
+	/**
+	 * Test a job whose output can not be decoded fails, and its partial file is deleted.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testDecodingFailureFailsJob() throws Exception {
+		glacier.getStore().createVault(VAULT_NAME);
+		final String archiveId = glacier.getStore().putArchive(VAULT_NAME, "[codec=gzip;block=0]",
+				TestData.randomBytes(1000)).getArchiveId();
+		final File target = new File(tempFolder.getRoot(), "undecodable.dat");
+		final RetrievalJob retrievalJob = retrievalService.retrieveArchive(VAULT_NAME, archiveId, target);
+		try {
+			retrievalJob.get(10, TimeUnit.SECONDS);
+			fail("Output which can not be decoded was retrieved");
+		} catch (ExecutionException execEx) {
+			assertTrue(execEx.getCause() instanceof IllegalArgumentException);
+		}
+		assertFalse(target.exists());
+		assertFalse(new File(target.getPath() + ".part").exists());
+	}
+
+	/**
+	 * New retrieval service, polling quickly.
+	 *
+	 * @return the glacier retrieval service impl
+	 */
+	private GlacierRetrievalServiceImpl newRetrievalService() {
+		final TransferConfig transferConfig = new TransferConfig();
+		transferConfig.setFileConcurrency(DOWNLOAD_THREADS);
+		transferConfig.setPollIntervals(50, 400);
+		final GlacierRetrievalServiceImpl service = new GlacierRetrievalServiceImpl(glacier.client());
+		service.setTransferConfig(transferConfig);
+		return service;
+	}
+
+	/**
+	 * Count the threads of the job tracker.
+	 *
+	 * @return the number of live tracker threads
+	 */
+	private static int countTrackerThreads() {
+		int trackerThreads = 0;
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("glacier-job-")) {
+				trackerThreads++;
+			}
+		}
+		return trackerThreads;
+	}
+}
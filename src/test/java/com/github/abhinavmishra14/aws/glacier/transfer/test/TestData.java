@@ -0,0 +1,47 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.transfer.test;
+
+import java.util.Random;
+
+/**
+ * The Class TestData.<br/>
+ * Content shared by the tests. Random content is seeded with its length, so the same length always gives the
+ * same bytes.
+ */
+public final class TestData {
+
+	/**
+	 * The Constructor.
+	 */
+	private TestData() {
+		super();
+	}
+
+	/**
+	 * Random bytes.
+	 *
+	 * @param length the length
+	 * @return the byte[]
+	 */
+	public static byte[] randomBytes(final int length) {
+		final byte[] content = new byte[length];
+		new Random(length).nextBytes(content);
+		return content;
+	}
+}
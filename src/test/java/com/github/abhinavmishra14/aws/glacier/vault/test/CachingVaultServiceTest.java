@@ -0,0 +1,188 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.vault.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.amazonaws.services.glacier.model.ResourceNotFoundException;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+import com.github.abhinavmishra14.aws.glacier.vault.CachingVaultService;
+
+/**
+ * The Class CachingVaultServiceTest.
+ */
+public class CachingVaultServiceTest {
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The caching vault service. */
+	private CachingVaultService vaultService;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		vaultService = new CachingVaultService(new GlacierVaultServiceImpl(glacier.client()), 60000, 3);
+		for (int index = 0; index < 5; index++) {
+			vaultService.createVault("vault" + index);
+		}
+		executor = Executors.newFixedThreadPool(16);
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Test repeated calls are answered from the cache, least recently used entries are evicted.
+	 */
+	@Test
+	public void testHitsAndEviction() {
+		for (int round = 0; round < 10; round++) {
+			assertEquals("vault0", vaultService.getVaultDescription("vault0").getVaultName());
+			assertEquals(5, vaultService.listAllVaults().size());
+		}
+		assertEquals(2, glacier.getVaultRequests());
+		// Cache holds 3 entries: the list, vault0 and vault1, then vault2 evicts the list
+		vaultService.getVaultDescription("vault1");
+		vaultService.getVaultDescription("vault0");
+		vaultService.getVaultDescription("vault2");
+		assertEquals(4, glacier.getVaultRequests());
+		vaultService.getVaultDescription("vault0");
+		vaultService.listAllVaults();
+		assertEquals(5, glacier.getVaultRequests());
+		// Results are copies, changing them does not change the cache
+		vaultService.getVaultDescription("vault0").setVaultName("changed");
+		assertEquals("vault0", vaultService.getVaultDescription("vault0").getVaultName());
+	}
+
+	/**
+	 * Test entries expire after time to live.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testExpiry() throws Exception {
+		vaultService = new CachingVaultService(new GlacierVaultServiceImpl(glacier.client()), 100, 10);
+		vaultService.getVaultDescription("vault0");
+		vaultService.getVaultDescription("vault0");
+		assertEquals(1, glacier.getVaultRequests());
+		Thread.sleep(150);
+		vaultService.getVaultDescription("vault0");
+		assertEquals(2, glacier.getVaultRequests());
+	}
+
+	/**
+	 * Test concurrent calls for the same entry share a single request.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testCoalescing() throws Exception {
+		glacier.setVaultLatencyMillis(200);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<DescribeVaultResult>> futures = new ArrayList<Future<DescribeVaultResult>>();
+		for (int index = 0; index < 16; index++) {
+			futures.add(executor.submit(new Callable<DescribeVaultResult>() {
+				@Override
+				public DescribeVaultResult call() throws Exception {
+					start.await();
+					return vaultService.getVaultDescription("vault3");
+				}
+			}));
+		}
+		start.countDown();
+		for (final Future<DescribeVaultResult> future : futures) {
+			assertEquals("vault3", future.get().getVaultName());
+		}
+		assertEquals(1, glacier.getVaultRequests());
+		assertEquals(1, vaultService.getMissCount());
+		assertEquals(15, vaultService.getHitCount());
+	}
+
+	/**
+	 * Test changes made through the service invalidate the affected entries, failures are not cached.
+	 */
+	@Test
+	public void testInvalidation() {
+		final String archiveId = glacier.putArchive("vault4", new byte[] {1, 2, 3});
+		assertEquals(5, vaultService.listAllVaults().size());
+		vaultService.getVaultDescription("vault4");
+		vaultService.createVault("vault5");
+		assertEquals(6, vaultService.listAllVaults().size());
+		vaultService.deleteVault("vault5");
+		assertEquals(5, vaultService.listAllVaults().size());
+		vaultService.getVaultDescription("vault4");
+		assertEquals(4, glacier.getVaultRequests());
+		vaultService.deleteArchivedObject("vault4", archiveId);
+		vaultService.getVaultDescription("vault4");
+		assertEquals(5, glacier.getVaultRequests());
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				vaultService.getVaultDescription("missing");
+				fail("Missing vault was described");
+			} catch (ResourceNotFoundException expected) {
+				assertTrue(expected.getMessage().contains("missing"));
+			}
+		}
+		assertEquals(7, glacier.getVaultRequests());
+	}
+
+	/**
+	 * Test only the descriptions which are not cached are requested in bulk.
+	 */
+	@Test
+	public void testBulkDescriptions() {
+		vaultService.getVaultDescription("vault1");
+		final List<DescribeVaultResult> descriptions = vaultService.getVaultDescriptions(
+				Arrays.asList("vault0", "vault1", "vault2"), 2);
+		assertEquals(3, descriptions.size());
+		assertEquals("vault1", descriptions.get(1).getVaultName());
+		assertEquals("vault2", descriptions.get(2).getVaultName());
+		assertEquals(3, glacier.getVaultRequests());
+		vaultService.getVaultDescriptions(Arrays.asList("vault0", "vault2"), 2);
+		assertEquals(3, glacier.getVaultRequests());
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.glacier.vault.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.glacier.AmazonGlacier;
+import com.amazonaws.services.glacier.model.DescribeVaultOutput;
+import com.amazonaws.services.glacier.model.DescribeVaultResult;
+import com.github.abhinavmishra14.aws.glacier.service.impl.GlacierVaultServiceImpl;
+import com.github.abhinavmishra14.aws.glacier.transfer.test.InMemoryGlacier;
+import com.github.abhinavmishra14.aws.glacier.vault.VaultListing;
+
+/**
+ * The Class VaultListingTest.
+ */
+public class VaultListingTest {
+
+	/** The Constant VAULT_COUNT. */
+	private static final int VAULT_COUNT = 125;
+
+	/** The glacier stand-in. */
+	private InMemoryGlacier glacier;
+
+	/** The vault service. */
+	private GlacierVaultServiceImpl vaultService;
+
+	/**
+	 * Sets the up.
+	 */
+	@Before
+	public void setUp() {
+		glacier = new InMemoryGlacier();
+		vaultService = new GlacierVaultServiceImpl(glacier.client());
+		for (int index = 0; index < VAULT_COUNT; index++) {
+			vaultService.createVault(String.format("vault%04d", index));
+		}
+	}
+
+	/**
+	 * Test every page is listed, in order.
+	 */
+	@Test
+	public void testListAllVaults() {
+		final List<DescribeVaultOutput> vaults = vaultService.listAllVaults();
+		assertEquals(VAULT_COUNT, vaults.size());
+		for (int index = 0; index < VAULT_COUNT; index++) {
+			assertEquals(String.format("vault%04d", index), vaults.get(index).getVaultName());
+		}
+		// 10 vaults per page
+		assertEquals(13, glacier.getVaultRequests());
+	}
+
+	/**
+	 * Test next page is fetched while the current page is consumed.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testPrefetch() throws Exception {
+		glacier.setVaultLatencyMillis(50);
+		final long start = System.currentTimeMillis();
+		int count = 0;
+		try (VaultListing vaultListing = vaultService.listVaults(0)) {
+			while (vaultListing.hasNext()) {
+				vaultListing.next();
+				if (++count % 10 == 0) {
+					// Caller takes as long with a page as the next page takes to arrive
+					Thread.sleep(50);
+				}
+			}
+			assertEquals(13, vaultListing.getPageCount());
+		}
+		assertEquals(VAULT_COUNT, count);
+		// Sequential listing would take 13 * 50 ms of requests plus 12 * 50 ms of processing
+		assertTrue(System.currentTimeMillis() - start < 1100);
+	}
+
+	/**
+	 * Test vaults are described at the same time, up to the concurrency, and returned in listing order.
+	 */
+	@Test
+	public void testDescribeFanOut() {
+		glacier.setVaultLatencyMillis(20);
+		final List<String> names = new ArrayList<String>();
+		try (VaultListing vaultListing = vaultService.listVaults(8)) {
+			while (vaultListing.hasNext()) {
+				names.add(vaultListing.next().getVaultName());
+			}
+		}
+		assertEquals(VAULT_COUNT, names.size());
+		assertEquals("vault0000", names.get(0));
+		assertEquals(String.format("vault%04d", VAULT_COUNT - 1), names.get(VAULT_COUNT - 1));
+		// Describe requests plus one list request being prefetched
+		assertTrue(glacier.getMaxInFlightVaultRequests() <= 9);
+		assertTrue(glacier.getMaxInFlightVaultRequests() > 1);
+
+		final List<DescribeVaultResult> descriptions = vaultService.getVaultDescriptions(names.subList(0, 40), 4);
+		assertEquals(40, descriptions.size());
+		assertEquals("vault0039", descriptions.get(39).getVaultName());
+	}
+
+	/**
+	 * Test listings share the threads which fetch their pages.
+	 */
+	@Test
+	public void testListingsShareThreads() {
+		final Set<Thread> pageFetchers = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final AmazonGlacier glacierClient = (AmazonGlacier) Proxy.newProxyInstance(
+				AmazonGlacier.class.getClassLoader(), new Class<?>[] {AmazonGlacier.class}, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args)
+							throws Throwable {
+						if ("listVaults".equals(method.getName())) {
+							pageFetchers.add(Thread.currentThread());
+						}
+						try {
+							return method.invoke(glacier.client(), args);
+						} catch (InvocationTargetException invocationEx) {
+							throw invocationEx.getCause();
+						}
+					}
+				});
+		final GlacierVaultServiceImpl listingService = new GlacierVaultServiceImpl(glacierClient);
+		for (int call = 0; call < 20; call++) {
+			assertEquals(VAULT_COUNT, listingService.listAllVaults().size());
+		}
+		assertTrue("Page fetchers: " + pageFetchers.size(), pageFetchers.size() <= 4);
+	}
+
+	/**
+	 * Test an abandoned listing releases its threads when closed.
+	 */
+	@Test
+	public void testClose() {
+		final VaultListing vaultListing = vaultService.listVaults(4);
+		assertTrue(vaultListing.hasNext());
+		vaultListing.next();
+		vaultListing.close();
+		assertFalse(vaultListing.hasNext());
+	}
+}
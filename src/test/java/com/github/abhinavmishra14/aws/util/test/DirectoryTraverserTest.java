@@ -0,0 +1,161 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.abhinavmishra14.aws.util.DirectoryTraverser;
+import com.github.abhinavmishra14.aws.util.TraversalIterator;
+import com.github.abhinavmishra14.aws.util.TraversalOptions;
+import com.github.abhinavmishra14.aws.util.TraversedFile;
+
+/**
+ * The Class DirectoryTraverserTest.
+ */
+public class DirectoryTraverserTest {
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/** The start dir. */
+	private File startDir;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		startDir = tempFolder.newFolder("tree");
+		for (int index = 0; index < 40; index++) {
+			final String extension = index % 4 == 0 ? ".log" : ".dat";
+			FileUtils.writeStringToFile(new File(startDir, "dir" + index % 5 + "/sub" + index % 3 + "/file" + index
+					+ extension), "content" + index, "UTF-8");
+		}
+		FileUtils.writeStringToFile(new File(startDir, "skipped/file.dat"), "skipped", "UTF-8");
+	}
+
+	/**
+	 * Test sequential and parallel walks return the same files.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testSequentialAndParallelWalk() throws Exception {
+		final Set<File> sequentialFiles = collect(new TraversalOptions());
+		final TraversalOptions parallelOptions = new TraversalOptions();
+		parallelOptions.setParallelism(4);
+		assertEquals(41, sequentialFiles.size());
+		assertEquals(sequentialFiles, collect(parallelOptions));
+	}
+
+	/**
+	 * Test include and exclude filters.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFilters() throws Exception {
+		final TraversalOptions options = new TraversalOptions().addInclude("**.dat").addExclude("skipped");
+		final Set<File> files = collect(options);
+		assertEquals(30, files.size());
+		for (final File file : files) {
+			assertTrue(file.getName().endsWith(".dat"));
+			assertFalse(file.getPath().contains("skipped"));
+		}
+		options.setParallelism(2);
+		assertEquals(files, collect(options));
+	}
+
+	/**
+	 * Test file uris contain files and directories.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testGetFileUris() throws Exception {
+		final Set<File> filesAndDirs = DirectoryTraverser.getFileUris(startDir);
+		assertTrue(filesAndDirs.contains(new File(startDir, "dir0")));
+		assertTrue(filesAndDirs.contains(new File(startDir, "dir0/sub0")));
+		assertTrue(filesAndDirs.contains(new File(startDir, "skipped/file.dat")));
+		assertEquals(41 + 5 + 15 + 1, filesAndDirs.size());
+	}
+
+	/**
+	 * Test attributes are handed out with the entries.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testAttributesAreReused() throws Exception {
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(startDir, new TraversalOptions())) {
+			while (traversal.hasNext()) {
+				final TraversedFile entry = traversal.next();
+				assertTrue(entry.getAttributes().isRegularFile());
+				assertEquals(entry.getFile().length(), entry.getSize());
+			}
+		}
+	}
+
+	/**
+	 * Test parallel walk can be closed early.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testCloseEarly() throws Exception {
+		final TraversalOptions options = new TraversalOptions();
+		options.setParallelism(2);
+		final TraversalIterator traversal = DirectoryTraverser.traverse(startDir, options);
+		assertTrue(traversal.hasNext());
+		traversal.next();
+		traversal.close();
+		assertFalse(traversal.hasNext());
+	}
+
+	/**
+	 * Collect the files of the walk.
+	 *
+	 * @param options the options
+	 * @return the files
+	 * @throws Exception the exception
+	 */
+	private Set<File> collect(final TraversalOptions options) throws Exception {
+		final Set<File> files = new HashSet<File>();
+		try (TraversalIterator traversal = DirectoryTraverser.traverse(startDir, options)) {
+			while (traversal.hasNext()) {
+				assertTrue(files.add(traversal.next().getFile()));
+			}
+		}
+		return files;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.abhinavmishra14.aws.glacier.transfer.TransferConfig;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategies;
+import com.github.abhinavmishra14.aws.util.ExecutorStrategy;
+
+/**
+ * The Class ExecutorStrategiesTest.
+ */
+public class ExecutorStrategiesTest {
+
+	/** The Constant CONCURRENCY. */
+	private static final int CONCURRENCY = 3;
+
+	/** The Constant TASKS. */
+	private static final int TASKS = 30;
+
+	/**
+	 * Test platform threads run at most the given number of tasks.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testPlatformThreadsAreBounded() throws Exception {
+		assertBounded(ExecutorStrategies.platform());
+	}
+
+	/**
+	 * Test virtual threads run at most the given number of tasks, and waiting tasks are cancelled on shutdown.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testVirtualThreadsAreBounded() throws Exception {
+		assumeTrue(ExecutorStrategies.isVirtualThreadsAvailable());
+		assertBounded(ExecutorStrategies.virtual());
+		final ExecutorService executor = ExecutorStrategies.virtual().newExecutor("test-virtual", 1);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int task = 0; task < CONCURRENCY; task++) {
+			futures.add(executor.submit(new SleepingTask(new AtomicInteger(), new AtomicInteger(), 10000)));
+		}
+		Thread.sleep(50);
+		executor.shutdownNow();
+		for (final Future<?> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("Task should not complete");
+			} catch (CancellationException | ExecutionException expected) {
+				assertTrue(future.isDone());
+			}
+		}
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test virtual strategy is refused where virtual threads are not available, and it is not the default.
+	 */
+	@Test
+	public void testVirtualThreadsUnavailable() {
+		assumeFalse(ExecutorStrategies.isVirtualThreadsAvailable());
+		try {
+			ExecutorStrategies.virtual();
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException expected) {
+			assertSame(ExecutorStrategies.platform(), ExecutorStrategies.getDefault());
+		}
+	}
+
+	/**
+	 * Test transfer config takes the default strategy.
+	 */
+	@Test
+	public void testDefaultStrategy() {
+		final ExecutorStrategy previous = ExecutorStrategies.getDefault();
+		final ExecutorStrategy strategy = (namePrefix, concurrency) -> previous.newExecutor(namePrefix, concurrency);
+		ExecutorStrategies.setDefault(strategy);
+		try {
+			assertSame(strategy, new TransferConfig().getExecutorStrategy());
+		} finally {
+			ExecutorStrategies.setDefault(previous);
+		}
+	}
+
+	/**
+	 * Assert the executors of the strategy are bounded.
+	 *
+	 * @param strategy the strategy
+	 * @throws Exception the exception
+	 */
+	private static void assertBounded(final ExecutorStrategy strategy) throws Exception {
+		final ExecutorService executor = strategy.newExecutor("test-" + strategy, CONCURRENCY);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int task = 0; task < TASKS; task++) {
+				futures.add(executor.submit(new SleepingTask(running, maxRunning, 10)));
+			}
+			for (final Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+			assertEquals(CONCURRENCY, maxRunning.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The Class SleepingTask. Records the tasks running at the same time.
+	 */
+	private static final class SleepingTask implements Runnable {
+
+		/** The running tasks. */
+		private final AtomicInteger running;
+
+		/** The max running tasks. */
+		private final AtomicInteger maxRunning;
+
+		/** The sleep millis. */
+		private final long sleepMillis;
+
+		/**
+		 * The Constructor.
+		 *
+		 * @param running the running tasks
+		 * @param maxRunning the max running tasks
+		 * @param sleepMillis the sleep millis
+		 */
+		SleepingTask(final AtomicInteger running, final AtomicInteger maxRunning, final long sleepMillis) {
+			this.running = running;
+			this.maxRunning = maxRunning;
+			this.sleepMillis = sleepMillis;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException intEx) {
+				throw new IllegalStateException("Interrupted", intEx);
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+	}
+}
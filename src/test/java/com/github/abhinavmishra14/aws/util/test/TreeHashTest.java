@@ -0,0 +1,105 @@
+/*
+ * Created By: Abhinav Kumar Mishra
+ * Copyright &copy; 2017. Abhinav Kumar Mishra. 
+ * All rights reserved.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.abhinavmishra14.aws.util.test;
+
+import static com.github.abhinavmishra14.aws.glacier.transfer.test.TestData.randomBytes;
+import static com.github.abhinavmishra14.aws.util.AWSUtilConstants.ONE_MB;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.github.abhinavmishra14.aws.util.TreeHash;
+
+/**
+ * The Class TreeHashTest.
+ */
+public class TreeHashTest {
+
+	/** The Constant SIZES. Covers partial leaves and odd leaf counts. */
+	private static final int[] SIZES = {1, (int) ONE_MB - 1, (int) ONE_MB, (int) ONE_MB + 1,
+		(int) (5 * ONE_MB + 512), (int) (8 * ONE_MB), (int) (13 * ONE_MB + 7)};
+
+	/** The temporary folder. */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	/**
+	 * Test file hash matches sdk.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testFileHashMatchesSdk() throws Exception {
+		for (final int size : SIZES) {
+			final byte[] content = randomBytes(size);
+			final File file = tempFolder.newFile();
+			FileUtils.writeByteArrayToFile(file, content);
+			final String expected = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(content));
+			final TreeHash.Result result = TreeHash.compute(file);
+			assertEquals("size " + size, expected, result.getTreeHashHex());
+			assertEquals(size, result.getLength());
+			assertEquals("size " + size, expected, TreeHash.toHex(TreeHash.hash(content, 0, size)));
+		}
+	}
+
+	/**
+	 * Test empty file hash is the digest of empty data.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testEmptyFileHash() throws Exception {
+		final String expected = DigestUtils.sha256Hex(new byte[0]);
+		assertEquals(expected, TreeHash.compute(tempFolder.newFile()).getTreeHashHex());
+		assertEquals(expected, TreeHash.toHex(TreeHash.hash(new byte[0], 0, 0)));
+	}
+
+	/**
+	 * Test part hashes.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	public void testPartHashes() throws Exception {
+		final int size = (int) (13 * ONE_MB + 7);
+		final long partSize = 4 * ONE_MB;
+		final byte[] content = randomBytes(size);
+		final File file = tempFolder.newFile();
+		FileUtils.writeByteArrayToFile(file, content);
+		final TreeHash.Result result = TreeHash.compute(file);
+		final List<byte[]> partHashes = result.getPartHashes(partSize);
+		assertEquals(4, partHashes.size());
+		for (int part = 0; part < partHashes.size(); part++) {
+			final int start = (int) (part * partSize);
+			final int length = (int) Math.min(partSize, size - start);
+			final String expected = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(content, start,
+					length));
+			assertEquals(expected, TreeHash.toHex(partHashes.get(part)));
+		}
+		assertEquals(result.getTreeHashHex(), TreeHash.toHex(TreeHash.combine(partHashes)));
+	}
+}